@@ -5,6 +5,7 @@ package gmu.swe.dao;
 
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
@@ -24,6 +25,15 @@ import java.util.Collection;
  * 
  */
 public class AirlineHeadquartersDao {
+	// One search query per combination of filters, with and without a page
+	// cursor, see getSearchQuery().
+	private static final String[] SEARCH_QUERIES = new String[16];
+
+	static {
+		for (int i = 0; i < SEARCH_QUERIES.length; i++) {
+			SEARCH_QUERIES[i] = generateSearchQuery((i & 4) != 0, (i & 2) != 0, (i & 1) != 0, (i & 8) != 0);
+		}
+	}
 
 	/**
 	 * Returns all of the airplanes in the database.
@@ -216,8 +226,7 @@ public class AirlineHeadquartersDao {
 	 *             database.
 	 */
 	public Flight createFlight(Flight flight) throws DataAccessException {
-		createSingleFlight(flight);
-		int flightId = getLastAddedFlightId();
+		int flightId = createSingleFlight(flight);
 		Flight savedFlight = getFlight(flightId);
 
 		return savedFlight;
@@ -228,11 +237,12 @@ public class AirlineHeadquartersDao {
 	 * 
 	 * @param flight
 	 *            Flight to create.
+	 * @return Id of the flight that was created.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	private void createSingleFlight(Flight flight) throws DataAccessException {
+	private int createSingleFlight(Flight flight) throws DataAccessException {
 		Connection conn = null;
 		PreparedStatement stmt = null;
 
@@ -251,6 +261,7 @@ public class AirlineHeadquartersDao {
 
 			stmt.executeUpdate();
 
+			return getGeneratedId(conn);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -260,37 +271,35 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Creates a reservation on a flight.
+	 * Takes numSeats seats off of the flight's available seats, but only if the
+	 * flight has at least that many seats available. The check and the
+	 * decrement are a single guarded update, so concurrent reservations can't
+	 * oversell a flight.
 	 * 
 	 * @param flightId
-	 *            Flight Id the reservation should be made for.
+	 *            Id of the flight.
 	 * @param numSeats
-	 *            Number of seats the reservation is for.
-	 * @return The Reservation that was created.
+	 *            Number of seats to take.
+	 * @return True if the seats were taken, false if the flight doesn't exist
+	 *         or doesn't have enough available seats.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	public Reservation createReservation(int flightId, int numSeats) throws DataAccessException {
+	public boolean decrementAvailableSeats(int flightId, int numSeats) throws DataAccessException {
 		Connection conn = null;
 		PreparedStatement stmt = null;
 
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn.prepareStatement("insert into RESERVATION (FLIGHT_ID, NUM_SEATS) values (?, ?)");
-			stmt.setInt(1, flightId);
-			stmt.setInt(2, numSeats);
-
-			stmt.executeUpdate();
-
-			stmt = conn.prepareStatement("update FLIGHT set AVAILABLE_SEATS = AVAILABLE_SEATS - ? where ID = ?");
+			stmt = conn.prepareStatement("update FLIGHT set AVAILABLE_SEATS = AVAILABLE_SEATS - ? "
+					+ "where ID = ? and AVAILABLE_SEATS >= ?");
 			stmt.setInt(1, numSeats);
 			stmt.setInt(2, flightId);
+			stmt.setInt(3, numSeats);
 
-			stmt.executeUpdate();
-
-			return getLastReservationAdded(flightId);
+			return stmt.executeUpdate() == 1;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -300,33 +309,39 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Returns the Id of the last added reservation to the database.
+	 * Creates a reservation on a flight. This method does not change the
+	 * flight's available seats, the seats should already have been taken with
+	 * decrementAvailableSeats() in the same transaction. The returned
+	 * Reservation is built from the provided flight, so the flight doesn't
+	 * have to be read back from the database.
 	 * 
-	 * @param flightId
-	 *            Flight Id the reservation was made for.
-	 * @return The last Reservation that was made.
+	 * @param flight
+	 *            Flight the reservation should be made for, with its available
+	 *            seats already reduced by numSeats.
+	 * @param numSeats
+	 *            Number of seats the reservation is for.
+	 * @return The Reservation that was created.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	protected Reservation getLastReservationAdded(int flightId) throws DataAccessException {
+	public Reservation createReservation(Flight flight, int numSeats) throws DataAccessException {
 		Connection conn = null;
-		Statement stmt = null;
+		PreparedStatement stmt = null;
 
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn.createStatement();
+			stmt = conn.prepareStatement("insert into RESERVATION (FLIGHT_ID, NUM_SEATS) values (?, ?)");
+			stmt.setInt(1, flight.getId());
+			stmt.setInt(2, numSeats);
 
-			// Get Reservation
-			ResultSet rs = stmt.executeQuery("select ID, NUM_SEATS from RESERVATION ORDER BY ID DESC");
-			rs.next();
+			stmt.executeUpdate();
 
 			Reservation reservation = new Reservation();
-			reservation.setId(rs.getInt(1));
-			reservation.setNumSeats(rs.getInt(2));
-
-			reservation.setFlight(this.getFlight(flightId));
+			reservation.setId(getGeneratedId(conn));
+			reservation.setNumSeats(numSeats);
+			reservation.setFlight(flight);
 
 			return reservation;
 		} catch (SQLException e) {
@@ -338,28 +353,30 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Returns the Flight that has the Id, flightId. This method assumes
-	 * flightId is a valid, existing Id.
+	 * Returns the Flight that has the Id, flightId.
 	 * 
 	 * @param flightId
 	 *            Id of the Flight to get.
-	 * @return The Flight corresponding with the provided flightId.
+	 * @return The Flight corresponding with the provided flightId, or null if
+	 *         there is no such flight.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	protected Flight getFlight(int flightId) throws DataAccessException {
+	public Flight getFlight(int flightId) throws DataAccessException {
 		Connection conn = null;
 		PreparedStatement stmt = null;
 
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn.prepareStatement("select * from FLIGHT where ID = ? ORDER BY ID DESC");
+			stmt = conn.prepareStatement("select * from FLIGHT where ID = ?");
 			stmt.setInt(1, flightId);
 
 			ResultSet rs = stmt.executeQuery();
-			rs.next();
+			if (!rs.next()) {
+				return null;
+			}
 
 			Flight flight = new Flight();
 			flight.setId(rs.getInt(1));
@@ -380,30 +397,28 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Returns the flight Id of the last flight added.
+	 * Returns the identity value generated by the last insert made on the
+	 * provided connection. HSQLDB keeps this value per session, so inserts
+	 * made by other connections at the same time don't affect it.
 	 * 
-	 * @return Id of the last added Flight
-	 * @throws DataAccessException
+	 * @param conn
+	 *            Connection the insert was made on.
+	 * @return Id of the row that was inserted.
+	 * @throws SQLException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	private int getLastAddedFlightId() throws DataAccessException {
-		Connection conn = null;
+	private int getGeneratedId(Connection conn) throws SQLException {
 		Statement stmt = null;
 
 		try {
-			conn = DbUtils.getConnection();
-
 			stmt = conn.createStatement();
 
-			ResultSet rs = stmt.executeQuery("select ID from FLIGHT ORDER BY ID DESC");
+			ResultSet rs = stmt.executeQuery("CALL IDENTITY()");
 			rs.next();
 			return rs.getInt(1);
-		} catch (SQLException e) {
-			e.printStackTrace();
-			throw new DataAccessException(e.getMessage(), e);
 		} finally {
-			closeDbObjects(stmt, conn);
+			closeDbObjects(stmt, null);
 		}
 	}
 
@@ -564,14 +579,7 @@ public class AirlineHeadquartersDao {
 		try {
 			conn = DbUtils.getConnection();
 
-			String query = generateSearchQuery(searchFilters);
-			stmt = conn.prepareStatement(query);
-
-			if (searchFilters.getDateOfTrip() != null) {
-				stmt.setDate(1, new Date(searchFilters.getDateOfTrip().getTime()));
-			} else {
-				stmt.setDate(1, new Date(new java.util.Date().getTime()));
-			}
+			stmt = prepareSearch(conn, searchFilters, null);
 
 			ResultSet rs = stmt.executeQuery();
 
@@ -580,16 +588,7 @@ public class AirlineHeadquartersDao {
 					flights = new ArrayList<Flight>();
 				}
 
-				Flight flight = new Flight();
-				flight.setId(rs.getInt(1));
-				flight.setDepartureDate(rs.getDate(2));
-				flight.setDepartureAirportCode(rs.getString(3));
-				flight.setDestinationAirportCode(rs.getString(4));
-				flight.setCost(rs.getDouble(5));
-				flight.setAirplaneId(rs.getInt(6));
-				flight.setAvailableSeats(rs.getInt(7));
-
-				flights.add(flight);
+				flights.add(readFlight(rs));
 			}
 
 			return flights;
@@ -603,36 +602,210 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Utility method used to create the search string based on the filters
-	 * provided to run a search for flights on.
+	 * Returns one page of the flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. The page is read with a keyset condition on that sort order, so
+	 * only the rows of the page (and one more, to tell whether there is a next
+	 * page) are read from the database.
 	 * 
 	 * @param searchFilters
-	 *            Filters to use when searching for flights.
+	 *            Filters to apply to the flight search.
+	 * @param after
+	 *            Position the page starts after, or null for the first page.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @return Page of flights. The page is empty if no more flights match.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, SearchCursor after, int pageSize)
+			throws DataAccessException {
+		Connection conn = null;
+		PreparedStatement stmt = null;
+
+		try {
+			conn = DbUtils.getConnection();
+
+			stmt = prepareSearch(conn, searchFilters, after);
+			stmt.setMaxRows(pageSize + 1);
+
+			ResultSet rs = stmt.executeQuery();
+
+			FlightPage page = new FlightPage();
+			Flight last = null;
+			while (rs.next()) {
+				if (page.getFlights().size() == pageSize) {
+					page.setNextPageToken(SearchCursor.after(last).toToken());
+					break;
+				}
+
+				last = readFlight(rs);
+				page.getFlights().add(last);
+			}
+
+			return page;
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			closeDbObjects(stmt, conn);
+		}
+	}
+
+	/**
+	 * Prepares the search query for the provided filters and binds its
+	 * parameters.
+	 * 
+	 * @param conn
+	 *            Connection to prepare the query on.
+	 * @param searchFilters
+	 *            Filters to apply to the flight search.
+	 * @param after
+	 *            Position to continue after, or null to start at the first
+	 *            matching flight.
+	 * @return Statement ready to be executed.
+	 * @throws SQLException
+	 *             Thrown if the query can't be prepared.
+	 */
+	private PreparedStatement prepareSearch(Connection conn, SearchFilters searchFilters, SearchCursor after)
+			throws SQLException {
+		boolean hasDeparture = searchFilters.getDepartureLocation() != null && !searchFilters.getDepartureLocation().trim().equals("");
+		boolean hasDestination = searchFilters.getDestinationLocation() != null && !searchFilters.getDestinationLocation().trim().equals("");
+
+		String query = getSearchQuery(searchFilters.getDateOfTrip() != null, hasDeparture, hasDestination,
+				after != null);
+		PreparedStatement stmt = conn.prepareStatement(query);
+
+		int parameterIndex = 1;
+		if (searchFilters.getDateOfTrip() != null) {
+			stmt.setDate(parameterIndex++, new Date(searchFilters.getDateOfTrip().getTime()));
+		}
+		if (hasDeparture) {
+			stmt.setString(parameterIndex++, searchFilters.getDepartureLocation());
+		}
+		if (hasDestination) {
+			stmt.setString(parameterIndex++, searchFilters.getDestinationLocation());
+		}
+		if (searchFilters.getDateOfTrip() == null) {
+			stmt.setDate(parameterIndex++, new Date(new java.util.Date().getTime()));
+		}
+		if (after != null) {
+			stmt.setString(parameterIndex++, after.getDepartureAirportCode());
+			stmt.setString(parameterIndex++, after.getDepartureAirportCode());
+			stmt.setString(parameterIndex++, after.getDestinationAirportCode());
+			stmt.setString(parameterIndex++, after.getDestinationAirportCode());
+			stmt.setInt(parameterIndex++, after.getFlightId());
+		}
+
+		return stmt;
+	}
+
+	/**
+	 * Returns the search query for the given combination of filters. There is
+	 * one fixed, fully parameterized query per combination, so the same SQL
+	 * text is used for every search with that combination and the prepared
+	 * statement can be reused. The parameters are, in order: the exact
+	 * departure date (if used), the departure airport code (if used), the
+	 * destination airport code (if used), the earliest departure date (if no
+	 * exact date is used) and, when hasCursor is true, the departure airport
+	 * code twice, the destination airport code twice and the flight number of
+	 * the SearchCursor to continue after.
+	 * 
+	 * The results are sorted by departure airport code, destination airport
+	 * code and flight number.
+	 * 
+	 * @param hasDateOfTrip
+	 *            True to search on an exact departure date, false to search on
+	 *            all flights from the given date on.
+	 * @param hasDeparture
+	 *            True to filter on the departure airport code.
+	 * @param hasDestination
+	 *            True to filter on the destination airport code.
+	 * @param hasCursor
+	 *            True to only return the flights after a cursor.
 	 * @return Query string to use to search for flights.
 	 */
-	private String generateSearchQuery(SearchFilters searchFilters) {
-		String query = "select * from FLIGHT ";
+	private static String getSearchQuery(boolean hasDateOfTrip, boolean hasDeparture, boolean hasDestination,
+			boolean hasCursor) {
+		int index = (hasCursor ? 8 : 0) + (hasDateOfTrip ? 4 : 0) + (hasDeparture ? 2 : 0) + (hasDestination ? 1 : 0);
+		return SEARCH_QUERIES[index];
+	}
+
+	/**
+	 * Utility method used to create the search string based on the filters
+	 * provided to run a search for flights on. Only used to build
+	 * SEARCH_QUERIES.
+	 * 
+	 * @param hasDateOfTrip
+	 *            True to search on an exact departure date.
+	 * @param hasDeparture
+	 *            True to filter on the departure airport code.
+	 * @param hasDestination
+	 *            True to filter on the destination airport code.
+	 * @param hasCursor
+	 *            True to only return the flights after a cursor.
+	 * @return Query string to use to search for flights.
+	 */
+	private static String generateSearchQuery(boolean hasDateOfTrip, boolean hasDeparture, boolean hasDestination,
+			boolean hasCursor) {
+		String query = "select * from FLIGHT WHERE ";
 		String clause = "";
 
-		if (searchFilters.getDateOfTrip() != null) {
-			clause += " WHERE DEPARTURE_DATE = ?";
-		} else {
+		/*
+		 * HSQLDB chooses the index for a query from the first condition in the
+		 * WHERE clause, so the conditions are listed most selective first: an
+		 * exact date, then the airport codes, and the date range last.
+		 */
+		if (hasDateOfTrip) {
+			clause += " AND DEPARTURE_DATE = ?";
+		}
+		if (hasDeparture) {
+			clause += " AND DEPARTURE_AIRPORT_CODE = ?";
+		}
+		if (hasDestination) {
+			clause += " AND DESTINATION_AIRPORT_CODE = ?";
+		}
+		if (!hasDateOfTrip) {
 			/*
 			 * If no date is provided, we still want to limit the results
 			 * because we don't want to return flights that have already
 			 * occurred.
 			 */
-			clause += " WHERE DEPARTURE_DATE >= ?";
+			clause += " AND DEPARTURE_DATE >= ?";
 		}
-
-		if (searchFilters.getDepartureLocation() != null && !searchFilters.getDepartureLocation().trim().equals("")) {
-			clause += " AND DEPARTURE_AIRPORT_CODE = '" + searchFilters.getDepartureLocation() + "'";
-		}
-		if (searchFilters.getDestinationLocation() != null && !searchFilters.getDestinationLocation().trim().equals("")) {
-			clause += " AND DESTINATION_AIRPORT_CODE = '" + searchFilters.getDestinationLocation() + "'";
+		if (hasCursor) {
+			// Everything after (departure, destination, id) in the sort order
+			clause += " AND (DEPARTURE_AIRPORT_CODE > ? OR (DEPARTURE_AIRPORT_CODE = ?"
+					+ " AND (DESTINATION_AIRPORT_CODE > ? OR (DESTINATION_AIRPORT_CODE = ? AND ID > ?))))";
 		}
 
-		return query + clause + " ORDER BY DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE ASC";
+		return query + clause.substring(" AND ".length())
+				+ " ORDER BY DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE, ID ASC";
+	}
+
+	/**
+	 * Creates a Flight from the current row of a result set over the FLIGHT
+	 * table.
+	 * 
+	 * @param rs
+	 *            Result set positioned on a FLIGHT row.
+	 * @return Flight with the values of the row.
+	 * @throws SQLException
+	 *             Thrown if the row can't be read.
+	 */
+	private Flight readFlight(ResultSet rs) throws SQLException {
+		Flight flight = new Flight();
+		flight.setId(rs.getInt(1));
+		flight.setDepartureDate(rs.getDate(2));
+		flight.setDepartureAirportCode(rs.getString(3));
+		flight.setDestinationAirportCode(rs.getString(4));
+		flight.setCost(rs.getDouble(5));
+		flight.setAirplaneId(rs.getInt(6));
+		flight.setAvailableSeats(rs.getInt(7));
+
+		return flight;
 	}
 
 	/**
@@ -0,0 +1,112 @@
+/*
+ * Created by: Matt Snyder
+ */
+package gmu.swe.dao;
+
+import gmu.swe.domain.Flight;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * Position in the search result order (departure airport code, destination
+ * airport code, flight number) that a page of search results continues
+ * after. Clients only see it as the opaque page token from toToken().
+ * 
+ */
+public class SearchCursor {
+	private static final String ENCODING = "UTF-8";
+	private static final char SEPARATOR = '.';
+
+	private final String departureAirportCode;
+	private final String destinationAirportCode;
+	private final int flightId;
+
+	public SearchCursor(String departureAirportCode, String destinationAirportCode, int flightId) {
+		this.departureAirportCode = departureAirportCode;
+		this.destinationAirportCode = destinationAirportCode;
+		this.flightId = flightId;
+	}
+
+	/**
+	 * @param flight
+	 *            Last flight of a page.
+	 * @return Cursor that continues after the provided flight.
+	 */
+	public static SearchCursor after(Flight flight) {
+		return new SearchCursor(flight.getDepartureAirportCode(), flight.getDestinationAirportCode(), flight.getId());
+	}
+
+	/**
+	 * Reads a cursor back from a page token.
+	 *
+	 * @param token
+	 *            Token created by toToken().
+	 * @return Cursor the token stands for.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the token was not created by toToken().
+	 */
+	public static SearchCursor fromToken(String token) throws IllegalArgumentException {
+		int first = token.indexOf(SEPARATOR);
+		int second = token.indexOf(SEPARATOR, first + 1);
+		if (first < 0 || second < 0 || token.indexOf(SEPARATOR, second + 1) >= 0) {
+			throw new IllegalArgumentException("Invalid page token: " + token);
+		}
+
+		return new SearchCursor(decode(token.substring(0, first)), decode(token.substring(first + 1, second)),
+				Integer.parseInt(token.substring(second + 1), Character.MAX_RADIX));
+	}
+
+	/**
+	 * @return Opaque token for this cursor.
+	 */
+	public String toToken() {
+		return encode(this.departureAirportCode) + SEPARATOR + encode(this.destinationAirportCode) + SEPARATOR
+				+ Integer.toString(this.flightId, Character.MAX_RADIX);
+	}
+
+	public String getDepartureAirportCode() {
+		return departureAirportCode;
+	}
+
+	public String getDestinationAirportCode() {
+		return destinationAirportCode;
+	}
+
+	public int getFlightId() {
+		return flightId;
+	}
+
+	private static String encode(String value) {
+		try {
+			StringBuffer sb = new StringBuffer();
+			for (byte b : value.getBytes(ENCODING)) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	private static String decode(String hex) throws IllegalArgumentException {
+		if (hex.length() % 2 != 0) {
+			throw new IllegalArgumentException("Invalid page token");
+		}
+
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int high = Character.digit(hex.charAt(2 * i), 16);
+			int low = Character.digit(hex.charAt(2 * i + 1), 16);
+			if (high < 0 || low < 0) {
+				throw new IllegalArgumentException("Invalid page token");
+			}
+			bytes[i] = (byte) ((high << 4) + low);
+		}
+
+		try {
+			return new String(bytes, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+}
@@ -3,11 +3,17 @@
  */
 package gmu.swe.exception;
 
+import javax.ejb.ApplicationException;
+
 /**
  * Custom exception used to wrap the database specific exceptions, and cut down
  * on the number of exceptions thrown.
  * 
+ * Marked to roll back the container transaction, so a failure part way through
+ * a reservation doesn't leave the seats taken without a reservation row.
+ * 
  */
+@ApplicationException(rollback = true)
 public class DataAccessException extends Exception {
 
 	private static final long serialVersionUID = 8123757319324423701L;
@@ -5,6 +5,7 @@ package gmu.swe.service;
 
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
@@ -60,6 +61,29 @@ public interface AirlineHeadquartersService {
 	 */
 	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException;
 
+	/**
+	 * Returns one page of the Flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. Pass null as the pageToken for the first page, and the
+	 * nextPageToken of the previous page (with the same searchFilters) for the
+	 * pages after it.
+	 * 
+	 * @param searchFilters
+	 *            Filters to used when searching for flights.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of Flights that match the provided searchFilters
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             searchFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when searching for Flights.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException;
+
 	/**
 	 * Creates an airplane in the system with the provided information.
 	 * 
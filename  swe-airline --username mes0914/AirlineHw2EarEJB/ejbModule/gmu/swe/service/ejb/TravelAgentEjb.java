@@ -4,6 +4,7 @@
 package gmu.swe.service.ejb;
 
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
@@ -51,6 +52,18 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 		return this.getService().search(searchFilters);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * gmu.swe.service.ejb.TravelAgentEjbRemote#searchPage(gmu.swe.domain.SearchFilters
+	 * , int, java.lang.String)
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
+		return this.getService().searchPage(searchFilters, pageSize, pageToken);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -4,8 +4,10 @@
 package gmu.swe.service.impl;
 
 import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.dao.SearchCursor;
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
@@ -23,6 +25,9 @@ import java.util.Collection;
  * 
  */
 public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersService {
+	// Most flights returned on one page by searchPage()
+	public static final int MAX_PAGE_SIZE = 500;
+
 	private AirlineHeadquartersDao dao;
 
 	/*
@@ -64,6 +69,23 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		return this.getDao().search(searchFilters);
 	}
 
+	/**
+	 * @see gmu.swe.service.AirlineHeadquartersService#searchPage(gmu.swe.domain.SearchFilters,
+	 *      int, java.lang.String)<br>
+	 * <br>
+	 *      Fails validation if searchFilters is null or if all of the values in
+	 *      searchFilters are null, if the pageSize is not between 1 and
+	 *      MAX_PAGE_SIZE, or if the pageToken is not one returned by an earlier
+	 *      search.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
+		validateSearchCriteria(searchFilters);
+		SearchCursor after = validatePage(pageSize, pageToken);
+
+		return this.getDao().searchPage(searchFilters, after, pageSize);
+	}
+
 	/**
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#createAirplane(int,
 	 *      java.lang.String) <br>
@@ -117,18 +139,29 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 * <br>
 	 *      Fails validation if the provided flightId < 0 or does not exist in
 	 *      the system. Also fails if the numSeats < 1 or if the flight doesn't
-	 *      have enough available seats.
+	 *      have enough available seats.<br>
+	 * <br>
+	 *      The seats are taken with a single guarded update before the
+	 *      reservation is inserted, so concurrent reservations can't oversell
+	 *      the flight.
 	 */
 	public Reservation createReservation(int flightId, int numSeats) throws ValidationException, DataAccessException {
 		validateReservationData(flightId, numSeats);
 
-		return this.getDao().createReservation(flightId, numSeats);
+		// The guarded update decides; the flight is only read after it, for
+		// the error if no row was changed or for the returned Reservation
+		if (!this.getDao().decrementAvailableSeats(flightId, numSeats)) {
+			throw createReservationFailure(this.getDao().getFlight(flightId), numSeats);
+		}
+		Flight flight = this.getDao().getFlight(flightId);
+
+		return this.getDao().createReservation(flight, numSeats);
 	}
 
 	/**
-	 * Fails validation if the provided flightId < 0 or does not exist in the
-	 * system. Also fails if the numSeats < 1 or if the flight doesn't have
-	 * enough available seats.
+	 * Fails validation if the provided flightId < 0 or if the numSeats < 1.
+	 * Whether the flight exists and has enough seats is checked in
+	 * createReservation().
 	 * 
 	 * @param flightId
 	 *            Field to validate
@@ -136,26 +169,15 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 *            Field to validate
 	 * @throws ValidationException
 	 *             Thrown if there are validation errors
-	 * @throws DataAccessException
-	 *             Thrown if there is an error when looking up values in the
-	 *             system.
 	 */
-	private void validateReservationData(int flightId, int numSeats) throws ValidationException, DataAccessException {
+	private void validateReservationData(int flightId, int numSeats) throws ValidationException {
 		ValidationException validationException = new ValidationException();
 
 		if (flightId < 0) {
 			validationException.addErrorMessage("An invalid flight Id was provided, it must be >= 0");
-		} else if (!this.getDao().doesFlightExist(flightId)) {
-			validationException.addErrorMessage("The provided flight Id does not exist");
 		}
 		if (numSeats < 1) {
 			validationException.addErrorMessage("An invalid number of seats was provided, it must be >= 1");
-		} else {
-			int numAvailableSeats = this.getDao().getNumberOfAvailableSeats(flightId);
-			if (numAvailableSeats < numSeats) {
-				validationException.addErrorMessage("The flight does not have enough seats, it only has "
-						+ numAvailableSeats + " seats available");
-			}
 		}
 
 		if (validationException.hasErrors()) {
@@ -163,6 +185,34 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		}
 	}
 
+	/**
+	 * Builds the ValidationException for a reservation whose guarded seat
+	 * update didn't change any rows, because the flight doesn't exist or
+	 * didn't have enough seats.
+	 * 
+	 * @param flight
+	 *            Flight the reservation was for, as read after the seat
+	 *            update, or null if it doesn't exist.
+	 * @param numSeats
+	 *            Seats that were asked for.
+	 * @return Exception describing why the reservation failed.
+	 */
+	private static ValidationException createReservationFailure(Flight flight, int numSeats) {
+		ValidationException validationException = new ValidationException();
+
+		if (flight == null) {
+			validationException.addErrorMessage("The provided flight Id does not exist");
+		} else if (flight.getAvailableSeats() < numSeats) {
+			validationException.addErrorMessage("The flight does not have enough seats, it only has "
+					+ flight.getAvailableSeats() + " seats available");
+		} else {
+			// Seats were given back after the update failed
+			validationException.addErrorMessage("The flight does not have enough seats, please try again");
+		}
+
+		return validationException;
+	}
+
 	/**
 	 * Fails validation if searchFilters is null or if all of the values in
 	 * searchFilters are null.
@@ -184,6 +234,41 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		}
 	}
 
+	/**
+	 * Fails validation if the pageSize is not between 1 and MAX_PAGE_SIZE, or
+	 * if the pageToken is not null and is not a token returned by an earlier
+	 * search.
+	 * 
+	 * @param pageSize
+	 *            Field to validate
+	 * @param pageToken
+	 *            Field to validate
+	 * @return The position the page starts after, or null for the first page.
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private SearchCursor validatePage(int pageSize, String pageToken) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			validationException.addErrorMessage("The page size must be between 1 and " + MAX_PAGE_SIZE);
+		}
+
+		SearchCursor after = null;
+		if (pageToken != null) {
+			try {
+				after = SearchCursor.fromToken(pageToken);
+			} catch (IllegalArgumentException e) {
+				validationException.addErrorMessage("The page token provided is not valid");
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+		return after;
+	}
+
 	/**
 	 * Fails validation if the numberOfSeats < 1, or if the airplaneType is null
 	 * or empty String "".
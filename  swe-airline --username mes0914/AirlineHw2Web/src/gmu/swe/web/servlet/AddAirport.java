@@ -3,11 +3,10 @@
  */
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.HeadquartersEjbRemote;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -83,8 +82,7 @@ public class AddAirport extends HttpServlet {
 	 */
 	private void addAirport(String airport) throws ValidationException {
 		try {
-			HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
+			HeadquartersEjbRemote ejbRef = ServiceLocator.getInstance().getHeadquartersEjb();
 			ejbRef.createAirport(airport);
 		} catch (NamingException e) {
 			e.printStackTrace();
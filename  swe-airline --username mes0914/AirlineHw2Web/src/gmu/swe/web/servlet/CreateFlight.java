@@ -3,13 +3,12 @@
  */
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.domain.Flight;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.HeadquartersEjbRemote;
 import gmu.swe.util.NumberUtils;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -91,8 +90,7 @@ public class CreateFlight extends HttpServlet {
 	 */
 	private int createFlight(Flight flight) throws ValidationException {
 		try {
-			HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
+			HeadquartersEjbRemote ejbRef = ServiceLocator.getInstance().getHeadquartersEjb();
 			return ejbRef.createFlight(flight);
 		} catch (NamingException e) {
 			e.printStackTrace();
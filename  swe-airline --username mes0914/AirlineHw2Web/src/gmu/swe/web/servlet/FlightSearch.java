@@ -4,14 +4,14 @@
 
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.TravelAgentEjbRemote;
 import gmu.swe.util.DateUtil;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -28,11 +28,16 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Servlet providing the functionality of searching for flights.
+ * Servlet providing the functionality of searching for flights. The flights
+ * are fetched one page at a time; the 'pageToken' parameter picks the page
+ * after the first.
  */
 public class FlightSearch extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 
+	// Flights shown on one page
+	private static final int PAGE_SIZE = 50;
+
 	/**
 	 * @see HttpServlet#HttpServlet()
 	 */
@@ -52,6 +57,7 @@ public class FlightSearch extends HttpServlet {
 	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
 	 *      response) Handles the user's input for the searching of a flight.
 	 *      This method will forward the user back to the searchResults.jsp
+	 *      page with one page of the flights found and the token of the next
 	 *      page. If an error occurs, the message will be put into an 'error'
 	 *      attribute field name.
 	 */
@@ -65,7 +71,8 @@ public class FlightSearch extends HttpServlet {
 			String errorMessage = validateFilters(searchFilters);
 
 			if (errorMessage == null) {
-				Collection<Flight> flights = getFlights(searchFilters);
+				FlightPage page = getFlightPage(searchFilters, request.getParameter("pageToken"));
+				Collection<Flight> flights = page.getFlights();
 
 				if (flights == null || flights.size() == 0) {
 					errorMessage = "Your search found no flights.  Please run a different search.";
@@ -74,6 +81,7 @@ public class FlightSearch extends HttpServlet {
 				} else {
 					request.getSession().setAttribute("savedFlights", flights);
 					request.setAttribute("flights", flights);
+					request.setAttribute("nextPageToken", page.getNextPageToken());
 				}
 			} else {
 				dispatch = request.getRequestDispatcher("/prepareSearch");
@@ -96,23 +104,27 @@ public class FlightSearch extends HttpServlet {
 	}
 
 	/**
-	 * Communicates wit the remote EJB service to search for flights based on
-	 * the provided SearchFilters object.
+	 * Communicates wit the remote EJB service to get one page of the flights
+	 * that match the provided SearchFilters object.
 	 * 
 	 * @param searchFilters
 	 *            Filters used to limit the search results
-	 * @return Collection of flights that match the search filters.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of flights that match the search filters.
 	 * @throws ValidationException
 	 *             Thrown if there is a validation error or if there is a
 	 *             problem in communicating with the EJB.
 	 */
-	private Collection<Flight> getFlights(SearchFilters searchFilters) throws ValidationException {
+	private FlightPage getFlightPage(SearchFilters searchFilters, String pageToken) throws ValidationException {
 
 		try {
-			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 
-			return ejbRef.search(searchFilters);
+			if (pageToken != null && pageToken.trim().equals("")) {
+				pageToken = null;
+			}
+			return ejbRef.searchPage(searchFilters, PAGE_SIZE, pageToken);
 		} catch (NamingException e) {
 			e.printStackTrace();
 			ValidationException ve = new ValidationException();
@@ -3,12 +3,11 @@
  */
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.domain.Airplane;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.HeadquartersEjbRemote;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -79,8 +78,7 @@ public class PrepareAddAirplane extends HttpServlet {
 	public Collection<Airplane> getExistingAirplanes() throws ValidationException {
 
 		try {
-			HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
+			HeadquartersEjbRemote ejbRef = ServiceLocator.getInstance().getHeadquartersEjb();
 			return ejbRef.getAllAirplanes();
 		} catch (NamingException e) {
 			e.printStackTrace();
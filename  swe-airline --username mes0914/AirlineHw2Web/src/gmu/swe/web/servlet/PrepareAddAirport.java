@@ -3,11 +3,10 @@
  */
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.HeadquartersEjbRemote;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -77,8 +76,7 @@ public class PrepareAddAirport extends HttpServlet {
 	 */
 	public Collection<String> getExistingAirports() throws ValidationException {
 		try {
-			HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
+			HeadquartersEjbRemote ejbRef = ServiceLocator.getInstance().getHeadquartersEjb();
 			return ejbRef.getAllAirports();
 		} catch (NamingException e) {
 			e.printStackTrace();
@@ -3,11 +3,10 @@
  */
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.TravelAgentEjbRemote;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -68,8 +67,7 @@ public class PrepareSearch extends HttpServlet {
 	 */
 	private Collection<String> getAllAirports() throws ValidationException {
 		try {
-			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 
 			return ejbRef.getAllAirports();
 		} catch (NamingException e) {
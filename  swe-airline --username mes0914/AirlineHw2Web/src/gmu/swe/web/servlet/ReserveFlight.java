@@ -3,14 +3,13 @@
  */
 package gmu.swe.web.servlet;
 
-import gmu.swe.constant.Constants;
 import gmu.swe.domain.Flight;
 import gmu.swe.domain.Reservation;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.ejb.TravelAgentEjbRemote;
 import gmu.swe.util.NumberUtils;
-import gmu.swe.util.ResourceUtil;
+import gmu.swe.util.ServiceLocator;
 import gmu.swe.util.StringUtils;
 
 import java.io.IOException;
@@ -101,8 +100,7 @@ public class ReserveFlight extends HttpServlet {
 	 */
 	private Reservation createReservation(int flightId, int numSeats) throws ValidationException {
 		try {
-			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 			return ejbRef.createReservation(flightId, numSeats);
 		} catch (NamingException e) {
 			e.printStackTrace();
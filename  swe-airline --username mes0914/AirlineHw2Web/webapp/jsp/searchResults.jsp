@@ -57,6 +57,16 @@
  		<display:column property="availableSeats" title="Avail Seats" />
  		<display:column property="airplaneId" title="Airplane Id" />
  	</display:table>
+
+	<c:if test="${not empty requestScope.nextPageToken}">
+		<c:url var="nextPage" value="/flightSearch">
+			<c:param name="departureAirport" value="${param.departureAirport}" />
+			<c:param name="destinationAirport" value="${param.destinationAirport}" />
+			<c:param name="flightDate" value="${param.flightDate}" />
+			<c:param name="pageToken" value="${requestScope.nextPageToken}" />
+		</c:url>
+		<a href="${nextPage}">Next Page</a>
+	</c:if>
  	
 	<br />
 	<b>Please make your choices for a reservation:</b>
@@ -2,6 +2,7 @@ package gmu.swe.dao;
 
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
@@ -15,8 +16,33 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class AirlineHeadquartersDao {
+	// Most flights sent to the database in one JDBC batch by createFlights()
+	private static final int FLIGHT_BATCH_SIZE = 500;
+
+	private static final String INSERT_FLIGHT = "insert into flight (DEPARTURE_DATE, DEPARTURE_AIRPORT_CODE, "
+			+ "DESTINATION_AIRPORT_CODE, COST, AIRPLANE_ID, AVAILABLE_SEATS) values (?, ?, ?, ?, ?, "
+			+ "(select num_seats from airplane where ID = ?))";
+
+	private static final String INSERT_FLIGHT_WITH_SEATS = "insert into flight (DEPARTURE_DATE, "
+			+ "DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE, COST, AIRPLANE_ID, AVAILABLE_SEATS) "
+			+ "values (?, ?, ?, ?, ?, ?)";
+
+	// One search query per combination of filters, with and without a page
+	// cursor, see getSearchQuery().
+	private static final String[] SEARCH_QUERIES = new String[16];
+
+	static {
+		for (int i = 0; i < SEARCH_QUERIES.length; i++) {
+			SEARCH_QUERIES[i] = generateSearchQuery((i & 4) != 0, (i & 2) != 0, (i & 1) != 0, (i & 8) != 0);
+		}
+	}
 
 	/**
 	 * Returns all of the airplanes in the database.
@@ -182,20 +208,155 @@ public class AirlineHeadquartersDao {
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn
-					.prepareStatement("insert into flight (DEPARTURE_DATE, DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE, "
-							+ "COST, AIRPLANE_ID, AVAILABLE_SEATS) values (?, ?, ?, ?, ?, (select num_seats from airplane where ID = ?))");
-			stmt.setDate(1, new Date(flight.getDepartureDate().getTime()));
-			stmt.setString(2, flight.getDepartureAirportCode().toUpperCase());
-			stmt.setString(3, flight.getDestinationAirportCode().toUpperCase());
-			stmt.setDouble(4, flight.getCost());
-			stmt.setInt(5, flight.getAirplaneId());
+			stmt = conn.prepareStatement(INSERT_FLIGHT);
+			bindFlight(stmt, flight);
 			stmt.setInt(6, flight.getAirplaneId());
 
 			stmt.executeUpdate();
 
-			return getLastAddedFlightId();
+			return getGeneratedId(conn);
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			closeDbObjects(stmt, conn);
+		}
+	}
+
+	/**
+	 * Creates the provided flights in the database using JDBC batches of
+	 * FLIGHT_BATCH_SIZE inserts. HSQLDB runs a whole batch as one call under
+	 * the database lock, so the ids generated for a batch are consecutive and
+	 * end with the identity value of the session.
+	 * 
+	 * Unlike createFlight(), the available seats are not looked up; each
+	 * flight's available seats must already be set (see
+	 * ReferenceDataCache.getNumSeats()). The inserts are not committed here;
+	 * call this method inside a UnitOfWork so either every flight is created
+	 * or none are.
+	 * 
+	 * @param flights
+	 *            Flights to create. They are not validated here.
+	 * @return Ids of the created flights, in the order of the provided list.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int[] createFlights(List<Flight> flights) throws DataAccessException {
+		int[] flightIds = new int[flights.size()];
+		Connection conn = null;
+		PreparedStatement stmt = null;
+
+		try {
+			conn = DbUtils.getConnection();
+
+			stmt = conn.prepareStatement(INSERT_FLIGHT_WITH_SEATS);
+
+			int start = 0;
+			while (start < flights.size()) {
+				int end = Math.min(start + FLIGHT_BATCH_SIZE, flights.size());
+				for (int i = start; i < end; i++) {
+					bindFlight(stmt, flights.get(i));
+					stmt.setInt(6, flights.get(i).getAvailableSeats());
+					stmt.addBatch();
+				}
+
+				int[] updateCounts = stmt.executeBatch();
+				if (updateCounts.length != end - start) {
+					throw new DataAccessException("Only " + updateCounts.length + " of " + (end - start)
+							+ " flights in the batch were created");
+				}
+
+				int lastId = getGeneratedId(conn);
+				for (int i = start; i < end; i++) {
+					flightIds[i] = lastId - (end - 1 - i);
+				}
+
+				start = end;
+			}
+
+			return flightIds;
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			closeDbObjects(stmt, conn);
+		}
+	}
+
+	/**
+	 * Sets the first five parameters (everything but the available seats) of
+	 * an INSERT_FLIGHT or INSERT_FLIGHT_WITH_SEATS statement from the provided
+	 * flight.
+	 * 
+	 * @param stmt
+	 *            Statement to set the parameters on.
+	 * @param flight
+	 *            Flight to insert.
+	 * @throws SQLException
+	 *             Thrown if a parameter can't be set.
+	 */
+	private void bindFlight(PreparedStatement stmt, Flight flight) throws SQLException {
+		stmt.setDate(1, new Date(flight.getDepartureDate().getTime()));
+		stmt.setString(2, flight.getDepartureAirportCode().toUpperCase());
+		stmt.setString(3, flight.getDestinationAirportCode().toUpperCase());
+		stmt.setDouble(4, flight.getCost());
+		stmt.setInt(5, flight.getAirplaneId());
+	}
+
+	/**
+	 * Returns the departure dates between startDate and endDate (both
+	 * included) that already have a flight on the provided route with the
+	 * provided airplane. This is one range query, however many dates there
+	 * are.
+	 *
+	 * @param departureAirportCode
+	 *            Departure airport code of the route.
+	 * @param destinationAirportCode
+	 *            Destination airport code of the route.
+	 * @param airplaneId
+	 *            Id of the airplane.
+	 * @param startDate
+	 *            First date to look at.
+	 * @param endDate
+	 *            Last date to look at.
+	 * @return Dates that have a flight, each at the start of its day.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Set<java.util.Date> getFlightDates(String departureAirportCode, String destinationAirportCode,
+			int airplaneId, java.util.Date startDate, java.util.Date endDate) throws DataAccessException {
+		Set<java.util.Date> flightDates = new HashSet<java.util.Date>();
+		Connection conn = null;
+		PreparedStatement stmt = null;
+
+		try {
+			conn = DbUtils.getConnection();
 
+			stmt = conn.prepareStatement("select distinct DEPARTURE_DATE from FLIGHT where DEPARTURE_AIRPORT_CODE = ? "
+					+ "and DESTINATION_AIRPORT_CODE = ? and AIRPLANE_ID = ? and DEPARTURE_DATE >= ? "
+					+ "and DEPARTURE_DATE <= ?");
+			stmt.setString(1, departureAirportCode.toUpperCase());
+			stmt.setString(2, destinationAirportCode.toUpperCase());
+			stmt.setInt(3, airplaneId);
+			stmt.setDate(4, new Date(startDate.getTime()));
+			stmt.setDate(5, new Date(endDate.getTime()));
+
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				flightDates.add(new java.util.Date(rs.getDate(1).getTime()));
+			}
+
+			return flightDates;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -208,10 +369,56 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Creates a reservation on a flight.
+	 * Takes numSeats seats off of the flight's available seats, but only if the
+	 * flight has at least that many seats available. The check and the
+	 * decrement are a single guarded update, so concurrent reservations can't
+	 * oversell a flight.
 	 * 
 	 * @param flightId
-	 *            Flight Id the reservation should be made for.
+	 *            Id of the flight.
+	 * @param numSeats
+	 *            Number of seats to take.
+	 * @return True if the seats were taken, false if the flight doesn't exist
+	 *         or doesn't have enough available seats.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public boolean decrementAvailableSeats(int flightId, int numSeats) throws DataAccessException {
+		Connection conn = null;
+		PreparedStatement stmt = null;
+
+		try {
+			conn = DbUtils.getConnection();
+
+			stmt = conn.prepareStatement("update FLIGHT set AVAILABLE_SEATS = AVAILABLE_SEATS - ? "
+					+ "where ID = ? and AVAILABLE_SEATS >= ?");
+			stmt.setInt(1, numSeats);
+			stmt.setInt(2, flightId);
+			stmt.setInt(3, numSeats);
+
+			return stmt.executeUpdate() == 1;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			closeDbObjects(stmt, conn);
+		}
+	}
+
+	/**
+	 * Creates a reservation on a flight. This method does not change the
+	 * flight's available seats, the seats should already have been taken with
+	 * decrementAvailableSeats() in the same transaction. The returned
+	 * Reservation is built from the provided flight, so the flight doesn't
+	 * have to be read back from the database.
+	 * 
+	 * @param flight
+	 *            Flight the reservation should be made for, with its available
+	 *            seats already reduced by numSeats.
 	 * @param numSeats
 	 *            Number of seats the reservation is for.
 	 * @return The Reservation that was created.
@@ -219,7 +426,7 @@ public class AirlineHeadquartersDao {
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	public Reservation createReservation(int flightId, int numSeats) throws DataAccessException {
+	public Reservation createReservation(Flight flight, int numSeats) throws DataAccessException {
 		Connection conn = null;
 		PreparedStatement stmt = null;
 
@@ -227,18 +434,17 @@ public class AirlineHeadquartersDao {
 			conn = DbUtils.getConnection();
 
 			stmt = conn.prepareStatement("insert into RESERVATION (FLIGHT_ID, NUM_SEATS) values (?, ?)");
-			stmt.setInt(1, flightId);
+			stmt.setInt(1, flight.getId());
 			stmt.setInt(2, numSeats);
 
 			stmt.executeUpdate();
 
-			stmt = conn.prepareStatement("update FLIGHT set AVAILABLE_SEATS = AVAILABLE_SEATS - ? where ID = ?");
-			stmt.setInt(1, numSeats);
-			stmt.setInt(2, flightId);
-
-			stmt.executeUpdate();
+			Reservation reservation = new Reservation();
+			reservation.setId(getGeneratedId(conn));
+			reservation.setNumSeats(numSeats);
+			reservation.setFlight(flight);
 
-			return getLastReservationAdded(flightId);
+			return reservation;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -251,35 +457,88 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Returns the Id of the last added reservation to the database.
+	 * Writes reservations that were already taken by a SeatInventory, in the
+	 * order of the provided list. Each reservation is inserted with its own
+	 * Id, and each flight's available seats go down by the seats reserved on
+	 * it. The seats were checked when the reservations were taken, so the
+	 * update is not guarded. The rows are written with one JDBC batch per
+	 * statement and are not committed here; call this method inside a
+	 * UnitOfWork so either every reservation is written or none are.
 	 * 
-	 * @param flightId
-	 *            Flight Id the reservation was made for.
-	 * @return The last Reservation that was made.
+	 * @param reservations
+	 *            Reservations to write. Each must have its Id, number of seats
+	 *            and flight set.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	protected Reservation getLastReservationAdded(int flightId) throws DataAccessException {
+	public void saveReservations(List<Reservation> reservations) throws DataAccessException {
 		Connection conn = null;
-		Statement stmt = null;
+		PreparedStatement stmt = null;
 
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn.createStatement();
+			// Seats taken per flight, flights in the order they first appear
+			Map<Integer, Integer> seatsTaken = new LinkedHashMap<Integer, Integer>();
 
-			// Get Reservation
-			ResultSet rs = stmt.executeQuery("select ID, NUM_SEATS from RESERVATION ORDER BY ID DESC");
-			rs.next();
+			stmt = conn.prepareStatement("insert into RESERVATION (ID, FLIGHT_ID, NUM_SEATS) values (?, ?, ?)");
+			for (Reservation reservation : reservations) {
+				Integer flightId = Integer.valueOf(reservation.getFlight().getId());
+				stmt.setInt(1, reservation.getId());
+				stmt.setInt(2, flightId.intValue());
+				stmt.setInt(3, reservation.getNumSeats());
+				stmt.addBatch();
 
-			Reservation reservation = new Reservation();
-			reservation.setId(rs.getInt(1));
-			reservation.setNumSeats(rs.getInt(2));
+				Integer taken = seatsTaken.get(flightId);
+				seatsTaken.put(flightId, Integer.valueOf((taken == null ? 0 : taken.intValue())
+						+ reservation.getNumSeats()));
+			}
+			stmt.executeBatch();
+			stmt.close();
+
+			stmt = conn.prepareStatement("update FLIGHT set AVAILABLE_SEATS = AVAILABLE_SEATS - ? where ID = ?");
+			for (Map.Entry<Integer, Integer> entry : seatsTaken.entrySet()) {
+				stmt.setInt(1, entry.getValue().intValue());
+				stmt.setInt(2, entry.getKey().intValue());
+				stmt.addBatch();
+			}
+			int[] updateCounts = stmt.executeBatch();
+			for (int updateCount : updateCounts) {
+				if (updateCount != 1) {
+					throw new DataAccessException("A flight of the reservations no longer exists");
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			closeDbObjects(stmt, conn);
+		}
+	}
 
-			reservation.setFlight(this.getFlight(flightId));
+	/**
+	 * @return The highest reservation Id, or -1 if there are no reservations.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int getMaxReservationId() throws DataAccessException {
+		Connection conn = null;
+		Statement stmt = null;
 
-			return reservation;
+		try {
+			conn = DbUtils.getConnection();
+
+			stmt = conn.createStatement();
+			ResultSet rs = stmt.executeQuery("select max(ID) from RESERVATION");
+			rs.next();
+			int maxId = rs.getInt(1);
+
+			return rs.wasNull() ? -1 : maxId;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -292,39 +551,32 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Returns the Flight that has the Id, flightId. This method assumes
-	 * flightId is a valid, existing Id.
+	 * Returns every flight that departs on or after the provided date.
 	 * 
-	 * @param flightId
-	 *            Id of the Flight to get.
-	 * @return The Flight corresponding with the provided flightId.
+	 * @param departureDate
+	 *            Earliest departure date.
+	 * @return The flights, never null.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	protected Flight getFlight(int flightId) throws DataAccessException {
+	public List<Flight> getFlightsDepartingOnOrAfter(java.util.Date departureDate) throws DataAccessException {
+		List<Flight> flights = new ArrayList<Flight>();
 		Connection conn = null;
 		PreparedStatement stmt = null;
 
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn.prepareStatement("select * from FLIGHT where ID = ? ORDER BY ID DESC");
-			stmt.setInt(1, flightId);
+			stmt = conn.prepareStatement("select * from FLIGHT where DEPARTURE_DATE >= ?");
+			stmt.setDate(1, new Date(departureDate.getTime()));
 
 			ResultSet rs = stmt.executeQuery();
-			rs.next();
-
-			Flight flight = new Flight();
-			flight.setId(rs.getInt(1));
-			flight.setDepartureDate(rs.getDate(2));
-			flight.setDepartureAirportCode(rs.getString(3));
-			flight.setDestinationAirportCode(rs.getString(4));
-			flight.setCost(rs.getDouble(5));
-			flight.setAirplaneId(rs.getInt(6));
-			flight.setAvailableSeats(rs.getInt(7));
+			while (rs.next()) {
+				flights.add(readFlight(rs));
+			}
 
-			return flight;
+			return flights;
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -337,25 +589,32 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Returns the flight Id of the last flight added.
+	 * Returns the Flight that has the Id, flightId.
 	 * 
-	 * @return Id of the last added Flight
+	 * @param flightId
+	 *            Id of the Flight to get.
+	 * @return The Flight corresponding with the provided flightId, or null if
+	 *         there is no such flight.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	private int getLastAddedFlightId() throws DataAccessException {
+	public Flight getFlight(int flightId) throws DataAccessException {
 		Connection conn = null;
-		Statement stmt = null;
+		PreparedStatement stmt = null;
 
 		try {
 			conn = DbUtils.getConnection();
 
-			stmt = conn.createStatement();
+			stmt = conn.prepareStatement("select * from FLIGHT where ID = ?");
+			stmt.setInt(1, flightId);
 
-			ResultSet rs = stmt.executeQuery("select ID from FLIGHT ORDER BY ID DESC");
-			rs.next();
-			return rs.getInt(1);
+			ResultSet rs = stmt.executeQuery();
+			if (!rs.next()) {
+				return null;
+			}
+
+			return readFlight(rs);
 		} catch (SQLException e) {
 			e.printStackTrace();
 			throw new DataAccessException(e.getMessage(), e);
@@ -367,6 +626,32 @@ public class AirlineHeadquartersDao {
 		}
 	}
 
+	/**
+	 * Returns the identity value generated by the last insert made on the
+	 * provided connection. HSQLDB keeps this value per session, so inserts
+	 * made by other connections at the same time don't affect it.
+	 * 
+	 * @param conn
+	 *            Connection the insert was made on.
+	 * @return Id of the row that was inserted.
+	 * @throws SQLException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	private int getGeneratedId(Connection conn) throws SQLException {
+		Statement stmt = null;
+
+		try {
+			stmt = conn.createStatement();
+
+			ResultSet rs = stmt.executeQuery("CALL IDENTITY()");
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			closeDbObjects(stmt, null);
+		}
+	}
+
 	/**
 	 * Returns true/false on whether or not the provided airport code exists in
 	 * the database. The string is case-insensitive.
@@ -536,14 +821,7 @@ public class AirlineHeadquartersDao {
 		try {
 			conn = DbUtils.getConnection();
 
-			String query = generateSearchQuery(searchFilters);
-			stmt = conn.prepareStatement(query);
-
-			if (searchFilters.getDateOfTrip() != null) {
-				stmt.setDate(1, new Date(searchFilters.getDateOfTrip().getTime()));
-			} else {
-				stmt.setDate(1, new Date(new java.util.Date().getTime()));
-			}
+			stmt = prepareSearch(conn, searchFilters, null);
 
 			ResultSet rs = stmt.executeQuery();
 
@@ -552,16 +830,7 @@ public class AirlineHeadquartersDao {
 					flights = new ArrayList<Flight>();
 				}
 
-				Flight flight = new Flight();
-				flight.setId(rs.getInt(1));
-				flight.setDepartureDate(rs.getDate(2));
-				flight.setDepartureAirportCode(rs.getString(3));
-				flight.setDestinationAirportCode(rs.getString(4));
-				flight.setCost(rs.getDouble(5));
-				flight.setAirplaneId(rs.getInt(6));
-				flight.setAvailableSeats(rs.getInt(7));
-
-				flights.add(flight);
+				flights.add(readFlight(rs));
 			}
 
 			return flights;
@@ -578,36 +847,231 @@ public class AirlineHeadquartersDao {
 	}
 
 	/**
-	 * Utility method used to create the search string based on the filters
-	 * provided to run a search for flights on.
+	 * Returns one page of the flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. The page is read with a keyset condition on that sort order, so
+	 * only the rows of the page (and one more, to tell whether there is a next
+	 * page) are read from the database.
+	 * 
+	 * @param searchFilters
+	 *            Filters to apply to the flight search.
+	 * @param after
+	 *            Position the page starts after, or null for the first page.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @return Page of flights. The page is empty if no more flights match.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, SearchCursor after, int pageSize)
+			throws DataAccessException {
+		Connection conn = null;
+		PreparedStatement stmt = null;
+
+		try {
+			conn = DbUtils.getConnection();
+
+			stmt = prepareSearch(conn, searchFilters, after);
+			stmt.setMaxRows(pageSize + 1);
+
+			ResultSet rs = stmt.executeQuery();
+
+			FlightPage page = new FlightPage();
+			Flight last = null;
+			while (rs.next()) {
+				if (page.getFlights().size() == pageSize) {
+					page.setNextPageToken(SearchCursor.after(last).toToken());
+					break;
+				}
+
+				last = readFlight(rs);
+				page.getFlights().add(last);
+			}
+
+			return page;
+
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			closeDbObjects(stmt, conn);
+		}
+	}
+
+	/**
+	 * Prepares the search query for the provided filters and binds its
+	 * parameters.
 	 * 
+	 * @param conn
+	 *            Connection to prepare the query on.
 	 * @param searchFilters
-	 *            Filters to use when searching for flights.
+	 *            Filters to apply to the flight search.
+	 * @param after
+	 *            Position to continue after, or null to start at the first
+	 *            matching flight.
+	 * @return Statement ready to be executed.
+	 * @throws SQLException
+	 *             Thrown if the query can't be prepared.
+	 */
+	private PreparedStatement prepareSearch(Connection conn, SearchFilters searchFilters, SearchCursor after)
+			throws SQLException {
+		boolean hasDeparture = searchFilters.getDepartureLocation() != null;
+		boolean hasDestination = searchFilters.getDestinationLocation() != null;
+
+		String query = getSearchQuery(searchFilters.getDateOfTrip() != null, hasDeparture, hasDestination,
+				after != null);
+		PreparedStatement stmt = conn.prepareStatement(query);
+
+		int parameterIndex = 1;
+		if (searchFilters.getDateOfTrip() != null) {
+			stmt.setDate(parameterIndex++, new Date(searchFilters.getDateOfTrip().getTime()));
+		}
+		if (hasDeparture) {
+			stmt.setString(parameterIndex++, searchFilters.getDepartureLocation());
+		}
+		if (hasDestination) {
+			stmt.setString(parameterIndex++, searchFilters.getDestinationLocation());
+		}
+		if (searchFilters.getDateOfTrip() == null) {
+			stmt.setDate(parameterIndex++, new Date(new java.util.Date().getTime()));
+		}
+		if (after != null) {
+			stmt.setString(parameterIndex++, after.getDepartureAirportCode());
+			stmt.setString(parameterIndex++, after.getDepartureAirportCode());
+			stmt.setString(parameterIndex++, after.getDestinationAirportCode());
+			stmt.setString(parameterIndex++, after.getDestinationAirportCode());
+			stmt.setInt(parameterIndex++, after.getFlightId());
+		}
+
+		return stmt;
+	}
+
+	/**
+	 * Returns the search query for the given combination of filters. There is
+	 * one fixed, fully parameterized query per combination, so the same SQL
+	 * text is used for every search with that combination and the prepared
+	 * statement can be reused. The parameters are, in order: the exact
+	 * departure date (if used), the departure airport code (if used), the
+	 * destination airport code (if used) and the earliest departure date (if
+	 * no exact date is used).
+	 * 
+	 * The results are sorted by departure airport code, destination airport
+	 * code and flight number.
+	 * 
+	 * @param hasDateOfTrip
+	 *            True to search on an exact departure date, false to search on
+	 *            all flights from the given date on.
+	 * @param hasDeparture
+	 *            True to filter on the departure airport code.
+	 * @param hasDestination
+	 *            True to filter on the destination airport code.
 	 * @return Query string to use to search for flights.
 	 */
-	private String generateSearchQuery(SearchFilters searchFilters) {
-		String query = "select * from FLIGHT ";
+	static String getSearchQuery(boolean hasDateOfTrip, boolean hasDeparture, boolean hasDestination) {
+		return getSearchQuery(hasDateOfTrip, hasDeparture, hasDestination, false);
+	}
+
+	/**
+	 * Returns the search query for the given combination of filters that,
+	 * when hasCursor is true, only returns the flights after a SearchCursor.
+	 * The cursor parameters come after the ones described in
+	 * getSearchQuery(boolean, boolean, boolean): the departure airport code
+	 * twice, the destination airport code twice and the flight number.
+	 * 
+	 * @param hasDateOfTrip
+	 *            True to search on an exact departure date, false to search on
+	 *            all flights from the given date on.
+	 * @param hasDeparture
+	 *            True to filter on the departure airport code.
+	 * @param hasDestination
+	 *            True to filter on the destination airport code.
+	 * @param hasCursor
+	 *            True to only return the flights after a cursor.
+	 * @return Query string to use to search for flights.
+	 */
+	static String getSearchQuery(boolean hasDateOfTrip, boolean hasDeparture, boolean hasDestination,
+			boolean hasCursor) {
+		int index = (hasCursor ? 8 : 0) + (hasDateOfTrip ? 4 : 0) + (hasDeparture ? 2 : 0) + (hasDestination ? 1 : 0);
+		return SEARCH_QUERIES[index];
+	}
+
+	/**
+	 * Utility method used to create the search string based on the filters
+	 * provided to run a search for flights on. Only used to build
+	 * SEARCH_QUERIES.
+	 * 
+	 * @param hasDateOfTrip
+	 *            True to search on an exact departure date.
+	 * @param hasDeparture
+	 *            True to filter on the departure airport code.
+	 * @param hasDestination
+	 *            True to filter on the destination airport code.
+	 * @param hasCursor
+	 *            True to only return the flights after a cursor.
+	 * @return Query string to use to search for flights.
+	 */
+	private static String generateSearchQuery(boolean hasDateOfTrip, boolean hasDeparture, boolean hasDestination,
+			boolean hasCursor) {
+		String query = "select * from FLIGHT WHERE ";
 		String clause = "";
 
-		if (searchFilters.getDateOfTrip() != null) {
-			clause += " WHERE DEPARTURE_DATE = ?";
-		} else {
+		/*
+		 * HSQLDB chooses the index for a query from the first condition in the
+		 * WHERE clause, so the conditions are listed most selective first: an
+		 * exact date, then the airport codes, and the date range last.
+		 */
+		if (hasDateOfTrip) {
+			clause += " AND DEPARTURE_DATE = ?";
+		}
+		if (hasDeparture) {
+			clause += " AND DEPARTURE_AIRPORT_CODE = ?";
+		}
+		if (hasDestination) {
+			clause += " AND DESTINATION_AIRPORT_CODE = ?";
+		}
+		if (!hasDateOfTrip) {
 			/*
 			 * If no date is provided, we still want to limit the results
 			 * because we don't want to return flights that have already
 			 * occurred.
 			 */
-			clause += " WHERE DEPARTURE_DATE >= ?";
-		}
-
-		if (searchFilters.getDepartureLocation() != null) {
-			clause += " AND DEPARTURE_AIRPORT_CODE = '" + searchFilters.getDepartureLocation() + "'";
+			clause += " AND DEPARTURE_DATE >= ?";
 		}
-		if (searchFilters.getDestinationLocation() != null) {
-			clause += " AND DESTINATION_AIRPORT_CODE = '" + searchFilters.getDestinationLocation() + "'";
+		if (hasCursor) {
+			// Everything after (departure, destination, id) in the sort order
+			clause += " AND (DEPARTURE_AIRPORT_CODE > ? OR (DEPARTURE_AIRPORT_CODE = ?"
+					+ " AND (DESTINATION_AIRPORT_CODE > ? OR (DESTINATION_AIRPORT_CODE = ? AND ID > ?))))";
 		}
 
-		return query + clause + " ORDER BY DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE ASC";
+		return query + clause.substring(" AND ".length())
+				+ " ORDER BY DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE, ID ASC";
+	}
+
+	/**
+	 * Creates a Flight from the current row of a result set over the FLIGHT
+	 * table.
+	 * 
+	 * @param rs
+	 *            Result set positioned on a FLIGHT row.
+	 * @return Flight with the values of the row.
+	 * @throws SQLException
+	 *             Thrown if the values can't be read.
+	 */
+	private Flight readFlight(ResultSet rs) throws SQLException {
+		Flight flight = new Flight();
+		flight.setId(rs.getInt(1));
+		flight.setDepartureDate(rs.getDate(2));
+		flight.setDepartureAirportCode(rs.getString(3));
+		flight.setDestinationAirportCode(rs.getString(4));
+		flight.setCost(rs.getDouble(5));
+		flight.setAirplaneId(rs.getInt(6));
+		flight.setAvailableSeats(rs.getInt(7));
+
+		return flight;
 	}
 
 	/**
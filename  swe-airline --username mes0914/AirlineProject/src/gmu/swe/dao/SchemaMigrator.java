@@ -0,0 +1,215 @@
+package gmu.swe.dao;
+
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.util.DbUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Brings the database schema up to date by applying versioned migrations. The
+ * version of the schema is kept in the SCHEMA_VERSION table; every migration
+ * with a higher version than the highest one in that table is applied, in
+ * order, and then recorded.
+ *
+ * New schema changes should be added to the end of MIGRATIONS with the next
+ * version number. A migration that has been released must never be changed.
+ *
+ * Note on indexes: HSQLDB 1.8 only uses the first column of an index, and
+ * picks the index from the first condition of the WHERE clause. It also
+ * creates an index for every foreign key column on its own (FLIGHT's airport
+ * codes and airplane, RESERVATION's flight), so composite indexes and extra
+ * foreign key indexes would only slow down inserts.
+ *
+ * HSQLDB commits DDL statements right away, so a migration that fails part
+ * way through can't be rolled back. To let the migration be re-run, a CREATE
+ * statement that fails because the object already exists is skipped.
+ *
+ * @author mbsnyder
+ *
+ */
+public class SchemaMigrator {
+	private static final Migration[] MIGRATIONS = { new Migration(1, "Flight search indexes",
+			new String[] { "CREATE INDEX IDX_FLIGHT_DEPARTURE_DATE ON FLIGHT (DEPARTURE_DATE)" }) };
+
+	/**
+	 * Applies all of the migrations the database in DB_FILE_PATH is missing.
+	 *
+	 * @return The schema version after migrating.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int migrate() throws DataAccessException {
+		Connection conn = null;
+
+		try {
+			conn = DbUtils.getConnection();
+			return migrate(conn);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			if (conn != null) {
+				try {
+					conn.close();
+				} catch (SQLException e) {
+					// Intentially do nothing
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies all of the migrations the database behind the provided
+	 * connection is missing.
+	 *
+	 * @param conn
+	 *            Connection to the database to migrate.
+	 * @return The schema version after migrating.
+	 * @throws SQLException
+	 *             Thrown if a migration fails.
+	 */
+	public int migrate(Connection conn) throws SQLException {
+		createSchemaVersionTable(conn);
+
+		int version = getCurrentVersion(conn);
+		for (Migration migration : MIGRATIONS) {
+			if (migration.version > version) {
+				apply(conn, migration);
+				version = migration.version;
+			}
+		}
+
+		return version;
+	}
+
+	/**
+	 * Returns the highest version recorded in SCHEMA_VERSION, or 0 if no
+	 * migrations have been applied.
+	 *
+	 * @param conn
+	 *            Connection to the database.
+	 * @return Current schema version.
+	 * @throws SQLException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int getCurrentVersion(Connection conn) throws SQLException {
+		Statement stmt = null;
+
+		try {
+			stmt = conn.createStatement();
+
+			ResultSet rs = stmt.executeQuery("select max(VERSION) from SCHEMA_VERSION");
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			close(stmt);
+		}
+	}
+
+	/**
+	 * @return The version of the newest migration.
+	 */
+	public int getLatestVersion() {
+		return MIGRATIONS[MIGRATIONS.length - 1].version;
+	}
+
+	/**
+	 * Runs the statements of a migration and records its version.
+	 *
+	 * @param conn
+	 *            Connection to the database.
+	 * @param migration
+	 *            Migration to apply.
+	 * @throws SQLException
+	 *             Thrown if one of the statements fails.
+	 */
+	private void apply(Connection conn, Migration migration) throws SQLException {
+		System.out.println("Applying schema migration " + migration.version + ": " + migration.description);
+
+		Statement stmt = null;
+		PreparedStatement insert = null;
+		try {
+			stmt = conn.createStatement();
+			for (String sql : migration.statements) {
+				try {
+					stmt.execute(sql);
+				} catch (SQLException e) {
+					if (!isAlreadyExists(sql, e)) {
+						throw e;
+					}
+					System.out.println("Skipping, already exists: " + sql);
+				}
+			}
+
+			insert = conn.prepareStatement("insert into SCHEMA_VERSION (VERSION, DESCRIPTION, APPLIED_ON) "
+					+ "values (?, ?, ?)");
+			insert.setInt(1, migration.version);
+			insert.setString(2, migration.description);
+			insert.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+			insert.executeUpdate();
+		} finally {
+			close(stmt);
+			close(insert);
+		}
+	}
+
+	private void createSchemaVersionTable(Connection conn) throws SQLException {
+		String sql = "CREATE TABLE SCHEMA_VERSION (VERSION INTEGER NOT NULL PRIMARY KEY, "
+				+ "DESCRIPTION VARCHAR, APPLIED_ON TIMESTAMP)";
+
+		Statement stmt = null;
+		try {
+			stmt = conn.createStatement();
+			stmt.execute(sql);
+		} catch (SQLException e) {
+			if (!isAlreadyExists(sql, e)) {
+				throw e;
+			}
+		} finally {
+			close(stmt);
+		}
+	}
+
+	/**
+	 * Returns true if the provided CREATE statement failed because the object
+	 * it creates already exists.
+	 */
+	private boolean isAlreadyExists(String sql, SQLException e) {
+		return sql.startsWith("CREATE") && e.getMessage() != null && e.getMessage().indexOf("already exists") >= 0;
+	}
+
+	private void close(Statement stmt) {
+		if (stmt != null) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				// Intentially do nothing
+			}
+		}
+	}
+
+	/**
+	 * A numbered set of DDL statements.
+	 */
+	private static class Migration {
+		private final int version;
+		private final String description;
+		private final String[] statements;
+
+		private Migration(int version, String description, String[] statements) {
+			this.version = version;
+			this.description = description;
+			this.statements = statements;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package gmu.swe.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Domain object used to represent the outcome of creating a batch of flights.
+ * There is one flight id per submitted flight, in the order the flights were
+ * submitted. Flights that failed validation were not created; their id is
+ * NOT_CREATED and their problems are in the error messages, each starting
+ * with the flight's position in the batch (e.g. "Flight 3: ...").
+ *
+ * @author mbsnyder
+ *
+ */
+public class FlightBatchResult implements Serializable {
+	private static final long serialVersionUID = -4410384125946209577L;
+
+	// Id used for a flight that was not created
+	public static final int NOT_CREATED = -1;
+
+	// Ids of the created flights, in the order they were submitted
+	private List<Integer> flightIds = new ArrayList<Integer>();
+
+	// Validation errors of the flights that were not created
+	private List<String> errorMessages = new ArrayList<String>();
+
+	public List<Integer> getFlightIds() {
+		return flightIds;
+	}
+
+	public void setFlightIds(List<Integer> flightIds) {
+		this.flightIds = flightIds;
+	}
+
+	public List<String> getErrorMessages() {
+		return errorMessages;
+	}
+
+	public void setErrorMessages(List<String> errorMessages) {
+		this.errorMessages = errorMessages;
+	}
+
+	/**
+	 * @return Number of flights that were created.
+	 */
+	public int getCreatedCount() {
+		int count = 0;
+		for (Integer flightId : this.flightIds) {
+			if (flightId.intValue() != NOT_CREATED) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public boolean hasErrors() {
+		return !this.errorMessages.isEmpty();
+	}
+}
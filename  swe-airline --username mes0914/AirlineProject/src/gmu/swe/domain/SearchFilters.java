@@ -1,5 +1,7 @@
 package gmu.swe.domain;
 
+import gmu.swe.util.DateUtil;
+
 import java.io.Serializable;
 import java.util.Date;
 
@@ -49,4 +51,43 @@ public class SearchFilters implements Serializable {
 		this.destinationLocation = null;
 		this.dateOfTrip = null;
 	}
+
+	/**
+	 * Two SearchFilters are equal if they search for the same flights. The
+	 * airport codes are compared ignoring case, and the dates of the trip are
+	 * compared by day.
+	 */
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SearchFilters)) {
+			return false;
+		}
+
+		SearchFilters other = (SearchFilters) obj;
+		return isEqual(this.getDepartureLocation(), other.getDepartureLocation())
+				&& isEqual(this.getDestinationLocation(), other.getDestinationLocation())
+				&& isEqual(getCanonicalDate(this.dateOfTrip), getCanonicalDate(other.dateOfTrip));
+	}
+
+	public int hashCode() {
+		int hash = 17;
+		hash = 31 * hash + hashCodeOf(this.getDepartureLocation());
+		hash = 31 * hash + hashCodeOf(this.getDestinationLocation());
+		hash = 31 * hash + hashCodeOf(getCanonicalDate(this.dateOfTrip));
+		return hash;
+	}
+
+	private static Date getCanonicalDate(Date date) {
+		return date == null ? null : DateUtil.getStartOfDay(date);
+	}
+
+	private static boolean isEqual(Object value1, Object value2) {
+		return value1 == null ? value2 == null : value1.equals(value2);
+	}
+
+	private static int hashCodeOf(Object value) {
+		return value == null ? 0 : value.hashCode();
+	}
 }
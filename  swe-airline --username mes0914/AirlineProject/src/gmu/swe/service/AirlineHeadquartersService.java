@@ -2,7 +2,12 @@ package gmu.swe.service;
 
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightBatchResult;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
+import gmu.swe.domain.RouteSchedule;
+import gmu.swe.domain.ScheduleExpansionResult;
+import gmu.swe.domain.ScheduleImportResult;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
@@ -17,6 +22,10 @@ import java.util.Collection;
  * 
  */
 public interface AirlineHeadquartersService {
+	/**
+	 * Most characters sent to importScheduleChunk() at once.
+	 */
+	public static final int MAX_SCHEDULE_CHUNK_LENGTH = 256 * 1024;
 
 	/**
 	 * Returns all airplanes that are in the system.
@@ -50,6 +59,29 @@ public interface AirlineHeadquartersService {
 	 */
 	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException;
 
+	/**
+	 * Returns one page of the Flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. Pass null as the pageToken for the first page, and the
+	 * nextPageToken of the previous page (with the same searchFilters) for the
+	 * pages after it.
+	 * 
+	 * @param searchFilters
+	 *            Filters to used when searching for flights.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of Flights that match the provided searchFilters
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             searchFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when searching for Flights.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException;
+
 	/**
 	 * Creates an airplane in the system with the provided information.
 	 * 
@@ -91,6 +123,68 @@ public interface AirlineHeadquartersService {
 	 */
 	public int createFlight(Flight flight) throws ValidationException, DataAccessException;
 
+	/**
+	 * Creates the provided flights in the system in one call. Every flight is
+	 * validated the same way as in createFlight(); flights that fail
+	 * validation are skipped and reported in the result, and the rest are
+	 * created together.
+	 * 
+	 * @param flights
+	 *            Flights to create
+	 * @return The Flight number of each created flight, in the order the
+	 *         flights were provided, and the validation errors of the flights
+	 *         that were skipped.
+	 * @throws ValidationException
+	 *             Thrown if no flights were provided.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException, DataAccessException;
+
+	/**
+	 * Imports the flights in one chunk of a schedule file (one flight per
+	 * line, see ScheduleImporter for the format). The client reads the file
+	 * and sends it a chunk at a time, so the file may have any number of lines
+	 * and the server never opens a path it is given. Lines that can't be
+	 * parsed or that fail validation are skipped and reported in the result by
+	 * their line number.
+	 * 
+	 * @param lines
+	 *            Lines of the chunk, separated by line breaks, at most
+	 *            MAX_SCHEDULE_CHUNK_LENGTH characters.
+	 * @param firstLineNumber
+	 *            Line number of the chunk's first line in the file, from 1.
+	 * @return Counts, rows per second and errors of the chunk. Its
+	 *         lastCommittedLine is the line to resume after if it failed.
+	 * @throws ValidationException
+	 *             Thrown if no lines were provided, the chunk is too long or
+	 *             firstLineNumber < 1.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when reading the chunk.
+	 */
+	public ScheduleImportResult importScheduleChunk(String lines, int firstLineNumber) throws ValidationException,
+			DataAccessException;
+
+	/**
+	 * Creates a flight for every departure date of a weekly schedule that
+	 * doesn't have one yet. A date already has one if a flight on the same
+	 * route with the same airplane departs that day, so running the same
+	 * schedule again creates nothing and extending its end date only creates
+	 * the added dates. Dates before today are skipped.
+	 * 
+	 * @param schedule
+	 *            Schedule to expand.
+	 * @return Ids of the created flights and the number of dates skipped.
+	 * @throws ValidationException
+	 *             Thrown if the schedule is invalid.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException;
+
 	/**
 	 * Creates a reservation for on provided flight number, flightId, for the
 	 * provided number of seats, numSeats.
@@ -1,28 +1,73 @@
 package gmu.swe.service.impl;
 
 import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.dao.SearchCursor;
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightBatchResult;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
+import gmu.swe.domain.RouteSchedule;
+import gmu.swe.domain.ScheduleExpansionResult;
+import gmu.swe.domain.ScheduleImportResult;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
 import gmu.swe.service.AirlineHeadquartersService;
 import gmu.swe.util.DateUtil;
+import gmu.swe.util.ResourceBundleUtils;
+import gmu.swe.util.UnitOfWork;
 
+import java.io.StringReader;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
-
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Service implementation backed by AirlineHeadquartersDao. Each create method
+ * runs its validation and its writes in a single UnitOfWork, so the whole call
+ * uses one database connection and one transaction. Airports and airplanes are
+ * served from the ReferenceDataCache, and search results from the
+ * SearchResultCache, which the writes invalidate once they have committed.
+ * Reservations are made through a SeatInventory, which also decides the
+ * available seats shown by the searches.
+ * 
+ * @author mbsnyder
+ * 
+ */
 public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersService {
+	// Most flights returned on one page by searchPage()
+	public static final int MAX_PAGE_SIZE = 500;
+
+	// Most days one RouteSchedule may span (two years)
+	public static final int MAX_SCHEDULE_DAYS = 731;
+
 	private AirlineHeadquartersDao dao;
 
+	private ReferenceDataCache referenceDataCache;
+
+	private SearchResultCache searchResultCache;
+
+	private SearchCoalescer searchCoalescer;
+
+	private SeatInventory seatInventory;
+
+	// Held while a schedule is expanded, see expandSchedule()
+	private final Object scheduleExpansionLock = new Object();
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#getAllAirplanes()
 	 */
 	public Collection<Airplane> getAllAirplanes() throws DataAccessException {
-		return this.getDao().getAllAirplanes();
+		return this.getReferenceDataCache().getAllAirplanes(this.getDao());
 	}
 
 	/*
@@ -31,7 +76,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#getallAirports()
 	 */
 	public Collection<String> getAllAirports() throws DataAccessException {
-		return this.getDao().getAllAirports();
+		return this.getReferenceDataCache().getAllAirports(this.getDao());
 	}
 
 	/**
@@ -40,10 +85,50 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 *      Fails validation if searchFilters is null or if all of the values in
 	 *      searchFilters are null.
 	 */
-	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException {
+	public Collection<Flight> search(final SearchFilters searchFilters) throws ValidationException, DataAccessException {
+		validateSearchCriteria(searchFilters);
+
+		final SearchResultCache cache = this.getSearchResultCache();
+		Collection<Flight> flights = cache.get(searchFilters);
+		if (flights == null) {
+			// Identical searches running at the same time share one query,
+			// unless a write invalidated the cache between their starts
+			final long version = cache.getVersion();
+			flights = this.getSearchCoalescer().search(searchFilters, version, new Callable<Collection<Flight>>() {
+				public Collection<Flight> call() throws DataAccessException {
+					Collection<Flight> found = getDao().search(searchFilters);
+					cache.put(searchFilters, found, version);
+					return found;
+				}
+			});
+		}
+
+		// The DAO returns null, not an empty collection, when nothing matches
+		if (flights == null || flights.isEmpty()) {
+			return null;
+		}
+
+		this.getSeatInventory().applyAvailableSeats(flights);
+		return flights;
+	}
+
+	/**
+	 * @see gmu.swe.service.AirlineHeadquartersService#searchPage(gmu.swe.domain.SearchFilters,
+	 *      int, java.lang.String)<br>
+	 * <br>
+	 *      Fails validation if searchFilters is null or if all of the values in
+	 *      searchFilters are null, if the pageSize is not between 1 and
+	 *      MAX_PAGE_SIZE, or if the pageToken is not one returned by an earlier
+	 *      search.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
 		validateSearchCriteria(searchFilters);
+		SearchCursor after = validatePage(pageSize, pageToken);
 
-		return this.getDao().search(searchFilters);
+		FlightPage page = this.getDao().searchPage(searchFilters, after, pageSize);
+		this.getSeatInventory().applyAvailableSeats(page.getFlights());
+		return page;
 	}
 
 	/**
@@ -56,7 +141,14 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	public void createAirplane(int numberOfSeats, String airplaneType) throws ValidationException, DataAccessException {
 		validateAirplane(numberOfSeats, airplaneType);
 
-		this.getDao().createAirplane(numberOfSeats, airplaneType);
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			this.getDao().createAirplane(numberOfSeats, airplaneType);
+			unitOfWork.commit();
+		} finally {
+			unitOfWork.end();
+		}
+		this.getReferenceDataCache().invalidate();
 	}
 
 	/**
@@ -67,9 +159,16 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 *      in the system.
 	 */
 	public void createAirport(String airportCode) throws ValidationException, DataAccessException {
-		validateAirport(airportCode);
-
-		this.getDao().createAirport(airportCode);
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			validateAirport(airportCode);
+
+			this.getDao().createAirport(airportCode);
+			unitOfWork.commit();
+		} finally {
+			unitOfWork.end();
+		}
+		this.getReferenceDataCache().invalidate();
 	}
 
 	/**
@@ -88,9 +187,170 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 *      system.)
 	 */
 	public int createFlight(Flight flight) throws ValidationException, DataAccessException {
-		validateFlight(flight);
+		int flightId;
+
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			validateFlight(flight);
+
+			flightId = this.getDao().createFlight(flight);
+			unitOfWork.commit();
+		} finally {
+			unitOfWork.end();
+		}
+		this.getSearchResultCache().invalidate(flight.getDepartureAirportCode(), flight.getDestinationAirportCode(),
+				flight.getDepartureDate());
+
+		return flightId;
+	}
+
+	/**
+	 * @see gmu.swe.service.AirlineHeadquartersService#createFlights(java.util.Collection)<br>
+	 * <br>
+	 *      Fails validation if flights is null. Each flight is checked with
+	 *      validateFlight(), which uses the ReferenceDataCache, and the valid
+	 *      flights are inserted with JDBC batches in a single UnitOfWork.
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException,
+			DataAccessException {
+		if (flights == null) {
+			ValidationException validationException = new ValidationException();
+			validationException.addErrorMessage("No flights were provided");
+			throw validationException;
+		}
+
+		FlightBatchResult result = new FlightBatchResult();
+		List<Flight> validFlights = new ArrayList<Flight>();
+		List<Integer> validPositions = new ArrayList<Integer>();
+
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			int position = 0;
+			for (Flight flight : flights) {
+				result.getFlightIds().add(Integer.valueOf(FlightBatchResult.NOT_CREATED));
+				try {
+					validateFlight(flight);
+					flight.setAvailableSeats(this.getReferenceDataCache().getNumSeats(flight.getAirplaneId(),
+							this.getDao()));
+					validFlights.add(flight);
+					validPositions.add(Integer.valueOf(position));
+				} catch (ValidationException e) {
+					for (String errorMessage : e.getErrorMessages()) {
+						result.getErrorMessages().add("Flight " + (position + 1) + ": " + errorMessage);
+					}
+				}
+				position++;
+			}
+
+			if (!validFlights.isEmpty()) {
+				int[] flightIds = this.getDao().createFlights(validFlights);
+				for (int i = 0; i < flightIds.length; i++) {
+					result.getFlightIds().set(validPositions.get(i).intValue(), Integer.valueOf(flightIds[i]));
+				}
+			}
+			unitOfWork.commit();
+		} finally {
+			unitOfWork.end();
+		}
 
-		return this.getDao().createFlight(flight);
+		// Invalidate each route and date once, not once per flight
+		Set<SearchFilters> changedSearches = new HashSet<SearchFilters>();
+		for (Flight flight : validFlights) {
+			SearchFilters searchFilters = new SearchFilters();
+			searchFilters.setDepartureLocation(flight.getDepartureAirportCode());
+			searchFilters.setDestinationLocation(flight.getDestinationAirportCode());
+			searchFilters.setDateOfTrip(flight.getDepartureDate());
+			if (changedSearches.add(searchFilters)) {
+				this.getSearchResultCache().invalidate(searchFilters.getDepartureLocation(),
+						searchFilters.getDestinationLocation(), searchFilters.getDateOfTrip());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @see gmu.swe.service.AirlineHeadquartersService#importScheduleChunk(java.lang.String,
+	 *      int)<br>
+	 * <br>
+	 *      Fails validation if no lines were provided, if they are longer than
+	 *      MAX_SCHEDULE_CHUNK_LENGTH or if firstLineNumber < 1.
+	 */
+	public ScheduleImportResult importScheduleChunk(String lines, int firstLineNumber) throws ValidationException,
+			DataAccessException {
+		validateScheduleChunk(lines, firstLineNumber);
+
+		return new ScheduleImporter(this).importSchedule(new StringReader(lines), firstLineNumber - 1, 0);
+	}
+
+	/**
+	 * @see gmu.swe.service.AirlineHeadquartersService#expandSchedule(gmu.swe.domain.RouteSchedule)<br>
+	 * <br>
+	 *      Fails validation if the schedule has no days of the week, if its
+	 *      dates are missing, out of order or more than MAX_SCHEDULE_DAYS
+	 *      apart, or if its route, airplane or cost fail validateFlight().<br>
+	 * <br>
+	 *      The dates that already have a flight are read with one range query
+	 *      and the missing ones are inserted with JDBC batches, all in a single
+	 *      UnitOfWork. Expansions run one at a time, so two expansions of the
+	 *      same schedule can't both create the same date.
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException {
+		validateRouteSchedule(schedule);
+
+		ScheduleExpansionResult result = new ScheduleExpansionResult();
+		List<Date> departureDates = new ArrayList<Date>();
+		for (Date departureDate : schedule.getDepartureDates()) {
+			if (DateUtil.isTodayOrLater(departureDate)) {
+				departureDates.add(departureDate);
+			} else {
+				result.setPastCount(result.getPastCount() + 1);
+			}
+		}
+		if (departureDates.isEmpty()) {
+			return result;
+		}
+
+		List<Flight> newFlights = new ArrayList<Flight>();
+		synchronized (this.scheduleExpansionLock) {
+			UnitOfWork unitOfWork = UnitOfWork.begin();
+			try {
+				// Every flight shares the route, airplane and cost
+				validateFlight(schedule.toFlight(departureDates.get(0)));
+				int numSeats = this.getReferenceDataCache().getNumSeats(schedule.getAirplaneId(), this.getDao());
+
+				Set<Date> flightDates = this.getDao().getFlightDates(schedule.getDepartureAirportCode(),
+						schedule.getDestinationAirportCode(), schedule.getAirplaneId(), departureDates.get(0),
+						departureDates.get(departureDates.size() - 1));
+				for (Date departureDate : departureDates) {
+					if (flightDates.contains(departureDate)) {
+						result.setExistingCount(result.getExistingCount() + 1);
+					} else {
+						Flight flight = schedule.toFlight(departureDate);
+						flight.setAvailableSeats(numSeats);
+						newFlights.add(flight);
+					}
+				}
+
+				if (!newFlights.isEmpty()) {
+					for (int flightId : this.getDao().createFlights(newFlights)) {
+						result.getFlightIds().add(Integer.valueOf(flightId));
+					}
+				}
+				unitOfWork.commit();
+			} finally {
+				unitOfWork.end();
+			}
+		}
+
+		// Each new flight is on its own date
+		for (Flight flight : newFlights) {
+			this.getSearchResultCache().invalidate(flight.getDepartureAirportCode(),
+					flight.getDestinationAirportCode(), flight.getDepartureDate());
+		}
+
+		return result;
 	}
 
 	/**
@@ -99,18 +359,27 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 * <br>
 	 *      Fails validation if the provided flightId < 0 or does not exist in
 	 *      the system. Also fails if the numSeats < 1 or if the flight doesn't
-	 *      have enough available seats.
+	 *      have enough available seats.<br>
+	 * <br>
+	 *      The seats are taken by the SeatInventory, which makes sure
+	 *      concurrent reservations can't oversell the flight.
 	 */
 	public Reservation createReservation(int flightId, int numSeats) throws ValidationException, DataAccessException {
 		validateReservationData(flightId, numSeats);
 
-		return this.getDao().createReservation(flightId, numSeats);
+		Reservation reservation = this.getSeatInventory().reserve(flightId, numSeats);
+
+		Flight flight = reservation.getFlight();
+		this.getSearchResultCache().invalidate(flight.getDepartureAirportCode(), flight.getDestinationAirportCode(),
+				flight.getDepartureDate());
+
+		return reservation;
 	}
 
 	/**
-	 * Fails validation if the provided flightId < 0 or does not exist in the
-	 * system. Also fails if the numSeats < 1 or if the flight doesn't have
-	 * enough available seats.
+	 * Fails validation if the provided flightId < 0 or if the numSeats < 1.
+	 * Whether the flight exists and has enough seats is decided by the
+	 * SeatInventory.
 	 * 
 	 * @param flightId
 	 *            Field to validate
@@ -118,26 +387,15 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 *            Field to validate
 	 * @throws ValidationException
 	 *             Thrown if there are validation errors
-	 * @throws DataAccessException
-	 *             Thrown if there is an error when looking up values in the
-	 *             system.
 	 */
-	private void validateReservationData(int flightId, int numSeats) throws ValidationException, DataAccessException {
+	private void validateReservationData(int flightId, int numSeats) throws ValidationException {
 		ValidationException validationException = new ValidationException();
 
 		if (flightId < 0) {
 			validationException.addErrorMessage("An invalid flight Id was provided, it must be >= 0");
-		} else if (!this.getDao().doesFlightExist(flightId)) {
-			validationException.addErrorMessage("The provided flight Id does not exist");
 		}
 		if (numSeats < 1) {
 			validationException.addErrorMessage("An invalid number of seats was provided, it must be >= 1");
-		} else {
-			int numAvailableSeats = this.getDao().getNumberOfAvailableSeats(flightId);
-			if (numAvailableSeats < numSeats) {
-				validationException.addErrorMessage("The flight does not have enough seats, it only has "
-						+ numAvailableSeats + " seats available");
-			}
 		}
 
 		if (validationException.hasErrors()) {
@@ -166,6 +424,125 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		}
 	}
 
+	/**
+	 * Fails validation if the lines are null, blank or longer than
+	 * MAX_SCHEDULE_CHUNK_LENGTH, or if firstLineNumber < 1.
+	 * 
+	 * @param lines
+	 *            Field to validate
+	 * @param firstLineNumber
+	 *            Field to validate
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private void validateScheduleChunk(String lines, int firstLineNumber) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (lines == null || lines.trim().equals("")) {
+			validationException.addErrorMessage("No schedule lines were provided");
+		} else if (lines.length() > MAX_SCHEDULE_CHUNK_LENGTH) {
+			validationException.addErrorMessage("A schedule chunk may not be longer than "
+					+ MAX_SCHEDULE_CHUNK_LENGTH + " characters");
+		}
+
+		if (firstLineNumber < 1) {
+			validationException.addErrorMessage("The first line number must be >= 1");
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+	}
+
+	/**
+	 * Fails validation if the schedule is null, if it has no days of the week
+	 * or one that isn't Calendar.SUNDAY to Calendar.SATURDAY, or if the start
+	 * or end date is missing, the end date is before the start date or the
+	 * dates are more than MAX_SCHEDULE_DAYS apart. The route, airplane and
+	 * cost are checked by validateFlight().
+	 * 
+	 * @param schedule
+	 *            Field to validate
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private void validateRouteSchedule(RouteSchedule schedule) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (schedule == null) {
+			validationException.addErrorMessage("No schedule was provided");
+		} else {
+			if (schedule.getDaysOfWeek() == null || schedule.getDaysOfWeek().isEmpty()) {
+				validationException.addErrorMessage("No days of the week were provided");
+			} else {
+				for (Integer dayOfWeek : schedule.getDaysOfWeek()) {
+					if (dayOfWeek == null || dayOfWeek.intValue() < Calendar.SUNDAY
+							|| dayOfWeek.intValue() > Calendar.SATURDAY) {
+						validationException.addErrorMessage("The day of the week " + dayOfWeek + " is invalid");
+					}
+				}
+			}
+
+			if (schedule.getStartDate() == null) {
+				validationException.addErrorMessage("No start date was provided");
+			}
+			if (schedule.getEndDate() == null) {
+				validationException.addErrorMessage("No end date was provided");
+			}
+			if (schedule.getStartDate() != null && schedule.getEndDate() != null) {
+				// Rounded, as a day with a daylight saving change isn't 24 hours
+				long days = Math.round((DateUtil.getStartOfDay(schedule.getEndDate()).getTime() - DateUtil
+						.getStartOfDay(schedule.getStartDate()).getTime())
+						/ (24.0 * 60 * 60 * 1000));
+				if (days < 0) {
+					validationException.addErrorMessage("The end date may not be before the start date");
+				} else if (days >= MAX_SCHEDULE_DAYS) {
+					validationException.addErrorMessage("A schedule may not span more than " + MAX_SCHEDULE_DAYS
+							+ " days");
+				}
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+	}
+
+	/**
+	 * Fails validation if the pageSize is not between 1 and MAX_PAGE_SIZE, or
+	 * if the pageToken is not null and is not a token returned by an earlier
+	 * search.
+	 * 
+	 * @param pageSize
+	 *            Field to validate
+	 * @param pageToken
+	 *            Field to validate
+	 * @return The position the page starts after, or null for the first page.
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private SearchCursor validatePage(int pageSize, String pageToken) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			validationException.addErrorMessage("The page size must be between 1 and " + MAX_PAGE_SIZE);
+		}
+
+		SearchCursor after = null;
+		if (pageToken != null) {
+			try {
+				after = SearchCursor.fromToken(pageToken);
+			} catch (IllegalArgumentException e) {
+				validationException.addErrorMessage("The page token provided is not valid");
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+		return after;
+	}
+
 	/**
 	 * Fails validation if the numberOfSeats < 1, or if the airplaneType is null
 	 * or empty String "".
@@ -209,7 +586,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 
 		if (airportCode == null || airportCode.trim().equals("")) {
 			validationException.addErrorMessage("The airport code was not provided");
-		} else if (this.getDao().doesAirportExist(airportCode)) {
+		} else if (this.getReferenceDataCache().doesAirportExist(airportCode, this.getDao())) {
 			validationException.addErrorMessage("The airport code provided already exists");
 		}
 
@@ -254,13 +631,15 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 
 			if (flight.getDepartureAirportCode() == null) {
 				validationException.addErrorMessage("No departing airport code was provided");
-			} else if (!this.getDao().doesAirportExist(flight.getDepartureAirportCode())) {
+			} else if (!this.getReferenceDataCache().doesAirportExist(flight.getDepartureAirportCode(),
+					this.getDao())) {
 				validationException.addErrorMessage("The provided departing airport code does not exist");
 			}
 
 			if (flight.getDestinationAirportCode() == null) {
 				validationException.addErrorMessage("No destination airport code was provided");
-			} else if (!this.getDao().doesAirportExist(flight.getDestinationAirportCode())) {
+			} else if (!this.getReferenceDataCache().doesAirportExist(flight.getDestinationAirportCode(),
+					this.getDao())) {
 				validationException.addErrorMessage("The provided destination airport code does not exist");
 			}
 
@@ -275,7 +654,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 
 			if (flight.getAirplaneId() < 0) {
 				validationException.addErrorMessage("The provided airplane Id is invalid.  The Id must be > 0");
-			} else if (!this.getDao().doesAirplaneExist(flight.getAirplaneId())) {
+			} else if (!this.getReferenceDataCache().doesAirplaneExist(flight.getAirplaneId(), this.getDao())) {
 				validationException.addErrorMessage("The provided airplane Id does not exist.");
 			}
 		}
@@ -285,6 +664,107 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		}
 	}
 
+	/**
+	 * Returns the cache the airports and airplanes are served from. Unless one
+	 * is set with setReferenceDataCache(), the cache shared by the JVM is used.
+	 * 
+	 * @return Reference data cache to use.
+	 */
+	public ReferenceDataCache getReferenceDataCache() {
+		if (this.referenceDataCache == null) {
+			this.referenceDataCache = ReferenceDataCache.getInstance();
+		}
+		return this.referenceDataCache;
+	}
+
+	/**
+	 * Used to set the reference data cache.
+	 * 
+	 * @param referenceDataCache
+	 *            Cache to set.
+	 */
+	public void setReferenceDataCache(ReferenceDataCache referenceDataCache) {
+		this.referenceDataCache = referenceDataCache;
+	}
+
+	/**
+	 * Returns the cache search results are served from. Unless one is set with
+	 * setSearchResultCache(), the cache shared by the JVM is used.
+	 * 
+	 * @return Search result cache to use.
+	 */
+	public SearchResultCache getSearchResultCache() {
+		if (this.searchResultCache == null) {
+			this.searchResultCache = SearchResultCache.getInstance();
+		}
+		return this.searchResultCache;
+	}
+
+	/**
+	 * Used to set the search result cache.
+	 * 
+	 * @param searchResultCache
+	 *            Cache to set.
+	 */
+	public void setSearchResultCache(SearchResultCache searchResultCache) {
+		this.searchResultCache = searchResultCache;
+	}
+
+	/**
+	 * Returns the coalescer identical concurrent searches share their query
+	 * through. Unless one is set with setSearchCoalescer(), the coalescer
+	 * shared by the JVM is used.
+	 * 
+	 * @return Search coalescer to use.
+	 */
+	public SearchCoalescer getSearchCoalescer() {
+		if (this.searchCoalescer == null) {
+			this.searchCoalescer = SearchCoalescer.getInstance();
+		}
+		return this.searchCoalescer;
+	}
+
+	/**
+	 * Used to set the search coalescer.
+	 * 
+	 * @param searchCoalescer
+	 *            Coalescer to set.
+	 */
+	public void setSearchCoalescer(SearchCoalescer searchCoalescer) {
+		this.searchCoalescer = searchCoalescer;
+	}
+
+	/**
+	 * Returns the seat inventory used to make reservations. If none was set,
+	 * the SEAT_INVENTORY property in airlineDb.properties decides: "memory"
+	 * uses the shared InMemorySeatInventory, anything else (the default,
+	 * "database") a DatabaseSeatInventory over this service's DAO.
+	 * 
+	 * @return Seat inventory to use.
+	 * @throws DataAccessException
+	 *             Thrown if the in memory seat inventory can't load the seats.
+	 */
+	public SeatInventory getSeatInventory() throws DataAccessException {
+		if (this.seatInventory == null) {
+			if ("memory".equalsIgnoreCase(ResourceBundleUtils.getOptionalProperty("SEAT_INVENTORY", "database"))) {
+				this.seatInventory = InMemorySeatInventory.getInstance();
+			} else {
+				this.seatInventory = new DatabaseSeatInventory(this.getDao());
+			}
+		}
+		return this.seatInventory;
+	}
+
+	/**
+	 * Used to set the seat inventory.
+	 * 
+	 * @param seatInventory
+	 *            Seat inventory to set.
+	 */
+	public void setSeatInventory(SeatInventory seatInventory) {
+		this.seatInventory = seatInventory;
+	}
+
 	/**
 	 * This method is used to get the correct DAO implementation. This method
 	 * makes this class loosely coupled in that someone could set a different
@@ -0,0 +1,113 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.Reservation;
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.exception.ValidationException;
+import gmu.swe.util.UnitOfWork;
+
+import java.util.Collection;
+
+/**
+ * SeatInventory that keeps the seats only in the database. The seats of a
+ * reservation are taken with a single guarded update before the reservation
+ * is inserted, in one UnitOfWork, so concurrent reservations can't oversell
+ * the flight.
+ * 
+ * @author mbsnyder
+ * 
+ */
+public class DatabaseSeatInventory implements SeatInventory {
+	private AirlineHeadquartersDao dao;
+
+	/**
+	 * @param dao
+	 *            DAO used to read and write the seats.
+	 */
+	public DatabaseSeatInventory(AirlineHeadquartersDao dao) {
+		this.dao = dao;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see gmu.swe.service.impl.SeatInventory#reserve(int, int)
+	 */
+	public Reservation reserve(int flightId, int numSeats) throws ValidationException, DataAccessException {
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			// The guarded update decides; the flight is only read after it, for
+			// the error if no row was changed or for the returned Reservation
+			if (!this.dao.decrementAvailableSeats(flightId, numSeats)) {
+				throw createReservationFailure(this.dao.getFlight(flightId), numSeats);
+			}
+			Flight flight = this.dao.getFlight(flightId);
+
+			Reservation reservation = this.dao.createReservation(flight, numSeats);
+			unitOfWork.commit();
+
+			return reservation;
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see gmu.swe.service.impl.SeatInventory#getAvailableSeats(int)
+	 */
+	public int getAvailableSeats(int flightId) throws DataAccessException {
+		Flight flight = this.dao.getFlight(flightId);
+		return flight == null ? -1 : flight.getAvailableSeats();
+	}
+
+	/**
+	 * The flights were read from the database, which is where the seats are
+	 * kept, so there is nothing to replace.
+	 * 
+	 * @see gmu.swe.service.impl.SeatInventory#applyAvailableSeats(java.util.Collection)
+	 */
+	public void applyAvailableSeats(Collection<Flight> flights) {
+		// Intentially do nothing
+	}
+
+	/**
+	 * Every reservation is committed by reserve(), so there is nothing to
+	 * write.
+	 * 
+	 * @see gmu.swe.service.impl.SeatInventory#flush()
+	 */
+	public void flush() throws DataAccessException {
+		// Intentially do nothing
+	}
+
+	/**
+	 * Builds the ValidationException for a reservation whose guarded seat
+	 * update didn't change any rows, because the flight doesn't exist or
+	 * didn't have enough seats.
+	 * 
+	 * @param flight
+	 *            Flight the reservation was for, as read after the seat
+	 *            update, or null if it doesn't exist.
+	 * @param numSeats
+	 *            Seats that were asked for.
+	 * @return Exception describing why the reservation failed.
+	 */
+	private static ValidationException createReservationFailure(Flight flight, int numSeats) {
+		ValidationException validationException = new ValidationException();
+
+		if (flight == null) {
+			validationException.addErrorMessage("The provided flight Id does not exist");
+		} else if (flight.getAvailableSeats() < numSeats) {
+			validationException.addErrorMessage("The flight does not have enough seats, it only has "
+					+ flight.getAvailableSeats() + " seats available");
+		} else {
+			// Seats were given back after the update failed
+			validationException.addErrorMessage("The flight does not have enough seats, please try again");
+		}
+
+		return validationException;
+	}
+}
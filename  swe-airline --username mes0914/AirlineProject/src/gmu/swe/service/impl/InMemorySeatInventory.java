@@ -0,0 +1,478 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.Reservation;
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.exception.ValidationException;
+import gmu.swe.util.DateUtil;
+import gmu.swe.util.ResourceBundleUtils;
+import gmu.swe.util.UnitOfWork;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SeatInventory that counts the available seats of each flight in memory,
+ * with one atomic counter per flight. A reservation takes its seats with a
+ * compare-and-set on the counter and gets its Id from an atomic sequence, so
+ * reserving and checking availability never wait on a lock or the database.
+ *
+ * The reservations are queued and a background thread writes them to the
+ * database in the order they were taken, batchSize at a time, each batch in
+ * one UnitOfWork that inserts the RESERVATION rows and lowers
+ * FLIGHT.AVAILABLE_SEATS. A batch that fails is kept and written again on
+ * the next round. While batches can't be written, reserve() keeps taking
+ * reservations only until maxPending of them are waiting, or until
+ * maxFlushFailures batches in a row have failed; then it throws a
+ * DataAccessException, so callers aren't told a reservation was made that
+ * may never be saved. Once a batch is written again, reserve() takes
+ * reservations again. A reservation is durable once flush() returns or the next
+ * batch commits, so a crash loses at most the reservations taken since the
+ * last batch; the seats and Ids in the database always match each other, so
+ * on restart start() recovers the counters and the next Id exactly from
+ * FLIGHT and RESERVATION.
+ *
+ * Flights departing today or later are loaded by start(), any other flight
+ * the first time it is used. This must be the only writer of
+ * FLIGHT.AVAILABLE_SEATS and RESERVATION while it runs.
+ *
+ * The batch size, the time between writes and the two limits are read from
+ * SEAT_INVENTORY_BATCH_SIZE, SEAT_INVENTORY_FLUSH_MILLIS,
+ * SEAT_INVENTORY_MAX_PENDING and SEAT_INVENTORY_MAX_FLUSH_FAILURES in
+ * airlineDb.properties.
+ *
+ * @author mbsnyder
+ *
+ */
+public class InMemorySeatInventory implements SeatInventory {
+	private static InMemorySeatInventory instance;
+
+	private final AirlineHeadquartersDao dao;
+	private final int batchSize;
+	private final long flushIntervalMillis;
+	private final int maxPending;
+	private final int maxFlushFailures;
+
+	// Seats of every flight that has been loaded, by flight Id. Entries are
+	// never removed, so once a flight is loaded its counter is the only copy
+	// of its seats that changes.
+	private final ConcurrentMap<Integer, FlightSeats> flights = new ConcurrentHashMap<Integer, FlightSeats>();
+
+	// Reservations that have been taken but not written, oldest first
+	private final ConcurrentLinkedQueue<Reservation> pending = new ConcurrentLinkedQueue<Reservation>();
+
+	// Reservations that have been taken but not committed, in pending or in
+	// batch
+	private final AtomicInteger pendingCount = new AtomicInteger();
+
+	private final AtomicInteger nextReservationId = new AtomicInteger();
+
+	// Number of reserve() calls that are between checking closed and queueing
+	// their reservation
+	private final AtomicInteger reservesInProgress = new AtomicInteger();
+
+	// Held while writing, so batches are written one at a time and in order
+	private final Object writeLock = new Object();
+
+	// Reservations taken off of pending that are not committed yet. Guarded
+	// by writeLock.
+	private final List<Reservation> batch = new ArrayList<Reservation>();
+
+	// Batches that failed since the last batch was written
+	private final AtomicInteger consecutiveFailureCount = new AtomicInteger();
+
+	private final AtomicLong batchCount = new AtomicLong();
+	private final AtomicLong failedBatchCount = new AtomicLong();
+	private final AtomicLong reservationCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private Thread writer;
+	private volatile boolean started;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a seat inventory. Call start() before using it.
+	 *
+	 * @param dao
+	 *            DAO used to load the seats and write the reservations.
+	 * @param batchSize
+	 *            Most reservations written in one transaction.
+	 * @param flushIntervalMillis
+	 *            How long the background thread waits between writes, in
+	 *            milliseconds.
+	 * @param maxPending
+	 *            Most reservations waiting to be written before reserve()
+	 *            fails.
+	 * @param maxFlushFailures
+	 *            Batches that may fail in a row before reserve() fails.
+	 */
+	public InMemorySeatInventory(AirlineHeadquartersDao dao, int batchSize, long flushIntervalMillis,
+			int maxPending, int maxFlushFailures) {
+		this.dao = dao;
+		this.batchSize = batchSize;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.maxPending = maxPending;
+		this.maxFlushFailures = maxFlushFailures;
+	}
+
+	/**
+	 * Returns the seat inventory shared by the service instances in this JVM,
+	 * configured from airlineDb.properties. It is started the first time, and
+	 * closed by a shutdown hook so the queued reservations are written when
+	 * the JVM exits.
+	 *
+	 * @return The started seat inventory.
+	 * @throws DataAccessException
+	 *             Thrown if the seats can't be loaded.
+	 */
+	public static synchronized InMemorySeatInventory getInstance() throws DataAccessException {
+		if (instance == null) {
+			int batchSize = Integer.parseInt(ResourceBundleUtils.getOptionalProperty("SEAT_INVENTORY_BATCH_SIZE", "500"));
+			long flushIntervalMillis = Long.parseLong(ResourceBundleUtils.getOptionalProperty(
+					"SEAT_INVENTORY_FLUSH_MILLIS", "50"));
+			int maxPending = Integer.parseInt(ResourceBundleUtils.getOptionalProperty("SEAT_INVENTORY_MAX_PENDING",
+					"50000"));
+			int maxFlushFailures = Integer.parseInt(ResourceBundleUtils.getOptionalProperty(
+					"SEAT_INVENTORY_MAX_FLUSH_FAILURES", "20"));
+
+			final InMemorySeatInventory inventory = new InMemorySeatInventory(new AirlineHeadquartersDao(), batchSize,
+					flushIntervalMillis, maxPending, maxFlushFailures);
+			inventory.start();
+			Runtime.getRuntime().addShutdownHook(new Thread("seat-inventory-shutdown") {
+				public void run() {
+					try {
+						inventory.close();
+					} catch (DataAccessException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+
+			instance = inventory;
+		}
+		return instance;
+	}
+
+	/**
+	 * Loads the seats of the flights departing today or later and the next
+	 * reservation Id from the database, and starts the thread that writes the
+	 * reservations.
+	 *
+	 * @throws DataAccessException
+	 *             Thrown if the seats can't be loaded.
+	 */
+	public synchronized void start() throws DataAccessException {
+		if (this.started) {
+			return;
+		}
+
+		this.nextReservationId.set(this.dao.getMaxReservationId() + 1);
+		for (Flight flight : this.dao.getFlightsDepartingOnOrAfter(DateUtil.getStartOfDay(new Date()))) {
+			this.flights.putIfAbsent(Integer.valueOf(flight.getId()), new FlightSeats(flight));
+		}
+
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				writeInBackground();
+			}
+		}, "seat-inventory-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+
+		this.started = true;
+	}
+
+	/**
+	 * Stops taking reservations, stops the background thread and writes the
+	 * reservations that are still queued.
+	 *
+	 * @throws DataAccessException
+	 *             Thrown if the queued reservations could not be written.
+	 */
+	public void close() throws DataAccessException {
+		synchronized (this) {
+			if (!this.started || this.closed) {
+				return;
+			}
+			this.closed = true;
+		}
+
+		// A reserve() that got past the closed check queues its reservation
+		// before this flush
+		while (this.reservesInProgress.get() > 0) {
+			Thread.yield();
+		}
+
+		this.writer.interrupt();
+		try {
+			this.writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see gmu.swe.service.impl.SeatInventory#reserve(int, int)
+	 */
+	public Reservation reserve(int flightId, int numSeats) throws ValidationException, DataAccessException {
+		this.reservesInProgress.incrementAndGet();
+		try {
+			if (!this.started || this.closed) {
+				throw new DataAccessException("The seat inventory is not running");
+			}
+			if (this.consecutiveFailureCount.get() >= this.maxFlushFailures) {
+				this.rejectedCount.incrementAndGet();
+				throw new DataAccessException("Reservations can't be saved to the database right now, please try again");
+			}
+			if (this.pendingCount.get() >= this.maxPending) {
+				this.rejectedCount.incrementAndGet();
+				throw new DataAccessException("Too many reservations are waiting to be saved, please try again");
+			}
+
+			FlightSeats flightSeats = getFlightSeats(flightId);
+			if (flightSeats == null) {
+				ValidationException validationException = new ValidationException();
+				validationException.addErrorMessage("The provided flight Id does not exist");
+				throw validationException;
+			}
+
+			int availableSeats;
+			do {
+				availableSeats = flightSeats.availableSeats.get();
+				if (availableSeats < numSeats) {
+					ValidationException validationException = new ValidationException();
+					validationException.addErrorMessage("The flight does not have enough seats, it only has "
+							+ availableSeats + " seats available");
+					throw validationException;
+				}
+			} while (!flightSeats.availableSeats.compareAndSet(availableSeats, availableSeats - numSeats));
+
+			Reservation reservation = new Reservation();
+			reservation.setId(this.nextReservationId.getAndIncrement());
+			reservation.setNumSeats(numSeats);
+			reservation.setFlight(flightSeats.getFlight(availableSeats - numSeats));
+
+			this.pendingCount.incrementAndGet();
+			this.pending.offer(reservation);
+			return reservation;
+		} finally {
+			this.reservesInProgress.decrementAndGet();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see gmu.swe.service.impl.SeatInventory#getAvailableSeats(int)
+	 */
+	public int getAvailableSeats(int flightId) throws DataAccessException {
+		FlightSeats flightSeats = getFlightSeats(flightId);
+		return flightSeats == null ? -1 : flightSeats.availableSeats.get();
+	}
+
+	/**
+	 * Flights that have not been loaded have no reservations waiting to be
+	 * written, so the seats they were read with are kept.
+	 *
+	 * @see gmu.swe.service.impl.SeatInventory#applyAvailableSeats(java.util.Collection)
+	 */
+	public void applyAvailableSeats(Collection<Flight> flights) {
+		if (flights == null) {
+			return;
+		}
+
+		for (Flight flight : flights) {
+			FlightSeats flightSeats = this.flights.get(Integer.valueOf(flight.getId()));
+			if (flightSeats != null) {
+				flight.setAvailableSeats(flightSeats.availableSeats.get());
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see gmu.swe.service.impl.SeatInventory#flush()
+	 */
+	public void flush() throws DataAccessException {
+		synchronized (this.writeLock) {
+			while (true) {
+				while (this.batch.size() < this.batchSize) {
+					Reservation reservation = this.pending.poll();
+					if (reservation == null) {
+						break;
+					}
+					this.batch.add(reservation);
+				}
+				if (this.batch.isEmpty()) {
+					return;
+				}
+
+				try {
+					writeBatch();
+				} catch (DataAccessException e) {
+					this.failedBatchCount.incrementAndGet();
+					this.consecutiveFailureCount.incrementAndGet();
+					throw e;
+				}
+
+				this.consecutiveFailureCount.set(0);
+				this.batchCount.incrementAndGet();
+				this.reservationCount.addAndGet(this.batch.size());
+				this.pendingCount.addAndGet(-this.batch.size());
+				this.batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Writes the batch in one UnitOfWork. Called with writeLock held.
+	 */
+	private void writeBatch() throws DataAccessException {
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			this.dao.saveReservations(this.batch);
+			unitOfWork.commit();
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+	/**
+	 * Run by the writer thread until close() is called.
+	 */
+	private void writeInBackground() {
+		while (!this.closed) {
+			try {
+				Thread.sleep(this.flushIntervalMillis);
+			} catch (InterruptedException e) {
+				// close() wakes the writer up, which then stops
+				continue;
+			}
+
+			try {
+				flush();
+			} catch (DataAccessException e) {
+				// The batch that failed is kept and written on the next round.
+				// Only the first failure and reaching the limit are logged.
+				int failures = getConsecutiveFailureCount();
+				if (failures == 1 || failures == this.maxFlushFailures) {
+					System.out.println("** " + getClass().getSimpleName() + ": Reservations couldn't be written ("
+							+ getStatistics() + "): " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return Reservations taken but not written to the database yet.
+	 */
+	public int getPendingCount() {
+		return this.pendingCount.get();
+	}
+
+	/**
+	 * @return Batches that failed since the last batch was written.
+	 */
+	public int getConsecutiveFailureCount() {
+		return this.consecutiveFailureCount.get();
+	}
+
+	public long getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	public long getFailedBatchCount() {
+		return this.failedBatchCount.get();
+	}
+
+	public long getReservationCount() {
+		return this.reservationCount.get();
+	}
+
+	/**
+	 * @return Reservations refused because of the pending or failure limit.
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+
+	/**
+	 * @return One line summary of the counters, for logging.
+	 */
+	public String getStatistics() {
+		return "pending=" + getPendingCount() + ", batches=" + getBatchCount() + ", reservations="
+				+ getReservationCount() + ", failedBatches=" + getFailedBatchCount() + ", consecutiveFailures="
+				+ getConsecutiveFailureCount() + ", rejected=" + getRejectedCount();
+	}
+
+	/**
+	 * Returns the seats of a flight, loading them from the database if the
+	 * flight hasn't been used yet.
+	 *
+	 * @param flightId
+	 *            Id of the flight.
+	 * @return The seats of the flight, or null if there is no such flight.
+	 * @throws DataAccessException
+	 *             Thrown if the flight can't be read.
+	 */
+	private FlightSeats getFlightSeats(int flightId) throws DataAccessException {
+		Integer key = Integer.valueOf(flightId);
+		FlightSeats flightSeats = this.flights.get(key);
+		if (flightSeats == null) {
+			Flight flight = this.dao.getFlight(flightId);
+			if (flight == null) {
+				return null;
+			}
+
+			// Another thread may have loaded the flight, and taken seats,
+			// while it was being read
+			flightSeats = new FlightSeats(flight);
+			FlightSeats loaded = this.flights.putIfAbsent(key, flightSeats);
+			if (loaded != null) {
+				flightSeats = loaded;
+			}
+		}
+		return flightSeats;
+	}
+
+	/**
+	 * A flight as it was loaded, and the counter of its available seats.
+	 */
+	private static class FlightSeats {
+		private final Flight flight;
+		private final AtomicInteger availableSeats;
+
+		private FlightSeats(Flight flight) {
+			this.flight = flight;
+			this.availableSeats = new AtomicInteger(flight.getAvailableSeats());
+		}
+
+		/**
+		 * @return A copy of the flight with the provided available seats.
+		 */
+		private Flight getFlight(int availableSeats) {
+			Flight copy = new Flight();
+			copy.setId(this.flight.getId());
+			copy.setDepartureDate(this.flight.getDepartureDate());
+			copy.setDepartureAirportCode(this.flight.getDepartureAirportCode());
+			copy.setDestinationAirportCode(this.flight.getDestinationAirportCode());
+			copy.setCost(this.flight.getCost());
+			copy.setAirplaneId(this.flight.getAirplaneId());
+			copy.setAvailableSeats(availableSeats);
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,270 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Airplane;
+import gmu.swe.exception.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory copy of the reference data (airports and airplanes) shared by
+ * every service instance in the JVM. The lists and the existence checks are
+ * served from memory; the data is loaded from the DAO the first time it is
+ * needed after startup or after invalidate() is called.
+ *
+ * Airports and airplanes are never deleted, so a code or id that is in the
+ * cache is known to exist. One that isn't may have been added since the cache
+ * was loaded (e.g. on another node), so a negative answer is checked against
+ * the database, and the cache is invalidated if the database disagrees.
+ *
+ * @author mbsnyder
+ *
+ */
+public class ReferenceDataCache {
+	private static final ReferenceDataCache instance = new ReferenceDataCache();
+
+	private volatile Snapshot snapshot;
+
+	// Incremented by invalidate(), so a load that was started before an
+	// invalidation doesn't put its older data in the cache.
+	private long generation;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	/**
+	 * @return The cache shared by the service instances in this JVM.
+	 */
+	public static ReferenceDataCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns all of the airport codes, sorted.
+	 *
+	 * @param dao
+	 *            DAO to load the reference data with if it isn't cached.
+	 * @return All of the airport codes.
+	 * @throws DataAccessException
+	 *             Thrown if the reference data has to be loaded and the load
+	 *             fails.
+	 */
+	public Collection<String> getAllAirports(AirlineHeadquartersDao dao) throws DataAccessException {
+		return new ArrayList<String>(getSnapshot(dao, true).airports);
+	}
+
+	/**
+	 * Returns all of the airplanes, sorted by type.
+	 *
+	 * @param dao
+	 *            DAO to load the reference data with if it isn't cached.
+	 * @return All of the airplanes.
+	 * @throws DataAccessException
+	 *             Thrown if the reference data has to be loaded and the load
+	 *             fails.
+	 */
+	public Collection<Airplane> getAllAirplanes(AirlineHeadquartersDao dao) throws DataAccessException {
+		return new ArrayList<Airplane>(getSnapshot(dao, true).airplanes);
+	}
+
+	/**
+	 * Returns true/false on whether or not the airport code exists.
+	 *
+	 * @param airportCode
+	 *            Airport code to check on.
+	 * @param dao
+	 *            DAO to load the reference data with, and to check codes that
+	 *            aren't cached.
+	 * @return True if the airport exists.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public boolean doesAirportExist(String airportCode, AirlineHeadquartersDao dao) throws DataAccessException {
+		if (getSnapshot(dao, false).airportCodes.contains(airportCode.toUpperCase())) {
+			this.hitCount.incrementAndGet();
+			return true;
+		}
+
+		this.missCount.incrementAndGet();
+		boolean exists = dao.doesAirportExist(airportCode);
+		if (exists) {
+			invalidate();
+		}
+		return exists;
+	}
+
+	/**
+	 * Returns true/false on whether or not the airplane exists.
+	 *
+	 * @param airplaneId
+	 *            Airplane Id to check on.
+	 * @param dao
+	 *            DAO to load the reference data with, and to check ids that
+	 *            aren't cached.
+	 * @return True if the airplane exists.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public boolean doesAirplaneExist(int airplaneId, AirlineHeadquartersDao dao) throws DataAccessException {
+		if (getSnapshot(dao, false).airplaneSeats.containsKey(Integer.valueOf(airplaneId))) {
+			this.hitCount.incrementAndGet();
+			return true;
+		}
+
+		this.missCount.incrementAndGet();
+		boolean exists = dao.doesAirplaneExist(airplaneId);
+		if (exists) {
+			invalidate();
+		}
+		return exists;
+	}
+
+	/**
+	 * Returns the number of seats on the airplane.
+	 *
+	 * @param airplaneId
+	 *            Id of the airplane.
+	 * @param dao
+	 *            DAO to load the reference data with, and to check ids that
+	 *            aren't cached.
+	 * @return Number of seats on the airplane, or -1 if the airplane doesn't
+	 *         exist.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int getNumSeats(int airplaneId, AirlineHeadquartersDao dao) throws DataAccessException {
+		Integer numSeats = getSnapshot(dao, false).airplaneSeats.get(Integer.valueOf(airplaneId));
+		if (numSeats != null) {
+			this.hitCount.incrementAndGet();
+		} else if (doesAirplaneExist(airplaneId, dao)) {
+			// Added since the cache was loaded; doesAirplaneExist() has
+			// counted the miss and invalidated the cache, so this reloads it
+			numSeats = getSnapshot(dao, false).airplaneSeats.get(Integer.valueOf(airplaneId));
+		}
+		return numSeats == null ? -1 : numSeats.intValue();
+	}
+
+	/**
+	 * Drops the cached reference data. The next request reloads it.
+	 */
+	public void invalidate() {
+		synchronized (this) {
+			this.generation++;
+			this.snapshot = null;
+		}
+		this.invalidationCount.incrementAndGet();
+	}
+
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	public long getLoadCount() {
+		return this.loadCount.get();
+	}
+
+	public long getInvalidationCount() {
+		return this.invalidationCount.get();
+	}
+
+	/**
+	 * @return The fraction of requests served from memory, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	/**
+	 * @return One line summary of the cache counters, for logging.
+	 */
+	public String getStatistics() {
+		return "hits=" + getHitCount() + ", misses=" + getMissCount() + ", hitRate=" + getHitRate() + ", loads="
+				+ getLoadCount() + ", invalidations=" + getInvalidationCount();
+	}
+
+	/**
+	 * Returns the cached reference data, loading it if needed. Only one thread
+	 * loads at a time; the others wait for its result.
+	 *
+	 * @param counted
+	 *            True to count the request as a hit or a miss. The existence
+	 *            checks pass false and count it themselves, since a code that
+	 *            isn't cached is a miss even when the data is.
+	 */
+	private Snapshot getSnapshot(AirlineHeadquartersDao dao, boolean counted) throws DataAccessException {
+		Snapshot current = this.snapshot;
+		if (current != null) {
+			if (counted) {
+				this.hitCount.incrementAndGet();
+			}
+			return current;
+		}
+
+		synchronized (this) {
+			if (this.snapshot != null) {
+				if (counted) {
+					this.hitCount.incrementAndGet();
+				}
+				return this.snapshot;
+			}
+
+			if (counted) {
+				this.missCount.incrementAndGet();
+			}
+			long loadGeneration = this.generation;
+
+			Snapshot loaded = new Snapshot(dao.getAllAirports(), dao.getAllAirplanes());
+			this.loadCount.incrementAndGet();
+			if (this.generation == loadGeneration) {
+				this.snapshot = loaded;
+			}
+			return loaded;
+		}
+	}
+
+	/**
+	 * Immutable copy of the reference data as of one load.
+	 */
+	private static class Snapshot {
+		private final List<String> airports;
+		private final Set<String> airportCodes;
+		private final List<Airplane> airplanes;
+		private final Map<Integer, Integer> airplaneSeats;
+
+		private Snapshot(Collection<String> airports, Collection<Airplane> airplanes) {
+			this.airports = Collections.unmodifiableList(new ArrayList<String>(airports));
+			this.airplanes = Collections.unmodifiableList(new ArrayList<Airplane>(airplanes));
+
+			Set<String> airportCodes = new HashSet<String>();
+			for (String airport : airports) {
+				airportCodes.add(airport.toUpperCase());
+			}
+			this.airportCodes = Collections.unmodifiableSet(airportCodes);
+
+			Map<Integer, Integer> airplaneSeats = new HashMap<Integer, Integer>();
+			for (Airplane airplane : airplanes) {
+				airplaneSeats.put(Integer.valueOf(airplane.getId()), Integer.valueOf(airplane.getNumSeats()));
+			}
+			this.airplaneSeats = Collections.unmodifiableMap(airplaneSeats);
+		}
+	}
+}
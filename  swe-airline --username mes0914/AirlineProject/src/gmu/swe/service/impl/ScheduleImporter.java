@@ -0,0 +1,497 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.ScheduleImportResult;
+import gmu.swe.domain.SearchFilters;
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.exception.ValidationException;
+import gmu.swe.util.UnitOfWork;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams a flight schedule file into the FLIGHT table. Each line of the file
+ * goes through four stages, each running on its own thread:
+ *
+ * <pre>
+ * parse -&gt; validate -&gt; resolve airplane seats -&gt; batch insert
+ * </pre>
+ *
+ * The stages are connected by bounded queues, so the memory used doesn't
+ * depend on the size of the file: a fast stage waits for a slow one instead of
+ * buffering rows. Validation uses
+ * AirlineHeadquartersServiceImpl.validateFlight(), and the inserts are
+ * committed BATCH_SIZE flights at a time.
+ *
+ * The file has one flight per line:
+ *
+ * <pre>
+ * DEPARTURE_DATE,DEPARTURE_AIRPORT_CODE,DESTINATION_AIRPORT_CODE,COST,AIRPLANE_ID
+ * 10/25/2030,BWI,DCA,240.00,1
+ * </pre>
+ *
+ * Dates are MM/dd/yyyy. The header line, blank lines and lines starting with #
+ * are skipped. Lines are numbered from 1; an import can be resumed after a
+ * failure by skipping the lines up to the result's lastCommittedLine. A
+ * schedule sent in chunks is imported one chunk at a time, each numbered from
+ * the line it starts at. A rejected line is reported by its number and the
+ * column that is wrong, never by its contents.
+ *
+ * @author mbsnyder
+ *
+ */
+public class ScheduleImporter {
+	// Rows that can wait between two stages
+	public static final int QUEUE_CAPACITY = 1000;
+
+	// Flights inserted, and committed, together
+	public static final int BATCH_SIZE = 500;
+
+	private static final String HEADER_START = "DEPARTURE_DATE";
+	private static final int COLUMN_COUNT = 5;
+
+	// How long a stage waits on a queue before checking if the import failed
+	private static final long WAIT_MILLIS = 100;
+
+	private final AirlineHeadquartersServiceImpl service;
+	private final int batchSize;
+	private final int queueCapacity;
+
+	/**
+	 * Creates an importer that validates with, and inserts through, the
+	 * provided service.
+	 *
+	 * @param service
+	 *            Service whose DAO and caches are used.
+	 */
+	public ScheduleImporter(AirlineHeadquartersServiceImpl service) {
+		this(service, BATCH_SIZE, QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Creates an importer with the provided batch size and queue capacity.
+	 *
+	 * @param service
+	 *            Service whose DAO and caches are used.
+	 * @param batchSize
+	 *            Flights inserted and committed together.
+	 * @param queueCapacity
+	 *            Rows that can wait between two stages.
+	 */
+	public ScheduleImporter(AirlineHeadquartersServiceImpl service, int batchSize, int queueCapacity) {
+		this.service = service;
+		this.batchSize = batchSize;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Imports the flights in the provided schedule. Lines that can't be parsed
+	 * or that fail validation are counted and reported in the result, and the
+	 * import goes on. If a database error stops the import, the result's
+	 * failureMessage is set and its lastCommittedLine tells where to resume.
+	 *
+	 * @param reader
+	 *            Schedule to read. It is read to the end (or to the failure)
+	 *            but not closed.
+	 * @param resumeAfterLine
+	 *            Lines up to and including this line number are skipped; 0 to
+	 *            import the whole schedule.
+	 * @return Counts, timing and errors of the import.
+	 */
+	public ScheduleImportResult importSchedule(Reader reader, int resumeAfterLine) {
+		return importSchedule(reader, 0, resumeAfterLine);
+	}
+
+	/**
+	 * Imports the flights in part of a schedule. The reader's first line is
+	 * line linesBefore + 1 of the schedule, and the line numbers in the result
+	 * count from the start of the schedule.
+	 *
+	 * @param reader
+	 *            Part of the schedule to read. It is read to the end (or to
+	 *            the failure) but not closed.
+	 * @param linesBefore
+	 *            Lines of the schedule before the reader's first line.
+	 * @param resumeAfterLine
+	 *            Lines up to and including this line number are skipped; 0 to
+	 *            import every line the reader returns.
+	 * @return Counts, timing and errors of the import.
+	 */
+	public ScheduleImportResult importSchedule(Reader reader, int linesBefore, int resumeAfterLine) {
+		return new Import(linesBefore, resumeAfterLine).run(reader);
+	}
+
+	/**
+	 * One line of the schedule on its way through the stages.
+	 */
+	private static class Row {
+		private final int lineNumber;
+		private final Flight flight;
+		private final boolean last;
+		private boolean rejected;
+
+		private Row(int lineNumber, Flight flight) {
+			this.lineNumber = lineNumber;
+			this.flight = flight;
+			this.last = false;
+		}
+
+		/**
+		 * Creates the row put on a queue after the last line. Its line number
+		 * is the last line of the schedule.
+		 */
+		private Row(int lineNumber) {
+			this.lineNumber = lineNumber;
+			this.flight = null;
+			this.last = true;
+		}
+	}
+
+	/**
+	 * State of a single run of importSchedule().
+	 */
+	private class Import {
+		private final int linesBefore;
+		private final int resumeAfterLine;
+		private final ScheduleImportResult result = new ScheduleImportResult();
+
+		private final BlockingQueue<Row> parsed = new ArrayBlockingQueue<Row>(queueCapacity);
+		private final BlockingQueue<Row> validated = new ArrayBlockingQueue<Row>(queueCapacity);
+		private final BlockingQueue<Row> resolved = new ArrayBlockingQueue<Row>(queueCapacity);
+
+		private final AtomicLong rejectedCount = new AtomicLong();
+		private volatile long createdCount;
+		private volatile int lastCommittedLine;
+		private volatile Throwable failure;
+
+		private Import(int linesBefore, int resumeAfterLine) {
+			this.linesBefore = linesBefore;
+			this.resumeAfterLine = resumeAfterLine;
+			this.lastCommittedLine = Math.max(linesBefore, resumeAfterLine);
+		}
+
+		private ScheduleImportResult run(final Reader reader) {
+			long start = System.currentTimeMillis();
+
+			Thread[] stages = new Thread[] { new Thread(new Stage() {
+				void runStage() {
+					validateRows();
+				}
+			}, "schedule-import-validate"), new Thread(new Stage() {
+				void runStage() {
+					resolveSeats();
+				}
+			}, "schedule-import-resolve"), new Thread(new Stage() {
+				void runStage() {
+					insertRows();
+				}
+			}, "schedule-import-insert") };
+
+			for (Thread stage : stages) {
+				stage.start();
+			}
+
+			new Stage() {
+				void runStage() {
+					parseRows(reader);
+				}
+			}.run();
+
+			for (Thread stage : stages) {
+				try {
+					stage.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					fail(e);
+				}
+			}
+
+			this.result.setCreatedCount(this.createdCount);
+			this.result.setRejectedCount(this.rejectedCount.get());
+			this.result.setLastCommittedLine(this.lastCommittedLine);
+			this.result.setElapsedMillis(System.currentTimeMillis() - start);
+			if (this.failure != null) {
+				this.result.setFailureMessage(this.failure.getMessage() != null ? this.failure.getMessage()
+						: this.failure.getClass().getName());
+			}
+			return this.result;
+		}
+
+		/**
+		 * Runs one stage. If the stage dies, the import fails, so the other
+		 * stages stop instead of waiting on it forever.
+		 */
+		private abstract class Stage implements Runnable {
+			abstract void runStage();
+
+			public void run() {
+				try {
+					runStage();
+				} catch (RuntimeException e) {
+					fail(e);
+					throw e;
+				} catch (Error e) {
+					fail(e);
+					throw e;
+				}
+			}
+		}
+
+		/**
+		 * Stage 1: reads the schedule and turns each line into a Flight.
+		 */
+		private void parseRows(Reader reader) {
+			SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+			sdf.setLenient(false);
+
+			BufferedReader in = new BufferedReader(reader);
+			int lineNumber = this.linesBefore;
+			long linesRead = 0;
+			try {
+				String line;
+				while (this.failure == null && (line = in.readLine()) != null) {
+					lineNumber++;
+					if (lineNumber <= this.resumeAfterLine || isSkipped(line)) {
+						continue;
+					}
+
+					linesRead++;
+					if (!put(this.parsed, parseRow(lineNumber, line, sdf))) {
+						break;
+					}
+				}
+			} catch (IOException e) {
+				fail(e);
+			}
+
+			this.result.setLinesRead(linesRead);
+			put(this.parsed, new Row(lineNumber));
+		}
+
+		private boolean isSkipped(String line) {
+			String trimmed = line.trim();
+			return trimmed.length() == 0 || trimmed.startsWith("#")
+					|| trimmed.toUpperCase().startsWith(HEADER_START);
+		}
+
+		private Row parseRow(int lineNumber, String line, SimpleDateFormat sdf) {
+			String[] columns = line.split(",", -1);
+			if (columns.length != COLUMN_COUNT) {
+				return reject(new Row(lineNumber, null), "Expected " + COLUMN_COUNT + " columns but found "
+						+ columns.length);
+			}
+
+			Flight flight = new Flight();
+			Row row = new Row(lineNumber, flight);
+			try {
+				flight.setDepartureDate(sdf.parse(columns[0].trim()));
+			} catch (ParseException e) {
+				return reject(row, "Column 1 is not a date in the format MM/dd/yyyy");
+			}
+			flight.setDepartureAirportCode(columns[1].trim());
+			flight.setDestinationAirportCode(columns[2].trim());
+			try {
+				flight.setCost(Double.parseDouble(columns[3].trim()));
+			} catch (NumberFormatException e) {
+				return reject(row, "Column 4 is not a valid cost");
+			}
+			try {
+				flight.setAirplaneId(Integer.parseInt(columns[4].trim()));
+			} catch (NumberFormatException e) {
+				return reject(row, "Column 5 is not a valid airplane Id");
+			}
+			return row;
+		}
+
+		/**
+		 * Stage 2: checks each flight with the service's validation rules.
+		 */
+		private void validateRows() {
+			Row row;
+			while ((row = take(this.parsed)) != null) {
+				if (!row.last && !row.rejected) {
+					try {
+						service.validateFlight(row.flight);
+					} catch (ValidationException e) {
+						reject(row, e.getErrorMessages());
+					} catch (DataAccessException e) {
+						fail(e);
+						return;
+					}
+				}
+
+				if (!put(this.validated, row) || row.last) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Stage 3: sets each flight's available seats to the number of seats
+		 * on its airplane.
+		 */
+		private void resolveSeats() {
+			Row row;
+			while ((row = take(this.validated)) != null) {
+				if (!row.last && !row.rejected) {
+					try {
+						int numSeats = service.getReferenceDataCache().getNumSeats(row.flight.getAirplaneId(),
+								service.getDao());
+						if (numSeats < 0) {
+							reject(row, "The provided airplane Id does not exist.");
+						} else {
+							row.flight.setAvailableSeats(numSeats);
+						}
+					} catch (DataAccessException e) {
+						fail(e);
+						return;
+					}
+				}
+
+				if (!put(this.resolved, row) || row.last) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Stage 4: inserts the flights in batches. Each batch is its own
+		 * transaction.
+		 */
+		private void insertRows() {
+			List<Row> batch = new ArrayList<Row>();
+			Row row;
+			while ((row = take(this.resolved)) != null) {
+				try {
+					if (row.last) {
+						insertBatch(batch, row.lineNumber);
+						return;
+					}
+
+					if (row.rejected) {
+						// Nothing before it is waiting to be committed
+						if (batch.isEmpty()) {
+							this.lastCommittedLine = row.lineNumber;
+						}
+					} else {
+						batch.add(row);
+						if (batch.size() == batchSize) {
+							insertBatch(batch, row.lineNumber);
+						}
+					}
+				} catch (DataAccessException e) {
+					fail(e);
+					return;
+				}
+			}
+		}
+
+		private void insertBatch(List<Row> batch, int lastLine) throws DataAccessException {
+			List<Flight> flights = new ArrayList<Flight>(batch.size());
+			for (Row row : batch) {
+				flights.add(row.flight);
+			}
+
+			if (!flights.isEmpty()) {
+				UnitOfWork unitOfWork = UnitOfWork.begin();
+				try {
+					service.getDao().createFlights(flights);
+					unitOfWork.commit();
+				} finally {
+					unitOfWork.end();
+				}
+				invalidateSearchResults(flights);
+			}
+
+			this.createdCount += flights.size();
+			this.lastCommittedLine = lastLine;
+			batch.clear();
+		}
+
+		private void invalidateSearchResults(List<Flight> flights) {
+			Set<SearchFilters> changedSearches = new HashSet<SearchFilters>();
+			for (Flight flight : flights) {
+				SearchFilters searchFilters = new SearchFilters();
+				searchFilters.setDepartureLocation(flight.getDepartureAirportCode());
+				searchFilters.setDestinationLocation(flight.getDestinationAirportCode());
+				searchFilters.setDateOfTrip(flight.getDepartureDate());
+				if (changedSearches.add(searchFilters)) {
+					service.getSearchResultCache().invalidate(searchFilters.getDepartureLocation(),
+							searchFilters.getDestinationLocation(), searchFilters.getDateOfTrip());
+				}
+			}
+		}
+
+		private Row reject(Row row, String errorMessage) {
+			List<String> errorMessages = new ArrayList<String>();
+			errorMessages.add(errorMessage);
+			return reject(row, errorMessages);
+		}
+
+		private Row reject(Row row, List<String> errorMessages) {
+			row.rejected = true;
+			this.rejectedCount.incrementAndGet();
+			synchronized (this.result) {
+				for (String errorMessage : errorMessages) {
+					this.result.addErrorMessage("Line " + row.lineNumber + ": " + errorMessage);
+				}
+			}
+			return row;
+		}
+
+		private void fail(Throwable cause) {
+			if (this.failure == null) {
+				this.failure = cause;
+			}
+		}
+
+		/**
+		 * Waits for room on the queue. Returns false, without adding the row,
+		 * if the import fails while waiting.
+		 */
+		private boolean put(BlockingQueue<Row> queue, Row row) {
+			try {
+				while (this.failure == null) {
+					if (queue.offer(row, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+			return false;
+		}
+
+		/**
+		 * Waits for the next row on the queue. Returns null if the import
+		 * fails while waiting.
+		 */
+		private Row take(BlockingQueue<Row> queue) {
+			try {
+				while (this.failure == null) {
+					Row row = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+					if (row != null) {
+						return row;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+			return null;
+		}
+	}
+}
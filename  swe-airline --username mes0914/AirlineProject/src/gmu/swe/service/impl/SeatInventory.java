@@ -0,0 +1,77 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.Reservation;
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.exception.ValidationException;
+
+import java.util.Collection;
+
+/**
+ * Keeps track of the available seats of flights and takes the seats of new
+ * reservations. AirlineHeadquartersServiceImpl makes every reservation
+ * through a SeatInventory, so how seats are checked and stored can be changed
+ * with setSeatInventory() or the SEAT_INVENTORY property in
+ * airlineDb.properties:
+ * 
+ * <ul>
+ * <li>database (the default) - DatabaseSeatInventory, every reservation is a
+ * guarded update of FLIGHT.AVAILABLE_SEATS.</li>
+ * <li>memory - InMemorySeatInventory, the seats are counted in memory and
+ * written to the database in the background.</li>
+ * </ul>
+ * 
+ * @author mbsnyder
+ * 
+ */
+public interface SeatInventory {
+
+	/**
+	 * Takes numSeats seats of the flight and creates a reservation for them.
+	 * Concurrent reservations can't oversell the flight.
+	 * 
+	 * @param flightId
+	 *            Flight Id the reservation is for.
+	 * @param numSeats
+	 *            Number of seats to reserve, already checked to be >= 1.
+	 * @return The Reservation that was created, with the flight as it was
+	 *         after the seats were taken.
+	 * @throws ValidationException
+	 *             Thrown if the flight doesn't exist or doesn't have enough
+	 *             available seats.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Reservation reserve(int flightId, int numSeats) throws ValidationException, DataAccessException;
+
+	/**
+	 * @param flightId
+	 *            Id of the flight.
+	 * @return Number of seats that can still be reserved on the flight, or -1
+	 *         if the flight doesn't exist.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int getAvailableSeats(int flightId) throws DataAccessException;
+
+	/**
+	 * Replaces the available seats of flights that were read from the
+	 * database (or from a cache of it) with the seats this inventory knows to
+	 * be available.
+	 * 
+	 * @param flights
+	 *            Flights to update, may be null.
+	 */
+	public void applyAvailableSeats(Collection<Flight> flights);
+
+	/**
+	 * Writes every reservation taken so far to the database, and returns once
+	 * they are committed.
+	 * 
+	 * @throws DataAccessException
+	 *             Thrown if the reservations could not be written.
+	 */
+	public void flush() throws DataAccessException;
+}
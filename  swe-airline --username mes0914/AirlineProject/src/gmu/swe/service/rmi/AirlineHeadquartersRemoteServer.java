@@ -1,8 +1,14 @@
 package gmu.swe.service.rmi;
 
+import gmu.swe.dao.SchemaMigrator;
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightBatchResult;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
+import gmu.swe.domain.RouteSchedule;
+import gmu.swe.domain.ScheduleExpansionResult;
+import gmu.swe.domain.ScheduleImportResult;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
@@ -42,6 +48,16 @@ public class AirlineHeadquartersRemoteServer extends UnicastRemoteObject impleme
 		return this.getService().search(searchFilters);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see gmu.swe.service.rmi.AirlineHeadquartersRemoteService#searchPage(gmu.swe.domain.SearchFilters, int, java.lang.String)
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException, RemoteException {
+		System.out.println("Running Paged Search");
+		return this.getService().searchPage(searchFilters, pageSize, pageToken);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see gmu.swe.service.rmi.AirlineHeadquartersRemoteService#createAirplane(int, java.lang.String)
@@ -70,6 +86,39 @@ public class AirlineHeadquartersRemoteServer extends UnicastRemoteObject impleme
 		return this.getService().createFlight(flight);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see gmu.swe.service.rmi.AirlineHeadquartersRemoteService#createFlights(java.util.Collection)
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException,
+			DataAccessException, RemoteException {
+		System.out.println("Creating Flights");
+		return this.getService().createFlights(flights);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see gmu.swe.service.rmi.AirlineHeadquartersRemoteService#importScheduleChunk(java.lang.String, int)
+	 */
+	public ScheduleImportResult importScheduleChunk(String lines, int firstLineNumber) throws ValidationException,
+			DataAccessException, RemoteException {
+		System.out.println("Importing Schedule from line " + firstLineNumber);
+		ScheduleImportResult result = this.getService().importScheduleChunk(lines, firstLineNumber);
+		System.out.println("Imported " + result.getCreatedCount() + " flights, " + result.getRowsPerSecond()
+				+ " rows/sec");
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see gmu.swe.service.rmi.AirlineHeadquartersRemoteService#expandSchedule(gmu.swe.domain.RouteSchedule)
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException, RemoteException {
+		System.out.println("Expanding Schedule");
+		return this.getService().expandSchedule(schedule);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see gmu.swe.service.rmi.AirlineHeadquartersRemoteService#createReservation(int, int)
@@ -131,8 +180,17 @@ public class AirlineHeadquartersRemoteServer extends UnicastRemoteObject impleme
 	 * @throws RemoteException
 	 * @throws MalformedURLException
 	 */
-	public static void main(String[] args) throws RemoteException, MalformedURLException {
+	public static void main(String[] args) throws RemoteException, MalformedURLException, DataAccessException {
+		int schemaVersion = new SchemaMigrator().migrate();
+		System.out.println("Database schema is at version " + schemaVersion);
+
+		// With SEAT_INVENTORY=memory this loads the seats, so the server doesn't
+		// start if they can't be recovered
+		AirlineHeadquartersServiceImpl service = new AirlineHeadquartersServiceImpl();
+		service.getSeatInventory();
+
 		AirlineHeadquartersRemoteServer server = new AirlineHeadquartersRemoteServer();
+		server.setService(service);
 		Naming.rebind("/AirlineHeadquartersRemoteServer", server);
 		System.out.println("Airline Server running and bound!");
 	}
@@ -2,7 +2,12 @@ package gmu.swe.service.rmi;
 
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightBatchResult;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
+import gmu.swe.domain.RouteSchedule;
+import gmu.swe.domain.ScheduleExpansionResult;
+import gmu.swe.domain.ScheduleImportResult;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
@@ -51,6 +56,31 @@ public interface AirlineHeadquartersRemoteService extends Remote {
 	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException,
 			RemoteException;
 
+	/**
+	 * Returns one page of the Flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. Pass null as the pageToken for the first page, and the
+	 * nextPageToken of the previous page (with the same searchFilters) for the
+	 * pages after it.
+	 * 
+	 * @param searchFilters
+	 *            Filters to used when searching for flights.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of Flights that match the provided searchFilters
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             searchFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when searching for Flights.
+	 * @throws RemoteException
+	 *             Thrown if there is a problem with the server.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException, RemoteException;
+
 	/**
 	 * Creates an airplane in the system with the provided information.
 	 * 
@@ -99,6 +129,73 @@ public interface AirlineHeadquartersRemoteService extends Remote {
 	 */
 	public int createFlight(Flight flight) throws ValidationException, DataAccessException, RemoteException;
 
+	/**
+	 * Creates the provided flights in the system in one call. Every flight is
+	 * validated the same way as in createFlight(); flights that fail
+	 * validation are skipped and reported in the result, and the rest are
+	 * created together.
+	 * 
+	 * @param flights
+	 *            Flights to create
+	 * @return The Flight number of each created flight, in the order the
+	 *         flights were provided, and the validation errors of the flights
+	 *         that were skipped.
+	 * @throws ValidationException
+	 *             Thrown if no flights were provided.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 * @throws RemoteException
+	 *             Thrown if there is a problem with the server.
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException,
+			DataAccessException, RemoteException;
+
+	/**
+	 * Imports the flights in one chunk of a schedule file (one flight per
+	 * line, see ScheduleImporter for the format). The client reads the file
+	 * and sends it a chunk of at most
+	 * AirlineHeadquartersService.MAX_SCHEDULE_CHUNK_LENGTH characters at a
+	 * time, stopping at the first chunk that doesn't complete. Lines that
+	 * can't be parsed or that fail validation are skipped and reported in the
+	 * result by their line number.
+	 * 
+	 * @param lines
+	 *            Lines of the chunk, separated by line breaks.
+	 * @param firstLineNumber
+	 *            Line number of the chunk's first line in the file, from 1.
+	 * @return Counts, rows per second and errors of the chunk. Its
+	 *         lastCommittedLine is the line to resume after if it failed.
+	 * @throws ValidationException
+	 *             Thrown if no lines were provided, the chunk is too long or
+	 *             firstLineNumber < 1.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when reading the chunk.
+	 * @throws RemoteException
+	 *             Thrown if there is a problem with the server.
+	 */
+	public ScheduleImportResult importScheduleChunk(String lines, int firstLineNumber) throws ValidationException,
+			DataAccessException, RemoteException;
+
+	/**
+	 * Creates a flight for every departure date of a weekly schedule that
+	 * doesn't have one yet (a flight on the same route with the same airplane
+	 * that day). Running the same schedule again creates nothing, and
+	 * extending its end date only creates the added dates.
+	 * 
+	 * @param schedule
+	 *            Schedule to expand.
+	 * @return Ids of the created flights and the number of dates skipped.
+	 * @throws ValidationException
+	 *             Thrown if the schedule is invalid.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights.
+	 * @throws RemoteException
+	 *             Thrown if there is a problem with the server.
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException, RemoteException;
+
 	/**
 	 * Creates a reservation for on provided flight number, flightId, for the
 	 * provided number of seats, numSeats.
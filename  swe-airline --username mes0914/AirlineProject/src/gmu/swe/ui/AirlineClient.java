@@ -3,13 +3,20 @@ package gmu.swe.ui;
 import gmu.swe.domain.Airplane;
 import gmu.swe.domain.Flight;
 import gmu.swe.domain.Reservation;
+import gmu.swe.domain.RouteSchedule;
+import gmu.swe.domain.ScheduleExpansionResult;
+import gmu.swe.domain.ScheduleImportResult;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
 import gmu.swe.exception.ValidationException;
+import gmu.swe.service.AirlineHeadquartersService;
 import gmu.swe.service.rmi.AirlineHeadquartersRemoteService;
 import gmu.swe.util.DateUtil;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.rmi.Naming;
@@ -18,6 +25,7 @@ import java.rmi.RemoteException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 
@@ -133,9 +141,11 @@ public class AirlineClient {
 			System.out.println("    1 - Create Airplane");
 			System.out.println("    2 - Create Airport");
 			System.out.println("    3 - Create Flight/Trip");
-			System.out.println("    4 - Main Menu");
-			System.out.println("    5 - Quit");
-			System.out.print("Please enter command (1-5)----> ");
+			System.out.println("    4 - Import Flight Schedule (CSV file)");
+			System.out.println("    5 - Create Flights From a Weekly Schedule");
+			System.out.println("    6 - Main Menu");
+			System.out.println("    7 - Quit");
+			System.out.print("Please enter command (1-7)----> ");
 
 			shouldContinue = handleAddingDataChoice();
 
@@ -176,12 +186,18 @@ public class AirlineClient {
 				createFlight();
 				return true;
 			case '4':
-				return false;
+				importSchedule();
+				return true;
 			case '5':
+				expandSchedule();
+				return true;
+			case '6':
+				return false;
+			case '7':
 				System.out.println("Quiting - Good Bye");
 				System.exit(1);
 			default:
-				System.out.print("Error: Please enter only a number from the available Options (1-5)----> ");
+				System.out.print("Error: Please enter only a number from the available Options (1-7)----> ");
 				break;
 			}
 		}
@@ -599,6 +615,349 @@ public class AirlineClient {
 		}
 	}
 
+	/**
+	 * This method displays the menu for importing a flight schedule file. The
+	 * file is read here and sent to the server in chunks, so it only needs to
+	 * exist on this machine. A failed import can be resumed by entering the
+	 * last committed line it reported.
+	 */
+	private void importSchedule() {
+		System.out.println("");
+		System.out.println("****************************");
+		System.out.println("** Import Flight Schedule **");
+		System.out.println(" (Format: DEPARTURE_DATE,DEPARTURE_AIRPORT_CODE,DESTINATION_AIRPORT_CODE,COST,AIRPLANE_ID");
+		System.out.println("  with dates as MM/dd/yyyy, one flight per line)");
+		System.out.println("    R - Return (no updates will occur)");
+		System.out.print("Please enter the path of the schedule file, or R to return----> ");
+
+		File file = null;
+		while (file == null) {
+			String inValue = this.readLine();
+			if (inValue == null || inValue.length() < 1) {
+				System.out.print("Error: Please enter the path of the schedule file, or R to return----> ");
+			} else if (inValue.equalsIgnoreCase("R")) {
+				return;
+			} else if (!new File(inValue).isFile() || !new File(inValue).canRead()) {
+				System.out.print("Error: The schedule file " + inValue
+						+ " can not be read. Please enter another path, or R to return----> ");
+			} else {
+				file = new File(inValue);
+			}
+		}
+
+		System.out.print("Please enter the line to resume after (0 or blank for a new import), or R to return----> ");
+		int resumeAfterLine = -1;
+		while (resumeAfterLine < 0) {
+			String inValue = this.readLine();
+			if (inValue == null || inValue.length() < 1) {
+				resumeAfterLine = 0;
+			} else if (inValue.equalsIgnoreCase("R")) {
+				return;
+			} else if (isWholeNumber(inValue) && Integer.parseInt(inValue) >= 0) {
+				resumeAfterLine = Integer.parseInt(inValue);
+			} else {
+				System.out.print("Error: Please enter a line number >= 0, or R to return----> ");
+			}
+		}
+
+		try {
+			AirlineHeadquartersRemoteService reserver = (AirlineHeadquartersRemoteService) Naming.lookup(rmiUrl);
+			ScheduleImportResult result = sendSchedule(reserver, file, resumeAfterLine);
+
+			System.out.println("");
+			if (result.isCompleted()) {
+				System.out.println("* Successfully imported the schedule.");
+			} else {
+				System.out.println("****** Schedule Import Stopped: " + result.getFailureMessage());
+				System.out.println("To resume it, import the file again and resume after line "
+						+ result.getLastCommittedLine() + ".");
+			}
+			System.out.println("Lines read: " + result.getLinesRead() + ", flights created: "
+					+ result.getCreatedCount() + ", lines rejected: " + result.getRejectedCount());
+			System.out.println("Time: " + result.getElapsedMillis() + " ms ("
+					+ Math.round(result.getRowsPerSecond()) + " rows/sec)");
+			for (String errorMessage : result.getErrorMessages()) {
+				System.out.println("-- " + errorMessage);
+			}
+			if (result.getErrorMessages().size() == ScheduleImportResult.MAX_ERROR_MESSAGES) {
+				System.out.println("-- (only the first " + result.getErrorMessages().size() + " errors are shown)");
+			}
+		} catch (MalformedURLException e) {
+			e.printStackTrace();
+			System.out.print("Error: The URL provided for the Airline server is malformed.");
+		} catch (RemoteException e) {
+			e.printStackTrace();
+			System.out.print("Error: Airline server is currently down, please try again later.");
+		} catch (NotBoundException e) {
+			e.printStackTrace();
+			System.out.print("Error: Airline server is currently down, please try again later.");
+		} catch (ValidationException e) {
+			System.out.println("");
+			System.out.println("****** Schedule Import Failed");
+			System.out.println("Validation Error - Please see message(s) below:");
+			showErrorMessages(e);
+		} catch (DataAccessException e) {
+			e.printStackTrace();
+			System.out.print("Error while attempting to store data, please try again later.");
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.out.print("Error: The schedule file could not be read.");
+		}
+	}
+
+	/**
+	 * Sends the schedule file to the server in chunks of at most
+	 * AirlineHeadquartersService.MAX_SCHEDULE_CHUNK_LENGTH characters, and
+	 * adds up their results. Stops after the first chunk that doesn't
+	 * complete, so the result's lastCommittedLine is the line to resume after.
+	 * 
+	 * @param reserver
+	 *            Server to send the chunks to.
+	 * @param file
+	 *            Schedule file, read as UTF-8.
+	 * @param resumeAfterLine
+	 *            Lines up to and including this line are not sent.
+	 * @return Result of the whole import.
+	 */
+	private ScheduleImportResult sendSchedule(AirlineHeadquartersRemoteService reserver, File file,
+			int resumeAfterLine) throws IOException, ValidationException, DataAccessException, RemoteException {
+		ScheduleImportResult result = new ScheduleImportResult();
+		result.setLastCommittedLine(resumeAfterLine);
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			StringBuilder chunk = new StringBuilder();
+			int firstLineNumber = 0;
+			int lineNumber = 0;
+			String line;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				if (lineNumber <= resumeAfterLine) {
+					continue;
+				}
+
+				if (chunk.length() > 0
+						&& chunk.length() + line.length() + 1 > AirlineHeadquartersService.MAX_SCHEDULE_CHUNK_LENGTH) {
+					result.add(reserver.importScheduleChunk(chunk.toString(), firstLineNumber));
+					chunk.setLength(0);
+					if (!result.isCompleted()) {
+						return result;
+					}
+				}
+				if (chunk.length() == 0) {
+					firstLineNumber = lineNumber;
+				}
+				chunk.append(line).append('\n');
+			}
+
+			if (chunk.length() > 0) {
+				result.add(reserver.importScheduleChunk(chunk.toString(), firstLineNumber));
+			}
+			return result;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * This method displays the menu for creating the flights of a weekly
+	 * schedule. The route, cost and airplane are entered the same way as for a
+	 * single flight, followed by the first and last date and the days of the
+	 * week. Dates that already have a flight on the route with the same
+	 * airplane are skipped by the server, so a schedule can be extended by
+	 * entering it again with a later end date.
+	 */
+	private void expandSchedule() {
+		Flight flight = new Flight();
+		System.out.println("");
+		System.out.println("*******************************************");
+		System.out.println("** Create Flights From a Weekly Schedule **");
+		System.out
+				.println(" (Note: The seat count is automatically set based on the number of seats on the provided Airplane Id)");
+		System.out.println("    R - Return (no updates will occur)");
+
+		Collection<Airplane> airplanes = new ArrayList<Airplane>();
+		Collection<String> airports = new ArrayList<String>();
+
+		System.out.println("");
+		System.out.println("Available Airplanes & Airports");
+		System.out.println("--------------------------------------------------------------------------------");
+		System.out.println("--------------------------------------------------------------------------------");
+		boolean shouldReturn = showAvailableAirplanes(airplanes);
+		System.out.println("--------------------------------------------------------------------------------");
+		shouldReturn = showAvailableAirports(airports) || shouldReturn;
+		System.out.println("--------------------------------------------------------------------------------");
+		System.out.println("--------------------------------------------------------------------------------");
+
+		if (shouldReturn) {
+			return;
+		}
+
+		RouteSchedule schedule = new RouteSchedule();
+		while (true) {
+
+			if (flight.getDepartureAirportCode() == null) {
+				shouldReturn = getDepartureAirportCode(flight, airports);
+			} else if (flight.getDestinationAirportCode() == null) {
+				shouldReturn = getDestinationAirportCode(flight, airports);
+			} else if (flight.getCost() <= 0.0) {
+				shouldReturn = getFlightCost(flight);
+			} else if (flight.getAirplaneId() < 0) {
+				shouldReturn = getAirplaneId(flight, airplanes);
+			} else if (flight.getDepartureDate() == null) {
+				System.out.println("The first date of the schedule:");
+				shouldReturn = getDepartureDate(flight);
+			} else if (schedule.getEndDate() == null) {
+				shouldReturn = getScheduleEndDate(schedule, flight.getDepartureDate());
+			} else if (schedule.getDaysOfWeek().isEmpty()) {
+				shouldReturn = getDaysOfWeek(schedule);
+			} else {
+				schedule.setDepartureAirportCode(flight.getDepartureAirportCode());
+				schedule.setDestinationAirportCode(flight.getDestinationAirportCode());
+				schedule.setCost(flight.getCost());
+				schedule.setAirplaneId(flight.getAirplaneId());
+				schedule.setStartDate(flight.getDepartureDate());
+				expandSchedule(schedule);
+				shouldReturn = true;
+			}
+
+			if (shouldReturn) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * This method handles the user's input for the last date of a schedule. It
+	 * also handles all invalid input, including the wrong format for a date.
+	 * 
+	 * @param schedule
+	 *            Schedule to set the end date for.
+	 * @param startDate
+	 *            First date of the schedule; the end date may not be earlier.
+	 * @return True if the same menu should be shown to the user. False if the
+	 *         previous menu should be displayed.
+	 */
+	private boolean getScheduleEndDate(RouteSchedule schedule, Date startDate) {
+		System.out.print("Please enter the last date of the schedule (MM/DD/YYYY), or R to return----> ");
+
+		while (true) {
+			String sEndDate = this.readLine();
+
+			if (sEndDate == null || sEndDate.length() < 1) {
+				System.out.print("Error: Please enter the last date of the schedule (MM/DD/YYYY), or R to return----> ");
+			} else if (sEndDate.equalsIgnoreCase("R")) {
+				return true;
+			} else {
+				SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+				try {
+					Date endDate = sdf.parse(sEndDate);
+
+					if (endDate.before(startDate)) {
+						System.out
+								.print("Error: The last date may not be before the first date (MM/DD/YYYY), or R to return----> ");
+					} else {
+						schedule.setEndDate(endDate);
+						return false;
+					}
+				} catch (ParseException e) {
+					System.out
+							.print("'"
+									+ sEndDate
+									+ "' is an invalid date. Please enter a Date in the format MM/DD/YYYY, or R to return----> ");
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method handles the user's input for the days of the week a schedule
+	 * is flown, given as a comma separated list of day names (ex: MON,WED,FRI).
+	 * 
+	 * @param schedule
+	 *            Schedule to add the days of the week to.
+	 * @return True if the same menu should be shown to the user. False if the
+	 *         previous menu should be displayed.
+	 */
+	private boolean getDaysOfWeek(RouteSchedule schedule) {
+		String[] dayNames = new String[] { "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT" };
+		System.out.print("Please enter the days of the week the route is flown (ex: MON,WED,FRI), or R to return----> ");
+
+		while (true) {
+			String sDays = this.readLine();
+
+			if (sDays == null || sDays.length() < 1) {
+				System.out
+						.print("Error: Please enter the days of the week the route is flown (ex: MON,WED,FRI), or R to return----> ");
+			} else if (sDays.equalsIgnoreCase("R")) {
+				return true;
+			} else {
+				String invalidDay = null;
+				for (String sDay : sDays.split(",")) {
+					int dayOfWeek = -1;
+					for (int i = 0; i < dayNames.length; i++) {
+						if (dayNames[i].equalsIgnoreCase(sDay.trim())) {
+							dayOfWeek = Calendar.SUNDAY + i;
+						}
+					}
+
+					if (dayOfWeek < 0) {
+						invalidDay = sDay.trim();
+					} else {
+						schedule.addDayOfWeek(dayOfWeek);
+					}
+				}
+
+				if (invalidDay == null) {
+					return false;
+				}
+				schedule.getDaysOfWeek().clear();
+				System.out.print("'" + invalidDay
+						+ "' is an invalid day. Please enter days as SUN, MON, TUE, WED, THU, FRI or SAT, or R to return----> ");
+			}
+		}
+	}
+
+	/**
+	 * Method that makes a call to the server to create the flights of a
+	 * schedule. This method will show any errors that occur, or the number of
+	 * flights created and skipped.
+	 * 
+	 * @param schedule
+	 *            Schedule to expand.
+	 */
+	private void expandSchedule(RouteSchedule schedule) {
+		try {
+			AirlineHeadquartersRemoteService reserver = (AirlineHeadquartersRemoteService) Naming.lookup(rmiUrl);
+			ScheduleExpansionResult result = reserver.expandSchedule(schedule);
+			System.out.println("");
+			System.out.println("* Successfully added " + result.getCreatedCount() + " flights.");
+			if (result.getExistingCount() > 0) {
+				System.out.println("* Skipped " + result.getExistingCount() + " dates that already had a flight.");
+			}
+			if (result.getPastCount() > 0) {
+				System.out.println("* Skipped " + result.getPastCount() + " dates before today.");
+			}
+		} catch (MalformedURLException e) {
+			e.printStackTrace();
+			System.out.print("Error: The URL provided for the Airline server is malformed.");
+		} catch (RemoteException e) {
+			e.printStackTrace();
+			System.out.print("Error: Airline server is currently down, please try again later.");
+		} catch (NotBoundException e) {
+			e.printStackTrace();
+			System.out.print("Error: Airline server is currently down, please try again later.");
+		} catch (ValidationException e) {
+			System.out.println("");
+			System.out.println("****** Schedule Creation Failed");
+			System.out.println("Validation Error - Please see message(s) below:");
+			showErrorMessages(e);
+		} catch (DataAccessException e) {
+			e.printStackTrace();
+			System.out.print("Error while attempting to store data, please try again later.");
+		}
+	}
+
 	/**
 	 * This method displays the menu for creating an airport code. It also
 	 * handles any invalid input and calling the server to create the new
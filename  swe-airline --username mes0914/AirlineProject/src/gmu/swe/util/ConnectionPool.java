@@ -0,0 +1,715 @@
+package gmu.swe.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections. Connections handed out by this pool are
+ * proxies, calling close() on them returns the physical connection to the pool
+ * instead of closing it, so callers can keep using the normal
+ * open/use/close pattern.
+ *
+ * The pool keeps at least minSize connections open, never has more than
+ * maxSize connections checked out or idle at the same time, validates a
+ * connection before handing it out, and closes connections (above minSize)
+ * that have been idle for longer than the idle timeout.
+ *
+ * If a statement cache size is given, each connection also keeps that many
+ * prepared statements (keyed on their SQL text) open. prepareStatement(String)
+ * returns the cached statement when there is one, and closing the statement
+ * only clears its parameters, so queries with a fixed SQL text are parsed once
+ * per connection instead of once per call.
+ *
+ * @author mbsnyder
+ *
+ */
+public class ConnectionPool {
+	private final String url;
+	private final String user;
+	private final String password;
+
+	private final int minSize;
+	private final int maxSize;
+	private final long maxWaitMillis;
+	private final long idleTimeoutMillis;
+	private final String validationQuery;
+	private final int statementCacheSize;
+
+	// Limits the number of connections that may exist at the same time.
+	private final Semaphore permits;
+
+	// Idle connections, most recently returned first.
+	private final LinkedList<PooledConnection> idleConnections = new LinkedList<PooledConnection>();
+
+	private Timer evictionTimer;
+	private volatile boolean closed;
+
+	// Metrics
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong destroyedCount = new AtomicLong();
+	private final AtomicLong evictedCount = new AtomicLong();
+	private final AtomicLong validationFailureCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong activeCount = new AtomicLong();
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+
+	/**
+	 * Creates the pool, without a prepared statement cache, and opens minSize
+	 * connections.
+	 *
+	 * @see #ConnectionPool(String, String, String, int, int, long, long,
+	 *      String, int)
+	 */
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize, long maxWaitMillis,
+			long idleTimeoutMillis, String validationQuery) throws SQLException {
+		this(url, user, password, minSize, maxSize, maxWaitMillis, idleTimeoutMillis, validationQuery, 0);
+	}
+
+	/**
+	 * Creates the pool and opens minSize connections.
+	 *
+	 * @param url
+	 *            JDBC url of the database.
+	 * @param user
+	 *            Database user.
+	 * @param password
+	 *            Database password.
+	 * @param minSize
+	 *            Number of connections to keep open, even when idle.
+	 * @param maxSize
+	 *            Maximum number of connections the pool will open.
+	 * @param maxWaitMillis
+	 *            How long a caller waits for a connection when all maxSize
+	 *            connections are in use.
+	 * @param idleTimeoutMillis
+	 *            How long a connection may sit idle before it is closed (only
+	 *            connections above minSize are closed). A value <= 0 disables
+	 *            idle eviction.
+	 * @param validationQuery
+	 *            Query run against a connection before it is handed out. If
+	 *            null, only Connection.isClosed() is checked.
+	 * @param statementCacheSize
+	 *            Number of prepared statements to keep open per connection. A
+	 *            value <= 0 disables statement caching.
+	 * @throws SQLException
+	 *             Thrown if the initial connections can't be opened.
+	 */
+	public ConnectionPool(String url, String user, String password, int minSize, int maxSize, long maxWaitMillis,
+			long idleTimeoutMillis, String validationQuery, int statementCacheSize) throws SQLException {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("The maximum pool size must be >= 1");
+		}
+		if (minSize < 0 || minSize > maxSize) {
+			throw new IllegalArgumentException("The minimum pool size must be between 0 and " + maxSize);
+		}
+
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.maxWaitMillis = maxWaitMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.validationQuery = validationQuery;
+		this.statementCacheSize = statementCacheSize;
+		this.permits = new Semaphore(maxSize, true);
+
+		for (int i = 0; i < minSize; i++) {
+			synchronized (this.idleConnections) {
+				this.idleConnections.addLast(new PooledConnection(createPhysicalConnection()));
+			}
+		}
+
+		if (idleTimeoutMillis > 0) {
+			this.evictionTimer = new Timer("ConnectionPool-evictor", true);
+			long period = Math.max(1000L, idleTimeoutMillis / 2);
+			this.evictionTimer.schedule(new TimerTask() {
+				public void run() {
+					evictIdleConnections();
+				}
+			}, period, period);
+		}
+	}
+
+	/**
+	 * Borrows a connection from the pool. Closing the returned connection
+	 * gives it back to the pool.
+	 *
+	 * @return Connection to the database.
+	 * @throws SQLException
+	 *             Thrown if the pool is closed, if no connection became
+	 *             available within maxWaitMillis, or if a new connection could
+	 *             not be opened.
+	 */
+	public Connection getConnection() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("The connection pool has been closed");
+		}
+
+		long start = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = this.permits.tryAcquire(this.maxWaitMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection");
+		}
+		recordWait(System.nanoTime() - start);
+
+		if (!acquired) {
+			this.timeoutCount.incrementAndGet();
+			throw new SQLException("Timed out after " + this.maxWaitMillis
+					+ "ms waiting for a database connection (pool size " + this.maxSize + ")");
+		}
+
+		try {
+			PooledConnection pooledConnection = takeValidIdleConnection();
+			if (pooledConnection == null) {
+				pooledConnection = new PooledConnection(createPhysicalConnection());
+			}
+
+			this.borrowCount.incrementAndGet();
+			this.activeCount.incrementAndGet();
+
+			return pooledConnection.createHandle();
+		} catch (SQLException e) {
+			this.permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			this.permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes all idle connections and stops handing out new ones. Connections
+	 * that are checked out are closed when they are returned.
+	 */
+	public void close() {
+		this.closed = true;
+
+		if (this.evictionTimer != null) {
+			this.evictionTimer.cancel();
+		}
+
+		synchronized (this.idleConnections) {
+			while (!this.idleConnections.isEmpty()) {
+				destroy(this.idleConnections.removeFirst());
+			}
+		}
+	}
+
+	/**
+	 * Closes connections above minSize that have been idle for longer than the
+	 * idle timeout.
+	 */
+	protected void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+
+		synchronized (this.idleConnections) {
+			// The oldest connections are at the end of the list.
+			while (this.idleConnections.size() > this.minSize) {
+				PooledConnection oldest = this.idleConnections.getLast();
+				if (now - oldest.lastReturned < this.idleTimeoutMillis) {
+					break;
+				}
+				this.idleConnections.removeLast();
+				destroy(oldest);
+				this.evictedCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Returns the most recently used idle connection that passes validation,
+	 * or null if there are no (valid) idle connections. Connections that fail
+	 * validation are closed.
+	 *
+	 * @return Valid idle connection, or null.
+	 */
+	private PooledConnection takeValidIdleConnection() {
+		while (true) {
+			PooledConnection pooledConnection;
+			synchronized (this.idleConnections) {
+				if (this.idleConnections.isEmpty()) {
+					return null;
+				}
+				pooledConnection = this.idleConnections.removeFirst();
+			}
+
+			if (isValid(pooledConnection.physical)) {
+				return pooledConnection;
+			}
+
+			this.validationFailureCount.incrementAndGet();
+			destroy(pooledConnection);
+		}
+	}
+
+	/**
+	 * Gives a connection back to the pool. Called when a handle is closed.
+	 *
+	 * @param pooledConnection
+	 *            Connection being returned.
+	 */
+	private void release(PooledConnection pooledConnection) {
+		this.activeCount.decrementAndGet();
+
+		try {
+			if (this.closed || !resetState(pooledConnection.physical)) {
+				destroy(pooledConnection);
+			} else {
+				pooledConnection.lastReturned = System.currentTimeMillis();
+				synchronized (this.idleConnections) {
+					this.idleConnections.addFirst(pooledConnection);
+				}
+			}
+		} finally {
+			this.permits.release();
+		}
+	}
+
+	/**
+	 * Puts a returned connection back into the state DbUtils hands connections
+	 * out in (auto-commit on). Work that was left uncommitted is rolled back.
+	 *
+	 * @param connection
+	 *            Physical connection to reset.
+	 * @return True if the connection can be reused, false if it should be
+	 *         closed.
+	 */
+	private boolean resetState(Connection connection) {
+		try {
+			if (connection.isClosed()) {
+				return false;
+			}
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns true if the connection is open and the validation query (if any)
+	 * runs successfully.
+	 *
+	 * @param connection
+	 *            Connection to check.
+	 * @return True if the connection is usable.
+	 */
+	private boolean isValid(Connection connection) {
+		Statement stmt = null;
+		try {
+			if (connection.isClosed()) {
+				return false;
+			}
+			if (this.validationQuery != null) {
+				stmt = connection.createStatement();
+				stmt.execute(this.validationQuery);
+			}
+			return true;
+		} catch (SQLException e) {
+			return false;
+		} finally {
+			if (stmt != null) {
+				try {
+					stmt.close();
+				} catch (SQLException e) {
+					// Intentially do nothing
+				}
+			}
+		}
+	}
+
+	private Connection createPhysicalConnection() throws SQLException {
+		Connection connection = DriverManager.getConnection(this.url, this.user, this.password);
+		connection.setAutoCommit(true);
+		this.createdCount.incrementAndGet();
+
+		return connection;
+	}
+
+	private void destroy(PooledConnection pooledConnection) {
+		this.destroyedCount.incrementAndGet();
+		pooledConnection.clearStatementCache();
+		try {
+			pooledConnection.physical.close();
+		} catch (SQLException e) {
+			// Intentially do nothing
+		}
+	}
+
+	private void recordWait(long waitNanos) {
+		this.totalWaitNanos.addAndGet(waitNanos);
+
+		long currentMax = this.maxWaitNanos.get();
+		while (waitNanos > currentMax && !this.maxWaitNanos.compareAndSet(currentMax, waitNanos)) {
+			currentMax = this.maxWaitNanos.get();
+		}
+	}
+
+	/**
+	 * @return Number of connections currently checked out of the pool.
+	 */
+	public int getActiveCount() {
+		return (int) this.activeCount.get();
+	}
+
+	/**
+	 * @return Number of open connections waiting in the pool.
+	 */
+	public int getIdleCount() {
+		synchronized (this.idleConnections) {
+			return this.idleConnections.size();
+		}
+	}
+
+	/**
+	 * @return Number of successful getConnection() calls.
+	 */
+	public long getBorrowCount() {
+		return this.borrowCount.get();
+	}
+
+	/**
+	 * @return Number of getConnection() calls that gave up waiting.
+	 */
+	public long getTimeoutCount() {
+		return this.timeoutCount.get();
+	}
+
+	/**
+	 * @return Number of physical connections opened by the pool.
+	 */
+	public long getCreatedCount() {
+		return this.createdCount.get();
+	}
+
+	/**
+	 * @return Number of physical connections closed by the pool.
+	 */
+	public long getDestroyedCount() {
+		return this.destroyedCount.get();
+	}
+
+	/**
+	 * @return Number of connections closed because they were idle too long.
+	 */
+	public long getEvictedCount() {
+		return this.evictedCount.get();
+	}
+
+	/**
+	 * @return Number of idle connections thrown away because they failed
+	 *         validation.
+	 */
+	public long getValidationFailureCount() {
+		return this.validationFailureCount.get();
+	}
+
+	/**
+	 * @return Average time, in milliseconds, callers waited for a connection.
+	 */
+	public double getAverageWaitMillis() {
+		long waits = this.borrowCount.get() + this.timeoutCount.get();
+		if (waits == 0) {
+			return 0.0;
+		}
+		return this.totalWaitNanos.get() / (double) waits / 1000000.0;
+	}
+
+	/**
+	 * @return Longest time, in milliseconds, a caller waited for a connection.
+	 */
+	public double getMaxWaitMillis() {
+		return this.maxWaitNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * @return Number of prepareStatement() calls answered from the statement
+	 *         cache.
+	 */
+	public long getStatementCacheHits() {
+		return this.statementCacheHits.get();
+	}
+
+	/**
+	 * @return Number of prepareStatement() calls that had to prepare a new
+	 *         statement.
+	 */
+	public long getStatementCacheMisses() {
+		return this.statementCacheMisses.get();
+	}
+
+	/**
+	 * @return One line summary of the pool metrics.
+	 */
+	public String getStatistics() {
+		return "active=" + getActiveCount() + ", idle=" + getIdleCount() + ", borrowed=" + getBorrowCount()
+				+ ", timeouts=" + getTimeoutCount() + ", created=" + getCreatedCount() + ", evicted="
+				+ getEvictedCount() + ", validationFailures=" + getValidationFailureCount() + ", avgWaitMs="
+				+ getAverageWaitMillis() + ", maxWaitMs=" + getMaxWaitMillis() + ", statementCacheHits="
+				+ getStatementCacheHits() + ", statementCacheMisses=" + getStatementCacheMisses();
+	}
+
+	/**
+	 * A physical connection owned by the pool.
+	 */
+	private class PooledConnection {
+		private final Connection physical;
+		private long lastReturned;
+
+		// Prepared statements kept open on this connection, least recently
+		// used first.
+		private final Map<String, CachedStatement> statementCache;
+
+		private PooledConnection(Connection physical) {
+			this.physical = physical;
+			this.lastReturned = System.currentTimeMillis();
+			this.statementCache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+					if (size() > ConnectionPool.this.statementCacheSize) {
+						eldest.getValue().evict();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * Returns a prepared statement for the sql, reusing the cached one if
+		 * it isn't already in use. If it is in use (the same query is open
+		 * twice on this connection), a plain, uncached statement is returned.
+		 *
+		 * @param sql
+		 *            SQL text of the statement.
+		 * @return Prepared statement for the sql.
+		 * @throws SQLException
+		 *             Thrown if the statement can't be prepared.
+		 */
+		private synchronized PreparedStatement prepareStatement(String sql) throws SQLException {
+			CachedStatement cached = this.statementCache.get(sql);
+			if (cached != null && !cached.inUse) {
+				ConnectionPool.this.statementCacheHits.incrementAndGet();
+				cached.inUse = true;
+				return cached.createHandle();
+			}
+
+			ConnectionPool.this.statementCacheMisses.incrementAndGet();
+			PreparedStatement statement = this.physical.prepareStatement(sql);
+			if (cached != null) {
+				return statement;
+			}
+
+			cached = new CachedStatement(statement);
+			cached.inUse = true;
+			this.statementCache.put(sql, cached);
+
+			return cached.createHandle();
+		}
+
+		/**
+		 * Closes all of the cached statements.
+		 */
+		private synchronized void clearStatementCache() {
+			for (CachedStatement cached : new ArrayList<CachedStatement>(this.statementCache.values())) {
+				cached.evict();
+			}
+			this.statementCache.clear();
+		}
+
+		/**
+		 * Creates the Connection proxy given to callers. Closing the proxy
+		 * returns this connection to the pool; any further use of the proxy
+		 * fails.
+		 *
+		 * @return Connection proxy.
+		 */
+		private Connection createHandle() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new ConnectionHandle(this));
+		}
+	}
+
+	/**
+	 * Invocation handler behind the Connection proxies handed out by the pool.
+	 */
+	private class ConnectionHandle implements InvocationHandler {
+		private PooledConnection pooledConnection;
+
+		private ConnectionHandle(PooledConnection pooledConnection) {
+			this.pooledConnection = pooledConnection;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+
+			if (name.equals("close")) {
+				synchronized (this) {
+					if (this.pooledConnection != null) {
+						PooledConnection returned = this.pooledConnection;
+						this.pooledConnection = null;
+						release(returned);
+					}
+				}
+				return null;
+			}
+			if (name.equals("isClosed")) {
+				return Boolean.valueOf(this.pooledConnection == null);
+			}
+			if (name.equals("equals")) {
+				return Boolean.valueOf(proxy == args[0]);
+			}
+			if (name.equals("hashCode")) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			}
+			if (name.equals("toString")) {
+				return "PooledConnection[" + this.pooledConnection + "]";
+			}
+
+			PooledConnection current = this.pooledConnection;
+			if (current == null) {
+				throw new SQLException("The connection has already been returned to the pool");
+			}
+
+			if (name.equals("prepareStatement") && args.length == 1 && ConnectionPool.this.statementCacheSize > 0) {
+				return current.prepareStatement((String) args[0]);
+			}
+
+			try {
+				return method.invoke(current.physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+
+	/**
+	 * A prepared statement kept open in a connection's statement cache.
+	 */
+	private static class CachedStatement {
+		private final PreparedStatement physical;
+		private boolean inUse;
+		private boolean evicted;
+
+		private CachedStatement(PreparedStatement physical) {
+			this.physical = physical;
+		}
+
+		/**
+		 * Creates the PreparedStatement proxy given to callers. Closing the
+		 * proxy clears the parameters and makes the statement available for
+		 * the next caller, unless it has been pushed out of the cache, in
+		 * which case it is really closed.
+		 *
+		 * @return PreparedStatement proxy.
+		 */
+		private PreparedStatement createHandle() {
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new StatementHandle(this));
+		}
+
+		/**
+		 * Removes the statement from use. It is closed now if no one is using
+		 * it, otherwise when its current user closes it.
+		 */
+		private synchronized void evict() {
+			this.evicted = true;
+			if (!this.inUse) {
+				closeQuietly();
+			}
+		}
+
+		private synchronized void release() {
+			this.inUse = false;
+			if (this.evicted) {
+				closeQuietly();
+			} else {
+				try {
+					this.physical.clearParameters();
+				} catch (SQLException e) {
+					closeQuietly();
+				}
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				this.physical.close();
+			} catch (SQLException e) {
+				// Intentially do nothing
+			}
+		}
+	}
+
+	/**
+	 * Invocation handler behind the PreparedStatement proxies handed out from
+	 * the statement cache.
+	 */
+	private static class StatementHandle implements InvocationHandler {
+		private CachedStatement cachedStatement;
+
+		private StatementHandle(CachedStatement cachedStatement) {
+			this.cachedStatement = cachedStatement;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+
+			if (name.equals("close")) {
+				synchronized (this) {
+					if (this.cachedStatement != null) {
+						CachedStatement returned = this.cachedStatement;
+						this.cachedStatement = null;
+						returned.release();
+					}
+				}
+				return null;
+			}
+			if (name.equals("equals")) {
+				return Boolean.valueOf(proxy == args[0]);
+			}
+			if (name.equals("hashCode")) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			}
+
+			CachedStatement current = this.cachedStatement;
+			if (current == null) {
+				throw new SQLException("The statement has already been closed");
+			}
+
+			try {
+				return method.invoke(current.physical, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
@@ -11,11 +11,20 @@ import java.sql.SQLException;
  * 
  */
 public class DbUtils {
+	private static ConnectionPool connectionPool;
+
 	/**
 	 * Returns a connection to a HSQLDB database. This class will look up the
 	 * directory for the database in the property file under a property name of
 	 * "DB_FILE_PATH".
 	 * 
+	 * If DB_POOL_ENABLED is set to true in the property file, the connection
+	 * is borrowed from a connection pool and closing it returns it to the
+	 * pool.
+	 * 
+	 * If a UnitOfWork is active on the current thread, its connection is
+	 * returned instead, so the caller takes part in that unit of work.
+	 * 
 	 * @return Connection to a HSQLDB database.
 	 * @throws SQLException
 	 *             Thrown if the creating of the connection fails.
@@ -23,10 +32,16 @@ public class DbUtils {
 	 *             Thrown if the driver for HSQLDB can't be found.
 	 */
 	public static Connection getConnection() throws SQLException, ClassNotFoundException {
+		UnitOfWork unitOfWork = UnitOfWork.getCurrent();
+		if (unitOfWork != null) {
+			return unitOfWork.getConnection();
+		}
+
 		Class.forName("org.hsqldb.jdbcDriver");
-		String dbPath = ResourceBundleUtils.getProperty("DB_FILE_PATH");
 
-		String dbConnectionString = "jdbc:hsqldb:file:" + dbPath + "/AIRLINE_DB";
+		if (isPoolEnabled()) {
+			return getConnectionPool().getConnection();
+		}
 
 		// connect to the database. This will load the db files and start the
 		// database if it is not alread running.
@@ -35,12 +50,52 @@ public class DbUtils {
 		// of the db.
 		// It can contain directory names relative to the
 		// current working directory
-		Connection connection = DriverManager.getConnection(dbConnectionString, "sa", "");
+		Connection connection = DriverManager.getConnection(getConnectionString(), "sa", "");
 		connection.setAutoCommit(true);
 
 		return connection;
 	}
 
+	/**
+	 * Returns the connection pool, creating it on first use from the DB_POOL_*
+	 * properties in the property file.
+	 * 
+	 * @return Connection pool for the database in DB_FILE_PATH.
+	 * @throws SQLException
+	 *             Thrown if the pool can't open its initial connections.
+	 */
+	public static synchronized ConnectionPool getConnectionPool() throws SQLException {
+		if (connectionPool == null) {
+			int minSize = Integer.parseInt(ResourceBundleUtils.getOptionalProperty("DB_POOL_MIN_SIZE", "2"));
+			int maxSize = Integer.parseInt(ResourceBundleUtils.getOptionalProperty("DB_POOL_MAX_SIZE", "10"));
+			long maxWait = Long.parseLong(ResourceBundleUtils.getOptionalProperty("DB_POOL_MAX_WAIT_MILLIS", "5000"));
+			long idleTimeout = Long.parseLong(ResourceBundleUtils.getOptionalProperty("DB_POOL_IDLE_TIMEOUT_MILLIS",
+					"60000"));
+			String validationQuery = ResourceBundleUtils.getOptionalProperty("DB_POOL_VALIDATION_QUERY", "CALL 1");
+			int statementCacheSize = Integer.parseInt(ResourceBundleUtils.getOptionalProperty(
+					"DB_POOL_STATEMENT_CACHE_SIZE", "32"));
+
+			connectionPool = new ConnectionPool(getConnectionString(), "sa", "", minSize, maxSize, maxWait,
+					idleTimeout, validationQuery, statementCacheSize);
+		}
+		return connectionPool;
+	}
+
+	/**
+	 * Returns true if the property file turns on connection pooling
+	 * (DB_POOL_ENABLED=true).
+	 * 
+	 * @return True if connections should come from the pool.
+	 */
+	public static boolean isPoolEnabled() {
+		return Boolean.valueOf(ResourceBundleUtils.getOptionalProperty("DB_POOL_ENABLED", "false")).booleanValue();
+	}
+
+	private static String getConnectionString() {
+		String dbPath = ResourceBundleUtils.getProperty("DB_FILE_PATH");
+		return "jdbc:hsqldb:file:" + dbPath + "/AIRLINE_DB";
+	}
+
 	/**
 	 * Returns a connection to a HSQLDB database. This class will look up the
 	 * directory for the database in the provided dbPath.
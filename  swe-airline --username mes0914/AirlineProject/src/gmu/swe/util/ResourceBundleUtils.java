@@ -1,5 +1,6 @@
 package gmu.swe.util;
 
+import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
 /**
@@ -67,4 +68,26 @@ public class ResourceBundleUtils {
 		}
 		return resourceBundle.getString(propertyName);
 	}
+
+	/**
+	 * Returns the property value for the provided propertyName, or the
+	 * provided defaultValue if the property is not defined in the property
+	 * file.
+	 * 
+	 * @param propertyName
+	 *            Name of the property to lookup.
+	 * @param defaultValue
+	 *            Value returned if the property is not defined.
+	 * @return Value for the provided property name, or defaultValue.
+	 */
+	public static String getOptionalProperty(String propertyName, String defaultValue) {
+		if (resourceBundle == null) {
+			loadProperties();
+		}
+		try {
+			return resourceBundle.getString(propertyName).trim();
+		} catch (MissingResourceException e) {
+			return defaultValue;
+		}
+	}
 }
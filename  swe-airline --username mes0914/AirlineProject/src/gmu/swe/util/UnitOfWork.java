@@ -0,0 +1,193 @@
+package gmu.swe.util;
+
+import gmu.swe.exception.DataAccessException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Binds a single database connection, and transaction, to the current thread
+ * for the length of a service call. While a unit of work is active,
+ * DbUtils.getConnection() returns the bound connection, so every DAO method
+ * the service call uses runs on the same connection and in the same
+ * transaction. Closing the connection inside a DAO does nothing; the
+ * connection is released when the unit of work ends.
+ *
+ * Usage:
+ *
+ * <pre>
+ * UnitOfWork unitOfWork = UnitOfWork.begin();
+ * try {
+ * 	// validation and DAO calls
+ * 	unitOfWork.commit();
+ * } finally {
+ * 	unitOfWork.end();
+ * }
+ * </pre>
+ *
+ * Calls to begin() while a unit of work is already active join the existing
+ * unit of work; only the outermost commit() and end() touch the connection.
+ * If end() is reached without commit(), the work is rolled back.
+ *
+ * @author mbsnyder
+ *
+ */
+public class UnitOfWork {
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<UnitOfWork>();
+
+	private final Connection connection;
+	private final Connection sharedConnection;
+	private int depth;
+	private boolean committed;
+
+	private UnitOfWork(Connection connection) {
+		this.connection = connection;
+		this.sharedConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new SharedConnectionHandler(connection));
+		this.depth = 1;
+	}
+
+	/**
+	 * Starts a unit of work on the current thread, or joins the one that is
+	 * already active.
+	 *
+	 * @return The active unit of work.
+	 * @throws DataAccessException
+	 *             Thrown if a connection can't be opened.
+	 */
+	public static UnitOfWork begin() throws DataAccessException {
+		UnitOfWork unitOfWork = current.get();
+		if (unitOfWork != null) {
+			unitOfWork.depth++;
+			return unitOfWork;
+		}
+
+		Connection connection = null;
+		try {
+			connection = DbUtils.getConnection();
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			close(connection);
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} catch (ClassNotFoundException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		}
+
+		unitOfWork = new UnitOfWork(connection);
+		current.set(unitOfWork);
+
+		return unitOfWork;
+	}
+
+	/**
+	 * Returns the unit of work bound to the current thread, or null if there
+	 * isn't one.
+	 *
+	 * @return Active unit of work, or null.
+	 */
+	public static UnitOfWork getCurrent() {
+		return current.get();
+	}
+
+	/**
+	 * Returns the connection shared by everything running in this unit of
+	 * work. Calling close(), commit() or setAutoCommit() on it has no effect;
+	 * use the methods on this class instead.
+	 *
+	 * @return Connection bound to this unit of work.
+	 */
+	public Connection getConnection() {
+		return this.sharedConnection;
+	}
+
+	/**
+	 * Commits the work done so far. Does nothing if this is not the outermost
+	 * unit of work.
+	 *
+	 * @throws DataAccessException
+	 *             Thrown if the commit fails.
+	 */
+	public void commit() throws DataAccessException {
+		if (this.depth > 1) {
+			return;
+		}
+		try {
+			this.connection.commit();
+			this.committed = true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Ends the unit of work. The outermost end() rolls back anything that was
+	 * not committed, unbinds the connection from the thread and closes it.
+	 * This method should always be called from a finally block.
+	 */
+	public void end() {
+		this.depth--;
+		if (this.depth > 0) {
+			return;
+		}
+
+		current.remove();
+		try {
+			if (!this.committed) {
+				this.connection.rollback();
+			}
+			this.connection.setAutoCommit(true);
+		} catch (SQLException e) {
+			// Intentially do nothing
+		} finally {
+			close(this.connection);
+		}
+	}
+
+	private static void close(Connection connection) {
+		if (connection != null) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				// Intentially do nothing
+			}
+		}
+	}
+
+	/**
+	 * Hands calls through to the bound connection, except for the calls that
+	 * would end or change the transaction.
+	 */
+	private static class SharedConnectionHandler implements InvocationHandler {
+		private final Connection connection;
+
+		private SharedConnectionHandler(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close") || name.equals("commit") || name.equals("setAutoCommit")) {
+				return null;
+			}
+			if (name.equals("equals")) {
+				return Boolean.valueOf(proxy == args[0]);
+			}
+			if (name.equals("hashCode")) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			}
+
+			try {
+				return method.invoke(this.connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
@@ -1,13 +1,19 @@
 package gmu.swe.dao;
 
 import gmu.swe.domain.Flight;
+import gmu.swe.domain.FlightPage;
 import gmu.swe.domain.Reservation;
 import gmu.swe.domain.SearchFilters;
 import gmu.swe.exception.DataAccessException;
+import gmu.swe.util.UnitOfWork;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -75,6 +81,17 @@ public class AirlineHeadquartersDaoTest {
 		Assert.assertEquals(98, this.dao.getNumberOfAvailableSeats(2));
 	}
 
+	@Test
+	public void testDecrementAvailableSeats_WithTooManySeats() throws DataAccessException {
+		Assert.assertFalse(this.dao.decrementAvailableSeats(2, 1000));
+		Assert.assertEquals(98, this.dao.getNumberOfAvailableSeats(2));
+	}
+
+	@Test
+	public void testDecrementAvailableSeats_WithNonExistingFlightId() throws DataAccessException {
+		Assert.assertFalse(this.dao.decrementAvailableSeats(1000, 1));
+	}
+
 	@Test
 	public void testCreateReservation() throws DataAccessException {
 		// Flight flight = this.dao.createReservation(2, 5);
@@ -89,25 +106,23 @@ public class AirlineHeadquartersDaoTest {
 	}
 
 	@Test
-	public void testGetLastReservationAdded() throws DataAccessException {
-		Reservation reservation = this.dao.getLastReservationAdded(2);
-		Flight flight = reservation.getFlight();
+	public void testGetFlight_WithNonExistingFlightId() throws DataAccessException {
+		Assert.assertNull(this.dao.getFlight(1000));
+	}
+
+	@Test
+	public void testGetFlight() throws DataAccessException {
+		Flight flight = this.dao.getFlight(2);
+		Assert.assertEquals(2, flight.getId());
 
-		System.out.println("* Successfully create reservation.");
+		System.out.println("* Successfully found flight.");
 		System.out.println("--------------------------------------------------------------------------------");
-		System.out.println("Reservation #: " + reservation.getId());
-		System.out.println("Number of Seats Reserved: " + reservation.getNumSeats());
 		System.out.println("Flight #: " + flight.getId());
 		System.out.println("Departing From Airport: " + flight.getDepartureAirportCode());
 		System.out.println("Arriving in Airport: " + flight.getDestinationAirportCode());
 		System.out.println("Flight Date: " + flight.getDepartureDate());
-		System.out.println("Total Cost: $" + (flight.getCost() * reservation.getNumSeats()));
+		System.out.println("Cost: $" + flight.getCost());
 		System.out.println("--------------------------------------------------------------------------------");
-//		String airplanes = reservation.getId() + "\t" + reservation.getNumSeats() + "\t"
-//				+ flight.getDepartureAirportCode() + "\t\t" + flight.getDestinationAirportCode() + "\t\t"
-//				+ flight.getDepartureDate() + "\t" + flight.getId() + "\t\t$" + flight.getCost() + "\t"
-//				+ flight.getAvailableSeats();
-//		System.out.println(airplanes);
 	}
 
 	@Test
@@ -134,6 +149,105 @@ public class AirlineHeadquartersDaoTest {
 
 	}
 
+	@Test
+	public void testCreateFlights_ReturnsIdsInOrder() throws ParseException, DataAccessException {
+		List<Flight> flights = new ArrayList<Flight>();
+		for (int i = 0; i < 3; i++) {
+			Flight flight = new Flight();
+			flight.setDepartureDate(this.simpleDateFormatter.parse("10/25/2030"));
+			flight.setDepartureAirportCode("BWI");
+			flight.setDestinationAirportCode("DCA");
+			flight.setCost(100.00 + i);
+			flight.setAirplaneId(0);
+			flight.setAvailableSeats(200);
+			flights.add(flight);
+		}
+
+		// Never committed, so the flights are rolled back when the unit of
+		// work ends
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			int[] flightIds = this.dao.createFlights(flights);
+
+			Assert.assertEquals(3, flightIds.length);
+			for (int i = 0; i < flightIds.length; i++) {
+				Flight flight = this.dao.getFlight(flightIds[i]);
+				Assert.assertEquals(100.00 + i, flight.getCost(), 0.0);
+				Assert.assertEquals(200, flight.getAvailableSeats());
+			}
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+	@Test
+	public void testGetFlightDates_OnlyMatchesRouteAndAirplane() throws ParseException, DataAccessException {
+		List<Flight> flights = new ArrayList<Flight>();
+		String[][] rows = new String[][] { { "10/25/2030", "BWI", "DCA", "0" }, { "10/27/2030", "BWI", "DCA", "0" },
+				{ "10/26/2030", "DCA", "BWI", "0" }, { "10/28/2030", "BWI", "DCA", "1" },
+				{ "11/25/2030", "BWI", "DCA", "0" } };
+		for (String[] row : rows) {
+			Flight flight = new Flight();
+			flight.setDepartureDate(this.simpleDateFormatter.parse(row[0]));
+			flight.setDepartureAirportCode(row[1]);
+			flight.setDestinationAirportCode(row[2]);
+			flight.setCost(100.00);
+			flight.setAirplaneId(Integer.parseInt(row[3]));
+			flight.setAvailableSeats(200);
+			flights.add(flight);
+		}
+
+		// Never committed, so the flights are rolled back when the unit of
+		// work ends
+		UnitOfWork unitOfWork = UnitOfWork.begin();
+		try {
+			this.dao.createFlights(flights);
+
+			Set<Date> flightDates = this.dao.getFlightDates("bwi", "dca", 0, this.simpleDateFormatter
+					.parse("10/25/2030"), this.simpleDateFormatter.parse("10/31/2030"));
+
+			Assert.assertEquals(2, flightDates.size());
+			Assert.assertTrue(flightDates.contains(this.simpleDateFormatter.parse("10/25/2030")));
+			Assert.assertTrue(flightDates.contains(this.simpleDateFormatter.parse("10/27/2030")));
+		} finally {
+			unitOfWork.end();
+		}
+	}
+
+	@Test
+	public void testSearchPage_ReturnsSameFlightsAsSearch() throws DataAccessException {
+		Collection<Flight> flights = this.dao.search(new SearchFilters());
+
+		List<Integer> expectedIds = new ArrayList<Integer>();
+		if (flights != null) {
+			for (Flight flight : flights) {
+				expectedIds.add(flight.getId());
+			}
+		}
+
+		List<Integer> pagedIds = new ArrayList<Integer>();
+		SearchCursor after = null;
+		do {
+			FlightPage page = this.dao.searchPage(new SearchFilters(), after, 2);
+			Assert.assertTrue(page.getFlights().size() <= 2);
+			for (Flight flight : page.getFlights()) {
+				pagedIds.add(flight.getId());
+			}
+			after = page.hasNextPage() ? SearchCursor.fromToken(page.getNextPageToken()) : null;
+		} while (after != null);
+
+		Assert.assertEquals(expectedIds, pagedIds);
+	}
+
+	@Test
+	public void testSearchCursor_TokenRoundTrip() {
+		SearchCursor cursor = SearchCursor.fromToken(new SearchCursor("BWI", "DCA", 1234).toToken());
+
+		Assert.assertEquals("BWI", cursor.getDepartureAirportCode());
+		Assert.assertEquals("DCA", cursor.getDestinationAirportCode());
+		Assert.assertEquals(1234, cursor.getFlightId());
+	}
+
 	@Test
 	public void testSearchFlights() throws DataAccessException {
 		Collection<Flight> flights = this.dao.search(new SearchFilters());
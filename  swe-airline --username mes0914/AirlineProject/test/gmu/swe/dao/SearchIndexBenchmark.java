@@ -0,0 +1,170 @@
+package gmu.swe.dao;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * Measures flight search latency against the FLIGHT row count, before and
+ * after the SchemaMigrator migrations are applied. Runs the same queries
+ * AirlineHeadquartersDao.search() uses against an in-memory HSQLDB database
+ * with the same schema as AIRLINE_DB.script.
+ *
+ * Run with: java gmu.swe.dao.SearchIndexBenchmark [rowCount ...]
+ *
+ * @author mbsnyder
+ *
+ */
+public class SearchIndexBenchmark {
+	private static final String[] AIRPORTS = { "BWI", "DCA", "IAD", "PAX", "WAS", "ATL", "BOS", "DFW", "DEN",
+			"JFK", "LAX", "MIA", "ORD", "SEA", "SFO", "PHX", "MSP", "DTW", "PHL", "CLT" };
+	private static final int DAYS = 365;
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+	private static final String[] QUERY_NAMES = { "route + date", "route from today", "departure from today",
+			"destination + date", "date only" };
+
+	// { exact date, departure, destination } for each query
+	private static final boolean[][] FILTERS = { { true, true, true }, { false, true, true },
+			{ false, true, false }, { true, false, true }, { true, false, false } };
+
+	private static final int ITERATIONS = 200;
+
+	public static void main(String[] args) throws Exception {
+		int[] rowCounts = { 1000, 10000, 100000 };
+		if (args.length > 0) {
+			rowCounts = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				rowCounts[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		Class.forName("org.hsqldb.jdbcDriver");
+
+		System.out.println("Average search latency in microseconds (" + ITERATIONS + " searches each)");
+		System.out.println("ROWS\tQUERY\t\t\tNO INDEXES\tMIGRATED");
+		for (int rowCount : rowCounts) {
+			Connection conn = DriverManager.getConnection("jdbc:hsqldb:mem:searchBenchmark" + rowCount, "sa", "");
+			try {
+				createSchema(conn, rowCount);
+
+				long[] before = timeQueries(conn);
+				new SchemaMigrator().migrate(conn);
+				long[] after = timeQueries(conn);
+
+				for (int i = 0; i < FILTERS.length; i++) {
+					System.out.println(rowCount + "\t" + pad(QUERY_NAMES[i]) + "\t" + before[i] + "\t\t" + after[i]);
+				}
+			} finally {
+				conn.createStatement().execute("SHUTDOWN");
+				conn.close();
+			}
+		}
+	}
+
+	private static void createSchema(Connection conn, int rowCount) throws SQLException {
+		Statement stmt = conn.createStatement();
+		stmt.execute("CREATE TABLE AIRPLANE(ID INTEGER GENERATED BY DEFAULT AS IDENTITY(START WITH 0) NOT NULL "
+				+ "PRIMARY KEY,NUM_SEATS INTEGER,TYPE VARCHAR)");
+		stmt.execute("CREATE TABLE AIRPORT(CODE VARCHAR NOT NULL PRIMARY KEY)");
+		stmt.execute("CREATE TABLE FLIGHT(ID INTEGER GENERATED BY DEFAULT AS IDENTITY(START WITH 0) NOT NULL "
+				+ "PRIMARY KEY,DEPARTURE_DATE DATE,DEPARTURE_AIRPORT_CODE VARCHAR,DESTINATION_AIRPORT_CODE VARCHAR,"
+				+ "COST DOUBLE,AIRPLANE_ID INTEGER,AVAILABLE_SEATS INTEGER,"
+				+ "FOREIGN KEY(DEPARTURE_AIRPORT_CODE) REFERENCES AIRPORT(CODE),"
+				+ "FOREIGN KEY(DESTINATION_AIRPORT_CODE) REFERENCES AIRPORT(CODE),"
+				+ "FOREIGN KEY(AIRPLANE_ID) REFERENCES AIRPLANE(ID))");
+		stmt.execute("INSERT INTO AIRPLANE (NUM_SEATS, TYPE) VALUES (180, '737')");
+		for (String airport : AIRPORTS) {
+			stmt.execute("INSERT INTO AIRPORT VALUES('" + airport + "')");
+		}
+		stmt.close();
+
+		Random random = new Random(42);
+		long firstDay = System.currentTimeMillis();
+		PreparedStatement insert = conn.prepareStatement("INSERT INTO FLIGHT (DEPARTURE_DATE, "
+				+ "DEPARTURE_AIRPORT_CODE, DESTINATION_AIRPORT_CODE, COST, AIRPLANE_ID, AVAILABLE_SEATS) "
+				+ "VALUES (?, ?, ?, ?, 0, 180)");
+		for (int i = 0; i < rowCount; i++) {
+			int departure = random.nextInt(AIRPORTS.length);
+			int destination = (departure + 1 + random.nextInt(AIRPORTS.length - 1)) % AIRPORTS.length;
+
+			insert.setDate(1, new Date(firstDay + random.nextInt(DAYS) * DAY_MILLIS));
+			insert.setString(2, AIRPORTS[departure]);
+			insert.setString(3, AIRPORTS[destination]);
+			insert.setDouble(4, 100 + random.nextInt(400));
+			insert.addBatch();
+			if (i % 1000 == 999) {
+				insert.executeBatch();
+			}
+		}
+		insert.executeBatch();
+		insert.close();
+	}
+
+	/**
+	 * Runs every query ITERATIONS times (after a warm up) with random filter
+	 * values and returns the average latency of each, in microseconds.
+	 */
+	private static long[] timeQueries(Connection conn) throws SQLException {
+		long[] averages = new long[FILTERS.length];
+		long firstDay = System.currentTimeMillis();
+
+		for (int q = 0; q < FILTERS.length; q++) {
+			boolean exactDate = FILTERS[q][0];
+			boolean hasDeparture = FILTERS[q][1];
+			boolean hasDestination = FILTERS[q][2];
+
+			PreparedStatement stmt = conn.prepareStatement(AirlineHeadquartersDao.getSearchQuery(exactDate,
+					hasDeparture, hasDestination));
+			Random random = new Random(7);
+
+			long total = 0;
+			for (int i = -ITERATIONS / 4; i < ITERATIONS; i++) {
+				int departure = random.nextInt(AIRPORTS.length);
+				int destination = (departure + 1 + random.nextInt(AIRPORTS.length - 1)) % AIRPORTS.length;
+
+				// Same parameter order as AirlineHeadquartersDao.search()
+				int parameterIndex = 1;
+				if (exactDate) {
+					stmt.setDate(parameterIndex++, new Date(firstDay + random.nextInt(DAYS) * DAY_MILLIS));
+				}
+				if (hasDeparture) {
+					stmt.setString(parameterIndex++, AIRPORTS[departure]);
+				}
+				if (hasDestination) {
+					stmt.setString(parameterIndex++, AIRPORTS[destination]);
+				}
+				if (!exactDate) {
+					stmt.setDate(parameterIndex++, new Date(firstDay));
+				}
+
+				long start = System.nanoTime();
+				ResultSet rs = stmt.executeQuery();
+				while (rs.next()) {
+					rs.getInt(1);
+				}
+				rs.close();
+				if (i >= 0) {
+					total += System.nanoTime() - start;
+				}
+			}
+			stmt.close();
+
+			averages[q] = total / ITERATIONS / 1000;
+		}
+
+		return averages;
+	}
+
+	private static String pad(String name) {
+		while (name.length() < 24) {
+			name += " ";
+		}
+		return name;
+	}
+}
@@ -0,0 +1,96 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.Reservation;
+import gmu.swe.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DatabaseSeatInventoryTest {
+	private static final int BOOKINGS = 2000;
+	private static final int THREADS = 16;
+
+	private AirlineHeadquartersDao dao;
+	private DatabaseSeatInventory inventory;
+	private int flightId;
+	private int numSeats;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dao = new AirlineHeadquartersDao();
+		this.inventory = new DatabaseSeatInventory(this.dao);
+
+		Flight flight = new Flight();
+		flight.setDepartureDate(new Date(System.currentTimeMillis() + 3 * 24 * 60 * 60 * 1000L));
+		flight.setDepartureAirportCode("BWI");
+		flight.setDestinationAirportCode("DCA");
+		flight.setCost(10.00);
+		flight.setAirplaneId(4);
+		this.flightId = this.dao.createFlight(flight);
+		this.numSeats = this.dao.getFlight(this.flightId).getAvailableSeats();
+	}
+
+	@Test
+	public void testReserve_ConcurrentBookingsNeverOversell() throws Exception {
+		Assert.assertTrue(this.numSeats < BOOKINGS);
+
+		final AtomicInteger reservedCount = new AtomicInteger();
+		final List<Reservation> reservations = Collections.synchronizedList(new ArrayList<Reservation>());
+		final List<String> errorMessages = Collections.synchronizedList(new ArrayList<String>());
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		for (int i = 0; i < BOOKINGS; i++) {
+			executor.submit(new Runnable() {
+				public void run() {
+					try {
+						reservations.add(inventory.reserve(flightId, 1));
+						reservedCount.incrementAndGet();
+					} catch (ValidationException e) {
+						errorMessages.addAll(e.getErrorMessages());
+					} catch (Throwable e) {
+						failures.add(e);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(120, TimeUnit.SECONDS));
+
+		Assert.assertEquals(failures.toString(), 0, failures.size());
+		Assert.assertEquals(this.numSeats, reservedCount.get());
+		Assert.assertEquals(BOOKINGS - this.numSeats, errorMessages.size());
+		Assert.assertEquals(0, this.dao.getFlight(this.flightId).getAvailableSeats());
+
+		// Read after the update, so no reservation shows the seats it took as
+		// still available, and no rejection reports enough seats
+		for (Reservation reservation : reservations) {
+			Assert.assertTrue(reservation.getFlight().getAvailableSeats() < this.numSeats);
+		}
+		for (String errorMessage : errorMessages) {
+			Assert.assertEquals("The flight does not have enough seats, it only has 0 seats available", errorMessage);
+		}
+	}
+
+	@Test
+	public void testReserve_MissingFlight() throws Exception {
+		try {
+			this.inventory.reserve(Integer.MAX_VALUE, 1);
+			Assert.fail("Expected a ValidationException");
+		} catch (ValidationException e) {
+			Assert.assertEquals("The provided flight Id does not exist", e.getErrorMessages().get(0));
+		}
+	}
+}
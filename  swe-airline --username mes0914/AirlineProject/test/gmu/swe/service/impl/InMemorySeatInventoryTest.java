@@ -0,0 +1,219 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.Reservation;
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemorySeatInventoryTest {
+	private StubDao dao;
+	private InMemorySeatInventory inventory;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dao = new StubDao();
+
+		// Only flush() writes, the background thread never gets to
+		this.inventory = new InMemorySeatInventory(this.dao, 2, 60000, 1000, 2);
+		this.inventory.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.inventory.close();
+	}
+
+	@Test
+	public void testReserve_ConcurrentReservationsNeverOversell() throws Exception {
+		final AtomicInteger reserved = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread() {
+				public void run() {
+					for (int j = 0; j < 50; j++) {
+						try {
+							inventory.reserve(1, 1);
+							reserved.incrementAndGet();
+						} catch (ValidationException e) {
+							// The flight is full
+						} catch (DataAccessException e) {
+							throw new RuntimeException(e);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertEquals(100, reserved.get());
+		Assert.assertEquals(0, this.inventory.getAvailableSeats(1));
+
+		this.inventory.flush();
+		Assert.assertEquals(100, this.dao.saved.size());
+
+		Set<Integer> reservationIds = new HashSet<Integer>();
+		for (Reservation reservation : this.dao.saved) {
+			reservationIds.add(Integer.valueOf(reservation.getId()));
+		}
+		Assert.assertEquals(100, reservationIds.size());
+		Assert.assertTrue(reservationIds.contains(Integer.valueOf(10)));
+		Assert.assertTrue(reservationIds.contains(Integer.valueOf(109)));
+	}
+
+	@Test
+	public void testReserve_TooManySeats() throws Exception {
+		try {
+			this.inventory.reserve(1, 101);
+			Assert.fail();
+		} catch (ValidationException e) {
+			Assert.assertTrue(e.getErrorMessages().contains(
+					"The flight does not have enough seats, it only has 100 seats available"));
+		}
+
+		try {
+			this.inventory.reserve(2, 1);
+			Assert.fail();
+		} catch (ValidationException e) {
+			Assert.assertTrue(e.getErrorMessages().contains("The provided flight Id does not exist"));
+		}
+	}
+
+	@Test
+	public void testFlush_FailedBatchIsWrittenAgainInOrder() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(10 + i, this.inventory.reserve(1, 1 + i).getId());
+		}
+
+		this.dao.failOnSave = true;
+		try {
+			this.inventory.flush();
+			Assert.fail();
+		} catch (DataAccessException e) {
+			Assert.assertTrue(this.dao.saved.isEmpty());
+		}
+
+		this.dao.failOnSave = false;
+		this.inventory.flush();
+
+		Assert.assertEquals(3, this.dao.saved.size());
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(10 + i, this.dao.saved.get(i).getId());
+			Assert.assertEquals(1 + i, this.dao.saved.get(i).getNumSeats());
+		}
+	}
+
+	@Test
+	public void testReserve_FailsWhileReservationsCantBeWritten() throws Exception {
+		this.inventory.reserve(1, 1);
+
+		this.dao.failOnSave = true;
+		for (int i = 0; i < 2; i++) {
+			try {
+				this.inventory.flush();
+				Assert.fail();
+			} catch (DataAccessException e) {
+				// Expected
+			}
+		}
+		Assert.assertEquals(2, this.inventory.getFailedBatchCount());
+		try {
+			this.inventory.reserve(1, 1);
+			Assert.fail();
+		} catch (DataAccessException e) {
+			Assert.assertEquals(1, this.inventory.getRejectedCount());
+		}
+		Assert.assertEquals(99, this.inventory.getAvailableSeats(1));
+
+		this.dao.failOnSave = false;
+		this.inventory.flush();
+		Assert.assertEquals(0, this.inventory.getConsecutiveFailureCount());
+		Assert.assertEquals(0, this.inventory.getPendingCount());
+		this.inventory.reserve(1, 1);
+	}
+
+	@Test
+	public void testReserve_FailsWhenTooManyAreWaiting() throws Exception {
+		InMemorySeatInventory smallInventory = new InMemorySeatInventory(this.dao, 2, 60000, 5, 2);
+		smallInventory.start();
+		try {
+			for (int i = 0; i < 5; i++) {
+				smallInventory.reserve(1, 1);
+			}
+			try {
+				smallInventory.reserve(1, 1);
+				Assert.fail();
+			} catch (DataAccessException e) {
+				Assert.assertEquals(5, smallInventory.getPendingCount());
+			}
+
+			smallInventory.flush();
+			smallInventory.reserve(1, 1);
+			Assert.assertEquals(1, smallInventory.getPendingCount());
+			Assert.assertEquals(3, smallInventory.getBatchCount());
+		} finally {
+			smallInventory.close();
+		}
+	}
+
+	@Test
+	public void testApplyAvailableSeats() throws Exception {
+		Reservation reservation = this.inventory.reserve(1, 30);
+		Assert.assertEquals(70, reservation.getFlight().getAvailableSeats());
+
+		Flight stale = this.dao.getFlight(1);
+		this.inventory.applyAvailableSeats(Collections.singletonList(stale));
+		Assert.assertEquals(70, stale.getAvailableSeats());
+	}
+
+	private static class StubDao extends AirlineHeadquartersDao {
+		private List<Reservation> saved = Collections.synchronizedList(new ArrayList<Reservation>());
+		private boolean failOnSave;
+
+		public Flight getFlight(int flightId) {
+			if (flightId != 1) {
+				return null;
+			}
+
+			Flight flight = new Flight();
+			flight.setId(1);
+			flight.setDepartureDate(new Date());
+			flight.setDepartureAirportCode("BWI");
+			flight.setDestinationAirportCode("DCA");
+			flight.setAvailableSeats(100);
+			return flight;
+		}
+
+		public int getMaxReservationId() {
+			return 9;
+		}
+
+		public List<Flight> getFlightsDepartingOnOrAfter(Date departureDate) {
+			return new ArrayList<Flight>();
+		}
+
+		public void saveReservations(List<Reservation> reservations) throws DataAccessException {
+			if (this.failOnSave) {
+				throw new DataAccessException("database is down");
+			}
+			this.saved.addAll(reservations);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Airplane;
+import gmu.swe.exception.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReferenceDataCacheTest {
+	private ReferenceDataCache cache;
+	private StubDao dao;
+
+	@Before
+	public void setUp() throws Exception {
+		this.cache = new ReferenceDataCache();
+		this.dao = new StubDao();
+		this.dao.airports.add("BWI");
+		this.dao.airports.add("DCA");
+		this.dao.addAirplane(1);
+	}
+
+	@Test
+	public void testGetAllAirports_LoadsOnce() throws DataAccessException {
+		Assert.assertEquals(2, this.cache.getAllAirports(this.dao).size());
+		Assert.assertEquals(2, this.cache.getAllAirports(this.dao).size());
+		Assert.assertEquals(1, this.cache.getAllAirplanes(this.dao).size());
+
+		Assert.assertEquals(1, this.dao.loadCount);
+		Assert.assertEquals(1, this.cache.getMissCount());
+		Assert.assertEquals(2, this.cache.getHitCount());
+	}
+
+	@Test
+	public void testDoesAirportExist_ServedFromMemory() throws DataAccessException {
+		Assert.assertTrue(this.cache.doesAirportExist("bwi", this.dao));
+		Assert.assertTrue(this.cache.doesAirplaneExist(1, this.dao));
+
+		Assert.assertEquals(0, this.dao.existenceCheckCount);
+	}
+
+	@Test
+	public void testDoesAirportExist_CountsOneHitOrMissPerCheck() throws DataAccessException {
+		this.cache.getAllAirports(this.dao);
+
+		Assert.assertTrue(this.cache.doesAirportExist("BWI", this.dao));
+		Assert.assertFalse(this.cache.doesAirportExist("XXX", this.dao));
+		Assert.assertFalse(this.cache.doesAirplaneExist(9, this.dao));
+
+		Assert.assertEquals(1, this.cache.getHitCount());
+		Assert.assertEquals(3, this.cache.getMissCount());
+	}
+
+	@Test
+	public void testDoesAirportExist_AddedElsewhereInvalidatesCache() throws DataAccessException {
+		this.cache.getAllAirports(this.dao);
+		this.dao.airports.add("IAD");
+
+		Assert.assertTrue(this.cache.doesAirportExist("IAD", this.dao));
+		Assert.assertFalse(this.cache.doesAirportExist("XXX", this.dao));
+		Assert.assertEquals(3, this.cache.getAllAirports(this.dao).size());
+		Assert.assertEquals(2, this.dao.loadCount);
+	}
+
+	@Test
+	public void testInvalidate_ReloadsOnNextRequest() throws DataAccessException {
+		this.cache.getAllAirplanes(this.dao);
+		this.dao.addAirplane(2);
+		this.cache.invalidate();
+
+		Assert.assertEquals(2, this.cache.getAllAirplanes(this.dao).size());
+		Assert.assertEquals(2, this.dao.loadCount);
+		Assert.assertEquals(1, this.cache.getInvalidationCount());
+	}
+
+	/**
+	 * DAO that keeps the reference data in memory and counts the calls made
+	 * to it.
+	 */
+	private static class StubDao extends AirlineHeadquartersDao {
+		private Collection<String> airports = new ArrayList<String>();
+		private Collection<Airplane> airplanes = new ArrayList<Airplane>();
+		private int loadCount;
+		private int existenceCheckCount;
+
+		private void addAirplane(int id) {
+			Airplane airplane = new Airplane();
+			airplane.setId(id);
+			this.airplanes.add(airplane);
+		}
+
+		public Collection<String> getAllAirports() {
+			this.loadCount++;
+			return new ArrayList<String>(this.airports);
+		}
+
+		public Collection<Airplane> getAllAirplanes() {
+			return new ArrayList<Airplane>(this.airplanes);
+		}
+
+		public boolean doesAirportExist(String airportCode) {
+			this.existenceCheckCount++;
+			return this.airports.contains(airportCode);
+		}
+
+		public boolean doesAirplaneExist(int airplaneId) {
+			this.existenceCheckCount++;
+			for (Airplane airplane : this.airplanes) {
+				if (airplane.getId() == airplaneId) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.dao.AirlineHeadquartersDao;
+import gmu.swe.domain.Airplane;
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.ScheduleImportResult;
+import gmu.swe.exception.DataAccessException;
+import gmu.swe.exception.ValidationException;
+import gmu.swe.service.AirlineHeadquartersService;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScheduleImporterTest {
+	private StubDao dao;
+	private AirlineHeadquartersServiceImpl service;
+	private ScheduleImporter importer;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dao = new StubDao();
+
+		this.service = new AirlineHeadquartersServiceImpl();
+		this.service.setDao(this.dao);
+		this.service.setReferenceDataCache(new ReferenceDataCache());
+		this.service.setSearchResultCache(new SearchResultCache(10, 60000));
+
+		this.importer = new ScheduleImporter(this.service, 2, 4);
+	}
+
+	@Test
+	public void testImportSchedule_CreatesValidLinesAndReportsTheRest() {
+		String schedule = "DEPARTURE_DATE,DEPARTURE_AIRPORT_CODE,DESTINATION_AIRPORT_CODE,COST,AIRPLANE_ID\n"
+				+ "10/25/2030,BWI,DCA,240.00,1\n" + "10/26/2030,BWI,XXX,240.00,1\n" + "\n"
+				+ "10/27/2030,DCA,BWI,not a cost,1\n" + "10/28/2030,DCA,BWI,120.00,1\n"
+				+ "10/29/2030,BWI,DCA,99.00,1\n";
+
+		ScheduleImportResult result = this.importer.importSchedule(new StringReader(schedule), 0);
+
+		Assert.assertTrue(result.isCompleted());
+		Assert.assertEquals(5, result.getLinesRead());
+		Assert.assertEquals(3, result.getCreatedCount());
+		Assert.assertEquals(2, result.getRejectedCount());
+		Assert.assertEquals(7, result.getLastCommittedLine());
+		Assert.assertTrue(result.getErrorMessages().contains("Line 3: The provided destination airport code does not exist"));
+		Assert.assertTrue(result.getErrorMessages().contains("Line 5: Column 4 is not a valid cost"));
+
+		// Seats come from the airplane, and the order of the file is kept
+		Assert.assertEquals(150, this.dao.created.get(0).getAvailableSeats());
+		Assert.assertEquals(99.00, this.dao.created.get(2).getCost(), 0.0);
+	}
+
+	@Test
+	public void testImportSchedule_FailureCanBeResumed() {
+		String schedule = "10/25/2030,BWI,DCA,1.00,1\n" + "10/25/2030,BWI,DCA,2.00,1\n"
+				+ "10/25/2030,BWI,DCA,3.00,1\n" + "10/25/2030,BWI,DCA,4.00,1\n" + "10/25/2030,BWI,DCA,5.00,1\n";
+
+		// The second batch fails
+		this.dao.failOnBatch = 2;
+		ScheduleImportResult result = this.importer.importSchedule(new StringReader(schedule), 0);
+
+		Assert.assertFalse(result.isCompleted());
+		Assert.assertEquals(2, result.getCreatedCount());
+		Assert.assertEquals(2, result.getLastCommittedLine());
+
+		this.dao.failOnBatch = 0;
+		result = this.importer.importSchedule(new StringReader(schedule), result.getLastCommittedLine());
+
+		Assert.assertTrue(result.isCompleted());
+		Assert.assertEquals(3, result.getCreatedCount());
+		Assert.assertEquals(5, this.dao.created.size());
+		Assert.assertEquals(3.00, this.dao.created.get(2).getCost(), 0.0);
+	}
+
+	@Test
+	public void testImportScheduleChunk_NumbersLinesFromTheChunkStart() throws Exception {
+		String chunk = "10/25/2030,BWI,DCA,1.00,1\n" + "secret,BWI,DCA,2.00,1\n" + "10/25/2030,BWI,DCA,3.00,1\n";
+
+		ScheduleImportResult result = this.service.importScheduleChunk(chunk, 11);
+
+		Assert.assertTrue(result.isCompleted());
+		Assert.assertEquals(3, result.getLinesRead());
+		Assert.assertEquals(2, result.getCreatedCount());
+		Assert.assertEquals(13, result.getLastCommittedLine());
+		Assert.assertEquals(1, result.getErrorMessages().size());
+		Assert.assertEquals("Line 12: Column 1 is not a date in the format MM/dd/yyyy", result.getErrorMessages().get(0));
+	}
+
+	@Test
+	public void testImportScheduleChunk_RejectsAChunkThatIsTooLong() throws Exception {
+		StringBuilder chunk = new StringBuilder();
+		while (chunk.length() <= AirlineHeadquartersService.MAX_SCHEDULE_CHUNK_LENGTH) {
+			chunk.append("10/25/2030,BWI,DCA,1.00,1\n");
+		}
+
+		try {
+			this.service.importScheduleChunk(chunk.toString(), 1);
+			Assert.fail("Expected a ValidationException");
+		} catch (ValidationException e) {
+			Assert.assertTrue(this.dao.created.isEmpty());
+		}
+	}
+
+	private static class StubDao extends AirlineHeadquartersDao {
+		private List<Flight> created = new ArrayList<Flight>();
+		private int batchCount;
+		private int failOnBatch;
+
+		public Collection<String> getAllAirports() {
+			Collection<String> airports = new ArrayList<String>();
+			airports.add("BWI");
+			airports.add("DCA");
+			return airports;
+		}
+
+		public Collection<Airplane> getAllAirplanes() {
+			Airplane airplane = new Airplane();
+			airplane.setId(1);
+			airplane.setNumSeats(150);
+
+			Collection<Airplane> airplanes = new ArrayList<Airplane>();
+			airplanes.add(airplane);
+			return airplanes;
+		}
+
+		public boolean doesAirportExist(String airportCode) {
+			return false;
+		}
+
+		public boolean doesAirplaneExist(int airplaneId) {
+			return false;
+		}
+
+		public int[] createFlights(List<Flight> flights) throws DataAccessException {
+			if (++this.batchCount == this.failOnBatch) {
+				throw new DataAccessException("database is down");
+			}
+
+			int[] flightIds = new int[flights.size()];
+			for (int i = 0; i < flightIds.length; i++) {
+				this.created.add(flights.get(i));
+				flightIds[i] = this.created.size();
+			}
+			return flightIds;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.SearchFilters;
+import gmu.swe.exception.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchCoalescerTest {
+	private static final int CALLERS = 8;
+
+	private SearchCoalescer coalescer;
+
+	@Before
+	public void setUp() throws Exception {
+		this.coalescer = new SearchCoalescer();
+	}
+
+	@Test
+	public void testSearch_ConcurrentIdenticalSearchesShareOneQuery() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger queries = new AtomicInteger();
+		final Callable<Collection<Flight>> query = new Callable<Collection<Flight>>() {
+			public Collection<Flight> call() throws Exception {
+				queries.incrementAndGet();
+				release.await();
+				Collection<Flight> flights = new ArrayList<Flight>();
+				flights.add(new Flight());
+				return flights;
+			}
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		try {
+			Collection<Future<Collection<Flight>>> results = new ArrayList<Future<Collection<Flight>>>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(executor.submit(new Callable<Collection<Flight>>() {
+					public Collection<Flight> call() throws Exception {
+						return coalescer.search(createFilters("BWI"), 0, query);
+					}
+				}));
+			}
+
+			// Let the query finish once every other caller is waiting on it
+			long deadline = System.currentTimeMillis() + 5000;
+			while (this.coalescer.getCoalescedCount() < CALLERS - 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+
+			for (Future<Collection<Flight>> result : results) {
+				Assert.assertEquals(1, result.get(5, TimeUnit.SECONDS).size());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(1, queries.get());
+		Assert.assertEquals(1, this.coalescer.getQueryCount());
+		Assert.assertEquals(CALLERS - 1, this.coalescer.getCoalescedCount());
+	}
+
+	@Test
+	public void testSearch_SequentialSearchesEachRunTheQuery() throws DataAccessException {
+		Callable<Collection<Flight>> query = new Callable<Collection<Flight>>() {
+			public Collection<Flight> call() {
+				return new ArrayList<Flight>();
+			}
+		};
+
+		this.coalescer.search(createFilters("BWI"), 0, query);
+		this.coalescer.search(createFilters("BWI"), 0, query);
+
+		Assert.assertEquals(2, this.coalescer.getQueryCount());
+		Assert.assertEquals(0.0, this.coalescer.getCoalescingRatio(), 0.0);
+	}
+
+	@Test
+	public void testSearch_QueryFailureIsRethrown() {
+		try {
+			this.coalescer.search(createFilters("BWI"), 0, new Callable<Collection<Flight>>() {
+				public Collection<Flight> call() throws DataAccessException {
+					throw new DataAccessException("database is down");
+				}
+			});
+			Assert.fail("Expected the DataAccessException to be rethrown");
+		} catch (DataAccessException e) {
+			Assert.assertEquals("database is down", e.getMessage());
+		}
+	}
+
+	// Joining the older query would wait on it forever
+	@Test(timeout = 10000)
+	public void testSearch_SearchAfterAnInvalidationDoesNotJoinAnOlderQuery() throws Exception {
+		final SearchResultCache cache = new SearchResultCache(10, 60000);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		// A search starts, and reads the flight before it is booked
+		final long versionBefore = cache.getVersion();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Collection<Flight>> before = executor.submit(new Callable<Collection<Flight>>() {
+				public Collection<Flight> call() throws Exception {
+					return coalescer.search(createFilters("BWI"), versionBefore, new Callable<Collection<Flight>>() {
+						public Collection<Flight> call() throws Exception {
+							Collection<Flight> flights = createFlights(10);
+							started.countDown();
+							release.await();
+							cache.put(createFilters("BWI"), flights, versionBefore);
+							return flights;
+						}
+					});
+				}
+			});
+			Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			// The booking commits and invalidates the cache while that search runs
+			cache.invalidate("BWI", "DCA", new Date());
+
+			// The customer searches again, and must see the booking
+			Collection<Flight> after = this.coalescer.search(createFilters("BWI"), cache.getVersion(),
+					new Callable<Collection<Flight>>() {
+						public Collection<Flight> call() {
+							return createFlights(9);
+						}
+					});
+			Assert.assertEquals(9, after.iterator().next().getAvailableSeats());
+
+			release.countDown();
+			Assert.assertEquals(10, before.get(5, TimeUnit.SECONDS).iterator().next().getAvailableSeats());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(2, this.coalescer.getQueryCount());
+		Assert.assertEquals(0, this.coalescer.getCoalescedCount());
+		Assert.assertNull(cache.get(createFilters("BWI")));
+	}
+
+	private static Collection<Flight> createFlights(int availableSeats) {
+		Flight flight = new Flight();
+		flight.setAvailableSeats(availableSeats);
+		Collection<Flight> flights = new ArrayList<Flight>();
+		flights.add(flight);
+		return flights;
+	}
+
+	private static SearchFilters createFilters(String departure) {
+		SearchFilters searchFilters = new SearchFilters();
+		searchFilters.setDepartureLocation(departure);
+		return searchFilters;
+	}
+}
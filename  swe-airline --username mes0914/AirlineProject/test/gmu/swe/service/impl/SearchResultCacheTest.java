@@ -0,0 +1,103 @@
+package gmu.swe.service.impl;
+
+import gmu.swe.domain.Flight;
+import gmu.swe.domain.SearchFilters;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchResultCacheTest {
+	private SearchResultCache cache;
+	private Date tripDate;
+
+	@Before
+	public void setUp() throws Exception {
+		this.cache = new SearchResultCache(2, 60000);
+		this.tripDate = new SimpleDateFormat("MM/dd/yyyy").parse("10/20/2030");
+	}
+
+	@Test
+	public void testSearchFiltersEquals_IgnoresCaseAndTimeOfDay() {
+		SearchFilters filters1 = createFilters("bwi", "DCA", this.tripDate);
+		SearchFilters filters2 = createFilters("BWI", "dca", new Date(this.tripDate.getTime() + 5 * 60 * 60 * 1000));
+
+		Assert.assertEquals(filters1, filters2);
+		Assert.assertEquals(filters1.hashCode(), filters2.hashCode());
+		Assert.assertFalse(filters1.equals(createFilters("BWI", null, this.tripDate)));
+	}
+
+	@Test
+	public void testGet_ReturnsCachedResult() {
+		SearchFilters filters = createFilters("BWI", "DCA", this.tripDate);
+		this.cache.put(filters, createFlights(1), this.cache.getVersion());
+
+		// Changing the caller's filters afterwards must not affect the cache
+		filters.nullOutValues();
+
+		Assert.assertEquals(1, this.cache.get(createFilters("BWI", "DCA", this.tripDate)).size());
+		Assert.assertNull(this.cache.get(createFilters("BWI", "IAD", this.tripDate)));
+		Assert.assertEquals(1, this.cache.getHitCount());
+		Assert.assertEquals(1, this.cache.getMissCount());
+	}
+
+	@Test
+	public void testPut_EvictsLeastRecentlyUsed() {
+		this.cache.put(createFilters("BWI", null, null), createFlights(1), this.cache.getVersion());
+		this.cache.put(createFilters("DCA", null, null), createFlights(1), this.cache.getVersion());
+		this.cache.get(createFilters("BWI", null, null));
+		this.cache.put(createFilters("IAD", null, null), createFlights(1), this.cache.getVersion());
+
+		Assert.assertNotNull(this.cache.get(createFilters("BWI", null, null)));
+		Assert.assertNull(this.cache.get(createFilters("DCA", null, null)));
+		Assert.assertEquals(1, this.cache.getEvictionCount());
+	}
+
+	@Test
+	public void testPut_IgnoredAfterInvalidation() {
+		long version = this.cache.getVersion();
+		this.cache.invalidate("BWI", "DCA", this.tripDate);
+		this.cache.put(createFilters("BWI", "DCA", this.tripDate), createFlights(1), version);
+
+		Assert.assertEquals(0, this.cache.size());
+	}
+
+	@Test
+	public void testInvalidate_OnlyDropsMatchingSearches() throws ParseException {
+		Date otherDate = new SimpleDateFormat("MM/dd/yyyy").parse("10/21/2030");
+		SearchResultCache cache = new SearchResultCache(10, 60000);
+		cache.put(createFilters("BWI", "DCA", this.tripDate), createFlights(1), cache.getVersion());
+		cache.put(createFilters("BWI", null, null), createFlights(1), cache.getVersion());
+		cache.put(createFilters(null, null, this.tripDate), createFlights(1), cache.getVersion());
+		cache.put(createFilters("BWI", "DCA", otherDate), createFlights(1), cache.getVersion());
+		cache.put(createFilters("BWI", "IAD", this.tripDate), createFlights(1), cache.getVersion());
+
+		cache.invalidate("bwi", "dca", this.tripDate);
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNotNull(cache.get(createFilters("BWI", "DCA", otherDate)));
+		Assert.assertNotNull(cache.get(createFilters("BWI", "IAD", this.tripDate)));
+	}
+
+	private static SearchFilters createFilters(String departure, String destination, Date dateOfTrip) {
+		SearchFilters searchFilters = new SearchFilters();
+		searchFilters.setDepartureLocation(departure);
+		searchFilters.setDestinationLocation(destination);
+		searchFilters.setDateOfTrip(dateOfTrip);
+		return searchFilters;
+	}
+
+	private static Collection<Flight> createFlights(int count) {
+		Collection<Flight> flights = new ArrayList<Flight>();
+		for (int i = 0; i < count; i++) {
+			flights.add(new Flight());
+		}
+		return flights;
+	}
+}
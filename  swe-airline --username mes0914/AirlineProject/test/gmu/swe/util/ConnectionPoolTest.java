@@ -0,0 +1,133 @@
+package gmu.swe.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConnectionPoolTest {
+	private ConnectionPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		Class.forName("org.hsqldb.jdbcDriver");
+		this.pool = new ConnectionPool("jdbc:hsqldb:mem:poolTest", "sa", "", 1, 2, 200, 0, "CALL 1");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.pool.close();
+		this.pool = null;
+	}
+
+	@Test
+	public void testGetConnection_ReusesReturnedConnection() throws SQLException {
+		Connection connection = this.pool.getConnection();
+		connection.close();
+		connection = this.pool.getConnection();
+		connection.close();
+
+		Assert.assertEquals(1, this.pool.getCreatedCount());
+		Assert.assertEquals(2, this.pool.getBorrowCount());
+		Assert.assertEquals(1, this.pool.getIdleCount());
+		Assert.assertEquals(0, this.pool.getActiveCount());
+	}
+
+	@Test
+	public void testGetConnection_TimesOutWhenExhausted() throws SQLException {
+		Connection connection1 = this.pool.getConnection();
+		Connection connection2 = this.pool.getConnection();
+		try {
+			this.pool.getConnection();
+			Assert.fail("Expected the pool to time out");
+		} catch (SQLException e) {
+			Assert.assertEquals(1, this.pool.getTimeoutCount());
+		} finally {
+			connection1.close();
+			connection2.close();
+		}
+	}
+
+	@Test
+	public void testGetConnection_ReplacesInvalidConnection() throws SQLException {
+		// Shut the database down behind the pool's back, which invalidates
+		// the idle connection.
+		Connection connection = this.pool.getConnection();
+		connection.createStatement().execute("SHUTDOWN");
+		connection.close();
+
+		connection = this.pool.getConnection();
+		Assert.assertFalse(connection.isClosed());
+		connection.close();
+		Assert.assertEquals(2, this.pool.getCreatedCount());
+	}
+
+	@Test
+	public void testClose_ReturnedHandleCantBeUsed() throws SQLException {
+		Connection connection = this.pool.getConnection();
+		connection.close();
+		Assert.assertTrue(connection.isClosed());
+		try {
+			connection.createStatement();
+			Assert.fail("Expected the closed handle to be rejected");
+		} catch (SQLException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testReturn_ResetsAutoCommit() throws SQLException {
+		Connection connection = this.pool.getConnection();
+		connection.setAutoCommit(false);
+		connection.close();
+
+		connection = this.pool.getConnection();
+		Assert.assertTrue(connection.getAutoCommit());
+		connection.close();
+	}
+
+	@Test
+	public void testPrepareStatement_ReusesCachedStatement() throws SQLException {
+		ConnectionPool cachingPool = new ConnectionPool("jdbc:hsqldb:mem:poolTest", "sa", "", 1, 1, 200, 0, "CALL 1", 2);
+		try {
+			for (int i = 0; i < 3; i++) {
+				Connection connection = cachingPool.getConnection();
+				PreparedStatement stmt = connection.prepareStatement("CALL ABS(?)");
+				stmt.setInt(1, i);
+				ResultSet rs = stmt.executeQuery();
+				rs.next();
+				Assert.assertEquals(i, rs.getInt(1));
+				stmt.close();
+				connection.close();
+			}
+
+			Assert.assertEquals(1, cachingPool.getStatementCacheMisses());
+			Assert.assertEquals(2, cachingPool.getStatementCacheHits());
+		} finally {
+			cachingPool.close();
+		}
+	}
+
+	@Test
+	public void testPrepareStatement_SameQueryOpenTwice() throws SQLException {
+		ConnectionPool cachingPool = new ConnectionPool("jdbc:hsqldb:mem:poolTest", "sa", "", 1, 1, 200, 0, "CALL 1", 2);
+		try {
+			Connection connection = cachingPool.getConnection();
+			PreparedStatement stmt1 = connection.prepareStatement("CALL ABS(?)");
+			PreparedStatement stmt2 = connection.prepareStatement("CALL ABS(?)");
+			Assert.assertNotSame(stmt1, stmt2);
+			stmt1.close();
+			stmt2.close();
+			connection.close();
+
+			Assert.assertEquals(2, cachingPool.getStatementCacheMisses());
+		} finally {
+			cachingPool.close();
+		}
+	}
+}
@@ -6,10 +6,13 @@ package msnydera.swe645.service.mdb;
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.MessageDriven;
 import javax.jms.JMSException;
-import javax.jms.MapMessage;
 import javax.jms.Message;
+import javax.jms.MessageFormatException;
 import javax.jms.MessageListener;
 
+import msnydera.swe645.domain.FlightEvent;
+import msnydera.swe645.service.impl.FlightEventCodec;
+
 /**
  * Message-Driven Bean implementation class for: AirlineSubscriberTopicB.
  * 
@@ -20,7 +23,10 @@ import javax.jms.MessageListener;
 @MessageDriven(
 		activationConfig = { 
 			@ActivationConfigProperty(propertyName="destinationType", propertyValue="javax.jms.Topic"),
-			@ActivationConfigProperty(propertyName="destination", propertyValue="topic/MsnyderaTopic")
+			@ActivationConfigProperty(propertyName="destination", propertyValue="topic/MsnyderaTopic"),
+			// Only flight messages; messages without a type come from older publishers
+			@ActivationConfigProperty(propertyName="messageSelector",
+					propertyValue="messageType IS NULL OR messageType = 'FlightCreated'")
 		})
 public class AirlineSubscriberTopicB implements MessageListener {
 
@@ -33,32 +39,29 @@ public class AirlineSubscriberTopicB implements MessageListener {
 	/**
      * @see MessageListener#onMessage(Message)
      * 
-     * This method expects a MapMessage containing information about a flight that has been
-     * added to the database.  This method will print out the information about the flight.
+     * This method expects a message, encoded by the FlightEventCodec, about a flight that has
+     * been added to the database.  This method will print out the information about the flight.
      */
     public void onMessage(Message message) {
     	try {
-			if (message instanceof MapMessage) {
-				MapMessage msg = (MapMessage) message;
+			FlightEvent event = FlightEventCodec.read(message);
 
-				StringBuffer sb = new StringBuffer();
+			StringBuffer sb = new StringBuffer();
 
-				sb.append("Flight #: " + msg.getString("flightId") + "\n");
-				sb.append("Flight Date: " + msg.getString("flightDate") + "\n");
-				sb.append("Departure Airport: " + msg.getString("departureAirport") + "\n");
-				sb.append("Destination Airport: " + msg.getString("destinationAirport") + "\n");
-				sb.append("Number of Seats: " + msg.getInt("numSeats") + "\n");
-				sb.append("Seat Cost: $" + msg.getDouble("cost") + "\n");
-				sb.append("Airplane #: " + msg.getString("airplaneId") + "\n");
-				sb.append("*************************************************** \n\n");
-				
-				System.out.println("\n**" + getClass().getSimpleName() + ": Flight Added!\n" + sb.toString());
-				
-			} else {
-				System.out.println(getClass().getSimpleName() + " - Error: The message provided was not of type MapMessage!");
-			}
+			sb.append("Flight #: " + event.getFlightId() + "\n");
+			sb.append("Flight Date: " + event.getFlightDate() + "\n");
+			sb.append("Departure Airport: " + event.getDepartureAirport() + "\n");
+			sb.append("Destination Airport: " + event.getDestinationAirport() + "\n");
+			sb.append("Number of Seats: " + event.getNumSeats() + "\n");
+			sb.append("Seat Cost: $" + event.getCost() + "\n");
+			sb.append("Airplane #: " + event.getAirplaneId() + "\n");
+			sb.append("*************************************************** \n\n");
+			
+			System.out.println("\n**" + getClass().getSimpleName() + ": Flight Added!\n" + sb.toString());
+		} catch (MessageFormatException e) {
+			System.out.println(getClass().getSimpleName() + " - Error: The message provided was not a flight event! " + e.getMessage());
 		} catch (JMSException e) {
-			System.out.println(getClass().getSimpleName() + ": Error occuredwhen attempting to read the MapMessage");
+			System.out.println(getClass().getSimpleName() + ": Error occuredwhen attempting to read the message");
 			e.printStackTrace();
 		}
     }
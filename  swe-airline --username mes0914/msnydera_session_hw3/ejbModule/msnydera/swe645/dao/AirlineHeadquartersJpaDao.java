@@ -6,7 +6,11 @@ package msnydera.swe645.dao;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -15,15 +19,30 @@ import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Airport;
 import msnydera.swe645.domain.Customer;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightPage;
+import msnydera.swe645.domain.OutboxEvent;
+import msnydera.swe645.domain.OutboxStatus;
 import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
+import msnydera.swe645.domain.ReservationSummary;
 import msnydera.swe645.domain.SearchFilters;
 import msnydera.swe645.exception.DataAccessException;
+import msnydera.swe645.util.DateUtil;
 
 /**
  * This is the Data Access Object (DAO) used for the database communication.
  * 
  */
 public class AirlineHeadquartersJpaDao {
+	// Most flights persisted by createFlights() before the EntityManager is
+	// flushed and cleared
+	private static final int FLIGHT_FLUSH_SIZE = 500;
+
+	// Used for an open end of a range of departure dates
+	private static final Date EARLIEST_DEPARTURE_DATE = Date.valueOf("1970-01-01");
+	private static final Date LATEST_DEPARTURE_DATE = Date.valueOf("9999-12-31");
+
 	private EntityManager entityManager;
 
 	/**
@@ -136,9 +155,48 @@ public class AirlineHeadquartersJpaDao {
 	}
 
 	/**
-	 * Returns all of the reservations in the database.
+	 * Returns the customer with the provided customerId.
+	 * 
+	 * @param customerId
+	 *            Id of the customer to get.
+	 * @return The customer, or null if there is no customer with that Id.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Customer getCustomer(int customerId) throws DataAccessException {
+		return this.entityManager.find(Customer.class, customerId);
+	}
+
+	/**
+	 * Returns the customers with an Id greater than the provided customerId.
+	 * 
+	 * @param customerId
+	 *            Id to read the customers after.
+	 * @return The customers created after customerId, by Id.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Collection<Customer> getCustomersAfter(int customerId) throws DataAccessException {
+		Collection<Customer> customers = new ArrayList<Customer>();
+
+		Query query = this.entityManager.createQuery("select c from Customer c WHERE c.id > :customerId ORDER BY c.id");
+		query.setParameter("customerId", Integer.valueOf(customerId));
+		for (Object customer : query.getResultList()) {
+			customers.add((Customer) customer);
+		}
+
+		this.entityManager.clear();
+
+		return customers;
+	}
+
+	/**
+	 * Returns all of the reservations in the database, with their customer,
+	 * flight, and the flight's airports and airplane, in one statement.
 	 * 
-	 * @return All of the reservations.
+	 * @return All of the reservations, by reservation Id.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
@@ -146,7 +204,7 @@ public class AirlineHeadquartersJpaDao {
 	public Collection<Reservation> getAllReservations() throws DataAccessException {
 		Collection<Reservation> reservations = new ArrayList<Reservation>();
 
-		Query query = this.entityManager.createQuery("from Reservation");
+		Query query = this.entityManager.createNamedQuery("Reservation.all");
 		List<?> reserationList = query.getResultList();
 
 		for (Object reservation : reserationList) {
@@ -159,6 +217,117 @@ public class AirlineHeadquartersJpaDao {
 		return reservations;
 	}
 
+	/**
+	 * Returns a summary of every reservation in the database, read in one
+	 * statement without loading any entities.
+	 * 
+	 * @return Summaries of all of the reservations, by reservation Id.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Collection<ReservationSummary> getReservationSummaries() throws DataAccessException {
+		Collection<ReservationSummary> summaries = new ArrayList<ReservationSummary>();
+
+		Query query = this.entityManager.createNamedQuery("Reservation.summaries");
+		for (Object summary : query.getResultList()) {
+			summaries.add((ReservationSummary) summary);
+		}
+
+		return summaries;
+	}
+
+	/**
+	 * Returns one page of the summaries of the reservations that match the
+	 * provided reservationFilters, by reservation Id, or by departure date and
+	 * then reservation Id for a range of departure dates. The page is read
+	 * with a keyset condition on that order, so later pages cost no more than
+	 * the first one.
+	 * 
+	 * @param reservationFilters
+	 *            Filters to apply, exactly one of them set.
+	 * @param after
+	 *            Position the page starts after, null for the first page.
+	 * @param pageSize
+	 *            Maximum number of reservations on the page.
+	 * @return Page of reservation summaries. The next page token is set if
+	 *         there are more reservations after this page.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public ReservationPage getReservationPage(ReservationFilters reservationFilters, ReservationCursor after,
+			int pageSize) throws DataAccessException {
+		boolean byDepartureDate = false;
+		Query query;
+		if (reservationFilters.getCustomerId() != null) {
+			query = this.entityManager.createNamedQuery("Reservation.summariesByCustomer");
+			query.setParameter("customerId", reservationFilters.getCustomerId());
+		} else if (reservationFilters.getFlightId() != null) {
+			query = this.entityManager.createNamedQuery("Reservation.summariesByFlight");
+			query.setParameter("flightId", reservationFilters.getFlightId());
+		} else if (reservationFilters.hasStatus()) {
+			query = this.entityManager.createNamedQuery("Reservation.summariesByStatus");
+			query.setParameter("status", reservationFilters.getStatus());
+		} else {
+			java.util.Date from = reservationFilters.getDepartureDateFrom();
+			java.util.Date to = reservationFilters.getDepartureDateTo();
+
+			// Continue from the later of the range start and the date of the
+			// last reservation of the previous page
+			Date afterDate = from == null ? EARLIEST_DEPARTURE_DATE : new Date(from.getTime());
+			if (after != null && after.getDepartureDate() != null && after.getDepartureDate().after(afterDate)) {
+				afterDate = new Date(after.getDepartureDate().getTime());
+			}
+
+			byDepartureDate = true;
+			query = this.entityManager.createNamedQuery("Reservation.summariesByDepartureDates");
+			query.setParameter("afterDate", afterDate);
+			query.setParameter("departTo", to == null ? LATEST_DEPARTURE_DATE : new Date(to.getTime()));
+		}
+		query.setParameter("afterId", Integer.valueOf(after == null ? -1 : after.getReservationId()));
+
+		// Read one extra reservation to know if there is a next page
+		query.setMaxResults(pageSize + 1);
+		List<?> summaryList = query.getResultList();
+
+		ReservationPage page = new ReservationPage();
+		ReservationSummary last = null;
+		for (Object summary : summaryList) {
+			if (page.getReservations().size() == pageSize) {
+				page.setNextPageToken(ReservationCursor.after(last, byDepartureDate).toToken());
+				break;
+			}
+
+			last = (ReservationSummary) summary;
+			page.getReservations().add(last);
+		}
+
+		return page;
+	}
+
+	/**
+	 * Returns the Reservation for the provided reservationId, with its
+	 * customer, flight, and the flight's airports and airplane, in one
+	 * statement. Use this to show a reservation, and getReservation() to
+	 * change one.
+	 * 
+	 * @param reservationId
+	 *            Id of the reservation
+	 * @return The Reservation for the provided reservationId, or null if
+	 *         there is no such reservation.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Reservation getReservationDetails(int reservationId) throws DataAccessException {
+		Query query = this.entityManager.createNamedQuery("Reservation.byId");
+		query.setParameter("reservationId", Integer.valueOf(reservationId));
+
+		List<?> reservations = query.getResultList();
+		return reservations.isEmpty() ? null : (Reservation) reservations.get(0);
+	}
+
 	/**
 	 * Returns the Reservation for the provided reservationId.
 	 * 
@@ -251,7 +420,192 @@ public class AirlineHeadquartersJpaDao {
 	}
 
 	/**
-	 * Creates a reservation on a flight.
+	 * Creates the provided flights in the database. The flights are persisted
+	 * in groups of FLIGHT_FLUSH_SIZE; each group is flushed and then cleared
+	 * from the EntityManager, so the persistence context stays small no matter
+	 * how many flights are created. The number of seats of each airplane is
+	 * only looked up once.
+	 * 
+	 * @param flights
+	 *            Flights to create. They are not validated here.
+	 * @return The flights that were created, in the order of the provided
+	 *         list, with their ids set.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public List<Flight> createFlights(List<Flight> flights) throws DataAccessException {
+		Map<Integer, Integer> seatsByAirplane = new HashMap<Integer, Integer>();
+
+		int count = 0;
+		for (Flight flight : flights) {
+			Integer airplaneId = Integer.valueOf(flight.getAirplane().getId());
+			Integer numSeats = seatsByAirplane.get(airplaneId);
+			if (numSeats == null) {
+				Airplane airplane = this.entityManager.find(Airplane.class, airplaneId);
+				numSeats = Integer.valueOf(airplane.getNumSeats());
+				seatsByAirplane.put(airplaneId, numSeats);
+			}
+			flight.setAvailableSeats(numSeats.intValue());
+
+			this.entityManager.persist(flight);
+
+			if (++count % FLIGHT_FLUSH_SIZE == 0) {
+				this.entityManager.flush();
+				this.entityManager.clear();
+			}
+		}
+
+		this.entityManager.flush();
+		this.entityManager.clear();
+
+		return flights;
+	}
+
+	/**
+	 * Writes an event to the outbox. It is committed, or rolled back, with
+	 * the change it describes.
+	 * 
+	 * @param event
+	 *            Event to write.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public void createOutboxEvent(OutboxEvent event) throws DataAccessException {
+		this.entityManager.persist(event);
+	}
+
+	/**
+	 * Writes events to the outbox, flushed and cleared in groups of
+	 * FLIGHT_FLUSH_SIZE like in createFlights().
+	 * 
+	 * @param events
+	 *            Events to write, in the order they should be published.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public void createOutboxEvents(List<OutboxEvent> events) throws DataAccessException {
+		int count = 0;
+		for (OutboxEvent event : events) {
+			this.entityManager.persist(event);
+
+			if (++count % FLIGHT_FLUSH_SIZE == 0) {
+				this.entityManager.flush();
+				this.entityManager.clear();
+			}
+		}
+
+		this.entityManager.flush();
+		this.entityManager.clear();
+	}
+
+	/**
+	 * Returns the oldest events in the outbox, in the order they were written.
+	 * 
+	 * @param maxEvents
+	 *            Most events to return.
+	 * @return The events.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public List<OutboxEvent> getOutboxEvents(int maxEvents) throws DataAccessException {
+		Query query = this.entityManager.createNamedQuery("OutboxEvent.oldest");
+		query.setMaxResults(maxEvents);
+
+		List<OutboxEvent> events = new ArrayList<OutboxEvent>();
+		for (Object event : query.getResultList()) {
+			events.add((OutboxEvent) event);
+		}
+
+		this.entityManager.clear();
+
+		return events;
+	}
+
+	/**
+	 * Deletes events that were published from the outbox.
+	 * 
+	 * @param eventIds
+	 *            Ids of the events.
+	 * @return Number of events deleted.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int deleteOutboxEvents(Collection<Integer> eventIds) throws DataAccessException {
+		Query query = this.entityManager.createNamedQuery("OutboxEvent.delete");
+		query.setParameter("ids", eventIds);
+
+		return query.executeUpdate();
+	}
+
+	/**
+	 * Returns the number of events in the outbox and when the oldest one was
+	 * written.
+	 * 
+	 * @return Status with the pending event count and oldest pending event
+	 *         set.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public OutboxStatus getOutboxStatus() throws DataAccessException {
+		Object[] row = (Object[]) this.entityManager.createNamedQuery("OutboxEvent.count").getSingleResult();
+
+		OutboxStatus status = new OutboxStatus();
+		status.setPendingEventCount(((Number) row[0]).longValue());
+		status.setOldestPendingEventAt((java.util.Date) row[1]);
+
+		return status;
+	}
+
+	/**
+	 * Returns the departure dates between startDate and endDate (both
+	 * included) that already have a flight on the provided route with the
+	 * provided airplane. This is one range query, however many dates there
+	 * are.
+	 * 
+	 * @param departureAirportCode
+	 *            Departure airport code of the route.
+	 * @param destinationAirportCode
+	 *            Destination airport code of the route.
+	 * @param airplaneId
+	 *            Id of the airplane.
+	 * @param startDate
+	 *            First date to look at.
+	 * @param endDate
+	 *            Last date to look at.
+	 * @return Dates that have a flight, each at the start of its day.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Set<java.util.Date> getFlightDates(String departureAirportCode, String destinationAirportCode,
+			int airplaneId, java.util.Date startDate, java.util.Date endDate) throws DataAccessException {
+		Query query = this.entityManager.createNamedQuery("Flight.departureDatesOnRoute");
+		query.setParameter("departureCode", departureAirportCode);
+		query.setParameter("destinationCode", destinationAirportCode);
+		query.setParameter("airplaneId", Integer.valueOf(airplaneId));
+		query.setParameter("startDate", startDate);
+		query.setParameter("endDate", endDate);
+
+		// The provider may return java.sql types, which don't compare equal to
+		// a java.util.Date
+		Set<java.util.Date> flightDates = new HashSet<java.util.Date>();
+		for (Object departureDate : query.getResultList()) {
+			flightDates.add(DateUtil.getStartOfDay((java.util.Date) departureDate));
+		}
+
+		return flightDates;
+	}
+
+	/**
+	 * Creates a reservation on a flight. The flight's available seats are not
+	 * changed here; take the seats with updateAvailableSeats() in the same
+	 * transaction.
 	 * 
 	 * @param flightId
 	 *            Flight Id the reservation should be made for.
@@ -276,33 +630,86 @@ public class AirlineHeadquartersJpaDao {
 
 		this.entityManager.persist(reservation);
 
-		flight.setAvailableSeats(flight.getAvailableSeats() - numSeats);
+		return reservation;
+	}
 
-		this.entityManager.merge(flight);
+	/**
+	 * Returns the flight as it is in the database now, even if an older copy
+	 * of it was already loaded in this transaction.
+	 * 
+	 * @param flightId
+	 *            Id of the flight.
+	 * @return The flight, or null if there is no such flight.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public Flight getFlight(int flightId) throws DataAccessException {
+		Flight flight = this.entityManager.find(Flight.class, flightId);
+		if (flight != null) {
+			this.entityManager.refresh(flight);
+		}
 
-		return reservation;
+		return flight;
 	}
 
 	/**
-	 * Cancels the reservation corresponding with the provided reservationId.
+	 * Sets the flight's available seats, but only if the flight's version is
+	 * still the one it was read with. The check and the update are a single
+	 * statement, and unlike a conflict found when the transaction flushes, a
+	 * conflict here doesn't mark the transaction for rollback, so the caller
+	 * can retry. Either way the flight is refreshed, so it holds the seats
+	 * and version that are now in the database.
 	 * 
-	 * @param reservationId
-	 *            Reservation to cancel
-	 * @return Canceled reservation.
+	 * @param flight
+	 *            Flight as returned by getFlight() in this transaction.
+	 * @param availableSeats
+	 *            New number of available seats.
+	 * @return True if the seats were updated, false if another transaction
+	 *         changed the flight after it was read.
 	 * @throws DataAccessException
 	 *             Thrown if a problem occurs while communicating with the
 	 *             database.
 	 */
-	public Reservation cancelReservation(int reservationId) throws DataAccessException {
-		Reservation reservation = this.entityManager.find(Reservation.class, reservationId);
-		reservation.setStatus("CANCELED");
-		Flight flight = reservation.getFlight();
-		flight.setAvailableSeats(flight.getAvailableSeats() + reservation.getNumSeats());
+	public boolean updateAvailableSeats(Flight flight, int availableSeats) throws DataAccessException {
+		Query query = this.entityManager.createQuery("update Flight f set f.availableSeats = :availableSeats, "
+				+ "f.version = f.version + 1 where f.id = :id and f.version = :version");
+		query.setParameter("availableSeats", Integer.valueOf(availableSeats));
+		query.setParameter("id", Integer.valueOf(flight.getId()));
+		query.setParameter("version", Integer.valueOf(flight.getVersion()));
 
-		this.entityManager.merge(reservation);
-		this.entityManager.merge(flight);
+		boolean updated = query.executeUpdate() == 1;
+		this.entityManager.refresh(flight);
 
-		return reservation;
+		return updated;
+	}
+
+	/**
+	 * Sets the reservation's status, but only if the reservation's version is
+	 * still the one it was read with. See updateAvailableSeats().
+	 * 
+	 * @param reservation
+	 *            Reservation as returned by getReservation() in this
+	 *            transaction.
+	 * @param status
+	 *            New status (i.e. RESERVED or CANCELED).
+	 * @return True if the status was updated, false if another transaction
+	 *         changed the reservation after it was read.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public boolean updateReservationStatus(Reservation reservation, String status) throws DataAccessException {
+		Query query = this.entityManager.createQuery("update Reservation r set r.status = :status, "
+				+ "r.version = r.version + 1 where r.id = :id and r.version = :version");
+		query.setParameter("status", status);
+		query.setParameter("id", Integer.valueOf(reservation.getId()));
+		query.setParameter("version", Integer.valueOf(reservation.getVersion()));
+
+		boolean updated = query.executeUpdate() == 1;
+		this.entityManager.refresh(reservation);
+
+		return updated;
 	}
 
 	/**
@@ -342,6 +749,28 @@ public class AirlineHeadquartersJpaDao {
 		return airplane != null;
 	}
 
+	/**
+	 * Returns the Id of the flight a reservation is for. Only the Id is read,
+	 * so neither the reservation nor the flight is loaded into the
+	 * persistence context.
+	 * 
+	 * @param reservationId
+	 *            Id of the reservation.
+	 * @return Id of the reservation's flight, or -1 if there is no such
+	 *         reservation.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int getFlightIdOfReservation(int reservationId) throws DataAccessException {
+		Query query = this.entityManager
+				.createQuery("select r.flight.id from Reservation r where r.id = :reservationId");
+		query.setParameter("reservationId", Integer.valueOf(reservationId));
+
+		List<?> flightIds = query.getResultList();
+		return flightIds.isEmpty() ? -1 : ((Number) flightIds.get(0)).intValue();
+	}
+
 	/**
 	 * Returns true/false on whether or not the reservationId provided is a
 	 * reservation in the database.
@@ -429,15 +858,7 @@ public class AirlineHeadquartersJpaDao {
 	 *             database.
 	 */
 	public Collection<Flight> search(SearchFilters searchFilters) throws DataAccessException {
-		String sQuery = generateJpaSearchQuery(searchFilters);
-		Query query = this.entityManager.createQuery(sQuery);
-
-		if (searchFilters.getDateOfTrip() != null) {
-			query.setParameter("departDate", new Date(searchFilters.getDateOfTrip().getTime()));
-		} else {
-			query.setParameter("departDate", new Date(new java.util.Date().getTime()));
-		}
-
+		Query query = createSearchQuery(searchFilters, null);
 		List<?> flightList = query.getResultList();
 
 		Collection<Flight> flights = new ArrayList<Flight>();
@@ -453,35 +874,111 @@ public class AirlineHeadquartersJpaDao {
 	}
 
 	/**
-	 * Utility method used to create the search string based on the filters
-	 * provided to run a search for flights on.
+	 * Returns one page of the flights that match the provided searchFilters,
+	 * in the same order as search(). The page is read with a keyset condition
+	 * on (departure airport code, destination airport code, flight id), so
+	 * later pages cost the same as the first one.
 	 * 
 	 * @param searchFilters
-	 *            Filters to use when searching for flights.
-	 * @return Query string to use to search for flights.
+	 *            Filters to apply to the flight search.
+	 * @param after
+	 *            Position the page starts after, null for the first page.
+	 * @param pageSize
+	 *            Maximum number of flights on the page.
+	 * @return Page of flights. The next page token is set if there are more
+	 *         flights after this page.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
 	 */
-	private String generateJpaSearchQuery(SearchFilters searchFilters) {
-		String query = "select f from Flight AS f ";
-		String clause = "";
+	public FlightPage searchPage(SearchFilters searchFilters, SearchCursor after, int pageSize)
+			throws DataAccessException {
+		Query query = createSearchQuery(searchFilters, after);
+		// Read one extra flight to know if there is a next page
+		query.setMaxResults(pageSize + 1);
+		List<?> flightList = query.getResultList();
+
+		FlightPage page = new FlightPage();
+		Flight last = null;
+		for (Object flight : flightList) {
+			if (page.getFlights().size() == pageSize) {
+				page.setNextPageToken(SearchCursor.after(last).toToken());
+				break;
+			}
+
+			last = (Flight) flight;
+			page.getFlights().add(last);
+		}
+
+		this.entityManager.clear();
+
+		return page;
+	}
+
+	/**
+	 * Creates the named search query for the provided searchFilters and binds
+	 * its parameters.
+	 * 
+	 * @param searchFilters
+	 *            Filters to apply to the flight search.
+	 * @param after
+	 *            Position to continue after, null to start at the beginning.
+	 * @return Query ready to run.
+	 */
+	private Query createSearchQuery(SearchFilters searchFilters, SearchCursor after) {
+		boolean hasDeparture = searchFilters.getDepartureLocation() != null
+				&& !searchFilters.getDepartureLocation().trim().equals("");
+		boolean hasDestination = searchFilters.getDestinationLocation() != null
+				&& !searchFilters.getDestinationLocation().trim().equals("");
+
+		String queryName = getSearchQueryName(searchFilters.getDateOfTrip() != null, hasDeparture, hasDestination);
+		if (after != null) {
+			queryName += "After";
+		}
+		Query query = this.entityManager.createNamedQuery(queryName);
 
 		if (searchFilters.getDateOfTrip() != null) {
-			clause += " WHERE f.departureDate = :departDate";
+			query.setParameter("departDate", new Date(searchFilters.getDateOfTrip().getTime()));
 		} else {
-			/*
-			 * If no date is provided, we still want to limit the results
-			 * because we don't want to return flights that have already
-			 * occurred.
-			 */
-			clause += " WHERE f.departureDate >= :departDate";
+			query.setParameter("departDate", new Date(new java.util.Date().getTime()));
 		}
-
-		if (searchFilters.getDepartureLocation() != null && !searchFilters.getDepartureLocation().trim().equals("")) {
-			clause += " AND f.departureAirport = '" + searchFilters.getDepartureLocation() + "'";
+		if (hasDeparture) {
+			query.setParameter("departureCode", searchFilters.getDepartureLocation());
+		}
+		if (hasDestination) {
+			query.setParameter("destinationCode", searchFilters.getDestinationLocation());
 		}
-		if (searchFilters.getDestinationLocation() != null && !searchFilters.getDestinationLocation().trim().equals("")) {
-			clause += " AND f.destinationAirport = '" + searchFilters.getDestinationLocation() + "'";
+		if (after != null) {
+			query.setParameter("afterDeparture", after.getDepartureAirportCode());
+			query.setParameter("afterDestination", after.getDestinationAirportCode());
+			query.setParameter("afterId", after.getFlightId());
 		}
 
-		return query + clause + " ORDER BY f.departureAirport, f.destinationAirport ASC";
+		return query;
+	}
+
+	/**
+	 * Returns the name of the named query (defined on Flight) to use for the
+	 * given combination of search filters. Each combination has its own fixed,
+	 * parameterized query, so the query is only parsed once.
+	 * 
+	 * @param hasDateOfTrip
+	 *            True to search on an exact departure date, false to search on
+	 *            all flights from the given date on.
+	 * @param hasDeparture
+	 *            True to filter on the departure airport code.
+	 * @param hasDestination
+	 *            True to filter on the destination airport code.
+	 * @return Name of the search query.
+	 */
+	private String getSearchQueryName(boolean hasDateOfTrip, boolean hasDeparture, boolean hasDestination) {
+		String name = "Flight.search" + (hasDateOfTrip ? "OnDate" : "FromDate");
+		if (hasDeparture) {
+			name += "ByDeparture";
+		}
+		if (hasDestination) {
+			name += "ByDestination";
+		}
+		return name;
 	}
 }
@@ -0,0 +1,85 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.dao;
+
+import java.util.Date;
+
+import msnydera.swe645.domain.ReservationSummary;
+
+/**
+ * Position in the reservation page order that a page of reservations
+ * continues after. Pages filtered by departure dates are sorted by
+ * (departure date, reservation number), so their cursor holds both; the
+ * other pages are sorted by reservation number only, and their cursor has no
+ * departure date. Clients only see it as the opaque page token from
+ * toToken().
+ * 
+ */
+public class ReservationCursor {
+	private static final char SEPARATOR = '.';
+
+	private final Date departureDate;
+	private final int reservationId;
+
+	public ReservationCursor(Date departureDate, int reservationId) {
+		this.departureDate = departureDate;
+		this.reservationId = reservationId;
+	}
+
+	/**
+	 * @param summary
+	 *            Last reservation of a page.
+	 * @param byDepartureDate
+	 *            True if the page is sorted by departure date first.
+	 * @return Cursor that continues after the provided reservation.
+	 */
+	public static ReservationCursor after(ReservationSummary summary, boolean byDepartureDate) {
+		return new ReservationCursor(byDepartureDate ? summary.getDepartureDate() : null, summary.getId());
+	}
+
+	/**
+	 * Reads a cursor back from a page token.
+	 *
+	 * @param token
+	 *            Token created by toToken().
+	 * @return Cursor the token stands for.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the token was not created by toToken().
+	 */
+	public static ReservationCursor fromToken(String token) throws IllegalArgumentException {
+		int separator = token.indexOf(SEPARATOR);
+		if (separator < 0) {
+			return new ReservationCursor(null, Integer.parseInt(token, Character.MAX_RADIX));
+		}
+		if (token.indexOf(SEPARATOR, separator + 1) >= 0) {
+			throw new IllegalArgumentException("Invalid page token: " + token);
+		}
+
+		return new ReservationCursor(new Date(Long.parseLong(token.substring(separator + 1), Character.MAX_RADIX)),
+				Integer.parseInt(token.substring(0, separator), Character.MAX_RADIX));
+	}
+
+	/**
+	 * @return Opaque token for this cursor.
+	 */
+	public String toToken() {
+		String token = Integer.toString(this.reservationId, Character.MAX_RADIX);
+		if (this.departureDate != null) {
+			token += SEPARATOR + Long.toString(this.departureDate.getTime(), Character.MAX_RADIX);
+		}
+		return token;
+	}
+
+	/**
+	 * @return Departure date of the reservation the page continues after, null
+	 *         if the page is not sorted by departure date.
+	 */
+	public Date getDepartureDate() {
+		return departureDate;
+	}
+
+	public int getReservationId() {
+		return reservationId;
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import javax.ejb.EJBException;
+
+import msnydera.swe645.exception.DataAccessException;
+import msnydera.swe645.util.DbUtils;
+
+/**
+ * Brings the database schema up to date by applying versioned migrations. The
+ * version of the schema is kept in the SCHEMA_VERSION table; every migration
+ * with a higher version than the highest one in that table is applied, in
+ * order, and then recorded. The session beans call migrateOnce() when they are
+ * created, so the schema is brought up to date when the application is
+ * deployed, before JPA uses the tables.
+ * 
+ * New schema changes should be added to the end of MIGRATIONS with the next
+ * version number. A migration that has been released must never be changed.
+ * 
+ * Note on indexes: HSQLDB 1.8 only uses the first column of an index, and
+ * picks the index from the first condition of the WHERE clause. It also
+ * creates an index for every foreign key column on its own (FLIGHT's airport
+ * codes and airplane, RESERVATION's flight and customer), so composite indexes and extra
+ * foreign key indexes would only slow down inserts.
+ * 
+ * HSQLDB commits DDL statements right away, so a migration that fails part
+ * way through can't be rolled back. To let the migration be re-run, a CREATE
+ * or ALTER TABLE statement that fails because the object or column already
+ * exists is skipped.
+ * 
+ */
+public class SchemaMigrator {
+	private static final Migration[] MIGRATIONS = {
+			new Migration(1, "Flight search indexes",
+					new String[] { "CREATE INDEX IDX_FLIGHT_DEPARTURE_DATE ON FLIGHT (DEPARTURE_DATE)" }),
+			new Migration(2, "Optimistic locking versions", new String[] {
+					"ALTER TABLE FLIGHT ADD COLUMN VERSION INTEGER DEFAULT 0 NOT NULL",
+					"ALTER TABLE RESERVATION ADD COLUMN VERSION INTEGER DEFAULT 0 NOT NULL" }),
+			// No foreign key on FLIGHT_ID: rows are deleted as soon as they are
+			// published, and the index would only slow that down
+			new Migration(3, "Event outbox", new String[] { "CREATE TABLE OUTBOX_EVENT ("
+					+ "ID INTEGER GENERATED BY DEFAULT AS IDENTITY(START WITH 0) NOT NULL PRIMARY KEY, "
+					+ "EVENT_TYPE VARCHAR NOT NULL, FLIGHT_ID INTEGER NOT NULL, PAYLOAD VARCHAR NOT NULL, "
+					+ "CREATED_AT TIMESTAMP NOT NULL)" }) };
+
+	private static boolean migrated;
+
+	/**
+	 * Migrates the database the first time it is called in this JVM; later
+	 * calls do nothing. If the migration fails, the next call tries again.
+	 * 
+	 * @throws EJBException
+	 *             Thrown if the migration fails.
+	 */
+	public static synchronized void migrateOnce() {
+		if (migrated) {
+			return;
+		}
+
+		try {
+			int version = new SchemaMigrator().migrate();
+			System.out.println("Database schema is at version " + version);
+			migrated = true;
+		} catch (DataAccessException e) {
+			throw new EJBException(e);
+		}
+	}
+
+	/**
+	 * Applies all of the migrations the msnyderaDS database is missing.
+	 * 
+	 * @return The schema version after migrating.
+	 * @throws DataAccessException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int migrate() throws DataAccessException {
+		Connection conn = null;
+
+		try {
+			conn = DbUtils.getConnection();
+			return migrate(conn);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			throw new DataAccessException(e.getMessage(), e);
+		} finally {
+			if (conn != null) {
+				try {
+					conn.close();
+				} catch (SQLException e) {
+					// Intentially do nothing
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies all of the migrations the database behind the provided
+	 * connection is missing.
+	 * 
+	 * @param conn
+	 *            Connection to the database to migrate.
+	 * @return The schema version after migrating.
+	 * @throws SQLException
+	 *             Thrown if a migration fails.
+	 */
+	public int migrate(Connection conn) throws SQLException {
+		createSchemaVersionTable(conn);
+
+		int version = getCurrentVersion(conn);
+		for (Migration migration : MIGRATIONS) {
+			if (migration.version > version) {
+				apply(conn, migration);
+				version = migration.version;
+			}
+		}
+
+		return version;
+	}
+
+	/**
+	 * Returns the highest version recorded in SCHEMA_VERSION, or 0 if no
+	 * migrations have been applied.
+	 * 
+	 * @param conn
+	 *            Connection to the database.
+	 * @return Current schema version.
+	 * @throws SQLException
+	 *             Thrown if a problem occurs while communicating with the
+	 *             database.
+	 */
+	public int getCurrentVersion(Connection conn) throws SQLException {
+		Statement stmt = null;
+
+		try {
+			stmt = conn.createStatement();
+
+			ResultSet rs = stmt.executeQuery("select max(VERSION) from SCHEMA_VERSION");
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			close(stmt);
+		}
+	}
+
+	/**
+	 * @return The version of the newest migration.
+	 */
+	public int getLatestVersion() {
+		return MIGRATIONS[MIGRATIONS.length - 1].version;
+	}
+
+	/**
+	 * Runs the statements of a migration and records its version.
+	 * 
+	 * @param conn
+	 *            Connection to the database.
+	 * @param migration
+	 *            Migration to apply.
+	 * @throws SQLException
+	 *             Thrown if one of the statements fails.
+	 */
+	private void apply(Connection conn, Migration migration) throws SQLException {
+		System.out.println("Applying schema migration " + migration.version + ": " + migration.description);
+
+		Statement stmt = null;
+		PreparedStatement insert = null;
+		try {
+			stmt = conn.createStatement();
+			for (String sql : migration.statements) {
+				try {
+					stmt.execute(sql);
+				} catch (SQLException e) {
+					if (!isAlreadyExists(sql, e)) {
+						throw e;
+					}
+					System.out.println("Skipping, already exists: " + sql);
+				}
+			}
+
+			insert = conn.prepareStatement("insert into SCHEMA_VERSION (VERSION, DESCRIPTION, APPLIED_ON) "
+					+ "values (?, ?, ?)");
+			insert.setInt(1, migration.version);
+			insert.setString(2, migration.description);
+			insert.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+			insert.executeUpdate();
+		} finally {
+			close(stmt);
+			close(insert);
+		}
+	}
+
+	private void createSchemaVersionTable(Connection conn) throws SQLException {
+		String sql = "CREATE TABLE SCHEMA_VERSION (VERSION INTEGER NOT NULL PRIMARY KEY, "
+				+ "DESCRIPTION VARCHAR, APPLIED_ON TIMESTAMP)";
+
+		Statement stmt = null;
+		try {
+			stmt = conn.createStatement();
+			stmt.execute(sql);
+		} catch (SQLException e) {
+			if (!isAlreadyExists(sql, e)) {
+				throw e;
+			}
+		} finally {
+			close(stmt);
+		}
+	}
+
+	/**
+	 * Returns true if the provided CREATE or ALTER TABLE statement failed
+	 * because the object or column it adds already exists.
+	 */
+	private boolean isAlreadyExists(String sql, SQLException e) {
+		return (sql.startsWith("CREATE") || sql.startsWith("ALTER TABLE")) && e.getMessage() != null
+				&& e.getMessage().indexOf("already exists") >= 0;
+	}
+
+	private void close(Statement stmt) {
+		if (stmt != null) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				// Intentially do nothing
+			}
+		}
+	}
+
+	/**
+	 * A numbered set of DDL statements.
+	 */
+	private static class Migration {
+		private final int version;
+		private final String description;
+		private final String[] statements;
+
+		private Migration(int version, String description, String[] statements) {
+			this.version = version;
+			this.description = description;
+			this.statements = statements;
+		}
+	}
+}
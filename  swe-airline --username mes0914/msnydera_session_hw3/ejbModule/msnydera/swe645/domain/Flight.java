@@ -14,21 +14,104 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Domain object used to represent a Flight.
  * 
+ * The named search queries cover every combination of search filters, see
+ * AirlineHeadquartersJpaDao.search(). HSQLDB chooses the index from the first
+ * condition, so the most selective condition comes first: an exact date, then
+ * the airport codes, and the date range last. The "After" variants only return
+ * the flights that come after a page token in the search order, see
+ * AirlineHeadquartersJpaDao.searchPage(). Flight.departureDatesOnRoute is
+ * used to find the dates a RouteSchedule already has flights on.
+ * 
  */
 @Entity
+@NamedQueries( {
+		@NamedQuery(name = "Flight.searchOnDate", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateByDestination", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateByDeparture", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ " AND f.departureAirport.airportCode = :departureCode"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateByDepartureByDestination", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ " AND f.departureAirport.airportCode = :departureCode"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDate", query = "select f from Flight AS f WHERE f.departureDate >= :departDate"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateByDestination", query = "select f from Flight AS f WHERE f.destinationAirport.airportCode = :destinationCode"
+				+ " AND f.departureDate >= :departDate"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateByDeparture", query = "select f from Flight AS f WHERE f.departureAirport.airportCode = :departureCode"
+				+ " AND f.departureDate >= :departDate"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateByDepartureByDestination", query = "select f from Flight AS f WHERE f.departureAirport.airportCode = :departureCode"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ " AND f.departureDate >= :departDate"
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateAfter", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateByDestinationAfter", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateByDepartureAfter", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ " AND f.departureAirport.airportCode = :departureCode"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchOnDateByDepartureByDestinationAfter", query = "select f from Flight AS f WHERE f.departureDate = :departDate"
+				+ " AND f.departureAirport.airportCode = :departureCode"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateAfter", query = "select f from Flight AS f WHERE f.departureDate >= :departDate"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateByDestinationAfter", query = "select f from Flight AS f WHERE f.destinationAirport.airportCode = :destinationCode"
+				+ " AND f.departureDate >= :departDate"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateByDepartureAfter", query = "select f from Flight AS f WHERE f.departureAirport.airportCode = :departureCode"
+				+ " AND f.departureDate >= :departDate"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.searchFromDateByDepartureByDestinationAfter", query = "select f from Flight AS f WHERE f.departureAirport.airportCode = :departureCode"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ " AND f.departureDate >= :departDate"
+				+ Flight.SEARCH_AFTER
+				+ Flight.SEARCH_ORDER),
+		@NamedQuery(name = "Flight.departureDatesOnRoute", query = "select distinct f.departureDate from Flight AS f"
+				+ " WHERE f.departureAirport.airportCode = :departureCode"
+				+ " AND f.destinationAirport.airportCode = :destinationCode"
+				+ " AND f.airplane.id = :airplaneId"
+				+ " AND f.departureDate >= :startDate AND f.departureDate <= :endDate") })
 @Table(name="FLIGHT")
 @SequenceGenerator(name="FLIGHT_SEQUENCE", sequenceName="IDENTITY")
 public class Flight implements Serializable {
 
 	private static final long serialVersionUID = -2909265133578707208L;
 
+	// Search order, the flight id makes it unique so pages never overlap.
+	static final String SEARCH_ORDER = " ORDER BY f.departureAirport.airportCode, f.destinationAirport.airportCode, f.id ASC";
+
+	// Keyset condition for the flights after a position in the search order.
+	static final String SEARCH_AFTER = " AND (f.departureAirport.airportCode > :afterDeparture"
+			+ " OR (f.departureAirport.airportCode = :afterDeparture"
+			+ " AND (f.destinationAirport.airportCode > :afterDestination"
+			+ " OR (f.destinationAirport.airportCode = :afterDestination AND f.id > :afterId))))";
+
 	// Unique Id of the flight
 	private int id;
 	private Date departureDate;
@@ -44,6 +127,10 @@ public class Flight implements Serializable {
 	// Number of seats that are available for passengers on the flight.
 	private int availableSeats;
 
+	// Incremented by every update, so an update made from an old copy of the
+	// flight is detected instead of overwriting a newer one.
+	private int version;
+
 	public Flight() {
 		//this.airplane = -1;
 	}
@@ -114,6 +201,17 @@ public class Flight implements Serializable {
 	public void setAvailableSeats(int availableSeats) {
 		this.availableSeats = availableSeats;
 	}
+
+	@Version
+	@Column(name="VERSION", nullable=false)
+	@XmlTransient
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
 	
 	@Transient
 	public String getDisplayDate(){
@@ -0,0 +1,154 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+
+/**
+ * Domain object used to carry a flight or seat event between the publisher
+ * and the subscribers of the Topic, as encoded by the FlightEventCodec. The
+ * fields that don't apply to the event's type are left at their defaults.
+ *
+ */
+public class FlightEvent implements Serializable {
+	private static final long serialVersionUID = 2457905398425384127L;
+
+	// Id of the outbox event, 0 if the message didn't have one
+	private int eventId;
+
+	// OutboxEvent.FLIGHT_CREATED or OutboxEvent.SEATS_CHANGED
+	private String eventType;
+
+	private int flightId;
+
+	// FLIGHT_CREATED: the flight's departure date, as Flight.getDisplayDate()
+	private String flightDate;
+
+	// FLIGHT_CREATED: airport codes
+	private String departureAirport;
+	private String destinationAirport;
+
+	// FLIGHT_CREATED: number of seats of the new flight
+	private int numSeats;
+
+	// FLIGHT_CREATED: cost of a seat
+	private double cost;
+
+	// FLIGHT_CREATED
+	private int airplaneId;
+
+	// SEATS_CHANGED: seats left on the flight after the change
+	private int availableSeats;
+
+	// SEATS_CHANGED: seats added to the flight, negative when seats were taken
+	private int seatChange;
+
+	// SEATS_CHANGED
+	private int reservationId;
+	private String reservationStatus;
+
+	public int getEventId() {
+		return eventId;
+	}
+
+	public void setEventId(int eventId) {
+		this.eventId = eventId;
+	}
+
+	public String getEventType() {
+		return eventType;
+	}
+
+	public void setEventType(String eventType) {
+		this.eventType = eventType;
+	}
+
+	public int getFlightId() {
+		return flightId;
+	}
+
+	public void setFlightId(int flightId) {
+		this.flightId = flightId;
+	}
+
+	public String getFlightDate() {
+		return flightDate;
+	}
+
+	public void setFlightDate(String flightDate) {
+		this.flightDate = flightDate;
+	}
+
+	public String getDepartureAirport() {
+		return departureAirport;
+	}
+
+	public void setDepartureAirport(String departureAirport) {
+		this.departureAirport = departureAirport;
+	}
+
+	public String getDestinationAirport() {
+		return destinationAirport;
+	}
+
+	public void setDestinationAirport(String destinationAirport) {
+		this.destinationAirport = destinationAirport;
+	}
+
+	public int getNumSeats() {
+		return numSeats;
+	}
+
+	public void setNumSeats(int numSeats) {
+		this.numSeats = numSeats;
+	}
+
+	public double getCost() {
+		return cost;
+	}
+
+	public void setCost(double cost) {
+		this.cost = cost;
+	}
+
+	public int getAirplaneId() {
+		return airplaneId;
+	}
+
+	public void setAirplaneId(int airplaneId) {
+		this.airplaneId = airplaneId;
+	}
+
+	public int getAvailableSeats() {
+		return availableSeats;
+	}
+
+	public void setAvailableSeats(int availableSeats) {
+		this.availableSeats = availableSeats;
+	}
+
+	public int getSeatChange() {
+		return seatChange;
+	}
+
+	public void setSeatChange(int seatChange) {
+		this.seatChange = seatChange;
+	}
+
+	public int getReservationId() {
+		return reservationId;
+	}
+
+	public void setReservationId(int reservationId) {
+		this.reservationId = reservationId;
+	}
+
+	public String getReservationStatus() {
+		return reservationStatus;
+	}
+
+	public void setReservationStatus(String reservationStatus) {
+		this.reservationStatus = reservationStatus;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Domain object used to represent one page of flight search results. The
+ * flights are sorted by departure airport code, destination airport code and
+ * flight number. To get the next page, search again with the same filters and
+ * the nextPageToken of this page.
+ * 
+ */
+public class FlightPage implements Serializable {
+	private static final long serialVersionUID = 3398412870375185129L;
+
+	// Flights on this page
+	private Collection<Flight> flights = new ArrayList<Flight>();
+
+	// Token for the page after this one, null if this is the last page.
+	private String nextPageToken;
+
+	public Collection<Flight> getFlights() {
+		return flights;
+	}
+
+	public void setFlights(Collection<Flight> flights) {
+		this.flights = flights;
+	}
+
+	public String getNextPageToken() {
+		return nextPageToken;
+	}
+
+	public void setNextPageToken(String nextPageToken) {
+		this.nextPageToken = nextPageToken;
+	}
+
+	public boolean hasNextPage() {
+		return this.nextPageToken != null;
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Transient;
+
+/**
+ * Domain object used to represent an event waiting in the outbox to be
+ * published on the Topic. The event is written in the same transaction as the
+ * flight or reservation change it describes, so it exists if and only if the
+ * change was committed; the OutboxRelay publishes the events in Id order, once
+ * their transaction has completed, and then deletes them.
+ *
+ * The properties of the event become the fields of the published message.
+ * They are kept in the PAYLOAD column as "name=value" lines, with backslashes
+ * and line breaks in the values escaped.
+ */
+@Entity
+@NamedQueries( {
+		@NamedQuery(name = "OutboxEvent.oldest", query = "select e from OutboxEvent e ORDER BY e.id"),
+		@NamedQuery(name = "OutboxEvent.count", query = "select count(e), min(e.createdAt) from OutboxEvent e"),
+		@NamedQuery(name = "OutboxEvent.delete", query = "delete from OutboxEvent e where e.id in (:ids)") })
+@Table(name = "OUTBOX_EVENT")
+@SequenceGenerator(name = "OUTBOX_EVENT_SEQUENCE", sequenceName = "IDENTITY")
+public class OutboxEvent implements Serializable {
+
+	private static final long serialVersionUID = -3581740412986043581L;
+
+	/**
+	 * Type of the event written when a flight is created.
+	 */
+	public static final String FLIGHT_CREATED = "FlightCreated";
+
+	/**
+	 * Type of the event written when a reservation is created or canceled.
+	 */
+	public static final String SEATS_CHANGED = "SeatsChanged";
+
+	// Unique Id of the event, which is also the order it is published in
+	private int id;
+
+	// One of the event types above
+	private String eventType;
+
+	// Id of the flight the event is about
+	private int flightId;
+
+	private String payload;
+
+	// When the change was made
+	private Date createdAt;
+
+	public OutboxEvent() {
+	}
+
+	/**
+	 * Creates the FLIGHT_CREATED event of a flight. Its properties are the
+	 * fields HeadquartersEjb has always sent for a new flight.
+	 *
+	 * @param flight
+	 *            Flight that was created.
+	 * @return The event.
+	 */
+	public static OutboxEvent flightCreated(Flight flight) {
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+		properties.put("flightId", "" + flight.getId());
+		properties.put("flightDate", flight.getDisplayDate());
+		properties.put("departureAirport", flight.getDepartureAirport().getAirportCode());
+		properties.put("destinationAirport", flight.getDestinationAirport().getAirportCode());
+		properties.put("numSeats", "" + flight.getAvailableSeats());
+		properties.put("cost", "" + flight.getCost());
+		properties.put("airplaneId", "" + flight.getAirplane().getId());
+
+		return new OutboxEvent(FLIGHT_CREATED, flight.getId(), properties);
+	}
+
+	/**
+	 * Creates the SEATS_CHANGED event of a reservation that was created or
+	 * canceled.
+	 *
+	 * @param flight
+	 *            The reservation's flight, with its new available seats.
+	 * @param reservation
+	 *            Reservation that was created or canceled.
+	 * @param seatChange
+	 *            Number of seats added to the flight's available seats, negative
+	 *            when seats were taken.
+	 * @return The event.
+	 */
+	public static OutboxEvent seatsChanged(Flight flight, Reservation reservation, int seatChange) {
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+		properties.put("flightId", "" + flight.getId());
+		properties.put("availableSeats", "" + flight.getAvailableSeats());
+		properties.put("seatChange", "" + seatChange);
+		properties.put("reservationId", "" + reservation.getId());
+		properties.put("reservationStatus", reservation.getStatus());
+
+		return new OutboxEvent(SEATS_CHANGED, flight.getId(), properties);
+	}
+
+	private OutboxEvent(String eventType, int flightId, Map<String, String> properties) {
+		this.eventType = eventType;
+		this.flightId = flightId;
+		this.createdAt = new Date();
+		this.setProperties(properties);
+	}
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY, generator = "OUTBOX_EVENT_SEQUENCE")
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	@Column(name = "EVENT_TYPE", nullable = false)
+	public String getEventType() {
+		return eventType;
+	}
+
+	public void setEventType(String eventType) {
+		this.eventType = eventType;
+	}
+
+	@Column(name = "FLIGHT_ID", nullable = false)
+	public int getFlightId() {
+		return flightId;
+	}
+
+	public void setFlightId(int flightId) {
+		this.flightId = flightId;
+	}
+
+	@Column(name = "PAYLOAD", nullable = false)
+	public String getPayload() {
+		return payload;
+	}
+
+	public void setPayload(String payload) {
+		this.payload = payload;
+	}
+
+	@Column(name = "CREATED_AT", nullable = false)
+	@Temporal(TemporalType.TIMESTAMP)
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * @return The properties of the event, in the order they were set.
+	 */
+	@Transient
+	public Map<String, String> getProperties() {
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+		if (this.payload == null || this.payload.length() == 0) {
+			return properties;
+		}
+
+		for (String line : this.payload.split("\n")) {
+			int separator = line.indexOf('=');
+			properties.put(line.substring(0, separator), unescape(line.substring(separator + 1)));
+		}
+		return properties;
+	}
+
+	/**
+	 * @param properties
+	 *            Properties of the event. Names may not contain '=' or line
+	 *            breaks; a null value is stored as an empty one.
+	 */
+	public void setProperties(Map<String, String> properties) {
+		StringBuffer sb = new StringBuffer();
+		for (Map.Entry<String, String> property : properties.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append('\n');
+			}
+			sb.append(property.getKey()).append('=').append(escape(property.getValue()));
+		}
+		this.payload = sb.toString();
+	}
+
+	/**
+	 * @return The event as it is published on the Topic.
+	 */
+	public FlightEvent toFlightEvent() {
+		Map<String, String> properties = this.getProperties();
+
+		FlightEvent flightEvent = new FlightEvent();
+		flightEvent.setEventId(this.id);
+		flightEvent.setEventType(this.eventType);
+		flightEvent.setFlightId(this.flightId);
+		if (FLIGHT_CREATED.equals(this.eventType)) {
+			flightEvent.setFlightDate(properties.get("flightDate"));
+			flightEvent.setDepartureAirport(properties.get("departureAirport"));
+			flightEvent.setDestinationAirport(properties.get("destinationAirport"));
+			flightEvent.setNumSeats(parseInt(properties.get("numSeats")));
+			flightEvent.setCost(parseDouble(properties.get("cost")));
+			flightEvent.setAirplaneId(parseInt(properties.get("airplaneId")));
+		} else if (SEATS_CHANGED.equals(this.eventType)) {
+			flightEvent.setAvailableSeats(parseInt(properties.get("availableSeats")));
+			flightEvent.setSeatChange(parseInt(properties.get("seatChange")));
+			flightEvent.setReservationId(parseInt(properties.get("reservationId")));
+			flightEvent.setReservationStatus(properties.get("reservationStatus"));
+		}
+		return flightEvent;
+	}
+
+	private static int parseInt(String value) {
+		return value == null || value.length() == 0 ? 0 : Integer.parseInt(value);
+	}
+
+	private static double parseDouble(String value) {
+		return value == null || value.length() == 0 ? 0 : Double.parseDouble(value);
+	}
+
+	private static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private static String unescape(String value) {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Domain object used to report how far the outbox relay is behind: the events
+ * still waiting in the outbox, and what the relay of this node has published
+ * since it started.
+ *
+ */
+public class OutboxStatus implements Serializable {
+	private static final long serialVersionUID = 6169307296305771470L;
+
+	// Events written but not yet published
+	private long pendingEventCount;
+
+	// When the oldest waiting event was written, null if none are waiting
+	private Date oldestPendingEventAt;
+
+	// Events published by this node's relay
+	private long relayedEventCount;
+
+	// Relay batches that failed and will be retried
+	private long failureCount;
+
+	// When this node's relay last published a batch, null if it never has
+	private Date lastRelayedAt;
+
+	// Time from writing to publishing of the last event published
+	private long lastLagMillis;
+
+	// Longest time from writing to publishing of any event published
+	private long maxLagMillis;
+
+	public long getPendingEventCount() {
+		return pendingEventCount;
+	}
+
+	public void setPendingEventCount(long pendingEventCount) {
+		this.pendingEventCount = pendingEventCount;
+	}
+
+	public Date getOldestPendingEventAt() {
+		return oldestPendingEventAt;
+	}
+
+	public void setOldestPendingEventAt(Date oldestPendingEventAt) {
+		this.oldestPendingEventAt = oldestPendingEventAt;
+	}
+
+	public long getRelayedEventCount() {
+		return relayedEventCount;
+	}
+
+	public void setRelayedEventCount(long relayedEventCount) {
+		this.relayedEventCount = relayedEventCount;
+	}
+
+	public long getFailureCount() {
+		return failureCount;
+	}
+
+	public void setFailureCount(long failureCount) {
+		this.failureCount = failureCount;
+	}
+
+	public Date getLastRelayedAt() {
+		return lastRelayedAt;
+	}
+
+	public void setLastRelayedAt(Date lastRelayedAt) {
+		this.lastRelayedAt = lastRelayedAt;
+	}
+
+	public long getLastLagMillis() {
+		return lastLagMillis;
+	}
+
+	public void setLastLagMillis(long lastLagMillis) {
+		this.lastLagMillis = lastLagMillis;
+	}
+
+	public long getMaxLagMillis() {
+		return maxLagMillis;
+	}
+
+	public void setMaxLagMillis(long maxLagMillis) {
+		this.maxLagMillis = maxLagMillis;
+	}
+
+	/**
+	 * @return How long the oldest waiting event has been waiting, 0 if none
+	 *         are waiting.
+	 */
+	public long getPendingLagMillis() {
+		return this.oldestPendingEventAt == null ? 0 : Math.max(0, System.currentTimeMillis()
+				- this.oldestPendingEventAt.getTime());
+	}
+
+	public String toString() {
+		return "pendingEvents=" + this.pendingEventCount + ", pendingLagMillis=" + getPendingLagMillis()
+				+ ", relayedEvents=" + this.relayedEventCount + ", failures=" + this.failureCount
+				+ ", lastLagMillis=" + this.lastLagMillis + ", maxLagMillis=" + this.maxLagMillis;
+	}
+}
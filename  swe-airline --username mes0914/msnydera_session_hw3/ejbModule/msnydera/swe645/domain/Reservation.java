@@ -12,21 +12,71 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Domain object used to represent a reservation.
  * 
+ * The named queries load a reservation with its whole graph (customer,
+ * flight, the flight's airports and airplane) in one statement, instead of
+ * one more select per association of every row. Reservation.summaries only
+ * reads the columns the reservation list shows, see ReservationSummary.
+ * 
+ * The Reservation.summariesBy... queries read one page of summaries for one
+ * filter, continuing after the reservation number :afterId. The condition
+ * that comes first is the one HSQLDB picks the index from: the customer and
+ * flight queries use the foreign key indexes on RESERVATION. The status query
+ * walks the primary key from :afterId and checks the status of each row,
+ * since an index on a column with two values would not narrow the rows down
+ * and would return them out of order.
+ * 
+ * The date range query is sorted by (departure date, reservation number)
+ * instead, and continues after the departure date :afterDate and reservation
+ * number :afterId, so a page only reads the flights from :afterDate on
+ * through the index on FLIGHT.DEPARTURE_DATE rather than every reservation of
+ * the whole range. HSQLDB still sorts the rows from :afterDate to :departTo
+ * before it cuts the page, so the first page of an open ended range sorts all
+ * of its reservations; later pages sort fewer as :afterDate moves forward.
+ * 
  */
 @Entity
+@NamedQueries( {
+		@NamedQuery(name = "Reservation.all", query = "select r from Reservation AS r" + Reservation.FETCH_GRAPH
+				+ " ORDER BY r.id"),
+		@NamedQuery(name = "Reservation.byId", query = "select r from Reservation AS r" + Reservation.FETCH_GRAPH
+				+ " WHERE r.id = :reservationId"),
+		@NamedQuery(name = "Reservation.summaries", query = Reservation.SUMMARY_SELECT + " ORDER BY r.id"),
+		@NamedQuery(name = "Reservation.summariesByCustomer", query = Reservation.SUMMARY_SELECT
+				+ " WHERE c.id = :customerId AND r.id > :afterId ORDER BY r.id"),
+		@NamedQuery(name = "Reservation.summariesByFlight", query = Reservation.SUMMARY_SELECT
+				+ " WHERE f.id = :flightId AND r.id > :afterId ORDER BY r.id"),
+		@NamedQuery(name = "Reservation.summariesByStatus", query = Reservation.SUMMARY_SELECT
+				+ " WHERE r.id > :afterId AND r.status = :status ORDER BY r.id"),
+		@NamedQuery(name = "Reservation.summariesByDepartureDates", query = Reservation.SUMMARY_SELECT
+				+ " WHERE f.departureDate >= :afterDate AND f.departureDate <= :departTo"
+				+ " AND (f.departureDate > :afterDate OR r.id > :afterId) ORDER BY f.departureDate, r.id") })
 @Table(name="RESERVATION")
 @SequenceGenerator(name="RESERVATION_SEQUENCE", sequenceName="IDENTITY")
 public class Reservation implements Serializable {
 
 	private static final long serialVersionUID = -1736327910587589116L;
 
+	// Fetch joins for every association a reservation is shown with.
+	static final String FETCH_GRAPH = " JOIN FETCH r.customer JOIN FETCH r.flight AS f"
+			+ " JOIN FETCH f.departureAirport JOIN FETCH f.destinationAirport JOIN FETCH f.airplane";
+
+	// Reads the columns of a ReservationSummary
+	static final String SUMMARY_SELECT = "select new msnydera.swe645.domain.ReservationSummary("
+			+ "r.id, c.name, r.status, r.numSeats, f.id, f.departureAirport.airportCode,"
+			+ " f.destinationAirport.airportCode, f.departureDate, f.cost)"
+			+ " from Reservation AS r JOIN r.customer AS c JOIN r.flight AS f";
+
 	// Unique Id of the reservation (i.e. the Reservation number)
 	private int id;
 	
@@ -42,6 +92,9 @@ public class Reservation implements Serializable {
 	// Customer that the reservation is for
 	private Customer customer;
 	
+	// Incremented by every update, see Flight.getVersion()
+	private int version;
+	
 	@Id
 	@GeneratedValue(strategy=GenerationType.IDENTITY, generator="RESERVATION_SEQUENCE")
 	public int getId() {
@@ -93,4 +146,14 @@ public class Reservation implements Serializable {
 	public void setCustomer(Customer customer) {
 		this.customer = customer;
 	}
+	
+	@Version
+	@Column(name="VERSION", nullable=false)
+	@XmlTransient
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Domain object used as a filter when listing reservations. Exactly one of
+ * the filters is used at a time: the customer, the flight, the status, or
+ * the range of departure dates (both ends are included).
+ * 
+ */
+public class ReservationFilters implements Serializable {
+	private static final long serialVersionUID = 4660195125873407768L;
+
+	private Integer customerId;
+	private Integer flightId;
+	private String status;
+	private Date departureDateFrom;
+	private Date departureDateTo;
+
+	public Integer getCustomerId() {
+		return customerId;
+	}
+
+	public void setCustomerId(Integer customerId) {
+		this.customerId = customerId;
+	}
+
+	public Integer getFlightId() {
+		return flightId;
+	}
+
+	public void setFlightId(Integer flightId) {
+		this.flightId = flightId;
+	}
+
+	public String getStatus() {
+		return status == null ? null : status.toUpperCase();
+	}
+
+	public void setStatus(String status) {
+		this.status = status == null ? null : status.toUpperCase();
+	}
+
+	public Date getDepartureDateFrom() {
+		return departureDateFrom;
+	}
+
+	public void setDepartureDateFrom(Date departureDateFrom) {
+		this.departureDateFrom = departureDateFrom;
+	}
+
+	public Date getDepartureDateTo() {
+		return departureDateTo;
+	}
+
+	public void setDepartureDateTo(Date departureDateTo) {
+		this.departureDateTo = departureDateTo;
+	}
+
+	public boolean hasStatus() {
+		return this.status != null && !this.status.trim().equals("");
+	}
+
+	public boolean hasDepartureDates() {
+		return this.departureDateFrom != null || this.departureDateTo != null;
+	}
+
+	/**
+	 * @return How many of the filters are set; the date range counts as one.
+	 */
+	public int getFilterCount() {
+		int count = 0;
+		if (this.customerId != null) {
+			count++;
+		}
+		if (this.flightId != null) {
+			count++;
+		}
+		if (hasStatus()) {
+			count++;
+		}
+		if (hasDepartureDates()) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Domain object used to represent one page of reservations that match a
+ * ReservationFilters, sorted by reservation number, or by departure date and
+ * then reservation number when filtered by departure dates. To get the next
+ * page, ask again with the same filters and the nextPageToken of this page.
+ * 
+ */
+public class ReservationPage implements Serializable {
+	private static final long serialVersionUID = -2370416845823015093L;
+
+	// Reservations on this page
+	private Collection<ReservationSummary> reservations = new ArrayList<ReservationSummary>();
+
+	// Token for the page after this one, null if this is the last page.
+	private String nextPageToken;
+
+	public Collection<ReservationSummary> getReservations() {
+		return reservations;
+	}
+
+	public void setReservations(Collection<ReservationSummary> reservations) {
+		this.reservations = reservations;
+	}
+
+	public String getNextPageToken() {
+		return nextPageToken;
+	}
+
+	public void setNextPageToken(String nextPageToken) {
+		this.nextPageToken = nextPageToken;
+	}
+
+	public boolean hasNextPage() {
+		return this.nextPageToken != null;
+	}
+}
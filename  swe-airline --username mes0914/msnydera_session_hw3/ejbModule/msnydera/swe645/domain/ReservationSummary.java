@@ -0,0 +1,86 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Read only view of a reservation with just the columns the reservation list
+ * shows. It is built by the Reservation.summaries query straight from the
+ * columns, so no entities are loaded to make it.
+ * 
+ */
+public class ReservationSummary implements Serializable {
+
+	private static final long serialVersionUID = 6126044950707213640L;
+
+	private int id;
+	private String customerName;
+	private String status;
+	private int numSeats;
+	private int flightId;
+	private String departureAirportCode;
+	private String destinationAirportCode;
+	private Date departureDate;
+
+	// The cost of one seat on the flight
+	private double flightCost;
+
+	public ReservationSummary(int id, String customerName, String status, int numSeats, int flightId,
+			String departureAirportCode, String destinationAirportCode, Date departureDate, double flightCost) {
+		this.id = id;
+		this.customerName = customerName;
+		this.status = status;
+		this.numSeats = numSeats;
+		this.flightId = flightId;
+		this.departureAirportCode = departureAirportCode;
+		this.destinationAirportCode = destinationAirportCode;
+		this.departureDate = departureDate;
+		this.flightCost = flightCost;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getCustomerName() {
+		return customerName;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public int getNumSeats() {
+		return numSeats;
+	}
+
+	public int getFlightId() {
+		return flightId;
+	}
+
+	public String getDepartureAirportCode() {
+		return departureAirportCode;
+	}
+
+	public String getDestinationAirportCode() {
+		return destinationAirportCode;
+	}
+
+	public Date getDepartureDate() {
+		return departureDate;
+	}
+
+	public double getFlightCost() {
+		return flightCost;
+	}
+
+	/**
+	 * @return The cost of all of the reservation's seats.
+	 */
+	public double getTotalCost() {
+		return flightCost * (double) numSeats;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Domain object used to represent a weekly flight schedule: a route flown by
+ * one airplane at one cost on some days of the week, between a start and an
+ * end date (both included). Expanding the schedule gives one Flight per
+ * departure date.
+ * 
+ */
+public class RouteSchedule implements Serializable {
+	private static final long serialVersionUID = 3302584409175326112L;
+
+	private String departureAirportCode;
+	private String destinationAirportCode;
+
+	// Unique Id of the airplane that is used for the flights
+	private int airplaneId;
+
+	// The cost of each flight
+	private double cost;
+
+	// First and last day of the schedule, both included
+	private Date startDate;
+	private Date endDate;
+
+	// Days the route is flown, as Calendar.SUNDAY to Calendar.SATURDAY
+	private Set<Integer> daysOfWeek = new TreeSet<Integer>();
+
+	public RouteSchedule() {
+		this.airplaneId = -1;
+	}
+
+	public String getDepartureAirportCode() {
+		return departureAirportCode;
+	}
+
+	public void setDepartureAirportCode(String departureAirportCode) {
+		this.departureAirportCode = departureAirportCode;
+	}
+
+	public String getDestinationAirportCode() {
+		return destinationAirportCode;
+	}
+
+	public void setDestinationAirportCode(String destinationAirportCode) {
+		this.destinationAirportCode = destinationAirportCode;
+	}
+
+	public int getAirplaneId() {
+		return airplaneId;
+	}
+
+	public void setAirplaneId(int airplaneId) {
+		this.airplaneId = airplaneId;
+	}
+
+	public double getCost() {
+		return cost;
+	}
+
+	public void setCost(double cost) {
+		this.cost = cost;
+	}
+
+	public Date getStartDate() {
+		return startDate;
+	}
+
+	public void setStartDate(Date startDate) {
+		this.startDate = startDate;
+	}
+
+	public Date getEndDate() {
+		return endDate;
+	}
+
+	public void setEndDate(Date endDate) {
+		this.endDate = endDate;
+	}
+
+	public Set<Integer> getDaysOfWeek() {
+		return daysOfWeek;
+	}
+
+	public void setDaysOfWeek(Set<Integer> daysOfWeek) {
+		this.daysOfWeek = daysOfWeek;
+	}
+
+	/**
+	 * Adds a day the route is flown.
+	 * 
+	 * @param dayOfWeek
+	 *            Calendar.SUNDAY to Calendar.SATURDAY.
+	 */
+	public void addDayOfWeek(int dayOfWeek) {
+		this.daysOfWeek.add(Integer.valueOf(dayOfWeek));
+	}
+
+	/**
+	 * Returns the start of every day between the start and end date (both
+	 * included) that falls on one of the days of the week, earliest first.
+	 * 
+	 * @return Departure dates of the schedule.
+	 */
+	public List<Date> getDepartureDates() {
+		List<Date> departureDates = new ArrayList<Date>();
+
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(this.startDate);
+		cal.set(Calendar.HOUR_OF_DAY, 0);
+		cal.set(Calendar.MINUTE, 0);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+
+		while (!cal.getTime().after(this.endDate)) {
+			if (this.daysOfWeek.contains(Integer.valueOf(cal.get(Calendar.DAY_OF_WEEK)))) {
+				departureDates.add(cal.getTime());
+			}
+			cal.add(Calendar.DAY_OF_MONTH, 1);
+		}
+
+		return departureDates;
+	}
+
+	/**
+	 * @param departureDate
+	 *            Departure date of the flight.
+	 * @return The flight of this schedule that departs on the provided date.
+	 */
+	public Flight toFlight(Date departureDate) {
+		Flight flight = new Flight();
+		flight.setDepartureDate(departureDate);
+
+		Airport airport = new Airport();
+		airport.setAirportCode(this.departureAirportCode);
+		flight.setDepartureAirport(airport);
+
+		airport = new Airport();
+		airport.setAirportCode(this.destinationAirportCode);
+		flight.setDestinationAirport(airport);
+
+		Airplane airplane = new Airplane();
+		airplane.setId(this.airplaneId);
+		flight.setAirplane(airplane);
+
+		flight.setCost(this.cost);
+		return flight;
+	}
+}
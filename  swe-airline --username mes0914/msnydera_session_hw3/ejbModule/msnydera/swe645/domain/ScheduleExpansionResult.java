@@ -0,0 +1,59 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Domain object used to represent the outcome of expanding a RouteSchedule.
+ * Departure dates that already had a flight on the route with the same
+ * airplane were skipped, so expanding the same schedule again creates
+ * nothing, and extending it only creates the new dates.
+ * 
+ */
+public class ScheduleExpansionResult implements Serializable {
+	private static final long serialVersionUID = -1780912442218770390L;
+
+	// The created flights, earliest departure date first
+	private List<Flight> flights = new ArrayList<Flight>();
+
+	// Number of departure dates that already had a flight
+	private int existingCount;
+
+	// Number of departure dates that were before today and were skipped
+	private int pastCount;
+
+	public List<Flight> getFlights() {
+		return flights;
+	}
+
+	public void setFlights(List<Flight> flights) {
+		this.flights = flights;
+	}
+
+	public int getExistingCount() {
+		return existingCount;
+	}
+
+	public void setExistingCount(int existingCount) {
+		this.existingCount = existingCount;
+	}
+
+	public int getPastCount() {
+		return pastCount;
+	}
+
+	public void setPastCount(int pastCount) {
+		this.pastCount = pastCount;
+	}
+
+	/**
+	 * @return Number of flights that were created.
+	 */
+	public int getCreatedCount() {
+		return this.flights.size();
+	}
+}
@@ -6,6 +6,8 @@ package msnydera.swe645.domain;
 import java.io.Serializable;
 import java.util.Date;
 
+import msnydera.swe645.util.DateUtil;
+
 /**
  * Domain object used as a filter when searching for a flight.
  * 
@@ -52,4 +54,47 @@ public class SearchFilters implements Serializable {
 		this.destinationLocation = null;
 		this.dateOfTrip = null;
 	}
+
+	/**
+	 * Two SearchFilters are equal if they search for the same flights. The
+	 * airport codes are compared ignoring case, with an empty code the same as
+	 * no code, and the dates of the trip are compared by day.
+	 */
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SearchFilters)) {
+			return false;
+		}
+
+		SearchFilters other = (SearchFilters) obj;
+		return isEqual(getCanonicalCode(this.departureLocation), getCanonicalCode(other.departureLocation))
+				&& isEqual(getCanonicalCode(this.destinationLocation), getCanonicalCode(other.destinationLocation))
+				&& isEqual(getCanonicalDate(this.dateOfTrip), getCanonicalDate(other.dateOfTrip));
+	}
+
+	public int hashCode() {
+		int hash = 17;
+		hash = 31 * hash + hashCodeOf(getCanonicalCode(this.departureLocation));
+		hash = 31 * hash + hashCodeOf(getCanonicalCode(this.destinationLocation));
+		hash = 31 * hash + hashCodeOf(getCanonicalDate(this.dateOfTrip));
+		return hash;
+	}
+
+	private static String getCanonicalCode(String code) {
+		return code == null || code.trim().equals("") ? null : code.toUpperCase();
+	}
+
+	private static Date getCanonicalDate(Date date) {
+		return date == null ? null : DateUtil.getStartOfDay(date);
+	}
+
+	private static boolean isEqual(Object value1, Object value2) {
+		return value1 == null ? value2 == null : value1.equals(value2);
+	}
+
+	private static int hashCodeOf(Object value) {
+		return value == null ? 0 : value.hashCode();
+	}
 }
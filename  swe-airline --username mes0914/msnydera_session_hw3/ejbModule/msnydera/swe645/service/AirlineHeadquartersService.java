@@ -8,7 +8,15 @@ import java.util.Collection;
 import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Customer;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightBatchResult;
+import msnydera.swe645.domain.FlightPage;
+import msnydera.swe645.domain.OutboxStatus;
 import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
+import msnydera.swe645.domain.ReservationSummary;
+import msnydera.swe645.domain.RouteSchedule;
+import msnydera.swe645.domain.ScheduleExpansionResult;
 import msnydera.swe645.domain.SearchFilters;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
@@ -56,6 +64,37 @@ public interface AirlineHeadquartersService {
 	 */
 	public Collection<Customer> getAllCustomers() throws DataAccessException;
 
+	/**
+	 * Returns the customers that have a word of their name, or their phone
+	 * number, starting with the provided prefix, for looking up a customer as
+	 * it is typed.
+	 * 
+	 * @param prefix
+	 *            Start of a name or phone number.
+	 * @param maxResults
+	 *            Most customers to return.
+	 * @return The matching customers.
+	 * @throws ValidationException
+	 *             Thrown if the prefix is empty or maxResults is not valid.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when retrieving the customers.
+	 */
+	public Collection<Customer> findCustomers(String prefix, int maxResults) throws ValidationException,
+			DataAccessException;
+
+	/**
+	 * Gets the customer associated with the provided customerId
+	 * 
+	 * @param customerId
+	 *            The Id of the customer to get
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided Id.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when getting the customer.
+	 * @return The customer.
+	 */
+	public Customer getCustomer(int customerId) throws ValidationException, DataAccessException;
+
 	/**
 	 * Returns all the reservations that are in the system.
 	 * 
@@ -64,6 +103,38 @@ public interface AirlineHeadquartersService {
 	 *             Thrown if there is an error when retrieving the reservations.
 	 */
 	public Collection<Reservation> getAllReservations() throws DataAccessException;
+
+	/**
+	 * Returns a summary of every reservation that is in the system, with only
+	 * the values needed to list them.
+	 * 
+	 * @return Summaries of all the reservations
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when retrieving the reservations.
+	 */
+	public Collection<ReservationSummary> getReservationSummaries() throws DataAccessException;
+
+	/**
+	 * Returns one page of the reservations that match the provided
+	 * reservationFilters, sorted by reservation number. Pass null as the
+	 * pageToken for the first page, and the nextPageToken of the previous page
+	 * (with the same reservationFilters) for the pages after it.
+	 * 
+	 * @param reservationFilters
+	 *            Filters to list the reservations by, exactly one of them set.
+	 * @param pageSize
+	 *            Most reservations to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of summaries of the matching reservations.
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             reservationFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when retrieving the reservations.
+	 */
+	public ReservationPage getReservationPage(ReservationFilters reservationFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException;
 	
 	/**
 	 * Searches for Flights based on the provided searchFilters.
@@ -79,6 +150,29 @@ public interface AirlineHeadquartersService {
 	 */
 	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException;
 
+	/**
+	 * Returns one page of the Flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. Pass null as the pageToken for the first page, and the
+	 * nextPageToken of the previous page (with the same searchFilters) for the
+	 * pages after it.
+	 * 
+	 * @param searchFilters
+	 *            Filters to used when searching for flights.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of Flights that match the provided searchFilters
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             searchFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when searching for Flights.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException;
+
 	/**
 	 * Creates an airplane in the system with the provided information.
 	 * 
@@ -133,6 +227,44 @@ public interface AirlineHeadquartersService {
 	 */
 	public Flight createFlight(Flight flight) throws ValidationException, DataAccessException;
 
+	/**
+	 * Creates the provided flights in the system in one call. Every flight is
+	 * validated the same way as in createFlight(); flights that fail
+	 * validation are skipped and reported in the result, and the rest are
+	 * created together.
+	 * 
+	 * @param flights
+	 *            Flights to create
+	 * @return The Flight number of each created flight, in the order the
+	 *         flights were provided, and the validation errors of the flights
+	 *         that were skipped.
+	 * @throws ValidationException
+	 *             Thrown if no flights were provided.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException, DataAccessException;
+
+	/**
+	 * Creates a flight for every departure date of a weekly schedule that
+	 * doesn't have one yet. A date already has one if a flight on the same
+	 * route with the same airplane departs that day, so running the same
+	 * schedule again creates nothing and extending its end date only creates
+	 * the added dates. Dates before today are skipped.
+	 * 
+	 * @param schedule
+	 *            Schedule to expand.
+	 * @return The created flights and the number of dates skipped.
+	 * @throws ValidationException
+	 *             Thrown if the schedule is invalid.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException;
+
 	/**
 	 * Creates a reservation for on provided flight number, flightId, for the
 	 * provided number of seats, numSeats.
@@ -178,4 +310,14 @@ public interface AirlineHeadquartersService {
 	 * @return The reservation.
 	 */
 	public Reservation getReservation(int reservationId) throws ValidationException, DataAccessException;
+
+	/**
+	 * Returns how many flight and seat events are waiting in the outbox to be
+	 * published, and what the outbox relay of this node has published.
+	 * 
+	 * @return The outbox status.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when counting the events.
+	 */
+	public OutboxStatus getOutboxStatus() throws DataAccessException;
 }
\ No newline at end of file
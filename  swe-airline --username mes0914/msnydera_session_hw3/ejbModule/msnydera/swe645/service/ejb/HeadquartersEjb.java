@@ -7,42 +7,77 @@ package msnydera.swe645.service.ejb;
 import java.util.Collection;
 import java.util.Properties;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
-import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
-import javax.jms.MapMessage;
-import javax.jms.MessageProducer;
-import javax.jms.Session;
 import javax.jms.Topic;
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 
+import msnydera.swe645.dao.SchemaMigrator;
 import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightBatchResult;
+import msnydera.swe645.domain.OutboxStatus;
+import msnydera.swe645.domain.RouteSchedule;
+import msnydera.swe645.domain.ScheduleExpansionResult;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.AirlineHeadquartersService;
 import msnydera.swe645.service.impl.AirlineHeadquartersServiceImpl;
+import msnydera.swe645.service.impl.FlightTopicPublisher;
+import msnydera.swe645.service.impl.OutboxRelay;
 
 /**
  * Session Bean implementation of the Remote HeadquartersEjb. This class is
  * basically a delegate object for the AirlineHeadquartersService business
  * implementation. This EJB is only used to provide an external communication
- * point. This class also posts information on a Topic. This class only deals
- * with Headquarters related business.
+ * point. This class also posts information on a Topic: the events of the
+ * flights it creates are written to the outbox by the service and published
+ * by the OutboxRelayEjb, and the reference data messages are posted directly.
+ * This class only deals with Headquarters related business.
  */
 @Stateless
 //@SecurityDomain("other")
 //@RolesAllowed( { "admin", "hq" })
 public class HeadquartersEjb implements HeadquartersEjbRemote {
+	/**
+	 * String property set on every message posted to the Topic, so
+	 * subscribers can select the messages they are interested in.
+	 */
+	public static final String MESSAGE_TYPE = FlightTopicPublisher.MESSAGE_TYPE;
+
+	/**
+	 * Message type of the BytesMessage posted when a flight is created.
+	 */
+	public static final String FLIGHT_CREATED = FlightTopicPublisher.FLIGHT_CREATED;
+
+	/**
+	 * Message type of the message posted when an airport or airplane is
+	 * created.
+	 */
+	public static final String REFERENCE_DATA_CHANGED = FlightTopicPublisher.REFERENCE_DATA_CHANGED;
+
 	private AirlineHeadquartersService service;
 
+	private FlightTopicPublisher publisher;
+
+	@EJB
+	private OutboxRelayEjbLocal outboxRelay;
+
 	@PersistenceContext(unitName="msnyderaPersistence")
 	private EntityManager entityManager;
+
+	@Resource
+	private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
 	
 	@Resource(mappedName = "ConnectionFactory")
     ConnectionFactory connectionFactory;
@@ -56,6 +91,14 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 	public HeadquartersEjb() {
 	}
 
+	/**
+	 * Brings the database schema up to date the first time a bean is created.
+	 */
+	@PostConstruct
+	public void init() {
+		SchemaMigrator.migrateOnce();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -64,6 +107,8 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 	 */
 	public void createAirplane(int numberOfSeats, String airplaneType) throws ValidationException, DataAccessException {
 		this.getService().createAirplane(numberOfSeats, airplaneType);
+
+		this.sendReferenceDataChangedAfterCommit();
 	}
 
 	/*
@@ -75,7 +120,8 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 	public void createAirport(String airportCode) throws ValidationException, DataAccessException {
 		
 		this.getService().createAirport(airportCode);
-		
+
+		this.sendReferenceDataChangedAfterCommit();
 	}
 
 	/*
@@ -86,13 +132,40 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 	 * .Flight)
 	 */
 	public int createFlight(Flight flight) throws ValidationException, DataAccessException {
+		this.startOutboxRelay();
 		Flight savedFlight = this.getService().createFlight(flight);
 
-		this.sendMessage(savedFlight);
-
 		return savedFlight.getId();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * msnydera.swe645.service.ejb.HeadquartersEjbRemote#createFlights(java.util
+	 * .Collection)
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException,
+			DataAccessException {
+		this.startOutboxRelay();
+
+		return this.getService().createFlights(flights);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * msnydera.swe645.service.ejb.HeadquartersEjbRemote#expandSchedule(msnydera
+	 * .swe645.domain.RouteSchedule)
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException {
+		this.startOutboxRelay();
+
+		return this.getService().expandSchedule(schedule);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -120,44 +193,72 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 		return this.getService().getAllFlights();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see msnydera.swe645.service.ejb.HeadquartersEjbRemote#getOutboxStatus()
+	 */
+	public OutboxStatus getOutboxStatus() throws DataAccessException {
+		return this.getService().getOutboxStatus();
+	}
+
 	/**
-	 * Sends a message with flight information to a Topic.
+	 * Posts a message to the Topic telling every node that the airports or
+	 * airplanes have changed, so they drop their ReferenceDataCache.
 	 * 
-	 * @param flight
-	 *            Flight information to send to the Topic
 	 * @return True if the message sent successfully, false if an error
 	 *         occurred.
 	 */
-	public boolean sendMessage(Flight flight) {
+	public boolean sendReferenceDataChanged() {
 		try {
-			Connection conn = this.connectionFactory.createConnection();
+			this.getPublisher().publishReferenceDataChanged();
 
-			System.out.println("** " + getClass().getSimpleName() + ": Sending Message for Flight #" + flight.getId());
-			Session session = conn.createSession(false, Session.AUTO_ACKNOWLEDGE);
-			
-			MessageProducer producer = session.createProducer(this.topic);
+			return true;
+		} catch (JMSException e) {
+			e.printStackTrace();
+		}
 
-			MapMessage mapMsg = session.createMapMessage();
-			mapMsg.setString("flightId", "" + flight.getId());
-			mapMsg.setString("flightDate", flight.getDisplayDate());
-			mapMsg.setString("departureAirport", flight.getDepartureAirport().getAirportCode());
-			mapMsg.setString("destinationAirport", flight.getDestinationAirport().getAirportCode());
-			mapMsg.setInt("numSeats", flight.getAvailableSeats());
-			mapMsg.setDouble("cost", flight.getCost());
-			mapMsg.setString("airplaneId", "" + flight.getAirplane().getId());
+		return false;
+	}
 
-			producer.send(mapMsg);
+	/**
+	 * Posts the reference data message once the transaction of the current
+	 * call has committed, so other nodes don't reload their cache before the
+	 * new airport or airplane can be read. Nothing is posted if the
+	 * transaction rolls back.
+	 */
+	private void sendReferenceDataChangedAfterCommit() {
+		if (this.transactionSynchronizationRegistry == null
+				|| this.transactionSynchronizationRegistry.getTransactionKey() == null) {
+			this.sendReferenceDataChanged();
+			return;
+		}
 
-			conn.close();
+		this.transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+				// Intentially do nothing
+			}
 
-			System.out.println("Sent Message!");
+			public void afterCompletion(int status) {
+				if (status == Status.STATUS_COMMITTED) {
+					sendReferenceDataChanged();
+				}
+			}
+		});
+	}
 
-			return true;
-		} catch (JMSException e) {
-			e.printStackTrace();
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see msnydera.swe645.service.ejb.HeadquartersEjbRemote#startOutboxRelay()
+	 * 
+	 * Also called before flight events are written, in case the web
+	 * application couldn't start the relay when it was deployed.
+	 */
+	public void startOutboxRelay() {
+		if (!OutboxRelay.getInstance().isStarted()) {
+			this.outboxRelay.start();
 		}
-		
-		return false;
 	}
 
 	/**
@@ -176,13 +277,19 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 	}
 
 	/**
+	 * The service is created the first time it is needed and then reused by
+	 * every call made on this bean instance. It keeps no state between calls,
+	 * and the injected EntityManager is the container's proxy, which uses the
+	 * persistence context of whichever transaction is running the call.
 	 * 
 	 * @return The service implementation to use.
 	 */
 	public AirlineHeadquartersService getService() {
-		//if (this.service == null) {
-			this.service = new AirlineHeadquartersServiceImpl(this.entityManager);
-		//}
+		if (this.service == null) {
+			AirlineHeadquartersServiceImpl service = new AirlineHeadquartersServiceImpl(this.entityManager);
+			service.setTransactionSynchronizationRegistry(this.transactionSynchronizationRegistry);
+			this.service = service;
+		}
 
 		return this.service;
 	}
@@ -197,4 +304,25 @@ public class HeadquartersEjb implements HeadquartersEjbRemote {
 	public void setService(AirlineHeadquartersService service) {
 		this.service = service;
 	}
+
+	/**
+	 * @return The publisher shared by the beans in this JVM, created with the
+	 *         injected ConnectionFactory and Topic.
+	 */
+	public FlightTopicPublisher getPublisher() {
+		if (this.publisher == null) {
+			this.publisher = FlightTopicPublisher.getInstance(this.connectionFactory, this.topic);
+		}
+		return this.publisher;
+	}
+
+	/**
+	 * Sets the publisher to use.
+	 * 
+	 * @param publisher
+	 *            Publisher to use.
+	 */
+	public void setPublisher(FlightTopicPublisher publisher) {
+		this.publisher = publisher;
+	}
 }
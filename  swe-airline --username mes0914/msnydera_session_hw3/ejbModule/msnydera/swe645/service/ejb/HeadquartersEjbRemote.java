@@ -10,6 +10,10 @@ import javax.ejb.Remote;
 
 import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightBatchResult;
+import msnydera.swe645.domain.OutboxStatus;
+import msnydera.swe645.domain.RouteSchedule;
+import msnydera.swe645.domain.ScheduleExpansionResult;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 
@@ -88,4 +92,59 @@ public interface HeadquartersEjbRemote {
 	 *             Thrown if there is an error when creating a flight.
 	 */
 	public int createFlight(Flight flight) throws ValidationException, DataAccessException;
+
+	/**
+	 * Creates the provided flights in the system in one call. Every flight is
+	 * validated the same way as in createFlight(); flights that fail
+	 * validation are skipped and reported in the result, and the rest are
+	 * created together.
+	 * 
+	 * @param flights
+	 *            Flights to create
+	 * @return The Flight number of each created flight, in the order the
+	 *         flights were provided, and the validation errors of the flights
+	 *         that were skipped.
+	 * @throws ValidationException
+	 *             Thrown if no flights were provided.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException, DataAccessException;
+
+	/**
+	 * Creates a flight for every departure date of a weekly schedule that
+	 * doesn't have one yet (a flight on the same route with the same airplane
+	 * that day). Running the same schedule again creates nothing, and
+	 * extending its end date only creates the added dates.
+	 * 
+	 * @param schedule
+	 *            Schedule to expand.
+	 * @return The created flights and the number of dates skipped.
+	 * @throws ValidationException
+	 *             Thrown if the schedule is invalid.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when creating the flights. None
+	 *             of the flights are created in that case.
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException;
+
+	/**
+	 * Returns how many flight and seat events are waiting to be published on
+	 * the Topic, and how far behind the outbox relay is.
+	 * 
+	 * @return The outbox status.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when counting the events.
+	 */
+	public OutboxStatus getOutboxStatus() throws DataAccessException;
+
+	/**
+	 * Schedules the outbox relay, unless it is already scheduled in the EJB's
+	 * JVM. The web application calls this when it is deployed, so the events
+	 * left in the outbox by an earlier run are published without waiting for
+	 * the next write.
+	 */
+	public void startOutboxRelay();
 }
@@ -0,0 +1,187 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.ejb;
+
+import javax.annotation.Resource;
+import javax.ejb.EJBException;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.Timeout;
+import javax.ejb.Timer;
+import javax.ejb.TimerService;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Topic;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.exception.DataAccessException;
+import msnydera.swe645.service.impl.FlightTopicPublisher;
+import msnydera.swe645.service.impl.OutboxRelay;
+
+/**
+ * Session Bean that relays the flight and seat events from the outbox to the
+ * Topic. An EJB timer runs it every RELAY_INTERVAL_MILLIS; each run relays
+ * batches, each in its own transaction, until the outbox is empty or
+ * MAX_BATCHES_PER_RUN batches were relayed. The requests that write the
+ * events therefore never wait for the JMS server, and an event that couldn't
+ * be published stays in the outbox until a later run publishes it. See
+ * OutboxRelay for the delivery guarantees.
+ */
+@Stateless
+public class OutboxRelayEjb implements OutboxRelayEjbLocal {
+	// How often the relay runs
+	public static final long RELAY_INTERVAL_MILLIS = 1000;
+
+	// Most batches relayed by one run, so a run ends while events keep coming
+	public static final int MAX_BATCHES_PER_RUN = 50;
+
+	private static final String TIMER_INFO = "OutboxRelay";
+
+	private AirlineHeadquartersJpaDao dao;
+
+	private OutboxRelay outboxRelay;
+
+	private FlightTopicPublisher publisher;
+
+	@PersistenceContext(unitName = "msnyderaPersistence")
+	private EntityManager entityManager;
+
+	@Resource(mappedName = "ConnectionFactory")
+	ConnectionFactory connectionFactory;
+
+	@Resource(mappedName = "topic/MsnyderaTopic")
+	Topic topic;
+
+	@Resource
+	private TimerService timerService;
+
+	@Resource
+	private SessionContext sessionContext;
+
+	/**
+	 * Default constructor.
+	 */
+	public OutboxRelayEjb() {
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see msnydera.swe645.service.ejb.OutboxRelayEjbLocal#start()
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public void start() {
+		OutboxRelay relay = this.getOutboxRelay();
+		synchronized (OutboxRelayEjb.class) {
+			if (relay.isStarted()) {
+				return;
+			}
+
+			// Timers outlive a redeploy, keep only the one created here
+			for (Object timer : this.timerService.getTimers()) {
+				((Timer) timer).cancel();
+			}
+			this.timerService.createTimer(RELAY_INTERVAL_MILLIS, RELAY_INTERVAL_MILLIS, TIMER_INFO);
+			relay.setStarted(true);
+		}
+	}
+
+	/**
+	 * Relays the waiting events, unless a run is already going on in this
+	 * JVM. Each batch goes through the business object, so it runs in a
+	 * transaction of its own.
+	 *
+	 * @param timer
+	 *            The relay's timer.
+	 */
+	@Timeout
+	@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+	public void relay(Timer timer) {
+		OutboxRelay relay = this.getOutboxRelay();
+		if (!relay.tryStartRun()) {
+			return;
+		}
+
+		try {
+			OutboxRelayEjbLocal self = this.sessionContext.getBusinessObject(OutboxRelayEjbLocal.class);
+			for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+				if (self.relayBatch() < OutboxRelay.BATCH_SIZE) {
+					break;
+				}
+			}
+		} catch (DataAccessException e) {
+			e.printStackTrace();
+		} catch (EJBException e) {
+			// The batch's transaction was rolled back
+			relay.recordFailure();
+			e.printStackTrace();
+		} finally {
+			relay.endRun();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see msnydera.swe645.service.ejb.OutboxRelayEjbLocal#relayBatch()
+	 */
+	@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+	public int relayBatch() throws DataAccessException {
+		try {
+			return this.getOutboxRelay().relayBatch(this.getDao(), this.getPublisher());
+		} catch (JMSException e) {
+			this.sessionContext.setRollbackOnly();
+			throw new DataAccessException("The outbox events couldn't be published: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return The DAO to read and delete the events with, created once per
+	 *         bean instance.
+	 */
+	public AirlineHeadquartersJpaDao getDao() {
+		if (this.dao == null) {
+			this.dao = new AirlineHeadquartersJpaDao(this.entityManager);
+		}
+		return this.dao;
+	}
+
+	public void setDao(AirlineHeadquartersJpaDao dao) {
+		this.dao = dao;
+	}
+
+	/**
+	 * @return The relay shared by the beans in this JVM, unless another one was
+	 *         set.
+	 */
+	public OutboxRelay getOutboxRelay() {
+		if (this.outboxRelay == null) {
+			this.outboxRelay = OutboxRelay.getInstance();
+		}
+		return this.outboxRelay;
+	}
+
+	public void setOutboxRelay(OutboxRelay outboxRelay) {
+		this.outboxRelay = outboxRelay;
+	}
+
+	/**
+	 * @return The publisher shared by the beans in this JVM, created with the
+	 *         injected ConnectionFactory and Topic.
+	 */
+	public FlightTopicPublisher getPublisher() {
+		if (this.publisher == null) {
+			this.publisher = FlightTopicPublisher.getInstance(this.connectionFactory, this.topic);
+		}
+		return this.publisher;
+	}
+
+	public void setPublisher(FlightTopicPublisher publisher) {
+		this.publisher = publisher;
+	}
+}
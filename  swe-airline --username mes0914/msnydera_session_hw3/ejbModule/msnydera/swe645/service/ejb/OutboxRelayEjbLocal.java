@@ -0,0 +1,34 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.ejb;
+
+import javax.ejb.Local;
+
+import msnydera.swe645.exception.DataAccessException;
+
+/**
+ * Local interface of the bean that relays the outbox events to the Topic. It
+ * is only used by the other session beans of this module.
+ * 
+ */
+@Local
+public interface OutboxRelayEjbLocal {
+	/**
+	 * Schedules the relay to run every RELAY_INTERVAL_MILLIS, unless it was
+	 * already scheduled in this JVM. The session beans call this before they
+	 * write events.
+	 */
+	public void start();
+
+	/**
+	 * Publishes and deletes one batch of the oldest events, in its own
+	 * transaction.
+	 * 
+	 * @return Number of events relayed.
+	 * @throws DataAccessException
+	 *             Thrown if the events couldn't be published, read or
+	 *             deleted. The transaction is rolled back in that case.
+	 */
+	public int relayBatch() throws DataAccessException;
+}
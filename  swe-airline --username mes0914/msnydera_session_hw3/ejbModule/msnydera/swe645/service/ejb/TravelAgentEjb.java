@@ -5,20 +5,30 @@ package msnydera.swe645.service.ejb;
 
 import java.util.Collection;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.jws.WebMethod;
 import javax.jws.WebService;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.transaction.TransactionSynchronizationRegistry;
 
+import msnydera.swe645.dao.SchemaMigrator;
 import msnydera.swe645.domain.Customer;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightPage;
 import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
+import msnydera.swe645.domain.ReservationSummary;
 import msnydera.swe645.domain.SearchFilters;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.AirlineHeadquartersService;
 import msnydera.swe645.service.impl.AirlineHeadquartersServiceImpl;
+import msnydera.swe645.service.impl.OutboxRelay;
 
 /**
  * Session Bean implementation of the Remote TravelAgentEJB. This class is
@@ -36,18 +46,33 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 	@PersistenceContext(unitName = "msnyderaPersistence")
 	private EntityManager entityManager;
 
+	@Resource
+	private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+	@EJB
+	private OutboxRelayEjbLocal outboxRelay;
+
 	/**
 	 * Default constructor.
 	 */
 	public TravelAgentEjb() {
 	}
 
+	/**
+	 * Brings the database schema up to date the first time a bean is created.
+	 */
+	@PostConstruct
+	public void init() {
+		SchemaMigrator.migrateOnce();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see gmu.swe.service.ejb.TravelAgentEjbRemote#createReservation(int, int, int)
 	 */
 	public Reservation createReservation(int flightId, int customerId, int numSeats) throws ValidationException, DataAccessException {
+		this.startOutboxRelay();
 		return this.getService().createReservation(flightId, customerId, numSeats);
 	}
 
@@ -56,6 +81,7 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 	 * @see msnydera.swe645.service.ejb.TravelAgentEjbRemote#cancelReservation(int)
 	 */
 	public Reservation cancelReservation(int reservationId) throws ValidationException, DataAccessException {
+		this.startOutboxRelay();
 		return this.getService().cancelReservation(reservationId);
 	}
 	
@@ -79,6 +105,19 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 		return this.getService().search(searchFilters);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * msnydera.swe645.service.ejb.TravelAgentEjbRemote#searchPage(msnydera.swe645
+	 * .domain.SearchFilters, int, java.lang.String)
+	 */
+	@WebMethod
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
+		return this.getService().searchPage(searchFilters, pageSize, pageToken);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -95,6 +134,23 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 	public Collection<Customer> getAllCustomers() throws DataAccessException {
 		return this.getService().getAllCustomers();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see msnydera.swe645.service.ejb.TravelAgentEjbRemote#findCustomers(java.lang.String, int)
+	 */
+	public Collection<Customer> findCustomers(String prefix, int maxResults) throws ValidationException,
+			DataAccessException {
+		return this.getService().findCustomers(prefix, maxResults);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see msnydera.swe645.service.ejb.TravelAgentEjbRemote#getCustomer(int)
+	 */
+	public Customer getCustomer(int customerId) throws ValidationException, DataAccessException {
+		return this.getService().getCustomer(customerId);
+	}
 	
 	/*
 	 * (non-Javadoc)
@@ -104,6 +160,25 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 		return this.getService().getAllReservations();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see msnydera.swe645.service.ejb.TravelAgentEjbRemote#getReservationSummaries()
+	 */
+	public Collection<ReservationSummary> getReservationSummaries() throws DataAccessException {
+		return this.getService().getReservationSummaries();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * msnydera.swe645.service.ejb.TravelAgentEjbRemote#getReservationPage(msnydera
+	 * .swe645.domain.ReservationFilters, int, java.lang.String)
+	 */
+	public ReservationPage getReservationPage(ReservationFilters reservationFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
+		return this.getService().getReservationPage(reservationFilters, pageSize, pageToken);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see msnydera.swe645.service.ejb.TravelAgentEjbRemote#createCustomer(msnydera.swe645.domain.Customer)
@@ -113,11 +188,29 @@ public class TravelAgentEjb implements TravelAgentEjbRemote {
 	}
 	
 	/**
+	 * Makes sure the outbox relay is scheduled before seat events are
+	 * written.
+	 */
+	private void startOutboxRelay() {
+		if (!OutboxRelay.getInstance().isStarted()) {
+			this.outboxRelay.start();
+		}
+	}
+
+	/**
+	 * The service is created the first time it is needed and then reused by
+	 * every call made on this bean instance. It keeps no state between calls,
+	 * and the injected EntityManager is the container's proxy, which uses the
+	 * persistence context of whichever transaction is running the call.
 	 * 
 	 * @return The service implementation to use.
 	 */
 	public AirlineHeadquartersService getService() {
-		this.service = new AirlineHeadquartersServiceImpl(this.entityManager);
+		if (this.service == null) {
+			AirlineHeadquartersServiceImpl service = new AirlineHeadquartersServiceImpl(this.entityManager);
+			service.setTransactionSynchronizationRegistry(this.transactionSynchronizationRegistry);
+			this.service = service;
+		}
 
 		return this.service;
 	}
@@ -9,7 +9,11 @@ import javax.ejb.Remote;
 
 import msnydera.swe645.domain.Customer;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightPage;
 import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
+import msnydera.swe645.domain.ReservationSummary;
 import msnydera.swe645.domain.SearchFilters;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
@@ -37,6 +41,29 @@ public interface TravelAgentEjbRemote {
 	 */
 	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException;
 
+	/**
+	 * Returns one page of the Flights that match the provided searchFilters,
+	 * sorted by departure airport code, destination airport code and flight
+	 * number. Pass null as the pageToken for the first page, and the
+	 * nextPageToken of the previous page (with the same searchFilters) for the
+	 * pages after it.
+	 * 
+	 * @param searchFilters
+	 *            Filters to used when searching for flights.
+	 * @param pageSize
+	 *            Most flights to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of Flights that match the provided searchFilters
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             searchFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when searching for Flights.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException;
+
 	/**
 	 * Creates a reservation for on provided flight number, flightId, for the
 	 * provided number of seats, numSeats.
@@ -75,6 +102,37 @@ public interface TravelAgentEjbRemote {
 	 */
 	public Collection<Customer> getAllCustomers() throws DataAccessException;
 
+	/**
+	 * Returns the customers that have a word of their name, or their phone
+	 * number, starting with the provided prefix, for looking up a customer as
+	 * it is typed.
+	 * 
+	 * @param prefix
+	 *            Start of a name or phone number.
+	 * @param maxResults
+	 *            Most customers to return.
+	 * @return The matching customers.
+	 * @throws ValidationException
+	 *             Thrown if the prefix is empty or maxResults is not valid.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when retrieving the customers.
+	 */
+	public Collection<Customer> findCustomers(String prefix, int maxResults) throws ValidationException,
+			DataAccessException;
+
+	/**
+	 * Gets the customer associated with the provided customerId
+	 * 
+	 * @param customerId
+	 *            The Id of the customer to get
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided Id.
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when getting the customer.
+	 * @return The customer.
+	 */
+	public Customer getCustomer(int customerId) throws ValidationException, DataAccessException;
+
 	/**
 	 * Returns all the reservations that are in the system.
 	 * 
@@ -84,6 +142,38 @@ public interface TravelAgentEjbRemote {
 	 */
 	public Collection<Reservation> getAllReservations() throws DataAccessException;
 
+	/**
+	 * Returns a summary of every reservation that is in the system, with only
+	 * the values needed to list them.
+	 * 
+	 * @return Summaries of all the reservations
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when retrieving the reservations.
+	 */
+	public Collection<ReservationSummary> getReservationSummaries() throws DataAccessException;
+
+	/**
+	 * Returns one page of the reservations that match the provided
+	 * reservationFilters, sorted by reservation number. Pass null as the
+	 * pageToken for the first page, and the nextPageToken of the previous page
+	 * (with the same reservationFilters) for the pages after it.
+	 * 
+	 * @param reservationFilters
+	 *            Filters to list the reservations by, exactly one of them set.
+	 * @param pageSize
+	 *            Most reservations to return.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of summaries of the matching reservations.
+	 * @throws ValidationException
+	 *             Thrown if there are validation errors with the provided
+	 *             reservationFilters, pageSize or pageToken
+	 * @throws DataAccessException
+	 *             Thrown if there is an error when retrieving the reservations.
+	 */
+	public ReservationPage getReservationPage(ReservationFilters reservationFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException;
+
 	/**
 	 * Creates a customer in the system with the provided information.
 	 * 
@@ -4,15 +4,36 @@
 package msnydera.swe645.service.impl;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.dao.ReservationCursor;
+import msnydera.swe645.dao.SearchCursor;
 import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Customer;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightBatchResult;
+import msnydera.swe645.domain.FlightPage;
+import msnydera.swe645.domain.OutboxEvent;
+import msnydera.swe645.domain.OutboxStatus;
 import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
+import msnydera.swe645.domain.ReservationSummary;
+import msnydera.swe645.domain.RouteSchedule;
+import msnydera.swe645.domain.ScheduleExpansionResult;
 import msnydera.swe645.domain.SearchFilters;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
@@ -22,14 +43,50 @@ import msnydera.swe645.util.DateUtil;
 /**
  * Implementation class for the AirlineHeadquartersService. This class contains
  * the business logic, including validation, and connects to the DAO for basic
- * CRUD (create, retrieve, update, & delete) operations.
+ * CRUD (create, retrieve, update, & delete) operations. Airports and airplanes
+ * are served from the ReferenceDataCache, and search results from the
+ * SearchResultCache. Reservations and cancellations hold their flight's
+ * stripe of the FlightLockManager until their transaction completes, and
+ * change the flight and reservation with versioned updates that are retried
+ * when another transaction changed the row first. Schedule expansions hold
+ * their route's stripe the same way. Every flight created and
+ * every reservation change writes an OutboxEvent in the same transaction,
+ * which the OutboxRelay publishes on the Topic once it is committed.
  * 
  */
 public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersService {
+	// Most flights returned on one page by searchPage()
+	public static final int MAX_PAGE_SIZE = 500;
+
+	// Most days one RouteSchedule may span (two years)
+	public static final int MAX_SCHEDULE_DAYS = 731;
+
+	// Most attempts at a versioned update before giving up
+	public static final int MAX_UPDATE_ATTEMPTS = 5;
+
+	// Most customers returned by findCustomers()
+	public static final int MAX_CUSTOMER_MATCHES = 50;
+
 	private AirlineHeadquartersJpaDao dao;
 
 	private EntityManager entityManager;
 
+	private ReferenceDataCache referenceDataCache;
+
+	private SearchResultCache searchResultCache;
+
+	private SearchCoalescer searchCoalescer;
+
+	private FlightLockManager flightLockManager;
+
+	private OptimisticLockStatistics optimisticLockStatistics;
+
+	private CustomerIndex customerIndex;
+
+	private OutboxRelay outboxRelay;
+
+	private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
 	public AirlineHeadquartersServiceImpl() {
 
 	}
@@ -50,7 +107,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#getAllAirplanes()
 	 */
 	public Collection<Airplane> getAllAirplanes() throws DataAccessException {
-		return this.getDao().getAllAirplanes();
+		return this.getReferenceDataCache().getAllAirplanes(this.getDao());
 	}
 
 	/*
@@ -59,7 +116,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#getallAirports()
 	 */
 	public Collection<String> getAllAirports() throws DataAccessException {
-		return this.getDao().getAllAirports();
+		return this.getReferenceDataCache().getAllAirports(this.getDao());
 	}
 
 	/*
@@ -80,6 +137,55 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		return this.getDao().getAllCustomers();
 	}
 
+	/**
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#findCustomers(java.lang.String,
+	 *      int)<br>
+	 * <br>
+	 *      Fails validation if the prefix is null or empty, or if maxResults
+	 *      is not between 1 and MAX_CUSTOMER_MATCHES.
+	 */
+	public Collection<Customer> findCustomers(String prefix, int maxResults) throws ValidationException,
+			DataAccessException {
+		ValidationException validationException = new ValidationException();
+		if (prefix == null || prefix.trim().equals("")) {
+			validationException.addErrorMessage("Please provide the start of a customer name or phone number");
+		}
+		if (maxResults < 1 || maxResults > MAX_CUSTOMER_MATCHES) {
+			validationException.addErrorMessage("The number of customers must be between 1 and "
+					+ MAX_CUSTOMER_MATCHES);
+		}
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+
+		return this.getCustomerIndex().find(prefix, maxResults, this.getDao());
+	}
+
+	/**
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#getCustomer(int)<br>
+	 * <br>
+	 *      Fails validation if the provided customerId < 0 or if it doesn't
+	 *      exist in the system.
+	 */
+	public Customer getCustomer(int customerId) throws ValidationException, DataAccessException {
+		ValidationException validationException = new ValidationException();
+
+		Customer customer = null;
+		if (customerId < 0) {
+			validationException.addErrorMessage("An invalid Customer Id was provided, it must be >= 0");
+		} else {
+			customer = this.getDao().getCustomer(customerId);
+			if (customer == null) {
+				validationException.addErrorMessage("The provided Customer Id does not exist");
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+		return customer;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see msnydera.swe645.service.AirlineHeadquartersService#getAllReservations()
@@ -87,6 +193,32 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	public Collection<Reservation> getAllReservations() throws DataAccessException {
 		return this.getDao().getAllReservations();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#getReservationSummaries()
+	 */
+	public Collection<ReservationSummary> getReservationSummaries() throws DataAccessException {
+		return this.getDao().getReservationSummaries();
+	}
+
+	/**
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#getReservationPage(msnydera.swe645.domain.ReservationFilters,
+	 *      int, java.lang.String)<br>
+	 * <br>
+	 *      Fails validation if reservationFilters is null or does not have
+	 *      exactly one filter set, if the status is not RESERVED or CANCELED,
+	 *      if the pageSize is not between 1 and MAX_PAGE_SIZE, or if the
+	 *      pageToken is not one returned by an earlier call.
+	 */
+	public ReservationPage getReservationPage(ReservationFilters reservationFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
+		validateReservationFilters(reservationFilters);
+		ReservationCursor after = validateReservationPage(pageSize, pageToken);
+
+		return this.getDao().getReservationPage(reservationFilters, after, pageSize);
+	}
 	
 	/**
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#search(msnydera.swe645.domain.SearchFilters)
@@ -94,10 +226,41 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 *      Fails validation if searchFilters is null or if all of the values in
 	 *      searchFilters are null.
 	 */
-	public Collection<Flight> search(SearchFilters searchFilters) throws ValidationException, DataAccessException {
+	public Collection<Flight> search(final SearchFilters searchFilters) throws ValidationException, DataAccessException {
 		validateSearchCriteria(searchFilters);
 
-		return this.getDao().search(searchFilters);
+		final SearchResultCache cache = this.getSearchResultCache();
+		Collection<Flight> flights = cache.get(searchFilters);
+		if (flights == null) {
+			// Identical searches running at the same time share one query,
+			// unless a write invalidated the cache between their starts
+			final long version = cache.getVersion();
+			flights = this.getSearchCoalescer().search(searchFilters, version, new Callable<Collection<Flight>>() {
+				public Collection<Flight> call() throws DataAccessException {
+					Collection<Flight> found = getDao().search(searchFilters);
+					cache.put(searchFilters, found, version);
+					return found;
+				}
+			});
+		}
+		return flights;
+	}
+
+	/**
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#searchPage(msnydera.swe645.domain.SearchFilters,
+	 *      int, java.lang.String)<br>
+	 * <br>
+	 *      Fails validation if searchFilters is null or if all of the values in
+	 *      searchFilters are null, if the pageSize is not between 1 and
+	 *      MAX_PAGE_SIZE, or if the pageToken is not one returned by an earlier
+	 *      search.
+	 */
+	public FlightPage searchPage(SearchFilters searchFilters, int pageSize, String pageToken)
+			throws ValidationException, DataAccessException {
+		validateSearchCriteria(searchFilters);
+		SearchCursor after = validatePage(pageSize, pageToken);
+
+		return this.getDao().searchPage(searchFilters, after, pageSize);
 	}
 
 	/**
@@ -111,6 +274,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		validateAirplane(numberOfSeats, airplaneType);
 
 		this.getDao().createAirplane(numberOfSeats, airplaneType);
+		invalidateReferenceData();
 	}
 
 	/**
@@ -124,6 +288,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		validateAirport(airportCode);
 
 		this.getDao().createAirport(airportCode);
+		invalidateReferenceData();
 	}
 
 	/**
@@ -137,7 +302,10 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	public Customer createCustomer(Customer customer) throws ValidationException, DataAccessException {
 		validateCustomer(customer);
 
-		return this.getDao().createCustomer(customer);
+		Customer created = this.getDao().createCustomer(customer);
+		addToCustomerIndex(created);
+
+		return created;
 	}
 
 	/**
@@ -158,7 +326,137 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	public Flight createFlight(Flight flight) throws ValidationException, DataAccessException {
 		validateFlight(flight);
 
-		return this.getDao().createFlight(flight);
+		Flight savedFlight = this.getDao().createFlight(flight);
+		writeOutboxEvent(OutboxEvent.flightCreated(savedFlight));
+		invalidateSearchResults(savedFlight);
+
+		return savedFlight;
+	}
+
+	/**
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#createFlights(java.util.Collection)<br>
+	 * <br>
+	 *      Fails validation if flights is null. Each flight is checked with
+	 *      validateFlight(), which uses the ReferenceDataCache, and the valid
+	 *      flights are persisted with AirlineHeadquartersJpaDao.createFlights().
+	 */
+	public FlightBatchResult createFlights(Collection<Flight> flights) throws ValidationException,
+			DataAccessException {
+		if (flights == null) {
+			ValidationException validationException = new ValidationException();
+			validationException.addErrorMessage("No flights were provided");
+			throw validationException;
+		}
+
+		FlightBatchResult result = new FlightBatchResult();
+		List<Flight> validFlights = new ArrayList<Flight>();
+		List<Integer> validPositions = new ArrayList<Integer>();
+
+		int position = 0;
+		for (Flight flight : flights) {
+			result.getFlightIds().add(Integer.valueOf(FlightBatchResult.NOT_CREATED));
+			try {
+				validateFlight(flight);
+				validFlights.add(flight);
+				validPositions.add(Integer.valueOf(position));
+			} catch (ValidationException e) {
+				for (String errorMessage : e.getErrorMessages()) {
+					result.getErrorMessages().add("Flight " + (position + 1) + ": " + errorMessage);
+				}
+			}
+			position++;
+		}
+
+		if (validFlights.isEmpty()) {
+			return result;
+		}
+
+		List<Flight> savedFlights = this.getDao().createFlights(validFlights);
+		writeOutboxEvents(createFlightEvents(savedFlights));
+		Set<SearchFilters> changedSearches = new HashSet<SearchFilters>();
+		for (int i = 0; i < savedFlights.size(); i++) {
+			Flight savedFlight = savedFlights.get(i);
+			result.getFlightIds().set(validPositions.get(i).intValue(), Integer.valueOf(savedFlight.getId()));
+
+			// Invalidate each route and date once, not once per flight
+			SearchFilters searchFilters = new SearchFilters();
+			searchFilters.setDepartureLocation(savedFlight.getDepartureAirport().getAirportCode());
+			searchFilters.setDestinationLocation(savedFlight.getDestinationAirport().getAirportCode());
+			searchFilters.setDateOfTrip(savedFlight.getDepartureDate());
+			if (changedSearches.add(searchFilters)) {
+				invalidateSearchResults(savedFlight);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#expandSchedule(msnydera.swe645.domain.RouteSchedule)<br>
+	 * <br>
+	 *      Fails validation if the schedule has no days of the week, if its
+	 *      dates are missing, out of order or more than MAX_SCHEDULE_DAYS
+	 *      apart, or if its route, airplane or cost fail validateFlight(). The
+	 *      dates that already have a flight are read with one range query and
+	 *      the missing ones are persisted with
+	 *      AirlineHeadquartersJpaDao.createFlights().<br>
+	 * <br>
+	 *      The route's stripe of the FlightLockManager is taken before the
+	 *      existing dates are read and kept until the transaction completes,
+	 *      so concurrent expansions of the same route and airplane can't both
+	 *      create a flight on the same date.
+	 */
+	public ScheduleExpansionResult expandSchedule(RouteSchedule schedule) throws ValidationException,
+			DataAccessException {
+		validateRouteSchedule(schedule);
+
+		ScheduleExpansionResult result = new ScheduleExpansionResult();
+		List<Date> departureDates = new ArrayList<Date>();
+		for (Date departureDate : schedule.getDepartureDates()) {
+			if (DateUtil.isTodayOrLater(departureDate)) {
+				departureDates.add(departureDate);
+			} else {
+				result.setPastCount(result.getPastCount() + 1);
+			}
+		}
+		if (departureDates.isEmpty()) {
+			return result;
+		}
+
+		// Every flight shares the route, airplane and cost
+		validateFlight(schedule.toFlight(departureDates.get(0)));
+
+		int stripe = getRouteStripe(schedule);
+		boolean unlock = lockStripe(stripe);
+		try {
+			Set<Date> flightDates = this.getDao().getFlightDates(schedule.getDepartureAirportCode(),
+					schedule.getDestinationAirportCode(), schedule.getAirplaneId(), departureDates.get(0),
+					departureDates.get(departureDates.size() - 1));
+			List<Flight> newFlights = new ArrayList<Flight>();
+			for (Date departureDate : departureDates) {
+				if (flightDates.contains(departureDate)) {
+					result.setExistingCount(result.getExistingCount() + 1);
+				} else {
+					newFlights.add(schedule.toFlight(departureDate));
+				}
+			}
+
+			if (!newFlights.isEmpty()) {
+				result.setFlights(this.getDao().createFlights(newFlights));
+				writeOutboxEvents(createFlightEvents(result.getFlights()));
+
+				// Each new flight is on its own date
+				for (Flight flight : result.getFlights()) {
+					invalidateSearchResults(flight);
+				}
+			}
+		} finally {
+			if (unlock) {
+				this.getFlightLockManager().unlock(stripe);
+			}
+		}
+
+		return result;
 	}
 
 	/**
@@ -167,25 +465,59 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	 * <br>
 	 *      Fails validation if the provided flightId < 0 or does not exist in
 	 *      the system. Also fails if the numSeats < 1 or if the flight doesn't
-	 *      have enough available seats.
+	 *      have enough available seats.<br>
+	 * <br>
+	 *      The flight is locked before its seats are read, so reservations
+	 *      and cancellations on the same flight can't overwrite each other's
+	 *      seat counts. The seats are taken with a versioned update, which
+	 *      also catches changes made outside of this JVM.
 	 */
 	public Reservation createReservation(int flightId, int customerId, int numSeats) throws ValidationException,
 			DataAccessException {
-		validateReservationData(flightId, customerId, numSeats);
+		boolean unlock = lockFlight(flightId);
+		try {
+			validateReservationData(flightId, customerId, numSeats);
 
-		return this.getDao().createReservation(flightId, customerId, numSeats);
+			Flight flight = updateAvailableSeats(flightId, -numSeats);
+			Reservation reservation = this.getDao().createReservation(flightId, customerId, numSeats);
+			writeOutboxEvent(OutboxEvent.seatsChanged(flight, reservation, -numSeats));
+			invalidateSearchResults(reservation.getFlight());
+
+			return reservation;
+		} finally {
+			if (unlock) {
+				unlockFlight(flightId);
+			}
+		}
 	}
 
 	/**
 	 * @see gmu.swe.service.impl.AirlineHeadquartersService#createReservation(int)<br>
 	 * <br>
 	 *      Fails validation if the provided reservationId < 0, if it doesn't
-	 *      exist in the system, or if it is already canceled.
+	 *      exist in the system, or if it is already canceled.<br>
+	 * <br>
+	 *      The reservation's flight is locked before the reservation is read,
+	 *      and the reservation and the flight are changed with versioned
+	 *      updates, like in createReservation().
 	 */
 	public Reservation cancelReservation(int reservationId) throws ValidationException, DataAccessException {
-		validateCancelReservationId(reservationId);
+		int flightId = this.getDao().getFlightIdOfReservation(reservationId);
+		boolean unlock = flightId >= 0 && lockFlight(flightId);
+		try {
+			validateCancelReservationId(reservationId);
+
+			Reservation reservation = updateReservationStatus(reservationId, "CANCELED");
+			Flight flight = updateAvailableSeats(reservation.getFlight().getId(), reservation.getNumSeats());
+			writeOutboxEvent(OutboxEvent.seatsChanged(flight, reservation, reservation.getNumSeats()));
+			invalidateSearchResults(reservation.getFlight());
 
-		return this.getDao().cancelReservation(reservationId);
+			return reservation;
+		} finally {
+			if (unlock) {
+				unlockFlight(flightId);
+			}
+		}
 	}
 
 	/**
@@ -197,9 +529,355 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	public Reservation getReservation(int reservationId) throws ValidationException, DataAccessException{
 		validateReservationId(reservationId);
 		
-		return this.getDao().getReservation(reservationId);
+		return this.getDao().getReservationDetails(reservationId);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see msnydera.swe645.service.AirlineHeadquartersService#getOutboxStatus()
+	 */
+	public OutboxStatus getOutboxStatus() throws DataAccessException {
+		OutboxStatus status = this.getDao().getOutboxStatus();
+		this.getOutboxRelay().addStatistics(status);
+
+		return status;
 	}
 	
+	/**
+	 * Adds seatChange (negative to take seats) to the flight's available seats
+	 * with a versioned update. When another transaction changed the flight
+	 * first, the flight is read again and the update retried, up to
+	 * MAX_UPDATE_ATTEMPTS attempts in all.
+	 * 
+	 * @param flightId
+	 *            Id of the flight.
+	 * @param seatChange
+	 *            Number of seats to add to the available seats.
+	 * @return The updated flight.
+	 * @throws ValidationException
+	 *             Thrown if the flight doesn't have enough seats to take.
+	 * @throws DataAccessException
+	 *             Thrown if every attempt conflicted, or if there is an error
+	 *             when updating the flight.
+	 */
+	private Flight updateAvailableSeats(int flightId, int seatChange) throws ValidationException,
+			DataAccessException {
+		Flight flight = this.getDao().getFlight(flightId);
+		for (int attempt = 1;; attempt++) {
+			int availableSeats = flight.getAvailableSeats() + seatChange;
+			if (availableSeats < 0) {
+				ValidationException validationException = new ValidationException();
+				validationException.addErrorMessage("The flight does not have enough seats, it only has "
+						+ flight.getAvailableSeats() + " seats available");
+				throw validationException;
+			}
+
+			this.getOptimisticLockStatistics().recordUpdate();
+			if (this.getDao().updateAvailableSeats(flight, availableSeats)) {
+				return flight;
+			}
+			handleUpdateConflict(attempt);
+		}
+	}
+
+	/**
+	 * Changes the reservation's status with a versioned update, retried like
+	 * in updateAvailableSeats().
+	 * 
+	 * @param reservationId
+	 *            Id of the reservation.
+	 * @param status
+	 *            New status of the reservation.
+	 * @return The updated reservation.
+	 * @throws ValidationException
+	 *             Thrown if the reservation already has the status.
+	 * @throws DataAccessException
+	 *             Thrown if every attempt conflicted, or if there is an error
+	 *             when updating the reservation.
+	 */
+	private Reservation updateReservationStatus(int reservationId, String status) throws ValidationException,
+			DataAccessException {
+		Reservation reservation = this.getDao().getReservation(reservationId);
+		for (int attempt = 1;; attempt++) {
+			if (status.equalsIgnoreCase(reservation.getStatus())) {
+				ValidationException validationException = new ValidationException();
+				validationException.addErrorMessage("The reservation has already been " + status.toLowerCase());
+				throw validationException;
+			}
+
+			this.getOptimisticLockStatistics().recordUpdate();
+			if (this.getDao().updateReservationStatus(reservation, status)) {
+				return reservation;
+			}
+			handleUpdateConflict(attempt);
+		}
+	}
+
+	/**
+	 * Counts a versioned update that conflicted. After the last attempt the
+	 * transaction is marked for rollback, since an earlier update in it may
+	 * have succeeded, and the call fails.
+	 * 
+	 * @param attempt
+	 *            Number of the attempt that conflicted, starting at 1.
+	 * @throws DataAccessException
+	 *             Thrown if it was the last attempt.
+	 */
+	private void handleUpdateConflict(int attempt) throws DataAccessException {
+		OptimisticLockStatistics statistics = this.getOptimisticLockStatistics();
+		statistics.recordConflict();
+		if (attempt < MAX_UPDATE_ATTEMPTS) {
+			statistics.recordRetry();
+			return;
+		}
+
+		statistics.recordFailure();
+		TransactionSynchronizationRegistry registry = this.getTransactionSynchronizationRegistry();
+		if (registry != null && registry.getTransactionKey() != null) {
+			registry.setRollbackOnly();
+		}
+		throw new DataAccessException("The flight is being changed by too many other requests, please try again");
+	}
+
+	/**
+	 * Takes the flight's stripe of the FlightLockManager. In a container
+	 * transaction the stripe is kept until the transaction has completed, so
+	 * the next caller reads the seats this transaction committed, and a
+	 * transaction takes each stripe only once. Without a transaction the
+	 * caller has to release the stripe itself.
+	 * 
+	 * @param flightId
+	 *            Id of the flight to lock.
+	 * @return True if the caller must call unlockFlight() when it is done.
+	 * @throws DataAccessException
+	 *             Thrown if the stripe couldn't be taken.
+	 */
+	private boolean lockFlight(int flightId) throws DataAccessException {
+		return lockStripe(this.getFlightLockManager().getStripe(flightId));
+	}
+
+	/**
+	 * Takes a stripe of the FlightLockManager, as lockFlight() does.
+	 * 
+	 * @param stripe
+	 *            Stripe to take.
+	 * @return True if the caller must release the stripe when it is done.
+	 * @throws DataAccessException
+	 *             Thrown if the stripe couldn't be taken.
+	 */
+	private boolean lockStripe(final int stripe) throws DataAccessException {
+		final FlightLockManager lockManager = this.getFlightLockManager();
+
+		TransactionSynchronizationRegistry registry = this.getTransactionSynchronizationRegistry();
+		if (registry == null || registry.getTransactionKey() == null) {
+			lockManager.lock(stripe);
+			return true;
+		}
+
+		HeldStripes heldStripes = (HeldStripes) registry.getResource(HeldStripes.class);
+		if (heldStripes == null) {
+			heldStripes = new HeldStripes();
+			registry.putResource(HeldStripes.class, heldStripes);
+		}
+		if (heldStripes.stripes.contains(Integer.valueOf(stripe))) {
+			return false;
+		}
+
+		lockManager.lock(stripe);
+		heldStripes.stripes.add(Integer.valueOf(stripe));
+		registry.registerInterposedSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+				// Intentially do nothing
+			}
+
+			public void afterCompletion(int status) {
+				lockManager.unlock(stripe);
+			}
+		});
+		return false;
+	}
+
+	/**
+	 * @return The stripe of the FlightLockManager that guards the flights of
+	 *         the schedule's route and airplane.
+	 */
+	private int getRouteStripe(RouteSchedule schedule) {
+		String route = schedule.getDepartureAirportCode().toUpperCase() + "-"
+				+ schedule.getDestinationAirportCode().toUpperCase() + "-" + schedule.getAirplaneId();
+		return this.getFlightLockManager().getStripe(route.hashCode());
+	}
+
+	/**
+	 * Releases a stripe taken by lockFlight() outside of a transaction.
+	 * 
+	 * @param flightId
+	 *            Id of the flight to unlock.
+	 */
+	private void unlockFlight(int flightId) {
+		FlightLockManager lockManager = this.getFlightLockManager();
+		lockManager.unlock(lockManager.getStripe(flightId));
+	}
+
+	/**
+	 * Writes one event to the outbox, as writeOutboxEvents() does.
+	 * 
+	 * @param event
+	 *            Event to write.
+	 * @throws DataAccessException
+	 *             Thrown if the event couldn't be written.
+	 */
+	private void writeOutboxEvent(OutboxEvent event) throws DataAccessException {
+		List<OutboxEvent> events = new ArrayList<OutboxEvent>(1);
+		events.add(event);
+		writeOutboxEvents(events);
+	}
+
+	/**
+	 * Writes events to the outbox through the OutboxRelay's write gate. The
+	 * relay doesn't publish them until the transaction of the call has
+	 * completed, since the database lets it read them before they are
+	 * committed.
+	 * 
+	 * @param events
+	 *            Events to write, in the order they should be published.
+	 * @throws DataAccessException
+	 *             Thrown if the events couldn't be written.
+	 */
+	private void writeOutboxEvents(List<OutboxEvent> events) throws DataAccessException {
+		final OutboxRelay relay = this.getOutboxRelay();
+		final List<Integer> eventIds;
+		relay.beginWrite();
+		try {
+			if (events.size() == 1) {
+				// Doesn't clear the persistence context, which the caller's
+				// flight and reservation are still in
+				this.getDao().createOutboxEvent(events.get(0));
+			} else {
+				this.getDao().createOutboxEvents(events);
+			}
+		} finally {
+			eventIds = relay.endWrite(events);
+		}
+
+		TransactionSynchronizationRegistry registry = this.getTransactionSynchronizationRegistry();
+		if (registry == null || registry.getTransactionKey() == null) {
+			relay.completeWrite(eventIds);
+			return;
+		}
+
+		registry.registerInterposedSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+				// Intentially do nothing
+			}
+
+			public void afterCompletion(int status) {
+				relay.completeWrite(eventIds);
+			}
+		});
+	}
+
+	/**
+	 * @return The FLIGHT_CREATED events of the flights, in the same order.
+	 */
+	private static List<OutboxEvent> createFlightEvents(List<Flight> flights) {
+		List<OutboxEvent> events = new ArrayList<OutboxEvent>(flights.size());
+		for (Flight flight : flights) {
+			events.add(OutboxEvent.flightCreated(flight));
+		}
+		return events;
+	}
+
+	/**
+	 * Drops the cached searches that could contain the provided flight. When
+	 * the call runs in a container transaction, the change can't be seen by
+	 * other searches until the transaction commits, so the searches are only
+	 * dropped once the transaction has completed.
+	 * 
+	 * @param flight
+	 *            Flight that was created or changed.
+	 */
+	private void invalidateSearchResults(Flight flight) {
+		final SearchResultCache cache = this.getSearchResultCache();
+		final String departureAirportCode = flight.getDepartureAirport().getAirportCode();
+		final String destinationAirportCode = flight.getDestinationAirport().getAirportCode();
+		final Date departureDate = flight.getDepartureDate();
+
+		TransactionSynchronizationRegistry registry = this.getTransactionSynchronizationRegistry();
+		if (registry == null || registry.getTransactionKey() == null) {
+			cache.invalidate(departureAirportCode, destinationAirportCode, departureDate);
+			return;
+		}
+
+		registry.registerInterposedSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+				// Intentially do nothing
+			}
+
+			public void afterCompletion(int status) {
+				cache.invalidate(departureAirportCode, destinationAirportCode, departureDate);
+			}
+		});
+	}
+
+	/**
+	 * Drops the ReferenceDataCache after an airport or airplane was created.
+	 * When the call runs in a container transaction, the cache is only dropped
+	 * once the transaction has committed; dropping it earlier would let a
+	 * concurrent request reload the old data and keep it.
+	 */
+	private void invalidateReferenceData() {
+		final ReferenceDataCache cache = this.getReferenceDataCache();
+
+		TransactionSynchronizationRegistry registry = this.getTransactionSynchronizationRegistry();
+		if (registry == null || registry.getTransactionKey() == null) {
+			cache.invalidate();
+			return;
+		}
+
+		registry.registerInterposedSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+				// Intentially do nothing
+			}
+
+			public void afterCompletion(int status) {
+				if (status == Status.STATUS_COMMITTED) {
+					cache.invalidate();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds a created customer to the CustomerIndex. When the call runs in a
+	 * container transaction, the customer is only added once the transaction
+	 * has committed.
+	 * 
+	 * @param customer
+	 *            Customer that was created.
+	 */
+	private void addToCustomerIndex(final Customer customer) {
+		final CustomerIndex index = this.getCustomerIndex();
+
+		TransactionSynchronizationRegistry registry = this.getTransactionSynchronizationRegistry();
+		if (registry == null || registry.getTransactionKey() == null) {
+			index.add(customer);
+			return;
+		}
+
+		registry.registerInterposedSynchronization(new Synchronization() {
+			public void beforeCompletion() {
+				// Intentially do nothing
+			}
+
+			public void afterCompletion(int status) {
+				if (status == Status.STATUS_COMMITTED) {
+					index.add(customer);
+				}
+			}
+		});
+	}
+
 	/**
 	 * Fails validation if the provided reservationId < 0, if it doesn't exist
 	 * in the system, or if it is already canceled.
@@ -357,6 +1035,160 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		}
 	}
 
+	/**
+	 * Fails validation if the schedule is null, if it has no days of the week
+	 * or one that isn't Calendar.SUNDAY to Calendar.SATURDAY, or if the start
+	 * or end date is missing, the end date is before the start date or the
+	 * dates are more than MAX_SCHEDULE_DAYS apart. The route, airplane and
+	 * cost are checked by validateFlight().
+	 * 
+	 * @param schedule
+	 *            Field to validate
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private void validateRouteSchedule(RouteSchedule schedule) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (schedule == null) {
+			validationException.addErrorMessage("No schedule was provided");
+		} else {
+			if (schedule.getDaysOfWeek() == null || schedule.getDaysOfWeek().isEmpty()) {
+				validationException.addErrorMessage("No days of the week were provided");
+			} else {
+				for (Integer dayOfWeek : schedule.getDaysOfWeek()) {
+					if (dayOfWeek == null || dayOfWeek.intValue() < Calendar.SUNDAY
+							|| dayOfWeek.intValue() > Calendar.SATURDAY) {
+						validationException.addErrorMessage("The day of the week " + dayOfWeek + " is invalid");
+					}
+				}
+			}
+
+			if (schedule.getStartDate() == null) {
+				validationException.addErrorMessage("No start date was provided");
+			}
+			if (schedule.getEndDate() == null) {
+				validationException.addErrorMessage("No end date was provided");
+			}
+			if (schedule.getStartDate() != null && schedule.getEndDate() != null) {
+				// Rounded, as a day with a daylight saving change isn't 24 hours
+				long days = Math.round((DateUtil.getStartOfDay(schedule.getEndDate()).getTime() - DateUtil
+						.getStartOfDay(schedule.getStartDate()).getTime())
+						/ (24.0 * 60 * 60 * 1000));
+				if (days < 0) {
+					validationException.addErrorMessage("The end date may not be before the start date");
+				} else if (days >= MAX_SCHEDULE_DAYS) {
+					validationException.addErrorMessage("A schedule may not span more than " + MAX_SCHEDULE_DAYS
+							+ " days");
+				}
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+	}
+
+	/**
+	 * Fails validation if the pageSize is not between 1 and MAX_PAGE_SIZE, or
+	 * if the pageToken is not null and is not a token returned by an earlier
+	 * search.
+	 * 
+	 * @param pageSize
+	 *            Field to validate
+	 * @param pageToken
+	 *            Field to validate
+	 * @return The position the page starts after, or null for the first page.
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private SearchCursor validatePage(int pageSize, String pageToken) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			validationException.addErrorMessage("The page size must be between 1 and " + MAX_PAGE_SIZE);
+		}
+
+		SearchCursor after = null;
+		if (pageToken != null) {
+			try {
+				after = SearchCursor.fromToken(pageToken);
+			} catch (IllegalArgumentException e) {
+				validationException.addErrorMessage("The page token provided is not valid");
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+		return after;
+	}
+
+	/**
+	 * Fails validation if reservationFilters is null, if it does not have
+	 * exactly one filter set, if the status is set and is not RESERVED or
+	 * CANCELED, or if the departure date range ends before it starts.
+	 * 
+	 * @param reservationFilters
+	 *            Field to validate
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private void validateReservationFilters(ReservationFilters reservationFilters) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (reservationFilters == null || reservationFilters.getFilterCount() != 1) {
+			validationException
+					.addErrorMessage("Exactly one of customer, flight, status or departure dates must be provided");
+		} else if (reservationFilters.hasStatus() && !reservationFilters.getStatus().equals("RESERVED")
+				&& !reservationFilters.getStatus().equals("CANCELED")) {
+			validationException.addErrorMessage("The status must be RESERVED or CANCELED");
+		} else if (reservationFilters.getDepartureDateFrom() != null
+				&& reservationFilters.getDepartureDateTo() != null
+				&& reservationFilters.getDepartureDateTo().before(reservationFilters.getDepartureDateFrom())) {
+			validationException.addErrorMessage("The departure date range ends before it starts");
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+	}
+
+	/**
+	 * Fails validation if the pageSize is not between 1 and MAX_PAGE_SIZE, or
+	 * if the pageToken is not null and is not a token returned by an earlier
+	 * call to getReservationPage().
+	 * 
+	 * @param pageSize
+	 *            Field to validate
+	 * @param pageToken
+	 *            Field to validate
+	 * @return Position the page starts after, or null for the first page.
+	 * @throws ValidationException
+	 *             Thrown if validation fails.
+	 */
+	private ReservationCursor validateReservationPage(int pageSize, String pageToken) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			validationException.addErrorMessage("The page size must be between 1 and " + MAX_PAGE_SIZE);
+		}
+
+		ReservationCursor after = null;
+		if (pageToken != null) {
+			try {
+				after = ReservationCursor.fromToken(pageToken);
+			} catch (IllegalArgumentException e) {
+				validationException.addErrorMessage("The page token provided is not valid");
+			}
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+		return after;
+	}
+
 	/**
 	 * Fails validation if the numberOfSeats < 1, or if the airplaneType is null
 	 * or empty String "".
@@ -400,7 +1232,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 
 		if (airportCode == null || airportCode.trim().equals("")) {
 			validationException.addErrorMessage("The airport code was not provided");
-		} else if (this.getDao().doesAirportExist(airportCode)) {
+		} else if (this.getReferenceDataCache().doesAirportExist(airportCode, this.getDao())) {
 			validationException.addErrorMessage("The airport code provided already exists");
 		}
 
@@ -445,13 +1277,15 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 
 			if (flight.getDepartureAirport() == null) {
 				validationException.addErrorMessage("No departing airport code was provided");
-			} else if (!this.getDao().doesAirportExist(flight.getDepartureAirport().getAirportCode())) {
+			} else if (!this.getReferenceDataCache().doesAirportExist(
+					flight.getDepartureAirport().getAirportCode(), this.getDao())) {
 				validationException.addErrorMessage("The provided departing airport code does not exist");
 			}
 
 			if (flight.getDestinationAirport() == null) {
 				validationException.addErrorMessage("No destination airport code was provided");
-			} else if (!this.getDao().doesAirportExist(flight.getDestinationAirport().getAirportCode())) {
+			} else if (!this.getReferenceDataCache().doesAirportExist(
+					flight.getDestinationAirport().getAirportCode(), this.getDao())) {
 				validationException.addErrorMessage("The provided destination airport code does not exist");
 			}
 
@@ -468,7 +1302,7 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 
 			if (flight.getAirplane().getId() < 0) {
 				validationException.addErrorMessage("The provided airplane Id is invalid.  The Id must be > 0");
-			} else if (!this.getDao().doesAirplaneExist(flight.getAirplane().getId())) {
+			} else if (!this.getReferenceDataCache().doesAirplaneExist(flight.getAirplane().getId(), this.getDao())) {
 				validationException.addErrorMessage("The provided airplane Id does not exist.");
 			}
 		}
@@ -478,18 +1312,201 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 		}
 	}
 
+	/**
+	 * Returns the cache the airports and airplanes are served from. Unless one
+	 * is set with setReferenceDataCache(), the cache shared by the JVM is used.
+	 * 
+	 * @return Reference data cache to use.
+	 */
+	public ReferenceDataCache getReferenceDataCache() {
+		if (this.referenceDataCache == null) {
+			this.referenceDataCache = ReferenceDataCache.getInstance();
+		}
+		return this.referenceDataCache;
+	}
+
+	/**
+	 * Used to set the reference data cache.
+	 * 
+	 * @param referenceDataCache
+	 *            Cache to set.
+	 */
+	public void setReferenceDataCache(ReferenceDataCache referenceDataCache) {
+		this.referenceDataCache = referenceDataCache;
+	}
+
+	/**
+	 * Returns the cache search results are served from. Unless one is set with
+	 * setSearchResultCache(), the cache shared by the JVM is used.
+	 * 
+	 * @return Search result cache to use.
+	 */
+	public SearchResultCache getSearchResultCache() {
+		if (this.searchResultCache == null) {
+			this.searchResultCache = SearchResultCache.getInstance();
+		}
+		return this.searchResultCache;
+	}
+
+	/**
+	 * Used to set the search result cache.
+	 * 
+	 * @param searchResultCache
+	 *            Cache to set.
+	 */
+	public void setSearchResultCache(SearchResultCache searchResultCache) {
+		this.searchResultCache = searchResultCache;
+	}
+
+	/**
+	 * Returns the coalescer identical concurrent searches share their query
+	 * through. Unless one is set with setSearchCoalescer(), the coalescer
+	 * shared by the JVM is used.
+	 * 
+	 * @return Search coalescer to use.
+	 */
+	public SearchCoalescer getSearchCoalescer() {
+		if (this.searchCoalescer == null) {
+			this.searchCoalescer = SearchCoalescer.getInstance();
+		}
+		return this.searchCoalescer;
+	}
+
+	/**
+	 * Used to set the search coalescer.
+	 * 
+	 * @param searchCoalescer
+	 *            Coalescer to set.
+	 */
+	public void setSearchCoalescer(SearchCoalescer searchCoalescer) {
+		this.searchCoalescer = searchCoalescer;
+	}
+
+	/**
+	 * Returns the lock manager reservations lock their flight with. Unless one
+	 * is set with setFlightLockManager(), the lock manager shared by the JVM
+	 * is used.
+	 * 
+	 * @return Flight lock manager to use.
+	 */
+	public FlightLockManager getFlightLockManager() {
+		if (this.flightLockManager == null) {
+			this.flightLockManager = FlightLockManager.getInstance();
+		}
+		return this.flightLockManager;
+	}
+
+	/**
+	 * Used to set the flight lock manager.
+	 * 
+	 * @param flightLockManager
+	 *            Lock manager to set.
+	 */
+	public void setFlightLockManager(FlightLockManager flightLockManager) {
+		this.flightLockManager = flightLockManager;
+	}
+
+	/**
+	 * Returns the counters of the versioned updates. Unless they are set with
+	 * setOptimisticLockStatistics(), the counters shared by the JVM are used.
+	 * 
+	 * @return Statistics to record the versioned updates in.
+	 */
+	public OptimisticLockStatistics getOptimisticLockStatistics() {
+		if (this.optimisticLockStatistics == null) {
+			this.optimisticLockStatistics = OptimisticLockStatistics.getInstance();
+		}
+		return this.optimisticLockStatistics;
+	}
+
+	/**
+	 * Used to set the counters of the versioned updates.
+	 * 
+	 * @param optimisticLockStatistics
+	 *            Statistics to set.
+	 */
+	public void setOptimisticLockStatistics(OptimisticLockStatistics optimisticLockStatistics) {
+		this.optimisticLockStatistics = optimisticLockStatistics;
+	}
+
+	/**
+	 * Returns the index the customers are looked up in. Unless it is set with
+	 * setCustomerIndex(), the index shared by the JVM is used.
+	 * 
+	 * @return The customer index to use.
+	 */
+	public CustomerIndex getCustomerIndex() {
+		if (this.customerIndex == null) {
+			this.customerIndex = CustomerIndex.getInstance();
+		}
+		return this.customerIndex;
+	}
+
+	/**
+	 * Used to set the customer index.
+	 * 
+	 * @param customerIndex
+	 *            Index to set.
+	 */
+	public void setCustomerIndex(CustomerIndex customerIndex) {
+		this.customerIndex = customerIndex;
+	}
+
+	/**
+	 * Returns the relay whose statistics getOutboxStatus() reports. Unless it
+	 * is set with setOutboxRelay(), the relay shared by the JVM is used.
+	 * 
+	 * @return The outbox relay to use.
+	 */
+	public OutboxRelay getOutboxRelay() {
+		if (this.outboxRelay == null) {
+			this.outboxRelay = OutboxRelay.getInstance();
+		}
+		return this.outboxRelay;
+	}
+
+	/**
+	 * Used to set the outbox relay.
+	 * 
+	 * @param outboxRelay
+	 *            Relay to set.
+	 */
+	public void setOutboxRelay(OutboxRelay outboxRelay) {
+		this.outboxRelay = outboxRelay;
+	}
+
+	public TransactionSynchronizationRegistry getTransactionSynchronizationRegistry() {
+		return this.transactionSynchronizationRegistry;
+	}
+
+	/**
+	 * Used to set the container's transaction registry, which is used to hold
+	 * back cache invalidations until the transaction has completed. Without
+	 * one, caches are invalidated right away.
+	 * 
+	 * @param transactionSynchronizationRegistry
+	 *            Registry to set.
+	 */
+	public void setTransactionSynchronizationRegistry(
+			TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+		this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+	}
+
 	/**
 	 * This method is used to get the correct DAO implementation. This method
 	 * makes this class loosely coupled in that someone could set a different
 	 * implementation of a DAO by calling the setDao() method. If no DAO is
 	 * explicitly set, then this method will instantiate a known implementation.
+	 * The DAO is created once and reused by every call; it holds nothing but
+	 * the EntityManager, which in the session beans is the container's proxy
+	 * to the persistence context of the current transaction.
 	 * 
 	 * @return DAO to use.
 	 */
 	public AirlineHeadquartersJpaDao getDao() {
-		// if (this.dao == null) {
-		this.dao = new AirlineHeadquartersJpaDao(this.entityManager);
-		// }
+		if (this.dao == null) {
+			this.dao = new AirlineHeadquartersJpaDao(this.entityManager);
+		}
 		return this.dao;
 	}
 
@@ -502,4 +1519,12 @@ public class AirlineHeadquartersServiceImpl implements AirlineHeadquartersServic
 	public void setDao(AirlineHeadquartersJpaDao dao) {
 		this.dao = dao;
 	}
+
+	/**
+	 * The stripes of the FlightLockManager held by a transaction, kept as a
+	 * resource of the transaction.
+	 */
+	private static class HeldStripes {
+		private final Set<Integer> stripes = new HashSet<Integer>();
+	}
 }
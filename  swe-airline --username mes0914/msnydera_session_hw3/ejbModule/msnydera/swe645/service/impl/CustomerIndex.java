@@ -0,0 +1,266 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.domain.Customer;
+import msnydera.swe645.exception.DataAccessException;
+
+/**
+ * In-memory prefix index of the customers, shared by every service instance
+ * in the JVM, so a customer can be looked up by the start of their name or
+ * phone number without reading the CUSTOMER table.
+ *
+ * Each customer is indexed under every word of their name (lower case) and
+ * under the digits of their phone number, in one sorted map; the keys that
+ * start with a prefix are a contiguous range of that map. Input of several
+ * words, such as "jane d", is looked up by its first word, and the customers
+ * in that range are kept if each of the other words starts a word of their
+ * name. The customers are
+ * loaded from the DAO the first time the index is used. The service adds a
+ * customer to the index once the transaction that created it commits, and
+ * customers created on another node are read in, by Id, when the index is
+ * more than REFRESH_MILLIS old. Customers are never changed or deleted.
+ */
+public class CustomerIndex {
+	// How long the index goes without checking for customers created on
+	// another node
+	public static final long REFRESH_MILLIS = 5000;
+
+	private static final CustomerIndex instance = new CustomerIndex();
+
+	// Customers by index key. Guarded by lock.
+	private final TreeMap<String, List<Customer>> customersByKey = new TreeMap<String, List<Customer>>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Ids of the customers in the index. Guarded by lock.
+	private final Set<Integer> customerIds = new HashSet<Integer>();
+
+	// Highest customer Id read from the DAO. Guarded by lock.
+	private int lastReadCustomerId = -1;
+	private volatile boolean loaded;
+	private volatile long refreshedAt;
+
+	private final AtomicLong lookupCount = new AtomicLong();
+	private final AtomicLong refreshCount = new AtomicLong();
+
+	/**
+	 * @return The index shared by the service instances in this JVM.
+	 */
+	public static CustomerIndex getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the customers that have a word of their name starting with each
+	 * word of the provided prefix, or whose phone number starts with it. Case
+	 * and the punctuation of phone numbers are ignored.
+	 *
+	 * @param prefix
+	 *            Start of a name, or of some of its words, or of a phone
+	 *            number.
+	 * @param maxResults
+	 *            Most customers to return.
+	 * @param dao
+	 *            DAO to load the customers with.
+	 * @return Matching customers, sorted by the key that matched, each one
+	 *         once.
+	 * @throws DataAccessException
+	 *             Thrown if the customers have to be read and the read fails.
+	 */
+	public Collection<Customer> find(String prefix, int maxResults, AirlineHeadquartersJpaDao dao)
+			throws DataAccessException {
+		refreshIfNeeded(dao);
+		this.lookupCount.incrementAndGet();
+
+		Map<Integer, Customer> found = new LinkedHashMap<Integer, Customer>();
+		this.lock.readLock().lock();
+		try {
+			addMatches(found, prefix.trim().toLowerCase().split("\\s+"), maxResults);
+
+			String digits = getDigits(prefix);
+			if (digits.length() > 0) {
+				addMatches(found, new String[] { digits }, maxResults);
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		return new ArrayList<Customer>(found.values());
+	}
+
+	/**
+	 * Adds a customer that was just committed. Nothing is done if the index
+	 * hasn't been loaded yet, since the load will read the customer.
+	 *
+	 * @param customer
+	 *            Customer to add.
+	 */
+	public void add(Customer customer) {
+		this.lock.writeLock().lock();
+		try {
+			if (this.loaded) {
+				index(customer);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public long getLookupCount() {
+		return this.lookupCount.get();
+	}
+
+	public long getRefreshCount() {
+		return this.refreshCount.get();
+	}
+
+	/**
+	 * @return Number of keys in the index.
+	 */
+	public int getKeyCount() {
+		this.lock.readLock().lock();
+		try {
+			return this.customersByKey.size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads the index the first time, and then reads the customers created
+	 * since the last refresh once every REFRESH_MILLIS.
+	 */
+	private void refreshIfNeeded(AirlineHeadquartersJpaDao dao) throws DataAccessException {
+		if (this.loaded && System.currentTimeMillis() - this.refreshedAt < REFRESH_MILLIS) {
+			return;
+		}
+
+		this.lock.writeLock().lock();
+		try {
+			long now = System.currentTimeMillis();
+			if (this.loaded && now - this.refreshedAt < REFRESH_MILLIS) {
+				return;
+			}
+
+			Collection<Customer> customers = this.loaded ? dao.getCustomersAfter(this.lastReadCustomerId) : dao
+					.getAllCustomers();
+			for (Customer customer : customers) {
+				index(customer);
+				this.lastReadCustomerId = Math.max(this.lastReadCustomerId, customer.getId());
+			}
+			this.loaded = true;
+			this.refreshedAt = now;
+			this.refreshCount.incrementAndGet();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a customer under each of its keys, unless it is already in the
+	 * index. The caller holds the write lock.
+	 */
+	private void index(Customer customer) {
+		if (!this.customerIds.add(Integer.valueOf(customer.getId()))) {
+			return;
+		}
+
+		for (String key : getNameKeys(customer)) {
+			getList(key).add(customer);
+		}
+		String digits = getDigits(customer.getPhone());
+		if (digits.length() > 0) {
+			getList(digits).add(customer);
+		}
+	}
+
+	private List<Customer> getList(String key) {
+		List<Customer> customers = this.customersByKey.get(key);
+		if (customers == null) {
+			customers = new ArrayList<Customer>(1);
+			this.customersByKey.put(key, customers);
+		}
+		return customers;
+	}
+
+	/**
+	 * Adds the customers under the keys that start with the first word, and
+	 * that have a name word starting with each of the other words, until there
+	 * are maxResults. The caller holds the read lock.
+	 */
+	private void addMatches(Map<Integer, Customer> found, String[] words, int maxResults) {
+		String prefix = words[0];
+		if (prefix.length() == 0) {
+			return;
+		}
+
+		SortedMap<String, List<Customer>> range = this.customersByKey.subMap(prefix, prefix + Character.MAX_VALUE);
+		for (List<Customer> customers : range.values()) {
+			for (Customer customer : customers) {
+				if (found.size() >= maxResults) {
+					return;
+				}
+				if (words.length == 1 || hasNameWords(customer, words)) {
+					found.put(Integer.valueOf(customer.getId()), customer);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return True if each word after the first starts a word of the
+	 *         customer's name.
+	 */
+	private static boolean hasNameWords(Customer customer, String[] words) {
+		String[] nameKeys = getNameKeys(customer);
+		for (int i = 1; i < words.length; i++) {
+			boolean matched = false;
+			for (String key : nameKeys) {
+				if (key.startsWith(words[i])) {
+					matched = true;
+					break;
+				}
+			}
+			if (!matched) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The words of the customer's name, in lower case. A customer
+	 *         without a name is indexed under the empty key.
+	 */
+	private static String[] getNameKeys(Customer customer) {
+		String name = customer.getName() == null ? "" : customer.getName().trim().toLowerCase();
+		return name.length() == 0 ? new String[] { "" } : name.split("\\s+");
+	}
+
+	private static String getDigits(String value) {
+		StringBuffer digits = new StringBuffer();
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				if (Character.isDigit(value.charAt(i))) {
+					digits.append(value.charAt(i));
+				}
+			}
+		}
+		return digits.toString();
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.Session;
+
+import msnydera.swe645.domain.FlightEvent;
+import msnydera.swe645.domain.OutboxEvent;
+
+/**
+ * Encodes the flight and seat events published on the Topic into the body of
+ * a BytesMessage, and decodes them for the subscribers. The publisher and
+ * both MDBs use this class, so the format is defined in one place.
+ *
+ * The body starts with a header of the schema version and the event type,
+ * followed by the fields of the event in a fixed order, without their names:
+ *
+ * <pre>
+ * byte   SCHEMA_VERSION
+ * byte   TYPE_FLIGHT_CREATED or TYPE_SEATS_CHANGED
+ * int    eventId
+ * int    flightId
+ * FlightCreated: UTF flightDate, UTF departureAirport, UTF destinationAirport,
+ *                int numSeats, double cost, int airplaneId
+ * SeatsChanged:  int availableSeats, int seatChange, int reservationId,
+ *                UTF reservationStatus
+ * </pre>
+ *
+ * Null strings are written as empty ones. A later version may only append
+ * fields, so a subscriber decodes the fields it knows and ignores the rest,
+ * and checks the version before reading a field added after version 1. A
+ * change that can't be made that way needs a new event type instead.
+ *
+ * The MapMessages posted by older publishers are still read, so subscribers
+ * can be deployed before the publisher.
+ */
+public class FlightEventCodec {
+	/**
+	 * Version of the format written by encode().
+	 */
+	public static final byte SCHEMA_VERSION = 1;
+
+	public static final byte TYPE_FLIGHT_CREATED = 1;
+	public static final byte TYPE_SEATS_CHANGED = 2;
+
+	// Large enough for most events, so the buffer isn't grown
+	private static final int INITIAL_BUFFER_SIZE = 64;
+
+	/**
+	 * Creates the BytesMessage of an event. Like every message on the Topic,
+	 * its type is the MESSAGE_TYPE property, and its event Id is the EVENT_ID
+	 * property.
+	 *
+	 * @param session
+	 *            Session to create the message with.
+	 * @param event
+	 *            Event to publish.
+	 * @return The message.
+	 * @throws JMSException
+	 *             Thrown if the message couldn't be created.
+	 */
+	public static BytesMessage createMessage(Session session, FlightEvent event) throws JMSException {
+		BytesMessage bytesMsg = session.createBytesMessage();
+		bytesMsg.setStringProperty(FlightTopicPublisher.MESSAGE_TYPE, event.getEventType());
+		bytesMsg.setIntProperty(FlightTopicPublisher.EVENT_ID, event.getEventId());
+		bytesMsg.writeBytes(encode(event));
+		return bytesMsg;
+	}
+
+	/**
+	 * Reads the event of a message received from the Topic.
+	 *
+	 * @param message
+	 *            A BytesMessage written by createMessage(), or a MapMessage
+	 *            posted by an older publisher.
+	 * @return The event.
+	 * @throws MessageFormatException
+	 *             Thrown if the message isn't a flight or seat event.
+	 * @throws JMSException
+	 *             Thrown if the message couldn't be read.
+	 */
+	public static FlightEvent read(Message message) throws JMSException {
+		if (message instanceof BytesMessage) {
+			BytesMessage bytesMsg = (BytesMessage) message;
+			byte[] body = new byte[(int) bytesMsg.getBodyLength()];
+			bytesMsg.readBytes(body);
+			return decode(body);
+		} else if (message instanceof MapMessage) {
+			return readMapMessage((MapMessage) message);
+		}
+		throw new MessageFormatException("Expected a BytesMessage or a MapMessage but got "
+				+ message.getClass().getName());
+	}
+
+	/**
+	 * @param event
+	 *            Event to encode, of type FLIGHT_CREATED or SEATS_CHANGED.
+	 * @return The body of the event's message.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the event is of another type.
+	 */
+	public static byte[] encode(FlightEvent event) throws IllegalArgumentException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+		DataOutputStream out = new DataOutputStream(buffer);
+		try {
+			out.writeByte(SCHEMA_VERSION);
+			if (OutboxEvent.FLIGHT_CREATED.equals(event.getEventType())) {
+				out.writeByte(TYPE_FLIGHT_CREATED);
+				out.writeInt(event.getEventId());
+				out.writeInt(event.getFlightId());
+				writeString(out, event.getFlightDate());
+				writeString(out, event.getDepartureAirport());
+				writeString(out, event.getDestinationAirport());
+				out.writeInt(event.getNumSeats());
+				out.writeDouble(event.getCost());
+				out.writeInt(event.getAirplaneId());
+			} else if (OutboxEvent.SEATS_CHANGED.equals(event.getEventType())) {
+				out.writeByte(TYPE_SEATS_CHANGED);
+				out.writeInt(event.getEventId());
+				out.writeInt(event.getFlightId());
+				out.writeInt(event.getAvailableSeats());
+				out.writeInt(event.getSeatChange());
+				out.writeInt(event.getReservationId());
+				writeString(out, event.getReservationStatus());
+			} else {
+				throw new IllegalArgumentException("Unknown event type: " + event.getEventType());
+			}
+			out.flush();
+		} catch (IOException e) {
+			// Can't happen, the buffer is in memory
+			throw new IllegalStateException(e);
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * @param body
+	 *            Body written by encode(), of this or a later version.
+	 * @return The event.
+	 * @throws MessageFormatException
+	 *             Thrown if the body isn't a known version or event type, or
+	 *             is cut short.
+	 */
+	public static FlightEvent decode(byte[] body) throws MessageFormatException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		try {
+			byte version = in.readByte();
+			if (version < 1) {
+				throw new MessageFormatException("Unknown schema version: " + version);
+			}
+
+			FlightEvent event = new FlightEvent();
+			byte type = in.readByte();
+			event.setEventId(in.readInt());
+			event.setFlightId(in.readInt());
+			if (type == TYPE_FLIGHT_CREATED) {
+				event.setEventType(OutboxEvent.FLIGHT_CREATED);
+				event.setFlightDate(in.readUTF());
+				event.setDepartureAirport(in.readUTF());
+				event.setDestinationAirport(in.readUTF());
+				event.setNumSeats(in.readInt());
+				event.setCost(in.readDouble());
+				event.setAirplaneId(in.readInt());
+			} else if (type == TYPE_SEATS_CHANGED) {
+				event.setEventType(OutboxEvent.SEATS_CHANGED);
+				event.setAvailableSeats(in.readInt());
+				event.setSeatChange(in.readInt());
+				event.setReservationId(in.readInt());
+				event.setReservationStatus(in.readUTF());
+			} else {
+				throw new MessageFormatException("Unknown event type: " + type);
+			}
+			return event;
+		} catch (IOException e) {
+			throw new MessageFormatException("The event is cut short: " + e);
+		}
+	}
+
+	/**
+	 * Reads a MapMessage posted by an older publisher, which put the fields
+	 * of the event in the map. Messages without a type are flights created.
+	 */
+	private static FlightEvent readMapMessage(MapMessage mapMsg) throws JMSException {
+		FlightEvent event = new FlightEvent();
+		String eventType = mapMsg.getStringProperty(FlightTopicPublisher.MESSAGE_TYPE);
+		event.setEventType(eventType == null ? OutboxEvent.FLIGHT_CREATED : eventType);
+		if (mapMsg.propertyExists(FlightTopicPublisher.EVENT_ID)) {
+			event.setEventId(mapMsg.getIntProperty(FlightTopicPublisher.EVENT_ID));
+		}
+		event.setFlightId(mapMsg.getInt("flightId"));
+
+		if (OutboxEvent.FLIGHT_CREATED.equals(event.getEventType())) {
+			event.setFlightDate(mapMsg.getString("flightDate"));
+			event.setDepartureAirport(mapMsg.getString("departureAirport"));
+			event.setDestinationAirport(mapMsg.getString("destinationAirport"));
+			event.setNumSeats(mapMsg.getInt("numSeats"));
+			event.setCost(mapMsg.getDouble("cost"));
+			event.setAirplaneId(mapMsg.getInt("airplaneId"));
+		} else if (OutboxEvent.SEATS_CHANGED.equals(event.getEventType())) {
+			event.setAvailableSeats(mapMsg.getInt("availableSeats"));
+			event.setSeatChange(mapMsg.getInt("seatChange"));
+			event.setReservationId(mapMsg.getInt("reservationId"));
+			event.setReservationStatus(mapMsg.getString("reservationStatus"));
+		} else {
+			throw new MessageFormatException("Unknown event type: " + event.getEventType());
+		}
+		return event;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeUTF(value == null ? "" : value);
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import msnydera.swe645.exception.DataAccessException;
+
+/**
+ * Striped locks keyed on flight Id. Each flight maps to one of a fixed number
+ * of stripes, and changes to a flight's seats are made while holding its
+ * stripe, so changes to the same flight run one at a time while changes to
+ * flights on different stripes run in parallel. Two flights can share a
+ * stripe; with enough stripes that is rare. Schedule expansions take the
+ * stripe of a hash of their route the same way.
+ *
+ * A stripe is a one permit Semaphore rather than a ReentrantLock, so the
+ * container thread that completes a transaction can release the stripe the
+ * transaction took. A stripe is not reentrant: take it once per transaction.
+ * A caller that waits longer than the timeout gets a DataAccessException, so
+ * two transactions that take the same two stripes in opposite order fail
+ * instead of waiting on each other forever.
+ *
+ * Each stripe counts how often it was taken, how often the caller had to
+ * wait for it, and for how long.
+ */
+public class FlightLockManager {
+	// Number of stripes of the shared lock manager
+	public static final int DEFAULT_STRIPE_COUNT = 64;
+
+	// How long the shared lock manager waits for a stripe
+	public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+	private static final FlightLockManager instance = new FlightLockManager(DEFAULT_STRIPE_COUNT,
+			DEFAULT_TIMEOUT_MILLIS);
+
+	private final Semaphore[] stripes;
+	private final long timeoutMillis;
+
+	private final AtomicLongArray acquisitionCounts;
+	private final AtomicLongArray contendedCounts;
+	private final AtomicLongArray waitNanos;
+	private final AtomicLongArray timeoutCounts;
+
+	/**
+	 * Creates a lock manager.
+	 *
+	 * @param stripeCount
+	 *            Number of stripes, rounded up to a power of two.
+	 * @param timeoutMillis
+	 *            How long to wait for a stripe, in milliseconds.
+	 */
+	public FlightLockManager(int stripeCount, long timeoutMillis) {
+		int size = 1;
+		while (size < stripeCount) {
+			size <<= 1;
+		}
+
+		this.stripes = new Semaphore[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new Semaphore(1);
+		}
+		this.timeoutMillis = timeoutMillis;
+
+		this.acquisitionCounts = new AtomicLongArray(size);
+		this.contendedCounts = new AtomicLongArray(size);
+		this.waitNanos = new AtomicLongArray(size);
+		this.timeoutCounts = new AtomicLongArray(size);
+	}
+
+	/**
+	 * @return The lock manager shared by the service instances in this JVM.
+	 */
+	public static FlightLockManager getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param flightId
+	 *            Id of the flight.
+	 * @return Stripe that guards the flight.
+	 */
+	public int getStripe(int flightId) {
+		// Flight Ids are sequential; spread them so neighbours don't cluster
+		int hash = flightId * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (this.stripes.length - 1);
+	}
+
+	/**
+	 * Takes a stripe, waiting for it if another caller holds it.
+	 *
+	 * @param stripe
+	 *            Stripe returned by getStripe().
+	 * @throws DataAccessException
+	 *             Thrown if the stripe wasn't free within the timeout, or the
+	 *             thread was interrupted while waiting.
+	 */
+	public void lock(int stripe) throws DataAccessException {
+		Semaphore semaphore = this.stripes[stripe];
+		this.acquisitionCounts.incrementAndGet(stripe);
+		if (semaphore.tryAcquire()) {
+			return;
+		}
+
+		this.contendedCounts.incrementAndGet(stripe);
+		long start = System.nanoTime();
+		try {
+			boolean acquired = semaphore.tryAcquire(this.timeoutMillis, TimeUnit.MILLISECONDS);
+			this.waitNanos.addAndGet(stripe, System.nanoTime() - start);
+			if (!acquired) {
+				this.timeoutCounts.incrementAndGet(stripe);
+				throw new DataAccessException("Timed out waiting for the flight lock, please try again");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessException("Interrupted while waiting for the flight lock", e);
+		}
+	}
+
+	/**
+	 * Releases a stripe taken with lock().
+	 *
+	 * @param stripe
+	 *            Stripe to release.
+	 */
+	public void unlock(int stripe) {
+		this.stripes[stripe].release();
+	}
+
+	public int getStripeCount() {
+		return this.stripes.length;
+	}
+
+	public long getAcquisitionCount(int stripe) {
+		return this.acquisitionCounts.get(stripe);
+	}
+
+	/**
+	 * @param stripe
+	 *            Stripe to look at.
+	 * @return How many times a caller had to wait for the stripe.
+	 */
+	public long getContendedCount(int stripe) {
+		return this.contendedCounts.get(stripe);
+	}
+
+	/**
+	 * @param stripe
+	 *            Stripe to look at.
+	 * @return Total time callers waited for the stripe, in nanoseconds.
+	 */
+	public long getWaitNanos(int stripe) {
+		return this.waitNanos.get(stripe);
+	}
+
+	public long getTimeoutCount(int stripe) {
+		return this.timeoutCounts.get(stripe);
+	}
+
+	/**
+	 * @return One line summary of the counters over all stripes, and the most
+	 *         contended stripe, for logging.
+	 */
+	public String getStatistics() {
+		long acquisitions = 0;
+		long contended = 0;
+		long waited = 0;
+		long timeouts = 0;
+		int hottest = 0;
+		for (int i = 0; i < this.stripes.length; i++) {
+			acquisitions += getAcquisitionCount(i);
+			contended += getContendedCount(i);
+			waited += getWaitNanos(i);
+			timeouts += getTimeoutCount(i);
+			if (getContendedCount(i) > getContendedCount(hottest)) {
+				hottest = i;
+			}
+		}
+
+		return "stripes=" + this.stripes.length + ", acquisitions=" + acquisitions + ", contended=" + contended
+				+ ", contentionRatio=" + (acquisitions == 0 ? 0.0 : (double) contended / acquisitions)
+				+ ", averageWaitMicros=" + (contended == 0 ? 0 : waited / contended / 1000) + ", timeouts="
+				+ timeouts + ", hottestStripe=" + hottest + " (contended=" + getContendedCount(hottest) + ")";
+	}
+}
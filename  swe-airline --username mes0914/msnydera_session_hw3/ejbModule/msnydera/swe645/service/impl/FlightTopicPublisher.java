@@ -0,0 +1,404 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import msnydera.swe645.domain.OutboxEvent;
+
+/**
+ * Publishes the headquarters messages on the Topic, shared by the session
+ * beans in the JVM: the flight and seat events relayed from the outbox, and
+ * the reference data messages. Instead of opening a connection,
+ * session and producer per message, it keeps one connection open and a pool
+ * of up to poolSize sessions, each with its producer. A JMS connection may be
+ * used by many threads, but a session may not, so every publish borrows a
+ * session of its own and returns it when it is done; when all of them are in
+ * use, a publish waits up to BORROW_TIMEOUT_MILLIS for one.
+ *
+ * The sessions are transacted, so a batch of events is sent with one commit
+ * every MAX_BATCH_SIZE messages, rather than one round trip to the server per
+ * message. When a send fails, the connection is closed and its sessions are
+ * dropped, so the next publish opens a new connection; the messages of the
+ * batch that weren't committed yet are not sent.
+ *
+ * The publisher counts the messages and batches it sent, the failures, the
+ * connections it opened, and the time spent publishing.
+ */
+public class FlightTopicPublisher {
+	// Sessions kept by the shared publisher
+	public static final int DEFAULT_POOL_SIZE = 8;
+
+	// Most messages sent by publishEvents() before the session is committed
+	public static final int MAX_BATCH_SIZE = 100;
+
+	// How long a publish waits for a free session
+	public static final long BORROW_TIMEOUT_MILLIS = 30000;
+
+	/**
+	 * String property set on every message posted to the Topic, so
+	 * subscribers can select the messages they are interested in.
+	 */
+	public static final String MESSAGE_TYPE = "messageType";
+
+	/**
+	 * Message type of the BytesMessage posted when a flight is created.
+	 */
+	public static final String FLIGHT_CREATED = OutboxEvent.FLIGHT_CREATED;
+
+	/**
+	 * Message type of the BytesMessage posted when a reservation is created or
+	 * canceled.
+	 */
+	public static final String SEATS_CHANGED = OutboxEvent.SEATS_CHANGED;
+
+	/**
+	 * Int property holding the Id of the outbox event a message was published
+	 * for. An event may be published more than once, so subscribers that must
+	 * not handle it twice can use the Id to skip it.
+	 */
+	public static final String EVENT_ID = "eventId";
+
+	/**
+	 * Message type of the message posted when an airport or airplane is
+	 * created.
+	 */
+	public static final String REFERENCE_DATA_CHANGED = "ReferenceDataChanged";
+
+	private static FlightTopicPublisher instance;
+
+	private final ConnectionFactory connectionFactory;
+	private final Topic topic;
+
+	// Sessions that aren't in use
+	private final BlockingQueue<Channel> idleChannels = new LinkedBlockingQueue<Channel>();
+
+	// One permit per session that may be in use
+	private final Semaphore permits;
+
+	// Guarded by this
+	private Connection connection;
+
+	private final AtomicLong messageCount = new AtomicLong();
+	private final AtomicLong batchCount = new AtomicLong();
+	private final AtomicLong publishCount = new AtomicLong();
+	private final AtomicLong publishNanos = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+	private final AtomicLong connectionCount = new AtomicLong();
+
+	/**
+	 * Creates a publisher.
+	 *
+	 * @param connectionFactory
+	 *            Factory of the connection to the JMS server.
+	 * @param topic
+	 *            Topic to publish on.
+	 * @param poolSize
+	 *            Most sessions open at once.
+	 */
+	public FlightTopicPublisher(ConnectionFactory connectionFactory, Topic topic, int poolSize) {
+		this.connectionFactory = connectionFactory;
+		this.topic = topic;
+		this.permits = new Semaphore(poolSize, true);
+	}
+
+	/**
+	 * Returns the publisher shared by the session beans in this JVM, creating
+	 * it with the first bean's ConnectionFactory and Topic.
+	 *
+	 * @param connectionFactory
+	 *            Factory of the connection to the JMS server.
+	 * @param topic
+	 *            Topic to publish on.
+	 * @return The shared publisher.
+	 */
+	public static synchronized FlightTopicPublisher getInstance(ConnectionFactory connectionFactory, Topic topic) {
+		if (instance == null) {
+			instance = new FlightTopicPublisher(connectionFactory, topic, DEFAULT_POOL_SIZE);
+		}
+		return instance;
+	}
+
+	/**
+	 * Publishes a message for each of the outbox events, in order, over one
+	 * session, committing every MAX_BATCH_SIZE messages.
+	 *
+	 * @param events
+	 *            Events to publish.
+	 * @throws JMSException
+	 *             Thrown if a message couldn't be sent. The messages committed
+	 *             before the failure were sent, the others weren't.
+	 */
+	public void publishEvents(List<OutboxEvent> events) throws JMSException {
+		if (events.isEmpty()) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		Channel channel = this.borrow();
+		boolean failed = true;
+		try {
+			int pending = 0;
+			for (OutboxEvent event : events) {
+				channel.producer.send(createEventMessage(channel.session, event));
+				if (++pending == MAX_BATCH_SIZE) {
+					this.commit(channel);
+					pending = 0;
+				}
+			}
+			if (pending > 0) {
+				this.commit(channel);
+			}
+			failed = false;
+		} finally {
+			this.release(channel, failed);
+		}
+		this.recordPublish(events.size(), start);
+	}
+
+	/**
+	 * Publishes a REFERENCE_DATA_CHANGED message.
+	 *
+	 * @throws JMSException
+	 *             Thrown if the message couldn't be sent.
+	 */
+	public void publishReferenceDataChanged() throws JMSException {
+		long start = System.nanoTime();
+		Channel channel = this.borrow();
+		boolean failed = true;
+		try {
+			Message message = channel.session.createMessage();
+			message.setStringProperty(MESSAGE_TYPE, REFERENCE_DATA_CHANGED);
+
+			channel.producer.send(message);
+			this.commit(channel);
+			failed = false;
+		} finally {
+			this.release(channel, failed);
+		}
+		this.recordPublish(1, start);
+	}
+
+	/**
+	 * Closes the connection and the idle sessions. Sessions in use are closed
+	 * when they are returned.
+	 */
+	public void close() {
+		Connection connection;
+		synchronized (this) {
+			connection = this.connection;
+			this.connection = null;
+		}
+		if (connection != null) {
+			closeQuietly(connection);
+		}
+		this.idleChannels.clear();
+	}
+
+	public long getMessageCount() {
+		return this.messageCount.get();
+	}
+
+	public long getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	public long getFailureCount() {
+		return this.failureCount.get();
+	}
+
+	public long getConnectionCount() {
+		return this.connectionCount.get();
+	}
+
+	/**
+	 * @return Average time of a successful publish call, in microseconds.
+	 */
+	public long getAverageLatencyMicros() {
+		long publishes = this.publishCount.get();
+		return publishes == 0 ? 0 : this.publishNanos.get() / publishes / 1000;
+	}
+
+	/**
+	 * @return Messages sent per second of time spent publishing.
+	 */
+	public long getMessagesPerSecond() {
+		long nanos = this.publishNanos.get();
+		return nanos == 0 ? 0 : getMessageCount() * 1000000000L / nanos;
+	}
+
+	/**
+	 * @return One line summary of the counters, for logging.
+	 */
+	public String getStatistics() {
+		return "messages=" + getMessageCount() + ", batches=" + getBatchCount() + ", averageLatencyMicros="
+				+ getAverageLatencyMicros() + ", messagesPerSecond=" + getMessagesPerSecond() + ", failures="
+				+ getFailureCount() + ", connections=" + getConnectionCount();
+	}
+
+	/**
+	 * Builds the BytesMessage of an outbox event, encoded by the
+	 * FlightEventCodec.
+	 */
+	private static Message createEventMessage(Session session, OutboxEvent event) throws JMSException {
+		return FlightEventCodec.createMessage(session, event.toFlightEvent());
+	}
+
+	private void commit(Channel channel) throws JMSException {
+		channel.session.commit();
+		this.batchCount.incrementAndGet();
+	}
+
+	private void recordPublish(int messages, long start) {
+		this.publishNanos.addAndGet(System.nanoTime() - start);
+		this.publishCount.incrementAndGet();
+		this.messageCount.addAndGet(messages);
+	}
+
+	/**
+	 * Takes an idle session of the current connection, or opens one if there
+	 * is none, waiting while poolSize sessions are in use.
+	 */
+	private Channel borrow() throws JMSException {
+		try {
+			if (!this.permits.tryAcquire(BORROW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				throw new JMSException("Timed out waiting for a JMS session to publish on");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new JMSException("Interrupted while waiting for a JMS session to publish on");
+		}
+
+		try {
+			Channel channel = this.idleChannels.poll();
+			while (channel != null && !this.isCurrent(channel.connection)) {
+				// Its connection was closed after a failure
+				channel = this.idleChannels.poll();
+			}
+			if (channel == null) {
+				channel = this.createChannel();
+			}
+			return channel;
+		} catch (JMSException e) {
+			this.permits.release();
+			this.failureCount.incrementAndGet();
+			throw e;
+		} catch (RuntimeException e) {
+			this.permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a session to the pool, or, if publishing on it failed, closes
+	 * its connection so every session of that connection is dropped.
+	 */
+	private void release(Channel channel, boolean failed) {
+		if (failed) {
+			this.failureCount.incrementAndGet();
+			this.closeConnection(channel.connection);
+		} else if (this.isCurrent(channel.connection)) {
+			this.idleChannels.offer(channel);
+		} else {
+			closeQuietly(channel.session);
+		}
+		this.permits.release();
+	}
+
+	private Channel createChannel() throws JMSException {
+		Connection connection = this.getConnection();
+		try {
+			Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+			MessageProducer producer = session.createProducer(this.topic);
+			return new Channel(connection, session, producer);
+		} catch (JMSException e) {
+			this.closeConnection(connection);
+			throw e;
+		}
+	}
+
+	private synchronized Connection getConnection() throws JMSException {
+		if (this.connection == null) {
+			final Connection connection = this.connectionFactory.createConnection();
+			try {
+				connection.setExceptionListener(new ExceptionListener() {
+					public void onException(JMSException e) {
+						closeConnection(connection);
+					}
+				});
+			} catch (JMSException e) {
+				// Not allowed by some containers; a failed send closes the
+				// connection instead
+			} catch (IllegalStateException e) {
+				// Same as above
+			}
+			this.connection = connection;
+			this.connectionCount.incrementAndGet();
+		}
+		return this.connection;
+	}
+
+	private synchronized boolean isCurrent(Connection connection) {
+		return this.connection == connection;
+	}
+
+	/**
+	 * Closes the connection if it is still the current one; the next publish
+	 * opens a new one.
+	 */
+	private void closeConnection(Connection connection) {
+		synchronized (this) {
+			if (this.connection != connection) {
+				return;
+			}
+			this.connection = null;
+		}
+		closeQuietly(connection);
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (JMSException e) {
+			// Intentially do nothing
+		}
+	}
+
+	private static void closeQuietly(Session session) {
+		try {
+			session.close();
+		} catch (JMSException e) {
+			// Intentially do nothing
+		}
+	}
+
+	/**
+	 * A session of the connection, with its producer for the Topic.
+	 */
+	private static class Channel {
+		private final Connection connection;
+		private final Session session;
+		private final MessageProducer producer;
+
+		private Channel(Connection connection, Session session, MessageProducer producer) {
+			this.connection = connection;
+			this.session = session;
+			this.producer = producer;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the versioned updates of flights and reservations: how many were
+ * made, how many found that another transaction had changed the row first
+ * (a conflict), how many of those were retried, and how many gave up after
+ * the last attempt.
+ */
+public class OptimisticLockStatistics {
+	private static final OptimisticLockStatistics instance = new OptimisticLockStatistics();
+
+	private final AtomicLong updateCount = new AtomicLong();
+	private final AtomicLong conflictCount = new AtomicLong();
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/**
+	 * @return The statistics shared by the service instances in this JVM.
+	 */
+	public static OptimisticLockStatistics getInstance() {
+		return instance;
+	}
+
+	public void recordUpdate() {
+		this.updateCount.incrementAndGet();
+	}
+
+	public void recordConflict() {
+		this.conflictCount.incrementAndGet();
+	}
+
+	public void recordRetry() {
+		this.retryCount.incrementAndGet();
+	}
+
+	public void recordFailure() {
+		this.failureCount.incrementAndGet();
+	}
+
+	public long getUpdateCount() {
+		return this.updateCount.get();
+	}
+
+	public long getConflictCount() {
+		return this.conflictCount.get();
+	}
+
+	public long getRetryCount() {
+		return this.retryCount.get();
+	}
+
+	public long getFailureCount() {
+		return this.failureCount.get();
+	}
+
+	/**
+	 * @return The fraction of versioned updates that found a conflict, between
+	 *         0 and 1.
+	 */
+	public double getConflictRate() {
+		long updates = getUpdateCount();
+		return updates == 0 ? 0.0 : (double) getConflictCount() / updates;
+	}
+
+	/**
+	 * @return One line summary of the counters, for logging.
+	 */
+	public String getStatistics() {
+		return "updates=" + getUpdateCount() + ", conflicts=" + getConflictCount() + ", retries=" + getRetryCount()
+				+ ", failures=" + getFailureCount() + ", conflictRate=" + getConflictRate();
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.jms.JMSException;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.domain.OutboxEvent;
+import msnydera.swe645.domain.OutboxStatus;
+import msnydera.swe645.exception.DataAccessException;
+
+/**
+ * Moves the events from the outbox to the Topic, shared by every relay bean
+ * in the JVM. Each batch reads the oldest BATCH_SIZE events, publishes them
+ * with one JMS commit, and deletes them; the caller runs each batch in its
+ * own database transaction. If publishing fails, nothing is deleted and the
+ * events are published by a later batch; if the delete doesn't commit after
+ * the events were published, they are published again. Delivery is therefore
+ * at least once, and subscribers can use the event Id to skip duplicates.
+ *
+ * The events are published in Id order. Two events on the same flight can't
+ * be written by transactions running at the same time, since reservations
+ * hold the flight's stripe of the FlightLockManager until they commit, so the
+ * events of a flight are published in the order they were made. Only one
+ * relay run at a time is allowed in a JVM; when more than one node relays
+ * the same outbox, an event may be published by each of them.
+ *
+ * The database (HSQLDB 1.8) only runs READ UNCOMMITTED, so the relay can read
+ * events whose transaction hasn't committed yet, and may still roll back. The
+ * service therefore writes events between beginWrite() and endWrite(), which
+ * record their Ids, and calls completeWrite() once their transaction has
+ * completed. A batch only takes the events before the first one whose
+ * transaction is still open; the rest wait for a later batch, so an event is
+ * only published once it is committed, still in Id order. The Ids are kept in
+ * memory, so this only covers the transactions of this JVM: when more than
+ * one node writes to the same outbox, a node can publish an event another
+ * node hasn't committed yet.
+ *
+ * The relay counts the events and batches it published and the batches that
+ * failed, and keeps the lag (time from writing to publishing) of the events.
+ */
+public class OutboxRelay {
+	// Most events in one batch: all of them are sent with one JMS commit
+	public static final int BATCH_SIZE = FlightTopicPublisher.MAX_BATCH_SIZE;
+
+	// Lag over which a warning is logged
+	public static final long LAG_WARNING_MILLIS = 60000;
+
+	private static final OutboxRelay instance = new OutboxRelay();
+
+	// Held while a relay run is going on
+	private final Lock runLock = new ReentrantLock();
+
+	// Shared by the writers while they insert events, taken by a batch while
+	// it reads them, so every event a batch reads is either in
+	// uncommittedEventIds or was written by a transaction that has completed
+	private final ReadWriteLock writeGate = new ReentrantReadWriteLock();
+
+	// Ids of the events whose transaction hasn't completed; guarded by itself
+	private final Set<Integer> uncommittedEventIds = new HashSet<Integer>();
+
+	private volatile boolean started;
+
+	private final AtomicLong relayedEventCount = new AtomicLong();
+	private final AtomicLong batchCount = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+
+	// Guarded by this
+	private long lastRelayedAt;
+	private long lastLagMillis;
+	private long maxLagMillis;
+
+	/**
+	 * @return The relay shared by the beans in this JVM.
+	 */
+	public static OutboxRelay getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Starts a relay run, unless one is already going on in this JVM.
+	 *
+	 * @return True if the run may go ahead; the caller must then call
+	 *         endRun() when it is done.
+	 */
+	public boolean tryStartRun() {
+		return this.runLock.tryLock();
+	}
+
+	public void endRun() {
+		this.runLock.unlock();
+	}
+
+	/**
+	 * Publishes and deletes the oldest BATCH_SIZE events of the outbox.
+	 *
+	 * @param dao
+	 *            DAO of the transaction the batch runs in.
+	 * @param publisher
+	 *            Publisher to send the events with.
+	 * @return Number of events relayed; less than BATCH_SIZE when the outbox
+	 *         is empty, or its next event isn't committed yet.
+	 * @throws JMSException
+	 *             Thrown if the events couldn't be published.
+	 * @throws DataAccessException
+	 *             Thrown if the events couldn't be read or deleted.
+	 */
+	public int relayBatch(AirlineHeadquartersJpaDao dao, FlightTopicPublisher publisher) throws JMSException,
+			DataAccessException {
+		List<OutboxEvent> events;
+		this.writeGate.writeLock().lock();
+		try {
+			events = this.getCommittedEvents(dao.getOutboxEvents(BATCH_SIZE));
+		} finally {
+			this.writeGate.writeLock().unlock();
+		}
+		if (events.isEmpty()) {
+			return 0;
+		}
+
+		List<Integer> eventIds = new ArrayList<Integer>(events.size());
+		for (OutboxEvent event : events) {
+			eventIds.add(Integer.valueOf(event.getId()));
+		}
+
+		try {
+			publisher.publishEvents(events);
+		} catch (JMSException e) {
+			this.failureCount.incrementAndGet();
+			throw e;
+		}
+		dao.deleteOutboxEvents(eventIds);
+
+		this.recordBatch(events);
+		return events.size();
+	}
+
+	/**
+	 * Called by a transaction before it writes events to the outbox. It must
+	 * call endWrite() once the events are written, or the write failed.
+	 */
+	public void beginWrite() {
+		this.writeGate.readLock().lock();
+	}
+
+	/**
+	 * Records the Ids of the events written since beginWrite(), so they aren't
+	 * relayed before completeWrite() is called with them.
+	 *
+	 * @param events
+	 *            Events that were written. An event the write failed on keeps
+	 *            Id 0, which only holds back the relay until completeWrite().
+	 * @return The Ids to hand to completeWrite().
+	 */
+	public List<Integer> endWrite(List<OutboxEvent> events) {
+		try {
+			List<Integer> eventIds = new ArrayList<Integer>(events.size());
+			for (OutboxEvent event : events) {
+				eventIds.add(Integer.valueOf(event.getId()));
+			}
+			synchronized (this.uncommittedEventIds) {
+				this.uncommittedEventIds.addAll(eventIds);
+			}
+			return eventIds;
+		} finally {
+			this.writeGate.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Called once the transaction that wrote the events has completed. If it
+	 * committed, the events can be relayed; if it rolled back, they are gone.
+	 *
+	 * @param eventIds
+	 *            Ids returned by endWrite().
+	 */
+	public void completeWrite(List<Integer> eventIds) {
+		synchronized (this.uncommittedEventIds) {
+			this.uncommittedEventIds.removeAll(eventIds);
+		}
+	}
+
+	/**
+	 * Records a failed batch that didn't fail while publishing, e.g. when its
+	 * transaction didn't commit.
+	 */
+	public void recordFailure() {
+		this.failureCount.incrementAndGet();
+	}
+
+	/**
+	 * @return True once a relay bean has scheduled the relay in this JVM.
+	 */
+	public boolean isStarted() {
+		return this.started;
+	}
+
+	public void setStarted(boolean started) {
+		this.started = started;
+	}
+
+	public long getRelayedEventCount() {
+		return this.relayedEventCount.get();
+	}
+
+	public long getBatchCount() {
+		return this.batchCount.get();
+	}
+
+	public long getFailureCount() {
+		return this.failureCount.get();
+	}
+
+	/**
+	 * Sets the counters of this relay on a status read from the outbox.
+	 *
+	 * @param status
+	 *            Status to complete.
+	 */
+	public synchronized void addStatistics(OutboxStatus status) {
+		status.setRelayedEventCount(getRelayedEventCount());
+		status.setFailureCount(getFailureCount());
+		status.setLastRelayedAt(this.lastRelayedAt == 0 ? null : new Date(this.lastRelayedAt));
+		status.setLastLagMillis(this.lastLagMillis);
+		status.setMaxLagMillis(this.maxLagMillis);
+	}
+
+	/**
+	 * Returns the events before the first one whose transaction hasn't
+	 * completed.
+	 */
+	private List<OutboxEvent> getCommittedEvents(List<OutboxEvent> events) {
+		synchronized (this.uncommittedEventIds) {
+			if (this.uncommittedEventIds.isEmpty()) {
+				return events;
+			}
+			for (int i = 0; i < events.size(); i++) {
+				if (this.uncommittedEventIds.contains(Integer.valueOf(events.get(i).getId()))) {
+					return events.subList(0, i);
+				}
+			}
+			return events;
+		}
+	}
+
+	private void recordBatch(List<OutboxEvent> events) {
+		long now = System.currentTimeMillis();
+		long oldestLag = now - events.get(0).getCreatedAt().getTime();
+		long newestLag = now - events.get(events.size() - 1).getCreatedAt().getTime();
+
+		this.relayedEventCount.addAndGet(events.size());
+		this.batchCount.incrementAndGet();
+		synchronized (this) {
+			this.lastRelayedAt = now;
+			this.lastLagMillis = newestLag;
+			this.maxLagMillis = Math.max(this.maxLagMillis, oldestLag);
+		}
+
+		if (oldestLag > LAG_WARNING_MILLIS) {
+			System.out.println("** " + getClass().getSimpleName() + ": Outbox event #" + events.get(0).getId()
+					+ " was published " + oldestLag + " ms after it was written");
+		}
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.SearchFilters;
+import msnydera.swe645.exception.DataAccessException;
+
+/**
+ * Lets identical searches that run at the same time share one database query.
+ * The first caller for a set of SearchFilters runs the query; callers with
+ * equal SearchFilters that arrive while it is running wait for it and get a
+ * copy of its result instead of running their own query. Once the query is
+ * done, the next caller starts a new one.
+ *
+ * A caller only joins a query that started at the same version of the
+ * SearchResultCache. A caller that arrives after a write has invalidated the
+ * cache runs its own query, so it sees the write instead of the result of a
+ * query that may have read the data from before it.
+ */
+public class SearchCoalescer {
+	private static final SearchCoalescer instance = new SearchCoalescer();
+
+	// Searches that are running, by their filters and cache version
+	private final ConcurrentMap<SearchKey, FutureTask<Collection<Flight>>> inFlight =
+			new ConcurrentHashMap<SearchKey, FutureTask<Collection<Flight>>>();
+
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong queryCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * @return The coalescer shared by the service instances in this JVM.
+	 */
+	public static SearchCoalescer getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Runs the query for the provided filters, or waits for the identical
+	 * query that is already running.
+	 * 
+	 * @param searchFilters
+	 *            Filters of the search. They must not be changed while the
+	 *            search runs.
+	 * @param version
+	 *            Version of the SearchResultCache, read before calling this
+	 *            method. The query must hand the same version to put().
+	 * @param query
+	 *            Query to run if no identical search is running.
+	 * @return Flights the query found.
+	 * @throws DataAccessException
+	 *             Thrown if the query fails. Every caller waiting on the
+	 *             query gets the exception.
+	 */
+	public Collection<Flight> search(SearchFilters searchFilters, long version, Callable<Collection<Flight>> query)
+			throws DataAccessException {
+		this.requestCount.incrementAndGet();
+
+		SearchKey key = new SearchKey(searchFilters, version);
+		FutureTask<Collection<Flight>> task = new FutureTask<Collection<Flight>>(query);
+		FutureTask<Collection<Flight>> running = this.inFlight.putIfAbsent(key, task);
+
+		if (running != null) {
+			this.coalescedCount.incrementAndGet();
+			Collection<Flight> flights = getResult(running);
+			return flights == null ? null : new ArrayList<Flight>(flights);
+		}
+
+		this.queryCount.incrementAndGet();
+		try {
+			task.run();
+		} finally {
+			this.inFlight.remove(key, task);
+		}
+		return getResult(task);
+	}
+
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+
+	public long getQueryCount() {
+		return this.queryCount.get();
+	}
+
+	public long getCoalescedCount() {
+		return this.coalescedCount.get();
+	}
+
+	/**
+	 * @return The fraction of searches that shared another search's query,
+	 *         between 0 and 1.
+	 */
+	public double getCoalescingRatio() {
+		long requests = getRequestCount();
+		return requests == 0 ? 0.0 : (double) getCoalescedCount() / requests;
+	}
+
+	/**
+	 * @return One line summary of the counters, for logging.
+	 */
+	public String getStatistics() {
+		return "requests=" + getRequestCount() + ", queries=" + getQueryCount() + ", coalesced="
+				+ getCoalescedCount() + ", coalescingRatio=" + getCoalescingRatio();
+	}
+
+	private Collection<Flight> getResult(FutureTask<Collection<Flight>> task) throws DataAccessException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessException("Interrupted while waiting for the search to finish", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof DataAccessException) {
+				throw (DataAccessException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new DataAccessException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Filters of a running search and the cache version it started at.
+	 */
+	private static class SearchKey {
+		private final SearchFilters searchFilters;
+		private final long version;
+
+		private SearchKey(SearchFilters searchFilters, long version) {
+			this.searchFilters = searchFilters;
+			this.version = version;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey other = (SearchKey) obj;
+			return this.version == other.version && this.searchFilters.equals(other.searchFilters);
+		}
+
+		public int hashCode() {
+			return 31 * this.searchFilters.hashCode() + (int) (this.version ^ (this.version >>> 32));
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.SearchFilters;
+import msnydera.swe645.util.DateUtil;
+
+/**
+ * Bounded cache of flight search results, keyed on the SearchFilters of the
+ * search. When the cache is full, the least recently used search is evicted.
+ * Entries also expire after a fixed time, which bounds how long a search
+ * without a date keeps showing flights that have departed, and how long
+ * changes made on another node go unseen.
+ * 
+ * Writes that change a flight must call invalidate() with the flight's route
+ * and date once they are committed. Every cached search that could contain
+ * that flight is dropped. A search that was running while an invalidation
+ * happened doesn't store its result, since it may have read the data from
+ * before the change:
+ * 
+ * <pre>
+ * long version = cache.getVersion();
+ * Collection&lt;Flight&gt; flights = dao.search(searchFilters);
+ * cache.put(searchFilters, flights, version);
+ * </pre>
+ */
+public class SearchResultCache {
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+	private static final long DEFAULT_TIME_TO_LIVE_MILLIS = 30000;
+
+	private static final SearchResultCache instance = new SearchResultCache(DEFAULT_MAX_ENTRIES,
+			DEFAULT_TIME_TO_LIVE_MILLIS);
+
+	private final int maxEntries;
+	private final long timeToLiveMillis;
+
+	// Access ordered, so the first entry is the least recently used one.
+	private final LinkedHashMap<SearchFilters, CachedResult> results;
+
+	// Incremented by every invalidation.
+	private long version;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+
+	/**
+	 * Creates a search result cache.
+	 * 
+	 * @param maxEntries
+	 *            Most searches to keep. 0 keeps none.
+	 * @param timeToLiveMillis
+	 *            How long a search result is kept, in milliseconds.
+	 */
+	public SearchResultCache(final int maxEntries, long timeToLiveMillis) {
+		this.maxEntries = maxEntries;
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.results = new LinkedHashMap<SearchFilters, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<SearchFilters, CachedResult> eldest) {
+				if (size() > maxEntries) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @return The cache shared by the service instances in this JVM.
+	 */
+	public static SearchResultCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the cached result of a search, or null if it isn't cached.
+	 * 
+	 * @param searchFilters
+	 *            Filters of the search.
+	 * @return A copy of the cached flights (empty if the search found none), or
+	 *         null if the search isn't cached.
+	 */
+	public synchronized Collection<Flight> get(SearchFilters searchFilters) {
+		CachedResult result = this.results.get(searchFilters);
+		if (result != null && result.expires <= System.currentTimeMillis()) {
+			this.results.remove(searchFilters);
+			result = null;
+		}
+
+		if (result == null) {
+			this.missCount.incrementAndGet();
+			return null;
+		}
+
+		this.hitCount.incrementAndGet();
+		return new ArrayList<Flight>(result.flights);
+	}
+
+	/**
+	 * Returns the current version of the cache. Read it before running a
+	 * search and hand it to put().
+	 * 
+	 * @return Number of invalidations so far.
+	 */
+	public synchronized long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Caches the result of a search, unless the cache was invalidated after
+	 * the provided version was read.
+	 * 
+	 * @param searchFilters
+	 *            Filters of the search.
+	 * @param flights
+	 *            Flights the search found, null or empty if there were none.
+	 * @param version
+	 *            Version of the cache from before the search ran.
+	 */
+	public synchronized void put(SearchFilters searchFilters, Collection<Flight> flights, long version) {
+		if (this.maxEntries <= 0 || version != this.version) {
+			return;
+		}
+
+		this.results.put(copy(searchFilters), new CachedResult(flights, System.currentTimeMillis()
+				+ this.timeToLiveMillis));
+	}
+
+	/**
+	 * Drops every cached search whose result could contain a flight with the
+	 * provided route and date.
+	 * 
+	 * @param departureAirportCode
+	 *            Departure airport of the flight that changed.
+	 * @param destinationAirportCode
+	 *            Destination airport of the flight that changed.
+	 * @param departureDate
+	 *            Departure date of the flight that changed.
+	 */
+	public synchronized void invalidate(String departureAirportCode, String destinationAirportCode,
+			Date departureDate) {
+		this.version++;
+		this.invalidationCount.incrementAndGet();
+
+		Date departureDay = DateUtil.getStartOfDay(departureDate);
+		for (Iterator<SearchFilters> i = this.results.keySet().iterator(); i.hasNext();) {
+			SearchFilters searchFilters = i.next();
+
+			if (matches(searchFilters.getDepartureLocation(), departureAirportCode)
+					&& matches(searchFilters.getDestinationLocation(), destinationAirportCode)
+					&& (searchFilters.getDateOfTrip() == null || departureDay.equals(DateUtil
+							.getStartOfDay(searchFilters.getDateOfTrip())))) {
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops every cached search.
+	 */
+	public synchronized void clear() {
+		this.version++;
+		this.invalidationCount.incrementAndGet();
+		this.results.clear();
+	}
+
+	public synchronized int size() {
+		return this.results.size();
+	}
+
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	public long getInvalidationCount() {
+		return this.invalidationCount.get();
+	}
+
+	/**
+	 * @return The fraction of searches served from the cache, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	/**
+	 * @return One line summary of the cache counters, for logging.
+	 */
+	public String getStatistics() {
+		return "size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", hitRate="
+				+ getHitRate() + ", evictions=" + getEvictionCount() + ", invalidations=" + getInvalidationCount();
+	}
+
+	/**
+	 * Returns true if a search on the provided airport code (null or empty for
+	 * any airport) could return a flight for the other code.
+	 */
+	private static boolean matches(String filterCode, String flightCode) {
+		return filterCode == null || filterCode.trim().equals("") || flightCode == null
+				|| filterCode.equalsIgnoreCase(flightCode);
+	}
+
+	/**
+	 * The caller keeps its SearchFilters and may change them later, so the
+	 * cache keys on its own copy.
+	 */
+	private static SearchFilters copy(SearchFilters searchFilters) {
+		SearchFilters copy = new SearchFilters();
+		copy.setDepartureLocation(searchFilters.getDepartureLocation());
+		copy.setDestinationLocation(searchFilters.getDestinationLocation());
+		if (searchFilters.getDateOfTrip() != null) {
+			copy.setDateOfTrip(new Date(searchFilters.getDateOfTrip().getTime()));
+		}
+		return copy;
+	}
+
+	/**
+	 * A search result and the time it expires.
+	 */
+	private static class CachedResult {
+		private final Collection<Flight> flights;
+		private final long expires;
+
+		private CachedResult(Collection<Flight> flights, long expires) {
+			this.flights = flights == null ? new ArrayList<Flight>() : new ArrayList<Flight>(flights);
+			this.expires = expires;
+		}
+	}
+}
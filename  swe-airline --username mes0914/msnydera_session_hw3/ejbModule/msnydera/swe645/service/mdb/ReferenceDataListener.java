@@ -0,0 +1,49 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.mdb;
+
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
+import msnydera.swe645.service.ejb.HeadquartersEjb;
+import msnydera.swe645.service.impl.ReferenceDataCache;
+
+/**
+ * Message-Driven Bean implementation class for: ReferenceDataListener.
+ *
+ * This MDB subscribes to the shared topic for the reference data messages
+ * HeadquartersEjb posts when an airport or airplane is created. Every node
+ * running this module has its own subscription, so each one drops its
+ * ReferenceDataCache and reloads it on the next request.
+ */
+@MessageDriven(
+	activationConfig = {
+		@ActivationConfigProperty(propertyName="destinationType", propertyValue="javax.jms.Topic"),
+		@ActivationConfigProperty(propertyName="destination", propertyValue="topic/MsnyderaTopic"),
+		@ActivationConfigProperty(propertyName="messageSelector",
+				propertyValue=HeadquartersEjb.MESSAGE_TYPE + " = '" + HeadquartersEjb.REFERENCE_DATA_CHANGED + "'")
+	})
+public class ReferenceDataListener implements MessageListener {
+
+	/**
+	 * Default constructor.
+	 */
+	public ReferenceDataListener() {
+	}
+
+	/**
+	 * @see MessageListener#onMessage(Message)
+	 *
+	 *      Invalidates the reference data cache of this node.
+	 */
+	public void onMessage(Message message) {
+		ReferenceDataCache cache = ReferenceDataCache.getInstance();
+		cache.invalidate();
+
+		System.out.println("** " + getClass().getSimpleName() + ": Reference data cache invalidated ("
+				+ cache.getStatistics() + ")");
+	}
+}
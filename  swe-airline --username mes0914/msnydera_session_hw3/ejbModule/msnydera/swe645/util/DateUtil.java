@@ -35,4 +35,24 @@ public class DateUtil {
 		}
 		return false;
 	}
+
+	/**
+	 * Returns midnight at the start of the day of the provided date, so dates
+	 * can be compared by day, month, and year only.
+	 * 
+	 * @param date
+	 *            Date to truncate.
+	 * @return Start of the day of the provided date.
+	 * @throws NullPointerException
+	 *             Thrown if the provided date is null.
+	 */
+	public static Date getStartOfDay(Date date) throws NullPointerException {
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(date);
+		cal.set(Calendar.HOUR_OF_DAY, 0);
+		cal.set(Calendar.MINUTE, 0);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		return cal.getTime();
+	}
 }
@@ -0,0 +1,235 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.dao;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import msnydera.swe645.domain.Airplane;
+import msnydera.swe645.domain.Airport;
+import msnydera.swe645.domain.Customer;
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
+import msnydera.swe645.domain.ReservationSummary;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that the reservation pages are read with one SQL statement however
+ * many reservations, flights and customers there are, instead of one more
+ * statement for each related row.
+ */
+public class AirlineHeadquartersJpaDaoStatementCountTest {
+	private static final int RESERVATION_COUNT = 20;
+
+	private static EntityManagerFactory entityManagerFactory;
+
+	private EntityManager entityManager;
+	private AirlineHeadquartersJpaDao dao;
+	private int firstReservationId;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		entityManagerFactory = Persistence.createEntityManagerFactory("msnyderaTest");
+		seed();
+	}
+
+	@AfterClass
+	public static void tearDownClass() throws Exception {
+		entityManagerFactory.close();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		this.entityManager = entityManagerFactory.createEntityManager();
+		this.dao = new AirlineHeadquartersJpaDao(this.entityManager);
+
+		this.firstReservationId = ((Number) this.entityManager.createQuery("select min(r.id) from Reservation r")
+				.getSingleResult()).intValue();
+		StatementCountingDriver.reset();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		this.entityManager.close();
+	}
+
+	@Test
+	public void testGetAllReservations_OneStatement() throws Exception {
+		Collection<Reservation> reservations = this.dao.getAllReservations();
+		Assert.assertEquals(RESERVATION_COUNT, reservations.size());
+
+		// Everything the page shows is loaded by the one query
+		for (Reservation reservation : reservations) {
+			Assert.assertNotNull(reservation.getCustomer().getName());
+			Assert.assertNotNull(reservation.getFlight().getDepartureAirport().getAirportCode());
+			Assert.assertNotNull(reservation.getFlight().getDestinationAirport().getAirportCode());
+			Assert.assertNotNull(reservation.getFlight().getAirplane().getType());
+		}
+		Assert.assertEquals(1, StatementCountingDriver.getStatementCount());
+	}
+
+	@Test
+	public void testGetReservationSummaries_OneStatement() throws Exception {
+		Collection<ReservationSummary> summaries = this.dao.getReservationSummaries();
+		Assert.assertEquals(RESERVATION_COUNT, summaries.size());
+
+		ReservationSummary summary = summaries.iterator().next();
+		Assert.assertEquals(this.firstReservationId, summary.getId());
+		Assert.assertEquals("Customer 0", summary.getCustomerName());
+		Assert.assertEquals("BWI", summary.getDepartureAirportCode());
+		Assert.assertEquals(200.0, summary.getTotalCost(), 0.001);
+
+		Assert.assertEquals(1, StatementCountingDriver.getStatementCount());
+	}
+
+	@Test
+	public void testGetReservationDetails_OneStatement() throws Exception {
+		Reservation reservation = this.dao.getReservationDetails(this.firstReservationId);
+		Assert.assertEquals("Customer 0", reservation.getCustomer().getName());
+		Assert.assertEquals("DCA", reservation.getFlight().getDestinationAirport().getAirportCode());
+		Assert.assertEquals("737", reservation.getFlight().getAirplane().getType());
+		Assert.assertEquals(1, StatementCountingDriver.getStatementCount());
+
+		Assert.assertNull(this.dao.getReservationDetails(-1));
+	}
+
+	@Test
+	public void testGetReservationPage_OneStatementPerPage() throws Exception {
+		ReservationFilters reservationFilters = new ReservationFilters();
+		reservationFilters.setStatus("reserved");
+
+		int count = 0;
+		int pages = 0;
+		int afterId = -1;
+		ReservationCursor after = null;
+		ReservationPage page;
+		do {
+			page = this.dao.getReservationPage(reservationFilters, after, 8);
+			for (ReservationSummary summary : page.getReservations()) {
+				Assert.assertTrue(summary.getId() > afterId);
+				afterId = summary.getId();
+				count++;
+			}
+			pages++;
+			if (page.hasNextPage()) {
+				Assert.assertEquals(Integer.toString(afterId, Character.MAX_RADIX), page.getNextPageToken());
+				after = ReservationCursor.fromToken(page.getNextPageToken());
+			}
+		} while (page.hasNextPage());
+
+		Assert.assertEquals(RESERVATION_COUNT, count);
+		Assert.assertEquals(3, pages);
+		Assert.assertEquals(pages, StatementCountingDriver.getStatementCount());
+	}
+
+	@Test
+	public void testGetReservationPage_ByDepartureDateThenId() throws Exception {
+		ReservationFilters reservationFilters = new ReservationFilters();
+		reservationFilters.setDepartureDateFrom(firstDepartureDate());
+
+		int count = 0;
+		int pages = 0;
+		ReservationSummary previous = null;
+		ReservationCursor after = null;
+		ReservationPage page;
+		do {
+			page = this.dao.getReservationPage(reservationFilters, after, 8);
+			for (ReservationSummary summary : page.getReservations()) {
+				if (previous != null) {
+					int order = summary.getDepartureDate().compareTo(previous.getDepartureDate());
+					Assert.assertTrue(order > 0 || order == 0 && summary.getId() > previous.getId());
+				}
+				previous = summary;
+				count++;
+			}
+			pages++;
+			if (page.hasNextPage()) {
+				after = ReservationCursor.fromToken(page.getNextPageToken());
+				Assert.assertEquals(previous.getId(), after.getReservationId());
+				Assert.assertEquals(previous.getDepartureDate().getTime(), after.getDepartureDate().getTime());
+			}
+		} while (page.hasNextPage());
+
+		Assert.assertEquals(RESERVATION_COUNT, count);
+		Assert.assertEquals(3, pages);
+		Assert.assertEquals(pages, StatementCountingDriver.getStatementCount());
+	}
+
+	/**
+	 * @return Midnight today, the earliest departure date of the reservations.
+	 */
+	private static Date firstDepartureDate() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		return calendar.getTime();
+	}
+
+	/**
+	 * Adds a reservation on its own flight, for its own customer, for each of
+	 * RESERVATION_COUNT customers, so loading the related rows one at a time
+	 * would take several statements per reservation.
+	 */
+	private static void seed() {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.getTransaction().begin();
+
+		Airport departureAirport = new Airport();
+		departureAirport.setAirportCode("BWI");
+		entityManager.persist(departureAirport);
+		Airport destinationAirport = new Airport();
+		destinationAirport.setAirportCode("DCA");
+		entityManager.persist(destinationAirport);
+
+		for (int i = 0; i < RESERVATION_COUNT; i++) {
+			Airplane airplane = new Airplane();
+			airplane.setNumSeats(100);
+			airplane.setType("737");
+			entityManager.persist(airplane);
+
+			Flight flight = new Flight();
+			// Later reservations fly earlier, so the departure date order
+			// differs from the reservation number order
+			Calendar departureDate = Calendar.getInstance();
+			departureDate.setTime(firstDepartureDate());
+			departureDate.add(Calendar.DATE, (RESERVATION_COUNT - i) % 3);
+			flight.setDepartureDate(departureDate.getTime());
+			flight.setDepartureAirport(departureAirport);
+			flight.setDestinationAirport(destinationAirport);
+			flight.setCost(100.0);
+			flight.setAirplane(airplane);
+			flight.setAvailableSeats(98);
+			entityManager.persist(flight);
+
+			Customer customer = new Customer();
+			customer.setName("Customer " + i);
+			entityManager.persist(customer);
+
+			Reservation reservation = new Reservation();
+			reservation.setFlight(flight);
+			reservation.setCustomer(customer);
+			reservation.setNumSeats(2);
+			reservation.setStatus("RESERVED");
+			entityManager.persist(reservation);
+		}
+
+		entityManager.getTransaction().commit();
+		entityManager.close();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * JDBC driver that counts the statements the JPA provider sends to the
+ * database. It accepts URLs of the form jdbc:counting:&lt;url&gt; and opens
+ * &lt;url&gt; with the real driver; every statement prepared or created on
+ * one of its connections is counted.
+ */
+public class StatementCountingDriver implements Driver {
+	private static final String PREFIX = "jdbc:counting:";
+
+	private static final AtomicInteger statementCount = new AtomicInteger();
+
+	static {
+		try {
+			Class.forName("org.hsqldb.jdbcDriver");
+			DriverManager.registerDriver(new StatementCountingDriver());
+		} catch (Exception e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * @return Statements prepared or created since the last reset().
+	 */
+	public static int getStatementCount() {
+		return statementCount.get();
+	}
+
+	public static void reset() {
+		statementCount.set(0);
+	}
+
+	public boolean acceptsURL(String url) throws SQLException {
+		return url != null && url.startsWith(PREFIX);
+	}
+
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+
+		final Connection connection = DriverManager.getConnection("jdbc:" + url.substring(PREFIX.length()), info);
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if (name.equals("prepareStatement") || name.equals("prepareCall")
+								|| name.equals("createStatement")) {
+							statementCount.incrementAndGet();
+						}
+
+						try {
+							return method.invoke(connection, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+		return new DriverPropertyInfo[0];
+	}
+
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	public Logger getParentLogger() {
+		return Logger.getLogger(StatementCountingDriver.class.getName());
+	}
+}
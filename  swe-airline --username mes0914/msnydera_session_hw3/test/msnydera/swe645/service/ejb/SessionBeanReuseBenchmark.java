@@ -0,0 +1,204 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.ejb;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.domain.Airport;
+import msnydera.swe645.domain.Customer;
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.OutboxEvent;
+import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.SearchFilters;
+import msnydera.swe645.exception.DataAccessException;
+import msnydera.swe645.service.AirlineHeadquartersService;
+import msnydera.swe645.service.impl.AirlineHeadquartersServiceImpl;
+import msnydera.swe645.service.impl.OutboxRelay;
+
+/**
+ * Measures the time and the memory allocated per call of TravelAgentEjb's
+ * search() and createReservation() when the bean reuses its service and DAO,
+ * and when it builds a new service per call and a new DAO per DAO call, which
+ * is what the beans used to do. The DAO answers from memory instead of the
+ * database, and searches are answered by the SearchResultCache, so the
+ * numbers are the overhead of the bean and service layers alone.
+ *
+ * Allocation is only reported on JVMs whose ThreadMXBean can count the bytes
+ * allocated by a thread.
+ *
+ * Run with: java msnydera.swe645.service.ejb.SessionBeanReuseBenchmark
+ * [calls]
+ */
+public class SessionBeanReuseBenchmark {
+	private static final int FLIGHT_ID = 1;
+	private static final int CUSTOMER_ID = 1;
+
+	public static void main(String[] args) throws Exception {
+		int calls = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		// There is no timer to schedule outside the container
+		OutboxRelay.getInstance().setStarted(true);
+
+		System.out.println(calls + " calls of each");
+		System.out.println("BEAN\t\tMETHOD\t\t\tNANOS/CALL\tBYTES/CALL");
+		for (boolean reuse : new boolean[] { false, true }) {
+			// Warm up, then measure
+			run(createBean(reuse), calls / 4, reuse, false);
+			run(createBean(reuse), calls, reuse, true);
+		}
+	}
+
+	private static void run(TravelAgentEjb bean, int calls, boolean reuse, boolean print) throws Exception {
+		SearchFilters searchFilters = new SearchFilters();
+		searchFilters.setDepartureLocation("IAD");
+		searchFilters.setDestinationLocation("LAX");
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		String label = reuse ? "reused" : "per call";
+
+		long bytes = getAllocatedBytes(threads);
+		long begin = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			bean.search(searchFilters);
+		}
+		long elapsed = System.nanoTime() - begin;
+		bytes = bytes < 0 ? -1 : getAllocatedBytes(threads) - bytes;
+		if (print) {
+			print(label, "search\t\t", calls, elapsed, bytes);
+		}
+
+		bytes = getAllocatedBytes(threads);
+		begin = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			bean.createReservation(FLIGHT_ID, CUSTOMER_ID, 1);
+		}
+		elapsed = System.nanoTime() - begin;
+		bytes = bytes < 0 ? -1 : getAllocatedBytes(threads) - bytes;
+		if (print) {
+			print(label, "createReservation", calls, elapsed, bytes);
+		}
+	}
+
+	private static void print(String label, String method, int calls, long elapsedNanos, long bytes) {
+		System.out.println(label + "\t" + method + "\t" + elapsedNanos / calls + "\t\t"
+				+ (bytes < 0 ? "n/a" : String.valueOf(bytes / calls)));
+	}
+
+	/**
+	 * @return Bytes allocated by this thread so far, or a negative number if
+	 *         the JVM can't tell.
+	 */
+	private static long getAllocatedBytes(ThreadMXBean threads) {
+		try {
+			Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes",
+					long.class);
+			return ((Long) method.invoke(threads, Long.valueOf(Thread.currentThread().getId()))).longValue();
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	private static TravelAgentEjb createBean(boolean reuse) {
+		final InMemoryDao dao = new InMemoryDao();
+		if (reuse) {
+			AirlineHeadquartersServiceImpl service = new AirlineHeadquartersServiceImpl(null);
+			service.setDao(dao);
+
+			TravelAgentEjb bean = new TravelAgentEjb();
+			bean.setService(service);
+			return bean;
+		}
+
+		return new TravelAgentEjb() {
+			public AirlineHeadquartersService getService() {
+				return new AirlineHeadquartersServiceImpl(null) {
+					public AirlineHeadquartersJpaDao getDao() {
+						return new InMemoryDao(dao);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * DAO holding one flight with plenty of seats and one customer. Copies
+	 * share the data of the DAO they were made from.
+	 */
+	private static class InMemoryDao extends AirlineHeadquartersJpaDao {
+		private final Flight flight;
+		private final Customer customer;
+
+		private InMemoryDao() {
+			super(null);
+
+			Airport departureAirport = new Airport();
+			departureAirport.setAirportCode("IAD");
+			Airport destinationAirport = new Airport();
+			destinationAirport.setAirportCode("LAX");
+
+			this.flight = new Flight();
+			this.flight.setId(FLIGHT_ID);
+			this.flight.setDepartureAirport(departureAirport);
+			this.flight.setDestinationAirport(destinationAirport);
+			this.flight.setDepartureDate(new Date());
+			this.flight.setAvailableSeats(Integer.MAX_VALUE);
+
+			this.customer = new Customer();
+			this.customer.setId(CUSTOMER_ID);
+		}
+
+		private InMemoryDao(InMemoryDao dao) {
+			super(null);
+			this.flight = dao.flight;
+			this.customer = dao.customer;
+		}
+
+		public Collection<Flight> search(SearchFilters searchFilters) throws DataAccessException {
+			List<Flight> flights = new ArrayList<Flight>(1);
+			flights.add(this.flight);
+			return flights;
+		}
+
+		public boolean doesFlightExist(int flightId) throws DataAccessException {
+			return flightId == FLIGHT_ID;
+		}
+
+		public boolean doesCustomerExist(int customerId) {
+			return customerId == CUSTOMER_ID;
+		}
+
+		public int getNumberOfAvailableSeats(int flightId) throws DataAccessException {
+			return this.flight.getAvailableSeats();
+		}
+
+		public Flight getFlight(int flightId) throws DataAccessException {
+			return this.flight;
+		}
+
+		public boolean updateAvailableSeats(Flight flight, int availableSeats) throws DataAccessException {
+			// Leave the seats as they are, so the flight never fills up
+			return true;
+		}
+
+		public Reservation createReservation(int flightId, int customerId, int numSeats) throws DataAccessException {
+			Reservation reservation = new Reservation();
+			reservation.setNumSeats(numSeats);
+			reservation.setFlight(this.flight);
+			reservation.setCustomer(this.customer);
+			reservation.setStatus("RESERVED");
+			return reservation;
+		}
+
+		public void createOutboxEvent(OutboxEvent event) throws DataAccessException {
+			// Intentially do nothing
+		}
+	}
+}
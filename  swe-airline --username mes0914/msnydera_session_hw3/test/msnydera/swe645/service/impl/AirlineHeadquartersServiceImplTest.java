@@ -0,0 +1,267 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.domain.Airport;
+import msnydera.swe645.domain.Customer;
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.OutboxEvent;
+import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.exception.DataAccessException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AirlineHeadquartersServiceImplTest {
+	private static final int FLIGHT_ID = 7;
+	private static final int CUSTOMER_ID = 3;
+	private static final int RESERVATION_ID = 12;
+
+	private ConflictingDao dao;
+	private RecordingRegistry registry;
+	private OptimisticLockStatistics statistics;
+	private AirlineHeadquartersServiceImpl service;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dao = new ConflictingDao();
+		this.registry = new RecordingRegistry();
+		this.statistics = new OptimisticLockStatistics();
+
+		this.service = new AirlineHeadquartersServiceImpl();
+		this.service.setDao(this.dao);
+		this.service.setTransactionSynchronizationRegistry(this.registry);
+		this.service.setOptimisticLockStatistics(this.statistics);
+		this.service.setFlightLockManager(new FlightLockManager(FlightLockManager.DEFAULT_STRIPE_COUNT, 1000));
+		this.service.setSearchResultCache(new SearchResultCache(10, 60000));
+		this.service.setOutboxRelay(new OutboxRelay());
+	}
+
+	@Test
+	public void testCreateReservation_RetriesConflictingUpdates() throws Exception {
+		this.dao.seatConflicts = AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS - 1;
+
+		Reservation reservation = this.service.createReservation(FLIGHT_ID, CUSTOMER_ID, 2);
+		this.registry.complete(Status.STATUS_COMMITTED);
+
+		// Each conflict was another transaction taking a seat
+		int otherSeats = AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS - 1;
+		Assert.assertEquals(100 - otherSeats - 2, reservation.getFlight().getAvailableSeats());
+		Assert.assertEquals(AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS, this.dao.seatUpdateCount);
+		Assert.assertEquals(1, this.dao.events.size());
+		Assert.assertFalse(this.registry.rollbackOnly);
+
+		Assert.assertEquals(AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS, this.statistics.getUpdateCount());
+		Assert.assertEquals(otherSeats, this.statistics.getConflictCount());
+		Assert.assertEquals(otherSeats, this.statistics.getRetryCount());
+		Assert.assertEquals(0, this.statistics.getFailureCount());
+	}
+
+	@Test
+	public void testCreateReservation_GivesUpAfterTheLastAttempt() throws Exception {
+		this.dao.seatConflicts = AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS + 1;
+
+		try {
+			this.service.createReservation(FLIGHT_ID, CUSTOMER_ID, 2);
+			Assert.fail("Expected a DataAccessException");
+		} catch (DataAccessException e) {
+			Assert.assertEquals("The flight is being changed by too many other requests, please try again", e
+					.getMessage());
+		}
+		Assert.assertTrue(this.registry.rollbackOnly);
+		this.registry.complete(Status.STATUS_ROLLEDBACK);
+
+		Assert.assertEquals(AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS, this.dao.seatUpdateCount);
+		Assert.assertEquals(0, this.dao.events.size());
+		Assert.assertNull(this.dao.reservation);
+
+		Assert.assertEquals(AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS, this.statistics.getUpdateCount());
+		Assert.assertEquals(AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS, this.statistics.getConflictCount());
+		Assert.assertEquals(AirlineHeadquartersServiceImpl.MAX_UPDATE_ATTEMPTS - 1, this.statistics.getRetryCount());
+		Assert.assertEquals(1, this.statistics.getFailureCount());
+		Assert.assertEquals(1.0, this.statistics.getConflictRate(), 0);
+	}
+
+	@Test
+	public void testCancelReservation_RetriesConflictingUpdates() throws Exception {
+		this.dao.reservation = this.dao.newReservation(2);
+		this.dao.statusConflicts = 2;
+		this.dao.seatConflicts = 1;
+
+		Reservation reservation = this.service.cancelReservation(RESERVATION_ID);
+		this.registry.complete(Status.STATUS_COMMITTED);
+
+		Assert.assertEquals("CANCELED", reservation.getStatus());
+		Assert.assertEquals(100 - 1 + 2, this.dao.flight.getAvailableSeats());
+		Assert.assertFalse(this.registry.rollbackOnly);
+
+		// Three status updates and two seat updates, three of them conflicted
+		Assert.assertEquals(5, this.statistics.getUpdateCount());
+		Assert.assertEquals(3, this.statistics.getConflictCount());
+		Assert.assertEquals(3, this.statistics.getRetryCount());
+		Assert.assertEquals(0, this.statistics.getFailureCount());
+	}
+
+	/**
+	 * DAO holding one flight, whose versioned updates conflict a given number
+	 * of times, as if another transaction changed the row each time first.
+	 */
+	private static class ConflictingDao extends AirlineHeadquartersJpaDao {
+		private final Flight flight = new Flight();
+		private Reservation reservation;
+		private final List<OutboxEvent> events = new ArrayList<OutboxEvent>();
+
+		private int seatConflicts;
+		private int statusConflicts;
+		private int seatUpdateCount;
+
+		private ConflictingDao() {
+			super(null);
+
+			Airport airport = new Airport();
+			airport.setAirportCode("IAD");
+			this.flight.setId(FLIGHT_ID);
+			this.flight.setDepartureDate(new Date());
+			this.flight.setDepartureAirport(airport);
+			this.flight.setDestinationAirport(airport);
+			this.flight.setAvailableSeats(100);
+		}
+
+		private Reservation newReservation(int numSeats) {
+			Customer customer = new Customer();
+			customer.setId(CUSTOMER_ID);
+
+			Reservation reservation = new Reservation();
+			reservation.setId(RESERVATION_ID);
+			reservation.setFlight(this.flight);
+			reservation.setCustomer(customer);
+			reservation.setNumSeats(numSeats);
+			reservation.setStatus("RESERVED");
+			return reservation;
+		}
+
+		public boolean doesFlightExist(int flightId) {
+			return flightId == FLIGHT_ID;
+		}
+
+		public boolean doesCustomerExist(int customerId) {
+			return customerId == CUSTOMER_ID;
+		}
+
+		public boolean doesReservationExist(int reservationId) {
+			return this.reservation != null && reservationId == RESERVATION_ID;
+		}
+
+		public int getNumberOfAvailableSeats(int flightId) {
+			return this.flight.getAvailableSeats();
+		}
+
+		public int getFlightIdOfReservation(int reservationId) {
+			return doesReservationExist(reservationId) ? FLIGHT_ID : -1;
+		}
+
+		public Flight getFlight(int flightId) {
+			return flightId == FLIGHT_ID ? this.flight : null;
+		}
+
+		public Reservation getReservation(int reservationId) {
+			return this.reservation;
+		}
+
+		public boolean updateAvailableSeats(Flight flight, int availableSeats) {
+			this.seatUpdateCount++;
+			if (this.seatConflicts > 0) {
+				this.seatConflicts--;
+				this.flight.setAvailableSeats(this.flight.getAvailableSeats() - 1);
+				this.flight.setVersion(this.flight.getVersion() + 1);
+				return false;
+			}
+			this.flight.setAvailableSeats(availableSeats);
+			this.flight.setVersion(this.flight.getVersion() + 1);
+			return true;
+		}
+
+		public boolean updateReservationStatus(Reservation reservation, String status) {
+			if (this.statusConflicts > 0) {
+				this.statusConflicts--;
+				this.reservation.setVersion(this.reservation.getVersion() + 1);
+				return false;
+			}
+			this.reservation.setStatus(status);
+			this.reservation.setVersion(this.reservation.getVersion() + 1);
+			return true;
+		}
+
+		public Reservation createReservation(int flightId, int customerId, int numSeats) {
+			this.reservation = newReservation(numSeats);
+			return this.reservation;
+		}
+
+		public void createOutboxEvent(OutboxEvent event) {
+			event.setId(this.events.size());
+			this.events.add(event);
+		}
+	}
+
+	/**
+	 * Registry of a single container transaction, recording whether it was
+	 * marked for rollback and completing its synchronizations on request.
+	 */
+	private static class RecordingRegistry implements TransactionSynchronizationRegistry {
+		private final Map<Object, Object> resources = new HashMap<Object, Object>();
+		private final List<Synchronization> synchronizations = new ArrayList<Synchronization>();
+		private boolean rollbackOnly;
+
+		private void complete(int status) {
+			for (Synchronization synchronization : this.synchronizations) {
+				synchronization.beforeCompletion();
+			}
+			for (Synchronization synchronization : this.synchronizations) {
+				synchronization.afterCompletion(status);
+			}
+			this.synchronizations.clear();
+			this.resources.clear();
+		}
+
+		public Object getTransactionKey() {
+			return this;
+		}
+
+		public void putResource(Object key, Object value) {
+			this.resources.put(key, value);
+		}
+
+		public Object getResource(Object key) {
+			return this.resources.get(key);
+		}
+
+		public void registerInterposedSynchronization(Synchronization sync) {
+			this.synchronizations.add(sync);
+		}
+
+		public int getTransactionStatus() {
+			return this.rollbackOnly ? Status.STATUS_MARKED_ROLLBACK : Status.STATUS_ACTIVE;
+		}
+
+		public void setRollbackOnly() {
+			this.rollbackOnly = true;
+		}
+
+		public boolean getRollbackOnly() {
+			return this.rollbackOnly;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.domain.Customer;
+import msnydera.swe645.exception.DataAccessException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CustomerIndexTest {
+	private StubDao dao;
+	private CustomerIndex index;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dao = new StubDao();
+		this.dao.customers.add(createCustomer(1, "Jane Doe", "(703) 555-1234"));
+		this.dao.customers.add(createCustomer(2, "John Smith", "571-555-9876"));
+		this.dao.customers.add(createCustomer(3, "Janet Jackson", null));
+
+		this.index = new CustomerIndex();
+	}
+
+	@Test
+	public void testFind_ByAnyWordOfTheName() throws Exception {
+		Assert.assertEquals("[1, 3]", getIds(this.index.find("JAN", 10, this.dao)));
+		Assert.assertEquals("[1]", getIds(this.index.find("do", 10, this.dao)));
+		Assert.assertEquals("[]", getIds(this.index.find("x", 10, this.dao)));
+
+		Assert.assertEquals("[1]", getIds(this.index.find("jan", 1, this.dao)));
+		Assert.assertEquals(1, this.dao.loadCount);
+	}
+
+	@Test
+	public void testFind_BySeveralWordsOfTheName() throws Exception {
+		Assert.assertEquals("[1]", getIds(this.index.find("jane d", 10, this.dao)));
+		Assert.assertEquals("[3]", getIds(this.index.find("Jackson  Jan", 10, this.dao)));
+		Assert.assertEquals("[]", getIds(this.index.find("jane s", 10, this.dao)));
+	}
+
+	@Test
+	public void testFind_ByPhoneIgnoringPunctuation() throws Exception {
+		Assert.assertEquals("[1]", getIds(this.index.find("703-55", 10, this.dao)));
+		Assert.assertEquals("[2]", getIds(this.index.find("(571)", 10, this.dao)));
+		Assert.assertEquals("[1]", getIds(this.index.find("703 555", 10, this.dao)));
+	}
+
+	@Test
+	public void testAdd_FoundWithoutReloading() throws Exception {
+		this.index.find("j", 10, this.dao);
+
+		Customer customer = createCustomer(4, "Jim Beam", "202-555-0000");
+		this.dao.customers.add(customer);
+		this.index.add(customer);
+		// A later refresh reads the same customer again
+		this.index.add(customer);
+
+		Assert.assertEquals("[4]", getIds(this.index.find("jim", 10, this.dao)));
+		Assert.assertEquals("[3, 1, 4, 2]", getIds(this.index.find("j", 10, this.dao)));
+		Assert.assertEquals(1, this.dao.loadCount);
+	}
+
+	private static Customer createCustomer(int id, String name, String phone) {
+		Customer customer = new Customer();
+		customer.setId(id);
+		customer.setName(name);
+		customer.setPhone(phone);
+		return customer;
+	}
+
+	private static String getIds(Collection<Customer> customers) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (Customer customer : customers) {
+			ids.add(Integer.valueOf(customer.getId()));
+		}
+		return ids.toString();
+	}
+
+	private static class StubDao extends AirlineHeadquartersJpaDao {
+		private List<Customer> customers = new ArrayList<Customer>();
+		private int loadCount;
+
+		private StubDao() {
+			super(null);
+		}
+
+		public Collection<Customer> getAllCustomers() throws DataAccessException {
+			this.loadCount++;
+			return new ArrayList<Customer>(this.customers);
+		}
+
+		public Collection<Customer> getCustomersAfter(int customerId) throws DataAccessException {
+			List<Customer> after = new ArrayList<Customer>();
+			for (Customer customer : this.customers) {
+				if (customer.getId() > customerId) {
+					after.add(customer);
+				}
+			}
+			return after;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import msnydera.swe645.domain.FlightEvent;
+import msnydera.swe645.domain.OutboxEvent;
+
+/**
+ * Compares the cost of encoding and decoding a FlightCreated event, and the
+ * size of its body, with the FlightEventCodec and with the MapMessage the
+ * publisher used to send. There is no JMS server here, so the MapMessage is
+ * modeled by what a provider such as JBoss Messaging writes for it: the
+ * number of fields, then each field's name, a type byte and its value as a
+ * string (the publisher put every field in the map as a string). Decoding it
+ * reads the fields back into a map and converts them by name, as getInt()
+ * and getDouble() do.
+ *
+ * Run with: java msnydera.swe645.service.impl.FlightEventCodecBenchmark
+ * [events]
+ */
+public class FlightEventCodecBenchmark {
+	// Type byte written before a string value
+	private static final byte STRING_TYPE = 9;
+
+	// Keeps the results alive, so the work isn't optimized away
+	private static long sink;
+
+	public static void main(String[] args) throws Exception {
+		int events = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		FlightEvent event = FlightEventCodecTest.createFlightCreated();
+
+		System.out.println(events + " events of each");
+		System.out.println("FORMAT\t\tBODY BYTES\tENCODE NANOS\tDECODE NANOS");
+		for (boolean print : new boolean[] { false, true }) {
+			// Warm up, then measure
+			run("MapMessage", true, event, print ? events : events / 4, print);
+			run("BytesMessage", false, event, print ? events : events / 4, print);
+		}
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+
+	private static void run(String label, boolean map, FlightEvent event, int events, boolean print)
+			throws Exception {
+		byte[] body = null;
+		long begin = System.nanoTime();
+		for (int i = 0; i < events; i++) {
+			body = map ? encodeMap(event) : FlightEventCodec.encode(event);
+			sink += body.length;
+		}
+		long encodeNanos = System.nanoTime() - begin;
+
+		begin = System.nanoTime();
+		for (int i = 0; i < events; i++) {
+			FlightEvent decoded = map ? decodeMap(body) : FlightEventCodec.decode(body);
+			sink += decoded.getNumSeats();
+		}
+		long decodeNanos = System.nanoTime() - begin;
+
+		if (print) {
+			System.out.println(label + "\t" + body.length + "\t\t" + encodeNanos / events + "\t\t" + decodeNanos
+					/ events);
+		}
+	}
+
+	private static byte[] encodeMap(FlightEvent event) throws IOException {
+		Map<String, String> fields = new HashMap<String, String>();
+		fields.put("flightId", "" + event.getFlightId());
+		fields.put("flightDate", event.getFlightDate());
+		fields.put("departureAirport", event.getDepartureAirport());
+		fields.put("destinationAirport", event.getDestinationAirport());
+		fields.put("numSeats", "" + event.getNumSeats());
+		fields.put("cost", "" + event.getCost());
+		fields.put("airplaneId", "" + event.getAirplaneId());
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		out.writeInt(fields.size());
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			out.writeUTF(field.getKey());
+			out.writeByte(STRING_TYPE);
+			out.writeUTF(field.getValue());
+		}
+		out.flush();
+		return buffer.toByteArray();
+	}
+
+	private static FlightEvent decodeMap(byte[] body) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		int size = in.readInt();
+		Map<String, Object> fields = new HashMap<String, Object>();
+		for (int i = 0; i < size; i++) {
+			String name = in.readUTF();
+			in.readByte();
+			fields.put(name, in.readUTF());
+		}
+
+		FlightEvent event = new FlightEvent();
+		event.setEventType(OutboxEvent.FLIGHT_CREATED);
+		event.setFlightId(Integer.parseInt((String) fields.get("flightId")));
+		event.setFlightDate((String) fields.get("flightDate"));
+		event.setDepartureAirport((String) fields.get("departureAirport"));
+		event.setDestinationAirport((String) fields.get("destinationAirport"));
+		event.setNumSeats(Integer.parseInt((String) fields.get("numSeats")));
+		event.setCost(Double.parseDouble((String) fields.get("cost")));
+		event.setAirplaneId(Integer.parseInt((String) fields.get("airplaneId")));
+		return event;
+	}
+}
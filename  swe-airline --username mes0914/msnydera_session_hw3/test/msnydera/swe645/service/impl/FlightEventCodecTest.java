@@ -0,0 +1,96 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+import javax.jms.MessageFormatException;
+
+import msnydera.swe645.domain.FlightEvent;
+import msnydera.swe645.domain.OutboxEvent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FlightEventCodecTest {
+
+	@Test
+	public void testDecode_FlightCreatedRoundTrip() throws Exception {
+		FlightEvent event = FlightEventCodec.decode(FlightEventCodec.encode(createFlightCreated()));
+
+		Assert.assertEquals(OutboxEvent.FLIGHT_CREATED, event.getEventType());
+		Assert.assertEquals(42, event.getEventId());
+		Assert.assertEquals(7, event.getFlightId());
+		Assert.assertEquals("10/18/2026", event.getFlightDate());
+		Assert.assertEquals("IAD", event.getDepartureAirport());
+		Assert.assertEquals("LAX", event.getDestinationAirport());
+		Assert.assertEquals(150, event.getNumSeats());
+		Assert.assertEquals(249.99, event.getCost(), 0);
+		Assert.assertEquals(3, event.getAirplaneId());
+	}
+
+	@Test
+	public void testDecode_SeatsChangedRoundTrip() throws Exception {
+		FlightEvent seatsChanged = new FlightEvent();
+		seatsChanged.setEventType(OutboxEvent.SEATS_CHANGED);
+		seatsChanged.setEventId(43);
+		seatsChanged.setFlightId(7);
+		seatsChanged.setAvailableSeats(148);
+		seatsChanged.setSeatChange(-2);
+		seatsChanged.setReservationId(12);
+
+		FlightEvent event = FlightEventCodec.decode(FlightEventCodec.encode(seatsChanged));
+
+		Assert.assertEquals(OutboxEvent.SEATS_CHANGED, event.getEventType());
+		Assert.assertEquals(43, event.getEventId());
+		Assert.assertEquals(148, event.getAvailableSeats());
+		Assert.assertEquals(-2, event.getSeatChange());
+		Assert.assertEquals(12, event.getReservationId());
+		Assert.assertEquals("", event.getReservationStatus());
+	}
+
+	@Test
+	public void testDecode_LaterVersionFieldsAreIgnored() throws Exception {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		out.write(FlightEventCodec.encode(createFlightCreated()));
+		out.writeUTF("A field added by a later version");
+		byte[] body = buffer.toByteArray();
+		body[0] = FlightEventCodec.SCHEMA_VERSION + 1;
+
+		Assert.assertEquals(3, FlightEventCodec.decode(body).getAirplaneId());
+	}
+
+	@Test(expected = MessageFormatException.class)
+	public void testDecode_CutShort() throws Exception {
+		byte[] body = FlightEventCodec.encode(createFlightCreated());
+		byte[] cutShort = new byte[body.length - 4];
+		System.arraycopy(body, 0, cutShort, 0, cutShort.length);
+
+		FlightEventCodec.decode(cutShort);
+	}
+
+	@Test(expected = MessageFormatException.class)
+	public void testDecode_UnknownVersion() throws Exception {
+		byte[] body = FlightEventCodec.encode(createFlightCreated());
+		body[0] = 0;
+
+		FlightEventCodec.decode(body);
+	}
+
+	static FlightEvent createFlightCreated() {
+		FlightEvent event = new FlightEvent();
+		event.setEventType(OutboxEvent.FLIGHT_CREATED);
+		event.setEventId(42);
+		event.setFlightId(7);
+		event.setFlightDate("10/18/2026");
+		event.setDepartureAirport("IAD");
+		event.setDestinationAirport("LAX");
+		event.setNumSeats(150);
+		event.setCost(249.99);
+		event.setAirplaneId(3);
+		return event;
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures reservation throughput through the FlightLockManager for a uniform
+ * workload (every flight equally likely) and a hot flight workload (most
+ * reservations on a few flights), with the default stripes and with a single
+ * stripe (one global lock). Each reservation holds its stripe while it does a
+ * read-modify-write of the flight's seats and waits as long as a database
+ * round trip, which is what the session bean does inside its transaction.
+ * The benchmark also checks that no seat update was lost.
+ *
+ * Run with: java msnydera.swe645.service.impl.FlightLockManagerBenchmark
+ * [threads] [reservationsPerThread] [holdMicros]
+ */
+public class FlightLockManagerBenchmark {
+	private static final int FLIGHT_COUNT = 10000;
+	private static final int HOT_FLIGHT_COUNT = 4;
+
+	// Share of the hot flight workload that goes to the hot flights
+	private static final double HOT_SHARE = 0.9;
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int reservationsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		long holdNanos = (args.length > 2 ? Long.parseLong(args[2]) : 50) * 1000;
+
+		System.out.println(threads + " threads, " + reservationsPerThread + " reservations each, lock held "
+				+ holdNanos / 1000 + " microseconds");
+		System.out.println("WORKLOAD\tSTRIPES\tRESERVATIONS/S\tSTATISTICS");
+		for (boolean hot : new boolean[] { false, true }) {
+			for (int stripeCount : new int[] { 1, FlightLockManager.DEFAULT_STRIPE_COUNT }) {
+				// Warm up, then measure
+				run(new FlightLockManager(stripeCount, 60000), threads, reservationsPerThread / 4, holdNanos, hot);
+
+				FlightLockManager lockManager = new FlightLockManager(stripeCount, 60000);
+				double throughput = run(lockManager, threads, reservationsPerThread, holdNanos, hot);
+				System.out.println((hot ? "hot flights" : "uniform") + "\t" + stripeCount + "\t"
+						+ Math.round(throughput) + "\t\t" + lockManager.getStatistics());
+			}
+		}
+	}
+
+	/**
+	 * Runs the workload and returns the reservations per second.
+	 */
+	private static double run(final FlightLockManager lockManager, int threads, final int reservationsPerThread,
+			final long holdNanos, final boolean hot) throws InterruptedException {
+		// Not thread safe on purpose: only the stripes keep the updates apart
+		final int[] reservedSeats = new int[FLIGHT_COUNT];
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			final long seed = i;
+			new Thread() {
+				public void run() {
+					Random random = new Random(seed);
+					try {
+						start.await();
+						for (int j = 0; j < reservationsPerThread; j++) {
+							int flightId = hot && random.nextDouble() < HOT_SHARE ? random.nextInt(HOT_FLIGHT_COUNT)
+									: random.nextInt(FLIGHT_COUNT);
+
+							int stripe = lockManager.getStripe(flightId);
+							lockManager.lock(stripe);
+							try {
+								int seats = reservedSeats[flightId];
+								LockSupport.parkNanos(holdNanos);
+								reservedSeats[flightId] = seats + 1;
+							} finally {
+								lockManager.unlock(stripe);
+							}
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long elapsed = System.nanoTime() - begin;
+
+		long total = 0;
+		for (int seats : reservedSeats) {
+			total += seats;
+		}
+		if (total != (long) threads * reservationsPerThread) {
+			throw new IllegalStateException("Lost seat updates: expected " + (long) threads * reservationsPerThread
+					+ " but counted " + total);
+		}
+
+		return (double) total * 1000000000L / elapsed;
+	}
+}
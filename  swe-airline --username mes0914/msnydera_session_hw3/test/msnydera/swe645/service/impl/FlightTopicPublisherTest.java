@@ -0,0 +1,143 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import msnydera.swe645.domain.Airplane;
+import msnydera.swe645.domain.Airport;
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.OutboxEvent;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlightTopicPublisherTest {
+	private FakeJms jms;
+	private FlightTopicPublisher publisher;
+
+	@Before
+	public void setUp() throws Exception {
+		this.jms = new FakeJms();
+		this.publisher = new FlightTopicPublisher(this.jms.createProxy(ConnectionFactory.class), null, 2);
+	}
+
+	@Test
+	public void testPublishEvents_ReusesConnectionAndCommitsPerBatch() throws Exception {
+		this.publisher.publishEvents(createEvents(2 * FlightTopicPublisher.MAX_BATCH_SIZE + 50));
+		this.publisher.publishEvents(createEvents(1));
+		this.publisher.publishReferenceDataChanged();
+
+		Assert.assertEquals(1, this.jms.connectionCount);
+		Assert.assertEquals(1, this.jms.sessionCount);
+		Assert.assertEquals(2 * FlightTopicPublisher.MAX_BATCH_SIZE + 52, this.jms.sendCount);
+		Assert.assertEquals(5, this.jms.commitCount);
+
+		Assert.assertEquals(2 * FlightTopicPublisher.MAX_BATCH_SIZE + 52, this.publisher.getMessageCount());
+		Assert.assertEquals(5, this.publisher.getBatchCount());
+		Assert.assertEquals(0, this.publisher.getFailureCount());
+	}
+
+	@Test
+	public void testPublishEvents_FailedSendOpensNewConnection() throws Exception {
+		this.publisher.publishEvents(createEvents(1));
+
+		this.jms.failSends = true;
+		try {
+			this.publisher.publishEvents(createEvents(1));
+			Assert.fail("Expected the send to fail");
+		} catch (JMSException e) {
+			// Expected
+		}
+		Assert.assertEquals(1, this.jms.closeCount);
+
+		this.jms.failSends = false;
+		this.publisher.publishEvents(createEvents(1));
+
+		Assert.assertEquals(2, this.jms.connectionCount);
+		Assert.assertEquals(2, this.publisher.getMessageCount());
+		Assert.assertEquals(1, this.publisher.getFailureCount());
+	}
+
+	private static List<OutboxEvent> createEvents(int count) {
+		Airport departureAirport = new Airport();
+		departureAirport.setAirportCode("IAD");
+		Airport destinationAirport = new Airport();
+		destinationAirport.setAirportCode("LAX");
+
+		List<OutboxEvent> events = new ArrayList<OutboxEvent>();
+		for (int i = 0; i < count; i++) {
+			Flight flight = new Flight();
+			flight.setId(i);
+			flight.setDepartureDate(new Date());
+			flight.setDepartureAirport(departureAirport);
+			flight.setDestinationAirport(destinationAirport);
+			flight.setAirplane(new Airplane());
+			events.add(OutboxEvent.flightCreated(flight));
+		}
+		return events;
+	}
+
+	/**
+	 * Answers every JMS call made by the publisher, counting the connections,
+	 * sessions, sends and commits.
+	 */
+	private static class FakeJms implements InvocationHandler {
+		private int connectionCount;
+		private int sessionCount;
+		private int sendCount;
+		private int commitCount;
+		private int closeCount;
+		private boolean failSends;
+
+		private <T> T createProxy(Class<T> type) {
+			return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, this));
+		}
+
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("createConnection")) {
+				this.connectionCount++;
+				return createProxy(Connection.class);
+			} else if (name.equals("createSession")) {
+				this.sessionCount++;
+				return createProxy(Session.class);
+			} else if (name.equals("createProducer")) {
+				return createProxy(MessageProducer.class);
+			} else if (name.equals("createBytesMessage")) {
+				return createProxy(BytesMessage.class);
+			} else if (name.equals("createMessage")) {
+				return createProxy(Message.class);
+			} else if (name.equals("send")) {
+				if (this.failSends) {
+					throw new JMSException("Connection lost");
+				}
+				this.sendCount++;
+			} else if (name.equals("commit")) {
+				this.commitCount++;
+			} else if (name.equals("close") && proxy instanceof Connection) {
+				this.closeCount++;
+			} else if (name.equals("hashCode")) {
+				return Integer.valueOf(System.identityHashCode(proxy));
+			} else if (name.equals("equals")) {
+				return Boolean.valueOf(proxy == args[0]);
+			}
+			return null;
+		}
+	}
+}
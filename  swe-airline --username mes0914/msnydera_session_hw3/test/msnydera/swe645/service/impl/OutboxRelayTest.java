@@ -0,0 +1,184 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.jms.JMSException;
+
+import msnydera.swe645.dao.AirlineHeadquartersJpaDao;
+import msnydera.swe645.domain.Airplane;
+import msnydera.swe645.domain.Airport;
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.OutboxEvent;
+import msnydera.swe645.domain.OutboxStatus;
+import msnydera.swe645.domain.Reservation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OutboxRelayTest {
+	private InMemoryDao dao;
+	private RecordingPublisher publisher;
+	private OutboxRelay relay;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dao = new InMemoryDao();
+		this.publisher = new RecordingPublisher();
+		this.relay = new OutboxRelay();
+	}
+
+	@Test
+	public void testRelayBatch_PublishesInIdOrderAndDeletes() throws Exception {
+		this.dao.addEvents(OutboxRelay.BATCH_SIZE + 10);
+
+		Assert.assertEquals(OutboxRelay.BATCH_SIZE, this.relay.relayBatch(this.dao, this.publisher));
+		Assert.assertEquals(10, this.relay.relayBatch(this.dao, this.publisher));
+		Assert.assertEquals(0, this.relay.relayBatch(this.dao, this.publisher));
+
+		Assert.assertEquals(0, this.dao.events.size());
+		Assert.assertEquals(OutboxRelay.BATCH_SIZE + 10, this.publisher.eventIds.size());
+		for (int i = 0; i < this.publisher.eventIds.size(); i++) {
+			Assert.assertEquals(Integer.valueOf(i), this.publisher.eventIds.get(i));
+		}
+
+		OutboxStatus status = new OutboxStatus();
+		this.relay.addStatistics(status);
+		Assert.assertEquals(OutboxRelay.BATCH_SIZE + 10, status.getRelayedEventCount());
+		Assert.assertEquals(0, status.getFailureCount());
+		Assert.assertNotNull(status.getLastRelayedAt());
+	}
+
+	@Test
+	public void testRelayBatch_FailedPublishKeepsEvents() throws Exception {
+		this.dao.addEvents(3);
+
+		this.publisher.fail = true;
+		try {
+			this.relay.relayBatch(this.dao, this.publisher);
+			Assert.fail("Expected the publish to fail");
+		} catch (JMSException e) {
+			// Expected
+		}
+		Assert.assertEquals(3, this.dao.events.size());
+		Assert.assertEquals(1, this.relay.getFailureCount());
+
+		this.publisher.fail = false;
+		Assert.assertEquals(3, this.relay.relayBatch(this.dao, this.publisher));
+		Assert.assertEquals(0, this.dao.events.size());
+	}
+
+	@Test
+	public void testRelayBatch_HoldsBackUncommittedEvents() throws Exception {
+		this.dao.addEvents(2);
+		this.relay.beginWrite();
+		List<OutboxEvent> written = this.dao.addEvents(1);
+		List<Integer> writtenIds = this.relay.endWrite(written);
+		this.dao.addEvents(2);
+
+		// Only the events before the uncommitted one are published, so later
+		// events aren't published ahead of it
+		Assert.assertEquals(2, this.relay.relayBatch(this.dao, this.publisher));
+		Assert.assertEquals(0, this.relay.relayBatch(this.dao, this.publisher));
+		Assert.assertEquals(3, this.dao.events.size());
+
+		this.relay.completeWrite(writtenIds);
+		Assert.assertEquals(3, this.relay.relayBatch(this.dao, this.publisher));
+		Assert.assertEquals(0, this.dao.events.size());
+		for (int i = 0; i < this.publisher.eventIds.size(); i++) {
+			Assert.assertEquals(Integer.valueOf(i), this.publisher.eventIds.get(i));
+		}
+	}
+
+	@Test
+	public void testSeatsChanged_PropertiesSurviveThePayload() throws Exception {
+		Flight flight = new Flight();
+		flight.setId(7);
+		flight.setAvailableSeats(40);
+		Reservation reservation = new Reservation();
+		reservation.setId(12);
+		reservation.setStatus("line\\one\nline two");
+
+		OutboxEvent event = OutboxEvent.seatsChanged(flight, reservation, -2);
+		OutboxEvent copy = new OutboxEvent();
+		copy.setPayload(event.getPayload());
+
+		Assert.assertEquals(OutboxEvent.SEATS_CHANGED, event.getEventType());
+		Assert.assertEquals(event.getProperties(), copy.getProperties());
+		Assert.assertEquals("-2", copy.getProperties().get("seatChange"));
+		Assert.assertEquals("line\\one\nline two", copy.getProperties().get("reservationStatus"));
+	}
+
+	/**
+	 * DAO keeping the outbox in a list, in Id order.
+	 */
+	private static class InMemoryDao extends AirlineHeadquartersJpaDao {
+		private final List<OutboxEvent> events = new ArrayList<OutboxEvent>();
+
+		private InMemoryDao() {
+			super(null);
+		}
+
+		private List<OutboxEvent> addEvents(int count) {
+			List<OutboxEvent> added = new ArrayList<OutboxEvent>();
+			Airport airport = new Airport();
+			airport.setAirportCode("IAD");
+			for (int i = 0; i < count; i++) {
+				Flight flight = new Flight();
+				flight.setId(i);
+				flight.setDepartureDate(new Date());
+				flight.setDepartureAirport(airport);
+				flight.setDestinationAirport(airport);
+				flight.setAirplane(new Airplane());
+
+				OutboxEvent event = OutboxEvent.flightCreated(flight);
+				event.setId(this.events.size());
+				this.events.add(event);
+				added.add(event);
+			}
+			return added;
+		}
+
+		public List<OutboxEvent> getOutboxEvents(int maxEvents) {
+			return new ArrayList<OutboxEvent>(this.events.subList(0, Math.min(maxEvents, this.events.size())));
+		}
+
+		public int deleteOutboxEvents(Collection<Integer> eventIds) {
+			int count = 0;
+			for (int i = this.events.size() - 1; i >= 0; i--) {
+				if (eventIds.contains(Integer.valueOf(this.events.get(i).getId()))) {
+					this.events.remove(i);
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Publisher recording the Ids of the events it was given.
+	 */
+	private static class RecordingPublisher extends FlightTopicPublisher {
+		private final List<Integer> eventIds = new ArrayList<Integer>();
+		private boolean fail;
+
+		private RecordingPublisher() {
+			super(null, null, 1);
+		}
+
+		public void publishEvents(List<OutboxEvent> events) throws JMSException {
+			if (this.fail) {
+				throw new JMSException("Connection lost");
+			}
+			for (OutboxEvent event : events) {
+				this.eventIds.add(Integer.valueOf(event.getId()));
+			}
+		}
+	}
+}
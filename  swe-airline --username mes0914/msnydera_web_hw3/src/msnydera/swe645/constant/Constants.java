@@ -10,4 +10,7 @@ package msnydera.swe645.constant;
 public final class Constants {
 	public final static String EAR_FILE_NAME = "msnydera_hw3";
 	public final static String CURRENT_USER = "currentUser";
+
+	// Session attribute holding the SearchResultStore handle of the last search
+	public final static String SEARCH_HANDLE = "searchHandle";
 }
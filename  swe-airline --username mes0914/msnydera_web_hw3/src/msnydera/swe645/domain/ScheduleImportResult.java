@@ -0,0 +1,122 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This object is used to represent the outcome of a schedule upload. If the
+ * import failed part way through, every line up to lastCommittedLine has been
+ * handled (created or rejected), so the file can be uploaded again starting
+ * after that line.
+ */
+public class ScheduleImportResult {
+	// Most error messages kept; rejectedCount keeps counting past it
+	public static final int MAX_ERROR_MESSAGES = 100;
+
+	// Number of flight lines read (not counting skipped, blank or header lines)
+	private long linesRead;
+
+	// Number of flights created
+	private long createdCount;
+
+	// Number of lines that could not be parsed or failed validation
+	private long rejectedCount;
+
+	// Last line of the file that is done; resume the import after this line
+	private int lastCommittedLine;
+
+	// Length of the import in milliseconds
+	private long elapsedMillis;
+
+	// Why the import stopped early, null if it read the whole file
+	private String failureMessage;
+
+	// The first MAX_ERROR_MESSAGES problems, each starting with its line number
+	private List<String> errorMessages = new ArrayList<String>();
+
+	public long getLinesRead() {
+		return linesRead;
+	}
+
+	public void setLinesRead(long linesRead) {
+		this.linesRead = linesRead;
+	}
+
+	public long getCreatedCount() {
+		return createdCount;
+	}
+
+	public void setCreatedCount(long createdCount) {
+		this.createdCount = createdCount;
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	public void setRejectedCount(long rejectedCount) {
+		this.rejectedCount = rejectedCount;
+	}
+
+	public int getLastCommittedLine() {
+		return lastCommittedLine;
+	}
+
+	public void setLastCommittedLine(int lastCommittedLine) {
+		this.lastCommittedLine = lastCommittedLine;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public String getFailureMessage() {
+		return failureMessage;
+	}
+
+	public void setFailureMessage(String failureMessage) {
+		this.failureMessage = failureMessage;
+	}
+
+	public List<String> getErrorMessages() {
+		return errorMessages;
+	}
+
+	public void setErrorMessages(List<String> errorMessages) {
+		this.errorMessages = errorMessages;
+	}
+
+	/**
+	 * Adds the provided message unless MAX_ERROR_MESSAGES have already been
+	 * added.
+	 *
+	 * @param errorMessage
+	 *            Message to add.
+	 */
+	public void addErrorMessage(String errorMessage) {
+		if (this.errorMessages.size() < MAX_ERROR_MESSAGES) {
+			this.errorMessages.add(errorMessage);
+		}
+	}
+
+	/**
+	 * @return True if the whole file was imported.
+	 */
+	public boolean isCompleted() {
+		return this.failureMessage == null;
+	}
+
+	/**
+	 * @return Lines read per second over the whole import.
+	 */
+	public long getRowsPerSecond() {
+		return this.elapsedMillis == 0 ? 0 : this.linesRead * 1000 / this.elapsedMillis;
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ * FlightPage.java
+ *
+ * This file was auto-generated from WSDL
+ * by the Apache Axis 1.4 Apr 22, 2006 (06:55:48 PDT) WSDL2Java emitter.
+ */
+
+package msnydera.swe645.service.ejb;
+
+public class FlightPage  implements java.io.Serializable {
+    private msnydera.swe645.service.ejb.Flight[] flights;
+
+    private java.lang.String nextPageToken;
+
+    public FlightPage() {
+    }
+
+    public FlightPage(
+           msnydera.swe645.service.ejb.Flight[] flights,
+           java.lang.String nextPageToken) {
+           this.flights = flights;
+           this.nextPageToken = nextPageToken;
+    }
+
+
+    /**
+     * Gets the flights value for this FlightPage.
+     * 
+     * @return flights
+     */
+    public msnydera.swe645.service.ejb.Flight[] getFlights() {
+        return flights;
+    }
+
+
+    /**
+     * Sets the flights value for this FlightPage.
+     * 
+     * @param flights
+     */
+    public void setFlights(msnydera.swe645.service.ejb.Flight[] flights) {
+        this.flights = flights;
+    }
+
+    public msnydera.swe645.service.ejb.Flight getFlights(int i) {
+        return this.flights[i];
+    }
+
+    public void setFlights(int i, msnydera.swe645.service.ejb.Flight _value) {
+        this.flights[i] = _value;
+    }
+
+
+    /**
+     * Gets the nextPageToken value for this FlightPage.
+     * 
+     * @return nextPageToken
+     */
+    public java.lang.String getNextPageToken() {
+        return nextPageToken;
+    }
+
+
+    /**
+     * Sets the nextPageToken value for this FlightPage.
+     * 
+     * @param nextPageToken
+     */
+    public void setNextPageToken(java.lang.String nextPageToken) {
+        this.nextPageToken = nextPageToken;
+    }
+
+    private java.lang.Object __equalsCalc = null;
+    public synchronized boolean equals(java.lang.Object obj) {
+        if (!(obj instanceof FlightPage)) return false;
+        FlightPage other = (FlightPage) obj;
+        if (obj == null) return false;
+        if (this == obj) return true;
+        if (__equalsCalc != null) {
+            return (__equalsCalc == obj);
+        }
+        __equalsCalc = obj;
+        boolean _equals;
+        _equals = true && 
+            ((this.flights==null && other.getFlights()==null) || 
+             (this.flights!=null &&
+              java.util.Arrays.equals(this.flights, other.getFlights()))) &&
+            ((this.nextPageToken==null && other.getNextPageToken()==null) || 
+             (this.nextPageToken!=null &&
+              this.nextPageToken.equals(other.getNextPageToken())));
+        __equalsCalc = null;
+        return _equals;
+    }
+
+    private boolean __hashCodeCalc = false;
+    public synchronized int hashCode() {
+        if (__hashCodeCalc) {
+            return 0;
+        }
+        __hashCodeCalc = true;
+        int _hashCode = 1;
+        if (getFlights() != null) {
+            for (int i=0;
+                 i<java.lang.reflect.Array.getLength(getFlights());
+                 i++) {
+                java.lang.Object obj = java.lang.reflect.Array.get(getFlights(), i);
+                if (obj != null &&
+                    !obj.getClass().isArray()) {
+                    _hashCode += obj.hashCode();
+                }
+            }
+        }
+        if (getNextPageToken() != null) {
+            _hashCode += getNextPageToken().hashCode();
+        }
+        __hashCodeCalc = false;
+        return _hashCode;
+    }
+
+    // Type metadata
+    private static org.apache.axis.description.TypeDesc typeDesc =
+        new org.apache.axis.description.TypeDesc(FlightPage.class, true);
+
+    static {
+        typeDesc.setXmlType(new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "flightPage"));
+        org.apache.axis.description.ElementDesc elemField = new org.apache.axis.description.ElementDesc();
+        elemField.setFieldName("flights");
+        elemField.setXmlName(new javax.xml.namespace.QName("", "flights"));
+        elemField.setXmlType(new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "flight"));
+        elemField.setMinOccurs(0);
+        elemField.setNillable(true);
+        elemField.setMaxOccursUnbounded(true);
+        typeDesc.addFieldDesc(elemField);
+        elemField = new org.apache.axis.description.ElementDesc();
+        elemField.setFieldName("nextPageToken");
+        elemField.setXmlName(new javax.xml.namespace.QName("", "nextPageToken"));
+        elemField.setXmlType(new javax.xml.namespace.QName("http://www.w3.org/2001/XMLSchema", "string"));
+        elemField.setMinOccurs(0);
+        elemField.setNillable(false);
+        typeDesc.addFieldDesc(elemField);
+    }
+
+    /**
+     * Return type metadata object
+     */
+    public static org.apache.axis.description.TypeDesc getTypeDesc() {
+        return typeDesc;
+    }
+
+    /**
+     * Get Custom Serializer
+     */
+    public static org.apache.axis.encoding.Serializer getSerializer(
+           java.lang.String mechType, 
+           java.lang.Class _javaType,  
+           javax.xml.namespace.QName _xmlType) {
+        return 
+          new  org.apache.axis.encoding.ser.BeanSerializer(
+            _javaType, _xmlType, typeDesc);
+    }
+
+    /**
+     * Get Custom Deserializer
+     */
+    public static org.apache.axis.encoding.Deserializer getDeserializer(
+           java.lang.String mechType, 
+           java.lang.Class _javaType,  
+           javax.xml.namespace.QName _xmlType) {
+        return 
+          new  org.apache.axis.encoding.ser.BeanDeserializer(
+            _javaType, _xmlType, typeDesc);
+    }
+
+}
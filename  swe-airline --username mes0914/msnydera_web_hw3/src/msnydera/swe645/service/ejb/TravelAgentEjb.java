@@ -9,4 +9,5 @@ package msnydera.swe645.service.ejb;
 
 public interface TravelAgentEjb extends java.rmi.Remote {
     public msnydera.swe645.service.ejb.Flight[] search(msnydera.swe645.service.ejb.SearchFilters arg0) throws java.rmi.RemoteException, msnydera.swe645.service.ejb.ValidationException, msnydera.swe645.service.ejb.DataAccessException;
+    public msnydera.swe645.service.ejb.FlightPage searchPage(msnydera.swe645.service.ejb.SearchFilters arg0, int arg1, java.lang.String arg2) throws java.rmi.RemoteException, msnydera.swe645.service.ejb.ValidationException, msnydera.swe645.service.ejb.DataAccessException;
 }
@@ -16,7 +16,7 @@ public class TravelAgentEjbBindingStub extends org.apache.axis.client.Stub imple
     static org.apache.axis.description.OperationDesc [] _operations;
 
     static {
-        _operations = new org.apache.axis.description.OperationDesc[1];
+        _operations = new org.apache.axis.description.OperationDesc[2];
         _initOperationDesc1();
     }
 
@@ -47,6 +47,35 @@ public class TravelAgentEjbBindingStub extends org.apache.axis.client.Stub imple
                      ));
         _operations[0] = oper;
 
+        oper = new org.apache.axis.description.OperationDesc();
+        oper.setName("searchPage");
+        param = new org.apache.axis.description.ParameterDesc(new javax.xml.namespace.QName("", "arg0"), org.apache.axis.description.ParameterDesc.IN, new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "searchFilters"), msnydera.swe645.service.ejb.SearchFilters.class, false, false);
+        param.setOmittable(true);
+        oper.addParameter(param);
+        param = new org.apache.axis.description.ParameterDesc(new javax.xml.namespace.QName("", "arg1"), org.apache.axis.description.ParameterDesc.IN, new javax.xml.namespace.QName("http://www.w3.org/2001/XMLSchema", "int"), int.class, false, false);
+        oper.addParameter(param);
+        param = new org.apache.axis.description.ParameterDesc(new javax.xml.namespace.QName("", "arg2"), org.apache.axis.description.ParameterDesc.IN, new javax.xml.namespace.QName("http://www.w3.org/2001/XMLSchema", "string"), java.lang.String.class, false, false);
+        param.setOmittable(true);
+        oper.addParameter(param);
+        oper.setReturnType(new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "flightPage"));
+        oper.setReturnClass(msnydera.swe645.service.ejb.FlightPage.class);
+        oper.setReturnQName(new javax.xml.namespace.QName("", "return"));
+        oper.setStyle(org.apache.axis.constants.Style.WRAPPED);
+        oper.setUse(org.apache.axis.constants.Use.LITERAL);
+        oper.addFault(new org.apache.axis.description.FaultDesc(
+                      new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "ValidationException"),
+                      "msnydera.swe645.service.ejb.ValidationException",
+                      new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "ValidationException"), 
+                      true
+                     ));
+        oper.addFault(new org.apache.axis.description.FaultDesc(
+                      new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "DataAccessException"),
+                      "msnydera.swe645.service.ejb.DataAccessException",
+                      new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "DataAccessException"), 
+                      true
+                     ));
+        _operations[1] = oper;
+
     }
 
     public TravelAgentEjbBindingStub() throws org.apache.axis.AxisFault {
@@ -106,6 +135,13 @@ public class TravelAgentEjbBindingStub extends org.apache.axis.client.Stub imple
             cachedSerFactories.add(beansf);
             cachedDeserFactories.add(beandf);
 
+            qName = new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "flightPage");
+            cachedSerQNames.add(qName);
+            cls = msnydera.swe645.service.ejb.FlightPage.class;
+            cachedSerClasses.add(cls);
+            cachedSerFactories.add(beansf);
+            cachedDeserFactories.add(beandf);
+
             qName = new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "search");
             cachedSerQNames.add(qName);
             cls = msnydera.swe645.service.ejb.Search.class;
@@ -120,6 +156,13 @@ public class TravelAgentEjbBindingStub extends org.apache.axis.client.Stub imple
             cachedSerFactories.add(beansf);
             cachedDeserFactories.add(beandf);
 
+            qName = new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "searchPage");
+            cachedSerQNames.add(qName);
+            cls = msnydera.swe645.service.ejb.SearchPage.class;
+            cachedSerClasses.add(cls);
+            cachedSerFactories.add(beansf);
+            cachedDeserFactories.add(beandf);
+
             qName = new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "searchResponse");
             cachedSerQNames.add(qName);
             cls = msnydera.swe645.service.ejb.Flight[].class;
@@ -247,4 +290,49 @@ public class TravelAgentEjbBindingStub extends org.apache.axis.client.Stub imple
 }
     }
 
+    public msnydera.swe645.service.ejb.FlightPage searchPage(msnydera.swe645.service.ejb.SearchFilters arg0, int arg1, java.lang.String arg2) throws java.rmi.RemoteException, msnydera.swe645.service.ejb.ValidationException, msnydera.swe645.service.ejb.DataAccessException {
+        if (super.cachedEndpoint == null) {
+            throw new org.apache.axis.NoEndPointException();
+        }
+        org.apache.axis.client.Call _call = createCall();
+        _call.setOperation(_operations[1]);
+        _call.setUseSOAPAction(true);
+        _call.setSOAPActionURI("");
+        _call.setEncodingStyle(null);
+        _call.setProperty(org.apache.axis.client.Call.SEND_TYPE_ATTR, Boolean.FALSE);
+        _call.setProperty(org.apache.axis.AxisEngine.PROP_DOMULTIREFS, Boolean.FALSE);
+        _call.setSOAPVersion(org.apache.axis.soap.SOAPConstants.SOAP11_CONSTANTS);
+        _call.setOperationName(new javax.xml.namespace.QName("http://ejb.service.swe645.msnydera/", "searchPage"));
+
+        setRequestHeaders(_call);
+        setAttachments(_call);
+ try {        java.lang.Object _resp = _call.invoke(new java.lang.Object[] {arg0, new java.lang.Integer(arg1), arg2});
+
+        if (_resp instanceof java.rmi.RemoteException) {
+            throw (java.rmi.RemoteException)_resp;
+        }
+        else {
+            extractAttachments(_call);
+            try {
+                return (msnydera.swe645.service.ejb.FlightPage) _resp;
+            } catch (java.lang.Exception _exception) {
+                return (msnydera.swe645.service.ejb.FlightPage) org.apache.axis.utils.JavaUtils.convert(_resp, msnydera.swe645.service.ejb.FlightPage.class);
+            }
+        }
+  } catch (org.apache.axis.AxisFault axisFaultException) {
+    if (axisFaultException.detail != null) {
+        if (axisFaultException.detail instanceof java.rmi.RemoteException) {
+              throw (java.rmi.RemoteException) axisFaultException.detail;
+         }
+        if (axisFaultException.detail instanceof msnydera.swe645.service.ejb.ValidationException) {
+              throw (msnydera.swe645.service.ejb.ValidationException) axisFaultException.detail;
+         }
+        if (axisFaultException.detail instanceof msnydera.swe645.service.ejb.DataAccessException) {
+              throw (msnydera.swe645.service.ejb.DataAccessException) axisFaultException.detail;
+         }
+   }
+  throw axisFaultException;
+}
+    }
+
 }
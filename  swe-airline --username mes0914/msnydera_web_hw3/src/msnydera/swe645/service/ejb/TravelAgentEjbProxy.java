@@ -50,5 +50,11 @@ public class TravelAgentEjbProxy implements msnydera.swe645.service.ejb.TravelAg
     return travelAgentEjb.search(arg0);
   }
   
+  public msnydera.swe645.service.ejb.FlightPage searchPage(msnydera.swe645.service.ejb.SearchFilters arg0, int arg1, java.lang.String arg2) throws java.rmi.RemoteException, msnydera.swe645.service.ejb.ValidationException, msnydera.swe645.service.ejb.DataAccessException{
+    if (travelAgentEjb == null)
+      _initTravelAgentEjbProxy();
+    return travelAgentEjb.searchPage(arg0, arg1, arg2);
+  }
+  
   
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Reads a multipart/form-data request body one line at a time, so an uploaded
+ * text file can be processed without holding the whole file in memory. The
+ * parts must be read in the order the browser sent them, which is the order
+ * of the fields in the form.
+ */
+public class MultipartLineReader {
+	private static final String CONTENT_TYPE = "multipart/form-data";
+	private static final String BOUNDARY = "boundary=";
+	private static final String ENCODING = "ISO-8859-1";
+
+	private final BufferedReader in;
+	private final String boundary;
+
+	private String partName;
+	private String fileName;
+
+	// True once the current part has been read up to its boundary
+	private boolean partDone = true;
+
+	// True once the closing boundary (or the end of the body) has been read
+	private boolean finished;
+
+	/**
+	 * Creates a reader for the provided request body.
+	 *
+	 * @param input
+	 *            Body of the request.
+	 * @param contentType
+	 *            Content type of the request, which holds the part boundary.
+	 * @throws IOException
+	 *             Thrown if the body can't be read or the content type isn't
+	 *             multipart/form-data.
+	 */
+	public MultipartLineReader(InputStream input, String contentType) throws IOException {
+		if (!isMultipart(contentType)) {
+			throw new IOException("Not a " + CONTENT_TYPE + " request: " + contentType);
+		}
+
+		this.in = new BufferedReader(new InputStreamReader(input, ENCODING));
+		this.boundary = "--" + getBoundary(contentType);
+
+		// Skip the preamble before the first part
+		String line = this.in.readLine();
+		while (line != null && !line.equals(this.boundary) && !line.equals(this.boundary + "--")) {
+			line = this.in.readLine();
+		}
+		this.finished = line == null || !line.equals(this.boundary);
+	}
+
+	/**
+	 * @param contentType
+	 *            Content type of a request.
+	 * @return True if the content type is multipart/form-data with a boundary.
+	 */
+	public static boolean isMultipart(String contentType) {
+		return contentType != null && contentType.toLowerCase().startsWith(CONTENT_TYPE)
+				&& contentType.indexOf(BOUNDARY) > 0;
+	}
+
+	/**
+	 * Moves to the next part, skipping whatever is left of the current one.
+	 *
+	 * @return True if there is another part, false if the body is done.
+	 * @throws IOException
+	 *             Thrown if the body can't be read.
+	 */
+	public boolean nextPart() throws IOException {
+		while (readLine() != null) {
+			// Intentially do nothing, the rest of the part is skipped
+		}
+		if (this.finished) {
+			return false;
+		}
+
+		this.partName = null;
+		this.fileName = null;
+
+		String header;
+		while ((header = this.in.readLine()) != null && header.length() > 0) {
+			if (header.toLowerCase().startsWith("content-disposition:")) {
+				this.partName = getHeaderValue(header, "name");
+				this.fileName = getHeaderValue(header, "filename");
+			}
+		}
+		if (header == null) {
+			this.finished = true;
+			return false;
+		}
+
+		this.partDone = false;
+		return true;
+	}
+
+	/**
+	 * @return The next line of the current part, or null at the end of the
+	 *         part.
+	 * @throws IOException
+	 *             Thrown if the body can't be read.
+	 */
+	public String readLine() throws IOException {
+		if (this.partDone) {
+			return null;
+		}
+
+		String line = this.in.readLine();
+		if (line == null || line.equals(this.boundary + "--")) {
+			this.partDone = true;
+			this.finished = true;
+			return null;
+		}
+		if (line.equals(this.boundary)) {
+			this.partDone = true;
+			return null;
+		}
+		return line;
+	}
+
+	/**
+	 * @return Name of the form field of the current part.
+	 */
+	public String getPartName() {
+		return partName;
+	}
+
+	/**
+	 * @return Name of the uploaded file of the current part, null if the part
+	 *         isn't a file.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	private static String getBoundary(String contentType) {
+		String boundary = contentType.substring(contentType.indexOf(BOUNDARY) + BOUNDARY.length());
+		int end = boundary.indexOf(';');
+		if (end >= 0) {
+			boundary = boundary.substring(0, end);
+		}
+		boundary = boundary.trim();
+		if (boundary.startsWith("\"") && boundary.endsWith("\"") && boundary.length() > 1) {
+			boundary = boundary.substring(1, boundary.length() - 1);
+		}
+		return boundary;
+	}
+
+	private static String getHeaderValue(String header, String name) {
+		String key = "; " + name + "=\"";
+		int start = header.indexOf(key);
+		if (start < 0) {
+			return null;
+		}
+		start += key.length();
+		int end = header.indexOf('"', start);
+		return end < 0 ? null : header.substring(start, end);
+	}
+}
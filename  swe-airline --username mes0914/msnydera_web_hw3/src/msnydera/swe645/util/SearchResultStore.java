@@ -0,0 +1,183 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.util;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import msnydera.swe645.domain.Flight;
+
+/**
+ * Keeps the flights of recent searches on the server, so the session only
+ * holds the short handle returned by put(). One store is shared by every
+ * session of the web application.
+ *
+ * A search is dropped when it hasn't been read for the time to live, and the
+ * least recently read searches are dropped first when the store holds more
+ * than its most flights in total. The memory the store uses is therefore
+ * capped however many agents are searching; a handle whose search was
+ * dropped returns null, and the agent searches again.
+ */
+public class SearchResultStore {
+	// Defaults of the shared store
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = 15 * 60 * 1000;
+	public static final int DEFAULT_MAX_FLIGHTS = 100000;
+
+	private static final SearchResultStore instance = new SearchResultStore(DEFAULT_TIME_TO_LIVE_MILLIS,
+			DEFAULT_MAX_FLIGHTS);
+
+	private final long timeToLiveMillis;
+	private final int maxFlights;
+
+	// Searches by handle, least recently read first. Guarded by this.
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	// Flights in all of the entries. Guarded by this.
+	private int flightCount;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private long evictionCount;
+
+	/**
+	 * Creates a store.
+	 *
+	 * @param timeToLiveMillis
+	 *            How long a search is kept after it was last read, in
+	 *            milliseconds.
+	 * @param maxFlights
+	 *            Most flights kept over all of the searches.
+	 */
+	public SearchResultStore(long timeToLiveMillis, int maxFlights) {
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.maxFlights = maxFlights;
+	}
+
+	/**
+	 * @return The store shared by the sessions of the web application.
+	 */
+	public static SearchResultStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Stores the flights of a search.
+	 *
+	 * @param flights
+	 *            Flights found by the search.
+	 * @return Handle to read the flights back with.
+	 */
+	public synchronized String put(Collection<Flight> flights) {
+		long now = System.currentTimeMillis();
+		evictExpired(now);
+
+		String handle = Long.toString(this.random.nextLong() & Long.MAX_VALUE, Character.MAX_RADIX);
+		Entry entry = new Entry(Collections.unmodifiableList(new ArrayList<Flight>(flights)), now);
+		this.entries.put(handle, entry);
+		this.flightCount += entry.flights.size();
+
+		// Drop the least recently read searches, but always keep this one
+		Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+		while (this.flightCount > this.maxFlights && this.entries.size() > 1) {
+			remove(iterator);
+		}
+
+		return handle;
+	}
+
+	/**
+	 * Returns the flights of a search.
+	 *
+	 * @param handle
+	 *            Handle returned by put(), may be null.
+	 * @return The flights, or null if there is no such search or it was
+	 *         dropped.
+	 */
+	public synchronized Collection<Flight> get(String handle) {
+		if (handle == null) {
+			return null;
+		}
+
+		long now = System.currentTimeMillis();
+		evictExpired(now);
+
+		Entry entry = this.entries.get(handle);
+		if (entry == null) {
+			return null;
+		}
+		entry.lastReadAt = now;
+		return entry.flights;
+	}
+
+	/**
+	 * Drops a search that is no longer needed.
+	 *
+	 * @param handle
+	 *            Handle returned by put(), may be null.
+	 */
+	public synchronized void remove(String handle) {
+		if (handle == null) {
+			return;
+		}
+
+		Entry entry = this.entries.remove(handle);
+		if (entry != null) {
+			this.flightCount -= entry.flights.size();
+		}
+	}
+
+	public synchronized int getSearchCount() {
+		return this.entries.size();
+	}
+
+	public synchronized int getFlightCount() {
+		return this.flightCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Drops the searches that weren't read within the time to live. They are
+	 * the first ones in access order.
+	 */
+	private void evictExpired(long now) {
+		Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Entry entry = iterator.next().getValue();
+			if (now - entry.lastReadAt < this.timeToLiveMillis) {
+				return;
+			}
+			iterator.remove();
+			this.flightCount -= entry.flights.size();
+			this.evictionCount++;
+		}
+	}
+
+	private void remove(Iterator<Map.Entry<String, Entry>> iterator) {
+		Entry entry = iterator.next().getValue();
+		iterator.remove();
+		this.flightCount -= entry.flights.size();
+		this.evictionCount++;
+	}
+
+	/**
+	 * The flights of one search and when they were last read.
+	 */
+	private static class Entry {
+		private final Collection<Flight> flights;
+		private long lastReadAt;
+
+		private Entry(Collection<Flight> flights, long lastReadAt) {
+			this.flights = flights;
+			this.lastReadAt = lastReadAt;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.NamingException;
+
+import msnydera.swe645.constant.Constants;
+import msnydera.swe645.service.ejb.HeadquartersEjbRemote;
+import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
+
+/**
+ * Looks up the remote EJBs once and hands the same proxy to every request,
+ * instead of creating an InitialContext and doing a JNDI lookup per request.
+ *
+ * The proxy that is handed out wraps the looked up EJB. If a call on it
+ * fails with an exception the method doesn't declare (i.e. the remote call
+ * itself failed, not the business logic), the cached EJB is dropped, so the
+ * next call looks it up again; the failed call is not retried, since it may
+ * have been run. A lookup that fails is not cached either.
+ *
+ * The locator counts the lookups, the time they took, the requests served
+ * from the cache, and the failures that dropped a cached EJB.
+ */
+public class ServiceLocator {
+	private static final ServiceLocator instance = new ServiceLocator();
+
+	// Looked up EJBs by JNDI name
+	private final ConcurrentMap<String, Object> services = new ConcurrentHashMap<String, Object>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong lookupCount = new AtomicLong();
+	private final AtomicLong lookupNanos = new AtomicLong();
+	private final AtomicLong failureCount = new AtomicLong();
+
+	/**
+	 * @return The locator shared by the servlets of the web application.
+	 */
+	public static ServiceLocator getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return The remote travel agent EJB.
+	 * @throws NamingException
+	 *             Thrown if the EJB isn't cached and can't be looked up.
+	 */
+	public TravelAgentEjbRemote getTravelAgentEjb() throws NamingException {
+		return getService(Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote", TravelAgentEjbRemote.class);
+	}
+
+	/**
+	 * @return The remote headquarters EJB.
+	 * @throws NamingException
+	 *             Thrown if the EJB isn't cached and can't be looked up.
+	 */
+	public HeadquartersEjbRemote getHeadquartersEjb() throws NamingException {
+		return getService(Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote", HeadquartersEjbRemote.class);
+	}
+
+	/**
+	 * Returns the EJB bound to jndiName, looking it up if it isn't cached.
+	 *
+	 * @param jndiName
+	 *            JNDI name of the EJB.
+	 * @param type
+	 *            Business interface of the EJB.
+	 * @return Proxy of the EJB.
+	 * @throws NamingException
+	 *             Thrown if the lookup fails.
+	 */
+	public <T> T getService(String jndiName, Class<T> type) throws NamingException {
+		Object service = this.services.get(jndiName);
+		if (service != null) {
+			this.hitCount.incrementAndGet();
+			return type.cast(service);
+		}
+
+		long start = System.nanoTime();
+		Object target;
+		try {
+			target = ResourceUtil.getInitialContext().lookup(jndiName);
+		} finally {
+			this.lookupCount.incrementAndGet();
+			this.lookupNanos.addAndGet(System.nanoTime() - start);
+		}
+
+		service = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new FailureHandler(jndiName,
+				target));
+		Object cached = this.services.putIfAbsent(jndiName, service);
+		return type.cast(cached != null ? cached : service);
+	}
+
+	/**
+	 * Drops all of the cached EJBs, so they are looked up again.
+	 */
+	public void clear() {
+		this.services.clear();
+	}
+
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	public long getLookupCount() {
+		return this.lookupCount.get();
+	}
+
+	public long getFailureCount() {
+		return this.failureCount.get();
+	}
+
+	/**
+	 * @return Average time of a JNDI lookup, in microseconds.
+	 */
+	public long getAverageLookupMicros() {
+		long lookups = getLookupCount();
+		return lookups == 0 ? 0 : this.lookupNanos.get() / lookups / 1000;
+	}
+
+	/**
+	 * @return The fraction of requests served from the cache, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long hits = getHitCount();
+		long total = hits + getLookupCount();
+		return total == 0 ? 0.0 : (double) hits / total;
+	}
+
+	/**
+	 * @return One line summary of the counters, for logging.
+	 */
+	public String getStatistics() {
+		return "hits=" + getHitCount() + ", lookups=" + getLookupCount() + ", hitRate=" + getHitRate()
+				+ ", averageLookupMicros=" + getAverageLookupMicros() + ", failures=" + getFailureCount();
+	}
+
+	/**
+	 * Calls the looked up EJB, and drops it from the cache if the call fails
+	 * with an exception its method doesn't declare.
+	 */
+	private class FailureHandler implements InvocationHandler {
+		private final String jndiName;
+		private final Object target;
+
+		private FailureHandler(String jndiName, Object target) {
+			this.jndiName = jndiName;
+			this.target = target;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(this.target, args);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (!isDeclared(method, cause)) {
+					failureCount.incrementAndGet();
+					// Only drop the proxy if it hasn't been replaced already
+					services.remove(this.jndiName, proxy);
+				}
+				throw cause;
+			}
+		}
+
+		private boolean isDeclared(Method method, Throwable cause) {
+			for (Class<?> exceptionType : method.getExceptionTypes()) {
+				if (exceptionType.isInstance(cause)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.web.listener;
+
+import javax.naming.NamingException;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import msnydera.swe645.util.ServiceLocator;
+
+/**
+ * Schedules the outbox relay of the EJB module when the web application is
+ * deployed, so the flight and seat events left in the outbox by an earlier
+ * run are published right away instead of after the next write. If the EJBs
+ * can't be reached yet, the relay is started by the first write instead.
+ */
+public class OutboxRelayStarter implements ServletContextListener {
+
+	/**
+	 * @see ServletContextListener#contextInitialized(ServletContextEvent)
+	 */
+	public void contextInitialized(ServletContextEvent event) {
+		try {
+			ServiceLocator.getInstance().getHeadquartersEjb().startOutboxRelay();
+		} catch (NamingException e) {
+			e.printStackTrace();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @see ServletContextListener#contextDestroyed(ServletContextEvent)
+	 */
+	public void contextDestroyed(ServletContextEvent event) {
+		// Intentially do nothing
+	}
+}
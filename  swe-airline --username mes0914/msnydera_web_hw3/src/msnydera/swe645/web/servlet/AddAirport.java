@@ -12,11 +12,10 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import msnydera.swe645.constant.Constants;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.ejb.HeadquartersEjbRemote;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
 import msnydera.swe645.util.StringUtils;
 
 /**
@@ -90,8 +89,7 @@ public class AddAirport extends HttpServlet {
 	 */
 	private void addAirport(String airport) throws ValidationException, Exception {
 		try {
-			 HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote)
-			 ResourceUtil.getInitialContext().lookup(Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
+			HeadquartersEjbRemote ejbRef = ServiceLocator.getInstance().getHeadquartersEjb();
 //			HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote) ResourceUtil.getLoggedInContext(user).lookup(
 //					Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
 			ejbRef.createAirport(airport);
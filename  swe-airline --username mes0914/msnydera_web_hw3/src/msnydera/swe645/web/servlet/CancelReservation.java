@@ -9,13 +9,12 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import msnydera.swe645.constant.Constants;
 import msnydera.swe645.domain.Reservation;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
 import msnydera.swe645.util.NumberUtils;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
 import msnydera.swe645.util.StringUtils;
 
 /**
@@ -90,8 +89,7 @@ public class CancelReservation extends HttpServlet {
 	 */
 	private Reservation cancelReservation(String reservationId) throws ValidationException, Exception {
 		try {
-			 TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote)
-			 ResourceUtil.getInitialContext().lookup(Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 //			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getLoggedInContext(user).lookup(
 //					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
 			Reservation reservation = ejbRef.cancelReservation(Integer.parseInt(reservationId));
@@ -12,12 +12,11 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import msnydera.swe645.constant.Constants;
 import msnydera.swe645.domain.Customer;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
 import msnydera.swe645.util.StringUtils;
 
 /**
@@ -89,8 +88,7 @@ public class CreateCustomer extends HttpServlet {
 	 */
 	private void createCustomer(Customer customer) throws ValidationException, Exception {
 		try {
-			 TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote)
-			 ResourceUtil.getInitialContext().lookup(Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 //			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getLoggedInContext(user).lookup(
 //					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
 			ejbRef.createCustomer(customer);
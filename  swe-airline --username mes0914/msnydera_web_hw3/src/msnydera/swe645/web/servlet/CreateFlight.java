@@ -15,7 +15,6 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import msnydera.swe645.constant.Constants;
 import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Airport;
 import msnydera.swe645.domain.Flight;
@@ -23,7 +22,7 @@ import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.ejb.HeadquartersEjbRemote;
 import msnydera.swe645.util.NumberUtils;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
 import msnydera.swe645.util.StringUtils;
 
 /**
@@ -102,8 +101,7 @@ public class CreateFlight extends HttpServlet {
 	 */
 	private int createFlight(Flight flight) throws ValidationException, Exception {
 		try {
-			 HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote)
-			 ResourceUtil.getInitialContext().lookup(Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
+			HeadquartersEjbRemote ejbRef = ServiceLocator.getInstance().getHeadquartersEjb();
 //			HeadquartersEjbRemote ejbRef = (HeadquartersEjbRemote) ResourceUtil.getLoggedInContext(user).lookup(
 //					Constants.EAR_FILE_NAME + "/HeadquartersEjb/remote");
 			return ejbRef.createFlight(flight);
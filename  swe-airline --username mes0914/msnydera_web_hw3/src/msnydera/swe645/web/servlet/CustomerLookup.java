@@ -0,0 +1,133 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.web.servlet;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+
+import javax.naming.NamingException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import msnydera.swe645.domain.Customer;
+import msnydera.swe645.exception.DataAccessException;
+import msnydera.swe645.exception.ValidationException;
+import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
+import msnydera.swe645.util.ServiceLocator;
+
+/**
+ * Servlet used by the customer typeahead. It returns, as a JSON array, the
+ * customers whose phone number starts with the 'q' parameter, or who have a
+ * word of their name starting with each word of it ("jane d" finds Jane Doe),
+ * e.g. [{"id":3,"name":"Jane Doe","phone":"703-555-1234"}]. A missing or
+ * empty 'q' returns an empty array.
+ */
+public class CustomerLookup extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	// Customers shown in the typeahead
+	private static final int MAX_RESULTS = 10;
+
+	/**
+	 * @see HttpServlet#HttpServlet()
+	 */
+	public CustomerLookup() {
+		super();
+	}
+
+	/**
+	 * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse
+	 *      response) Writes the matching customers as JSON.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		String prefix = request.getParameter("q");
+
+		Collection<Customer> customers = null;
+		if (prefix != null && !prefix.trim().equals("")) {
+			try {
+				customers = findCustomers(prefix);
+			} catch (NamingException e) {
+				e.printStackTrace();
+				response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server error occured during EJB lookup.");
+				return;
+			} catch (ValidationException e) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+				return;
+			} catch (DataAccessException e) {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+						"Server error occured while looking up the customers.");
+				return;
+			}
+		}
+
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+
+		PrintWriter out = response.getWriter();
+		out.print('[');
+		if (customers != null) {
+			boolean first = true;
+			for (Customer customer : customers) {
+				if (!first) {
+					out.print(',');
+				}
+				first = false;
+
+				out.print("{\"id\":" + customer.getId() + ",\"name\":" + toJson(customer.getName()) + ",\"phone\":"
+						+ toJson(customer.getPhone()) + "}");
+			}
+		}
+		out.print(']');
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
+	 *      response)
+	 */
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		this.doGet(request, response);
+	}
+
+	/**
+	 * Communicates with the remote EJB service to look up the customers.
+	 *
+	 * @param prefix
+	 *            Start of a customer name or phone number.
+	 * @return The matching customers.
+	 */
+	private Collection<Customer> findCustomers(String prefix) throws NamingException, ValidationException,
+			DataAccessException {
+		TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
+
+		return ejbRef.findCustomers(prefix, MAX_RESULTS);
+	}
+
+	/**
+	 * @return The value as a quoted JSON string, or null.
+	 */
+	private static String toJson(String value) {
+		if (value == null) {
+			return "null";
+		}
+
+		StringBuffer sb = new StringBuffer("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20 || c == '<' || c == '>' || c == '&') {
+				sb.append(String.format("\\u%04x", Integer.valueOf(c)));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
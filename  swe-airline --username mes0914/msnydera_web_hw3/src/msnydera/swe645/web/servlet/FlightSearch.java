@@ -19,13 +19,14 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import javax.xml.rpc.ServiceException;
 
 import msnydera.swe645.constant.Constants;
 import msnydera.swe645.domain.Airplane;
 import msnydera.swe645.domain.Airport;
-import msnydera.swe645.domain.Customer;
 import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightPage;
 import msnydera.swe645.domain.SearchFilters;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
@@ -33,15 +34,21 @@ import msnydera.swe645.service.ejb.TravelAgentEjb;
 import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
 import msnydera.swe645.service.ejb.TravelAgentEjbServiceLocator;
 import msnydera.swe645.util.DateUtil;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
+import msnydera.swe645.util.SearchResultStore;
 import msnydera.swe645.util.StringUtils;
 
 /**
- * Servlet providing the functionality of searching for flights.
+ * Servlet providing the functionality of searching for flights. The flights
+ * are fetched one page at a time, through either service; the 'pageToken'
+ * parameter picks the page after the first.
  */
 public class FlightSearch extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 
+	// Flights shown on one page
+	private static final int PAGE_SIZE = 50;
+
 	/**
 	 * @see HttpServlet#HttpServlet()
 	 */
@@ -61,6 +68,7 @@ public class FlightSearch extends HttpServlet {
 	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
 	 *      response) Handles the user's input for the searching of a flight.
 	 *      This method will forward the user back to the searchResults.jsp
+	 *      page with one page of the flights found and the token of the next
 	 *      page. If an error occurs, the message will be put into an 'error'
 	 *      attribute field name.
 	 */
@@ -105,19 +113,17 @@ public class FlightSearch extends HttpServlet {
 			String errorMessage = validateFilters(searchFilters);
 
 			if (errorMessage == null) {
-				Collection<Flight> flights = getFlights(searchFilters);
+				FlightPage page = getFlightPage(searchFilters, getPageToken(request));
+				Collection<Flight> flights = page.getFlights();
 
 				if (flights == null || flights.size() == 0) {
 					errorMessage = "Your search found no flights.  Please run a different search.";
 					dispatch = request.getRequestDispatcher("/prepareSearch");
 					request.setAttribute("error", errorMessage);
 				} else {
-					request.getSession().setAttribute("savedFlights", flights);
+					saveSearchResults(request, flights);
 					request.setAttribute("flights", flights);
-
-					Collection<Customer> customers = getCustomers();
-					request.getSession().setAttribute("customers", customers);
-					request.setAttribute("customers", customers);
+					request.setAttribute("nextPageToken", page.getNextPageToken());
 				}
 			} else {
 				dispatch = request.getRequestDispatcher("/prepareSearch");
@@ -158,21 +164,19 @@ public class FlightSearch extends HttpServlet {
 			String errorMessage = validateWebServiceFilters(searchFilters);
 
 			if (errorMessage == null) {
-				msnydera.swe645.service.ejb.Flight[] webServiceFlights = getWebServiceFlights(searchFilters);
+				msnydera.swe645.service.ejb.FlightPage page = getWebServiceFlightPage(searchFilters,
+						getPageToken(request));
 
-				Collection<Flight> flights = convertFlights(webServiceFlights);
+				Collection<Flight> flights = convertFlights(page.getFlights());
 
 				if (flights == null || flights.size() == 0) {
 					errorMessage = "Your search found no flights.  Please run a different search.";
 					dispatch = request.getRequestDispatcher("/prepareSearch");
 					request.setAttribute("error", errorMessage);
 				} else {
-					request.getSession().setAttribute("savedFlights", flights);
+					saveSearchResults(request, flights);
 					request.setAttribute("flights", flights);
-
-					Collection<Customer> customers = getCustomers();
-					request.getSession().setAttribute("customers", customers);
-					request.setAttribute("customers", customers);
+					request.setAttribute("nextPageToken", page.getNextPageToken());
 				}
 			} else {
 				dispatch = request.getRequestDispatcher("/prepareSearch");
@@ -263,12 +267,14 @@ public class FlightSearch extends HttpServlet {
 	}
 
 	/**
-	 * Communicates with the remote EJB service to search for flights based on
-	 * the provided SearchFilters object.
+	 * Communicates with the remote EJB service to get one page of the flights
+	 * that match the provided SearchFilters object.
 	 * 
 	 * @param searchFilters
 	 *            Filters used to limit the search results
-	 * @return Collection of flights that match the search filters.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of flights that match the search filters.
 	 * @throws ValidationException
 	 *             Thrown if there is a validation error or if there is a
 	 *             problem in communicating with the EJB.
@@ -278,13 +284,13 @@ public class FlightSearch extends HttpServlet {
 	 *             Thrown if an error occurs with the connection to the DB with
 	 *             the user.
 	 */
-	private Collection<Flight> getFlights(SearchFilters searchFilters) throws ValidationException, Exception {
+	private FlightPage getFlightPage(SearchFilters searchFilters, String pageToken) throws ValidationException,
+			Exception {
 
 		try {
-			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 
-			return ejbRef.search(searchFilters);
+			return ejbRef.searchPage(searchFilters, PAGE_SIZE, pageToken);
 		} catch (NamingException e) {
 			e.printStackTrace();
 			ValidationException ve = new ValidationException();
@@ -300,33 +306,35 @@ public class FlightSearch extends HttpServlet {
 	}
 
 	/**
-	 * Communicates with the Web Service to search for flights based on the
-	 * provided Web Service'sSearchFilters object.
+	 * Communicates with the Web Service to get one page of the flights that
+	 * match the provided Web Service's SearchFilters object.
 	 * 
 	 * @param searchFilters
 	 *            Filters used to limit the search results
-	 * @return Flight[] of Web Service flights that match the searchFilters.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of Web Service flights that match the searchFilters.
 	 * @throws ValidationException
 	 *             Thrown if there is a validation error or if there is a
 	 *             problem in communicating with the Web Service.
 	 */
-	private msnydera.swe645.service.ejb.Flight[] getWebServiceFlights(
-			msnydera.swe645.service.ejb.SearchFilters searchFilters) throws ValidationException {
+	private msnydera.swe645.service.ejb.FlightPage getWebServiceFlightPage(
+			msnydera.swe645.service.ejb.SearchFilters searchFilters, String pageToken) throws ValidationException {
 
 		try {
 			TravelAgentEjbServiceLocator service = new TravelAgentEjbServiceLocator();
 
 			TravelAgentEjb ejbRef = service.getTravelAgentEjbPort();
 
-			msnydera.swe645.service.ejb.Flight[] flights = ejbRef.search(searchFilters);
+			msnydera.swe645.service.ejb.FlightPage page = ejbRef.searchPage(searchFilters, PAGE_SIZE, pageToken);
 
-			if (flights == null) {
+			if (page.getFlights() == null) {
 				System.out.println("Flights was null");
 			} else {
-				System.out.println("Number of Flights: " + flights.length);
+				System.out.println("Number of Flights: " + page.getFlights().length);
 			}
 
-			return flights;
+			return page;
 			
 		} catch (ServiceException e) {
 			e.printStackTrace();
@@ -373,35 +381,34 @@ public class FlightSearch extends HttpServlet {
 	}
 
 	/**
-	 * Communicates with the remote EJB service to retrieve all of the
-	 * customers.
+	 * @param request
+	 *            Request of the search.
+	 * @return The 'pageToken' parameter, or null for the first page.
+	 */
+	private String getPageToken(HttpServletRequest request) {
+		String pageToken = request.getParameter("pageToken");
+		if (pageToken != null && pageToken.trim().equals("")) {
+			pageToken = null;
+		}
+		return pageToken;
+	}
+
+	/**
+	 * Keeps the flights in the SearchResultStore, and only their handle in
+	 * the session, so ReserveFlight can show them again. The previous search
+	 * of the session is dropped.
 	 * 
-	 * @return Collection of customers.
-	 * @throws ValidationException
-	 *             Thrown to help with messages
-	 * @throws Exception
-	 *             Thrown if an error occurs with the connection to the DB with
-	 *             the user.
+	 * @param request
+	 *            Request of the search.
+	 * @param flights
+	 *            Flights that were found.
 	 */
-	private Collection<Customer> getCustomers() throws ValidationException, Exception {
-		try {
-			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getInitialContext().lookup(
-					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
-			// TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote)
-			// ResourceUtil.getLoggedInContext(user).lookup(
-			// Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+	private void saveSearchResults(HttpServletRequest request, Collection<Flight> flights) {
+		SearchResultStore store = SearchResultStore.getInstance();
+		HttpSession session = request.getSession();
 
-			return ejbRef.getAllCustomers();
-		} catch (NamingException e) {
-			e.printStackTrace();
-			ValidationException ve = new ValidationException();
-			ve.addErrorMessage("Server error occured during EJB lookup.");
-			throw ve;
-		} catch (DataAccessException e) {
-			ValidationException ve = new ValidationException();
-			ve.addErrorMessage("Server error occured while retrieving all the customers.");
-			throw ve;
-		}
+		store.remove((String) session.getAttribute(Constants.SEARCH_HANDLE));
+		session.setAttribute(Constants.SEARCH_HANDLE, store.put(flights));
 	}
 
 	/**
@@ -0,0 +1,350 @@
+/*
+ * Created by: Matt Snyder
+ */
+package msnydera.swe645.web.servlet;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.NamingException;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import msnydera.swe645.domain.Airplane;
+import msnydera.swe645.domain.Airport;
+import msnydera.swe645.domain.Flight;
+import msnydera.swe645.domain.FlightBatchResult;
+import msnydera.swe645.domain.ScheduleImportResult;
+import msnydera.swe645.exception.ValidationException;
+import msnydera.swe645.service.ejb.HeadquartersEjbRemote;
+import msnydera.swe645.util.MultipartLineReader;
+import msnydera.swe645.util.ServiceLocator;
+import msnydera.swe645.util.StringUtils;
+
+/**
+ * Servlet providing functionality to import a flight schedule from an
+ * uploaded CSV file. Each line holds one flight:
+ *
+ * <pre>
+ * DEPARTURE_DATE,DEPARTURE_AIRPORT_CODE,DESTINATION_AIRPORT_CODE,COST,AIRPLANE_ID
+ * </pre>
+ *
+ * The upload is read one line at a time and sent to the headquarters EJB in
+ * chunks of BATCH_SIZE flights, which validates them, looks up the seats of
+ * each airplane and inserts the chunk in one transaction, so memory use does
+ * not grow with the size of the file. The header line, blank lines and lines
+ * starting with # are skipped. If the import stops early, the page shows the
+ * last line that was committed so the same file can be uploaded again,
+ * resuming after that line.
+ */
+public class ImportSchedule extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	// Flights sent to the EJB per call
+	private static final int BATCH_SIZE = 500;
+
+	private static final int COLUMN_COUNT = 5;
+	private static final String HEADER_START = "DEPARTURE_DATE";
+
+	/**
+	 * @see HttpServlet#HttpServlet()
+	 */
+	public ImportSchedule() {
+		super();
+	}
+
+	/**
+	 * @see HttpServlet#doGet(HttpServletRequest request, HttpServletResponse
+	 *      response) Shows the upload form.
+	 */
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		request.getRequestDispatcher("jsp/importSchedule.jsp").forward(request, response);
+	}
+
+	/**
+	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
+	 *      response) Imports the uploaded schedule file and forwards the user
+	 *      back to the upload page with the outcome of the import.
+	 */
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		RequestDispatcher dispatch = request.getRequestDispatcher("jsp/importSchedule.jsp");
+
+		try {
+			ScheduleImportResult result = importSchedule(request);
+
+			request.setAttribute("importResult", result);
+
+		} catch (ValidationException e) {
+
+			String errorMessage = StringUtils.getFormattedMessages(e.getErrorMessages());
+			request.setAttribute("error", errorMessage);
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			dispatch = request.getRequestDispatcher("jsp/headquartersMenu.jsp");
+
+			request.setAttribute("error", "An unkown error occured.");
+		}
+
+		dispatch.forward(request, response);
+	}
+
+	/**
+	 * Reads the form fields of the upload and imports the schedule file. The
+	 * resumeAfterLine field has to come before the file in the form.
+	 *
+	 * @param request
+	 *            Request containing the upload.
+	 * @return Outcome of the import.
+	 * @throws ValidationException
+	 *             Thrown if the upload is missing or invalid, or if there is a
+	 *             problem with communicating with the remote EJB service.
+	 * @throws IOException
+	 *             Thrown if the request can't be read.
+	 */
+	private ScheduleImportResult importSchedule(HttpServletRequest request) throws ValidationException, IOException {
+		if (!MultipartLineReader.isMultipart(request.getContentType())) {
+			ValidationException validationException = new ValidationException();
+			validationException.addErrorMessage("Please choose a schedule file to import.");
+			throw validationException;
+		}
+
+		MultipartLineReader reader = new MultipartLineReader(request.getInputStream(), request.getContentType());
+		int resumeAfterLine = 0;
+		while (reader.nextPart()) {
+			if ("resumeAfterLine".equals(reader.getPartName())) {
+				resumeAfterLine = getResumeAfterLine(reader.readLine());
+			} else if ("scheduleFile".equals(reader.getPartName()) && reader.getFileName() != null
+					&& reader.getFileName().length() > 0) {
+				return importLines(reader, resumeAfterLine, getHeadquartersEjb());
+			}
+		}
+
+		ValidationException validationException = new ValidationException();
+		validationException.addErrorMessage("Please choose a schedule file to import.");
+		throw validationException;
+	}
+
+	/**
+	 * Imports every line of the current part of the upload, BATCH_SIZE flights
+	 * at a time.
+	 *
+	 * @param reader
+	 *            Upload, positioned at the schedule file.
+	 * @param resumeAfterLine
+	 *            Lines up to and including this one are skipped.
+	 * @param ejbRef
+	 *            Headquarters EJB that creates the flights.
+	 * @return Outcome of the import.
+	 */
+	private ScheduleImportResult importLines(MultipartLineReader reader, int resumeAfterLine,
+			HeadquartersEjbRemote ejbRef) {
+		ScheduleImportResult result = new ScheduleImportResult();
+		result.setLastCommittedLine(resumeAfterLine);
+		long start = System.currentTimeMillis();
+
+		SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+		sdf.setLenient(false);
+
+		List<Flight> flights = new ArrayList<Flight>(BATCH_SIZE);
+		int[] lineNumbers = new int[BATCH_SIZE];
+		int lineNumber = 0;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (lineNumber > resumeAfterLine && !isSkipped(line)) {
+					result.setLinesRead(result.getLinesRead() + 1);
+					try {
+						lineNumbers[flights.size()] = lineNumber;
+						flights.add(getFlight(line, sdf));
+					} catch (ValidationException e) {
+						reject(result, lineNumber, e.getErrorMessages());
+					}
+
+					if (flights.size() == BATCH_SIZE) {
+						createFlights(ejbRef, flights, lineNumbers, result);
+						flights.clear();
+					}
+				}
+
+				if (flights.isEmpty()) {
+					result.setLastCommittedLine(lineNumber);
+				}
+			}
+
+			if (!flights.isEmpty()) {
+				createFlights(ejbRef, flights, lineNumbers, result);
+				result.setLastCommittedLine(lineNumber);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			result.setFailureMessage("The upload was interrupted after line " + lineNumber + ".");
+		} catch (Exception e) {
+			e.printStackTrace();
+			result.setFailureMessage("Server error occured while creating the flights after line "
+					+ result.getLastCommittedLine() + ".");
+		}
+
+		result.setElapsedMillis(System.currentTimeMillis() - start);
+		return result;
+	}
+
+	/**
+	 * Sends one chunk of flights to the EJB and adds the outcome to the
+	 * result.
+	 *
+	 * @param ejbRef
+	 *            Headquarters EJB that creates the flights.
+	 * @param flights
+	 *            Flights to create.
+	 * @param lineNumbers
+	 *            Line of the file each flight came from.
+	 * @param result
+	 *            Outcome of the import so far.
+	 * @throws Exception
+	 *             Thrown if the EJB could not create the chunk. None of its
+	 *             flights are created in that case.
+	 */
+	private void createFlights(HeadquartersEjbRemote ejbRef, List<Flight> flights, int[] lineNumbers,
+			ScheduleImportResult result) throws Exception {
+		FlightBatchResult batchResult = ejbRef.createFlights(flights);
+
+		int createdCount = batchResult.getCreatedCount();
+		result.setCreatedCount(result.getCreatedCount() + createdCount);
+		result.setRejectedCount(result.getRejectedCount() + flights.size() - createdCount);
+
+		for (String errorMessage : batchResult.getErrorMessages()) {
+			result.addErrorMessage(toLineMessage(errorMessage, lineNumbers));
+		}
+	}
+
+	/**
+	 * The EJB starts each error message with the flight's position in the
+	 * chunk ("Flight 3: ..."); this replaces it with the line of the file.
+	 */
+	private String toLineMessage(String errorMessage, int[] lineNumbers) {
+		int colon = errorMessage.indexOf(':');
+		if (errorMessage.startsWith("Flight ") && colon > 0) {
+			try {
+				int position = Integer.parseInt(errorMessage.substring("Flight ".length(), colon));
+				return "Line " + lineNumbers[position - 1] + errorMessage.substring(colon);
+			} catch (NumberFormatException e) {
+				// Intentially do nothing, the message is kept as it is
+			} catch (ArrayIndexOutOfBoundsException e) {
+				// Intentially do nothing, the message is kept as it is
+			}
+		}
+		return errorMessage;
+	}
+
+	private void reject(ScheduleImportResult result, int lineNumber, List<String> errorMessages) {
+		result.setRejectedCount(result.getRejectedCount() + 1);
+		for (String errorMessage : errorMessages) {
+			result.addErrorMessage("Line " + lineNumber + ": " + errorMessage);
+		}
+	}
+
+	private boolean isSkipped(String line) {
+		String trimmed = line.trim();
+		return trimmed.length() == 0 || trimmed.startsWith("#") || trimmed.toUpperCase().startsWith(HEADER_START);
+	}
+
+	/**
+	 * Binds one line of the schedule file to a Flight object, and returns that
+	 * object.
+	 *
+	 * @param line
+	 *            Line of the schedule file.
+	 * @param sdf
+	 *            Format of the departure date.
+	 * @return Flight object bound with the information on the line.
+	 * @throws ValidationException
+	 *             Thrown if the line can't be parsed.
+	 */
+	private Flight getFlight(String line, SimpleDateFormat sdf) throws ValidationException {
+		ValidationException validationException = new ValidationException();
+
+		String[] columns = line.split(",", -1);
+		if (columns.length != COLUMN_COUNT) {
+			validationException.addErrorMessage("Expected " + COLUMN_COUNT + " columns but found " + columns.length);
+			throw validationException;
+		}
+
+		Flight flight = new Flight();
+		try {
+			flight.setDepartureDate(sdf.parse(columns[0].trim()));
+		} catch (ParseException e) {
+			validationException.addErrorMessage("Column 1 is not a date in the format MM/dd/yyyy");
+		}
+
+		Airport airport = new Airport();
+		airport.setAirportCode(columns[1].trim());
+		flight.setDepartureAirport(airport);
+
+		airport = new Airport();
+		airport.setAirportCode(columns[2].trim());
+		flight.setDestinationAirport(airport);
+
+		try {
+			flight.setCost(Double.parseDouble(columns[3].trim()));
+		} catch (NumberFormatException e) {
+			validationException.addErrorMessage("Column 4 is not a valid cost");
+		}
+
+		try {
+			Airplane airplane = new Airplane();
+			airplane.setId(Integer.parseInt(columns[4].trim()));
+			flight.setAirplane(airplane);
+		} catch (NumberFormatException e) {
+			validationException.addErrorMessage("Column 5 is not a valid airplane Id");
+		}
+
+		if (validationException.hasErrors()) {
+			throw validationException;
+		}
+		return flight;
+	}
+
+	private int getResumeAfterLine(String value) throws ValidationException {
+		if (value == null || value.trim().length() == 0) {
+			return 0;
+		}
+
+		try {
+			int resumeAfterLine = Integer.parseInt(value.trim());
+			if (resumeAfterLine >= 0) {
+				return resumeAfterLine;
+			}
+		} catch (NumberFormatException e) {
+			// Intentially do nothing, handled below
+		}
+
+		ValidationException validationException = new ValidationException();
+		validationException.addErrorMessage("Please enter a line number of 0 or more to resume after.");
+		throw validationException;
+	}
+
+	/**
+	 * @return The remote headquarters EJB.
+	 * @throws ValidationException
+	 *             Thrown if there is a problem with the EJB lookup.
+	 */
+	private HeadquartersEjbRemote getHeadquartersEjb() throws ValidationException {
+		try {
+			return ServiceLocator.getInstance().getHeadquartersEjb();
+		} catch (NamingException e) {
+			e.printStackTrace();
+			ValidationException ve = new ValidationException();
+			ve.addErrorMessage("Server error occured during EJB lookup.");
+			throw ve;
+		}
+	}
+}
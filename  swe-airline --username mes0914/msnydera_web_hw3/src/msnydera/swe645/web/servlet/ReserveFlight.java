@@ -4,7 +4,7 @@
 package msnydera.swe645.web.servlet;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collection;
 
 import javax.naming.NamingException;
 import javax.servlet.RequestDispatcher;
@@ -20,7 +20,8 @@ import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
 import msnydera.swe645.util.NumberUtils;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
+import msnydera.swe645.util.SearchResultStore;
 import msnydera.swe645.util.StringUtils;
 
 /**
@@ -58,14 +59,16 @@ public class ReserveFlight extends HttpServlet {
 
 		int flightId = Integer.parseInt(request.getParameter("flightId"));
 		String numSeats = request.getParameter("numSeats");
-		int customerId = Integer.parseInt(request.getParameter("customerId"));
+		String customerId = request.getParameter("customerId");
 
-		String errorMessage = validateReservation(flightId, numSeats, request);
+		String errorMessage = validateReservation(flightId, numSeats, customerId, request);
+		if (errorMessage == null) {
+			errorMessage = validateCustomer(Integer.parseInt(customerId.trim()));
+		}
 
 		if (errorMessage != null) {
 			request.setAttribute("error", errorMessage);
-			request.setAttribute("flights", request.getSession().getAttribute("savedFlights"));
-			request.setAttribute("customers", request.getSession().getAttribute("customers"));
+			request.setAttribute("flights", getSearchResults(request));
 			
 			request.setAttribute("ejbSearch", request.getSession().getAttribute("ejbSearch"));
 			request.setAttribute("webServiceSearch", request.getSession().getAttribute("webServiceSearch"));
@@ -73,10 +76,10 @@ public class ReserveFlight extends HttpServlet {
 		} else {
 			Reservation reservation;
 			try {
-				reservation = createReservation(flightId, customerId, Integer.parseInt(numSeats));
+				reservation = createReservation(flightId, Integer.parseInt(customerId.trim()), Integer.parseInt(numSeats));
 
-				request.getSession().setAttribute("savedFlights", null);
-				request.getSession().setAttribute("customers", null);
+				SearchResultStore.getInstance().remove((String) request.getSession().getAttribute(Constants.SEARCH_HANDLE));
+				request.getSession().setAttribute(Constants.SEARCH_HANDLE, null);
 				request.getSession().setAttribute("ejbSearch", null);
 				request.getSession().setAttribute("webServiceSearch", null);
 				
@@ -87,9 +90,8 @@ public class ReserveFlight extends HttpServlet {
 				errorMessage = StringUtils.getFormattedMessages(e.getErrorMessages());
 
 				request.setAttribute("error", errorMessage);
-				request.setAttribute("flights", request.getSession().getAttribute("savedFlights"));
-				request.setAttribute("customers", request.getSession().getAttribute("customers"));
-				
+				request.setAttribute("flights", getSearchResults(request));
+					
 				request.setAttribute("ejbSearch", request.getSession().getAttribute("ejbSearch"));
 				request.setAttribute("webServiceSearch", request.getSession().getAttribute("webServiceSearch"));
 			} catch (Exception e) {
@@ -127,8 +129,7 @@ public class ReserveFlight extends HttpServlet {
 	private Reservation createReservation(int flightId, int customerId, int numSeats)
 			throws ValidationException, Exception {
 		try {
-			 TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote)
-			 ResourceUtil.getInitialContext().lookup(Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 //			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getLoggedInContext(user).lookup(
 //					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
 			return ejbRef.createReservation(flightId, customerId, numSeats);
@@ -146,6 +147,30 @@ public class ReserveFlight extends HttpServlet {
 		}
 	}
 
+	/**
+	 * Looks up the customer the reservation is for, so a customer Id that
+	 * doesn't exist is reported on the search results page before the
+	 * reservation is attempted.
+	 * 
+	 * @param customerId
+	 *            Customer the reservation is for.
+	 * @return Any error messages, or null if the customer exists.
+	 */
+	private String validateCustomer(int customerId) {
+		try {
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
+			ejbRef.getCustomer(customerId);
+			return null;
+		} catch (NamingException e) {
+			e.printStackTrace();
+			return "Server error occured during EJB lookup.";
+		} catch (ValidationException e) {
+			return StringUtils.getFormattedMessages(e.getErrorMessages());
+		} catch (DataAccessException e) {
+			return "Server error occured while looking up the customer.";
+		}
+	}
+
 	/**
 	 * Returns an error message if there is a problem with the reservation
 	 * input. Returns null if the reservation information is valid/complete.<br>
@@ -153,55 +178,49 @@ public class ReserveFlight extends HttpServlet {
 	 * Errors include:<br>
 	 * - Number of seats is not a WHOLE number (ex: it is text)<br>
 	 * - If the number of seats < 1 <br>
-	 * - Flight doesn't have enough seats.
+	 * - Customer ID is not a WHOLE number.<br>
+	 * <br>
+	 * Whether the customer exists is checked by validateCustomer() once the
+	 * input is valid.<br>
+	 * <br>
+	 * Whether the flight has enough seats is checked by the service against
+	 * its current seats when the reservation is created, not against the
+	 * seats shown in the search results.
 	 * 
 	 * @param flightId
 	 *            Flight # to reserve
 	 * @param numSeats
 	 *            Number of seats to reserve
+	 * @param customerId
+	 *            Customer the reservation is for
 	 * @param request
 	 *            HttpServletRequest
 	 * @return Any error messages, or null if there are no errors.
 	 */
-	@SuppressWarnings("unchecked")
-	private String validateReservation(int flightId, String numSeats, HttpServletRequest request) {
+	private String validateReservation(int flightId, String numSeats, String customerId, HttpServletRequest request) {
 		String errorMessage = null;
 
-		if (!NumberUtils.isWholeNumber(numSeats)) {
+		if (customerId == null || !NumberUtils.isWholeNumber(customerId.trim())) {
+			errorMessage = "Please choose the customer the reservation is for.";
+		} else if (!NumberUtils.isWholeNumber(numSeats)) {
 			errorMessage = "'" + numSeats + "' is not a valid number.  Please enter a WHOLE number.";
 		} else if (!isValidSeatNumber(numSeats)) {
 			errorMessage = "The number of seats to reserve must be > 0.";
-		} else if (!flightHasEnoughSeats(flightId, Integer.parseInt(numSeats), (ArrayList<Flight>) request.getSession()
-				.getAttribute("savedFlights"))) {
-
-			errorMessage = "Flight #" + flightId + " does not have " + numSeats
-					+ " seats available.  Please choose another flight or less seats.";
 		}
 
 		return errorMessage;
 	}
 
 	/**
-	 * Returns true if the flightId given is an actual flight Id that was in the
-	 * search results AND if the number of seats to reserve is <= the number of
-	 * available seats on the airplane.
+	 * Returns the flights of the session's last search, to show them again.
 	 * 
-	 * @param flightId
-	 *            Id of the Flight to reserve
-	 * @param numSeats
-	 *            The number of seats to reserve
-	 * @param flights
-	 *            The flights from the search results
-	 * @return True if the flightId provided was in the search results AND has
-	 *         enough seats to reserve.
+	 * @param request
+	 *            HttpServletRequest
+	 * @return The flights, or null if the search has been dropped from the
+	 *         SearchResultStore.
 	 */
-	private boolean flightHasEnoughSeats(int flightId, int numSeats, ArrayList<Flight> flights) {
-		for (Flight flight : flights) {
-			if (flight.getId() == flightId && flight.getAvailableSeats() >= numSeats) {
-				return true;
-			}
-		}
-		return false;
+	private Collection<Flight> getSearchResults(HttpServletRequest request) {
+		return SearchResultStore.getInstance().get((String) request.getSession().getAttribute(Constants.SEARCH_HANDLE));
 	}
 
 	/**
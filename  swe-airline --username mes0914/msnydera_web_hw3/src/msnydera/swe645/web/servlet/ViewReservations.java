@@ -4,7 +4,9 @@
 package msnydera.swe645.web.servlet;
 
 import java.io.IOException;
-import java.util.Collection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import javax.naming.NamingException;
 import javax.servlet.RequestDispatcher;
@@ -13,21 +15,29 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import msnydera.swe645.constant.Constants;
-import msnydera.swe645.domain.Reservation;
+import msnydera.swe645.domain.ReservationFilters;
+import msnydera.swe645.domain.ReservationPage;
 import msnydera.swe645.exception.DataAccessException;
 import msnydera.swe645.exception.ValidationException;
 import msnydera.swe645.service.ejb.TravelAgentEjbRemote;
-import msnydera.swe645.util.ResourceUtil;
+import msnydera.swe645.util.ServiceLocator;
 import msnydera.swe645.util.StringUtils;
 
 /**
- * Servlet used to prepare the request object for the page to view all
- * reservations.
+ * Servlet used to prepare the request object for the page to view
+ * reservations. The reservations are listed one page at a time, by customer,
+ * flight, status or range of departure dates, chosen with the 'listBy'
+ * parameter. Without it, the reservations on flights departing today or
+ * later are listed.
  */
 public class ViewReservations extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 
+	// Reservations shown on one page
+	private static final int PAGE_SIZE = 50;
+
+	private static final String DATE_FORMAT = "MM/dd/yyyy";
+
 	/**
 	 * @see HttpServlet#HttpServlet()
 	 */
@@ -45,21 +55,25 @@ public class ViewReservations extends HttpServlet {
 
 	/**
 	 * @see HttpServlet#doPost(HttpServletRequest request, HttpServletResponse
-	 *      response) Adds a collection of all the reservations in the system to
-	 *      the Request object.
+	 *      response) Adds one page of the reservations that match the filter
+	 *      in the request to the Request object, along with the token of the
+	 *      next page.
 	 */
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
 			IOException {
 		RequestDispatcher dispatch = request.getRequestDispatcher("jsp/viewReservations.jsp");
 
-		Collection<Reservation> reservations;
 		try {
-			reservations = getExistingReservations();
-
-			request.setAttribute("reservations", reservations);
+			ReservationFilters reservationFilters = getReservationFilters(request);
+			ReservationPage page = getReservationPage(reservationFilters, request.getParameter("pageToken"));
 
+			request.setAttribute("reservations", page.getReservations());
+			request.setAttribute("nextPageToken", page.getNextPageToken());
+		} catch (ParseException e) {
+			request.setAttribute("error", "Please provide dates in the format " + DATE_FORMAT + ".");
+		} catch (NumberFormatException e) {
+			request.setAttribute("error", "Please provide a number for the customer or flight.");
 		} catch (ValidationException e) {
-			dispatch = request.getRequestDispatcher("jsp/home.jsp");
 			String errorMessage = StringUtils.getFormattedMessages(e.getErrorMessages());
 			request.setAttribute("error", errorMessage);
 		} catch (Exception e) {
@@ -72,26 +86,90 @@ public class ViewReservations extends HttpServlet {
 	}
 
 	/**
-	 * Returns a collection of all the reservations that are in the system.
-	 * 
-	 * @return Collection of all the reservations that are in the system.
+	 * Builds the filter from the 'listBy' parameter and the parameter it
+	 * names: 'customerId', 'flightId', 'status', or 'departureFrom' and
+	 * 'departureTo'. The chosen filter and the departure dates are put back in
+	 * the request so the page can show them.
+	 *
+	 * @param request
+	 *            Request containing the filter parameters.
+	 * @return Filters to list the reservations by.
+	 * @throws ParseException
+	 *             Thrown if a departure date is in an invalid format.
+	 * @throws NumberFormatException
+	 *             Thrown if the customer or flight is not a number.
+	 */
+	private ReservationFilters getReservationFilters(HttpServletRequest request) throws ParseException,
+			NumberFormatException {
+		SimpleDateFormat sdf = new SimpleDateFormat(DATE_FORMAT);
+		ReservationFilters reservationFilters = new ReservationFilters();
+
+		String listBy = request.getParameter("listBy");
+		String departureFrom = request.getParameter("departureFrom");
+		String departureTo = request.getParameter("departureTo");
+		if (listBy == null || listBy.trim().equals("")) {
+			listBy = "dates";
+			departureFrom = sdf.format(new Date());
+		}
+
+		if (listBy.equals("customer")) {
+			reservationFilters.setCustomerId(getId(request.getParameter("customerId")));
+		} else if (listBy.equals("flight")) {
+			reservationFilters.setFlightId(getId(request.getParameter("flightId")));
+		} else if (listBy.equals("status")) {
+			reservationFilters.setStatus(request.getParameter("status"));
+		} else {
+			listBy = "dates";
+			if (departureFrom != null && !departureFrom.trim().equals("")) {
+				reservationFilters.setDepartureDateFrom(sdf.parse(departureFrom.trim()));
+			}
+			if (departureTo != null && !departureTo.trim().equals("")) {
+				reservationFilters.setDepartureDateTo(sdf.parse(departureTo.trim()));
+			}
+		}
+
+		request.setAttribute("listBy", listBy);
+		request.setAttribute("departureFrom", departureFrom);
+		request.setAttribute("departureTo", departureTo);
+
+		return reservationFilters;
+	}
+
+	/**
+	 * @param value
+	 *            Request parameter holding a customer or flight number.
+	 * @return The number.
+	 * @throws NumberFormatException
+	 *             Thrown if the parameter is missing or not a number.
+	 */
+	private Integer getId(String value) throws NumberFormatException {
+		if (value == null) {
+			throw new NumberFormatException("No number provided");
+		}
+		return Integer.valueOf(value.trim());
+	}
+
+	/**
+	 * Returns one page of the reservations that match the provided filters.
+	 *
+	 * @param reservationFilters
+	 *            Filters to list the reservations by.
+	 * @param pageToken
+	 *            Token of the page to return, null for the first page.
+	 * @return Page of reservation summaries.
 	 * @throws ValidationException
 	 *             Thrown if there is a problem in communicating with the remote
-	 *             EJB.
-	 * @throws ValidationException
-	 *             Thrown to help with messages
-	 * @throws Exception
-	 *             Thrown if an error occurs with the connection to the DB with
-	 *             the user.
+	 *             EJB, or if the filters or page token are not valid.
 	 */
-	private Collection<Reservation> getExistingReservations() throws ValidationException, Exception {
+	private ReservationPage getReservationPage(ReservationFilters reservationFilters, String pageToken)
+			throws ValidationException {
 		try {
-			 TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote)
-			 ResourceUtil.getInitialContext().lookup(Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
-//			TravelAgentEjbRemote ejbRef = (TravelAgentEjbRemote) ResourceUtil.getLoggedInContext(user).lookup(
-//					Constants.EAR_FILE_NAME + "/TravelAgentEjb/remote");
+			TravelAgentEjbRemote ejbRef = ServiceLocator.getInstance().getTravelAgentEjb();
 
-			return ejbRef.getAllReservations();
+			if (pageToken != null && pageToken.trim().equals("")) {
+				pageToken = null;
+			}
+			return ejbRef.getReservationPage(reservationFilters, PAGE_SIZE, pageToken);
 		} catch (NamingException e) {
 			e.printStackTrace();
 			ValidationException ve = new ValidationException();
@@ -99,7 +177,7 @@ public class ViewReservations extends HttpServlet {
 			throw ve;
 		} catch (DataAccessException e) {
 			ValidationException ve = new ValidationException();
-			ve.addErrorMessage("Server error occured while retrieving all the reservations.");
+			ve.addErrorMessage("Server error occured while retrieving the reservations.");
 			throw ve;
 		}
 	}
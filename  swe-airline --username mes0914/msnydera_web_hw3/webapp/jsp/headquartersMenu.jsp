@@ -37,6 +37,7 @@
 	<a href="${basePath}/prepareAddAirplane">Add Airplane</a><br>
 	<a href="${basePath}/prepareAddAirport">Add Airport</a><br>
 	<a href="${basePath}/prepareCreateFlight">Create Flight</a><br>
+	<a href="${basePath}/importSchedule">Import Flight Schedule</a><br>
 	
 	<c:choose>
 		<c:when test="${not empty requestScope.error}">
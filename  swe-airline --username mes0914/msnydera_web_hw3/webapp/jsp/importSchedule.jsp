@@ -0,0 +1,79 @@
+<%@ page language="java" contentType="text/html; charset=ISO-8859-1"
+    pageEncoding="ISO-8859-1"%>
+<!DOCTYPE html PUBLIC "-//W3C//DTD HTML 4.01 Transitional//EN" "http://www.w3.org/TR/html4/loose.dtd">
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/functions" prefix="fn" %>
+
+<html>
+<head>
+	<meta http-equiv="Content-Type" content="text/html; charset=ISO-8859-1">
+	<title>Import Flight Schedule</title>
+</head>
+<body>
+	<c:set var="basePath" value="${pageContext.request.contextPath}" />
+ 	
+	<h1>Import Flight Schedule</h1>
+	<c:if test="${not empty requestScope.error}">
+ 		<span style="color: red;">
+ 			<ul>
+ 				<li><c:out value="${requestScope.error}" escapeXml="false" /></li>
+ 			</ul>
+ 		</span>
+ 	</c:if>
+ 	
+ 	<c:if test="${not empty requestScope.importResult}">
+ 		<c:set var="importResult" value="${requestScope.importResult}" />
+ 		<c:choose>
+ 			<c:when test="${importResult.completed}">
+ 				<span style="color: green;">
+ 					<ul>
+ 						<li>The schedule was imported.</li>
+ 					</ul>
+ 				</span>
+ 			</c:when>
+ 			<c:otherwise>
+ 				<span style="color: red;">
+ 					<ul>
+ 						<li><c:out value="${importResult.failureMessage}" /></li>
+ 						<li>Upload the file again, resuming after line ${importResult.lastCommittedLine}, to finish the import.</li>
+ 					</ul>
+ 				</span>
+ 			</c:otherwise>
+ 		</c:choose>
+ 		
+ 		Lines read: ${importResult.linesRead}<br />
+ 		Flights created: ${importResult.createdCount}<br />
+ 		Lines rejected: ${importResult.rejectedCount}<br />
+ 		Last committed line: ${importResult.lastCommittedLine}<br />
+ 		Rows per second: ${importResult.rowsPerSecond} (${importResult.elapsedMillis} ms)<br />
+ 		
+ 		<c:if test="${not empty importResult.errorMessages}">
+ 			<h2>Rejected Lines</h2>
+ 			<ul>
+ 				<c:forEach var="errorMessage" items="${importResult.errorMessages}" >
+ 					<li><c:out value="${errorMessage}" /></li>
+ 				</c:forEach>
+ 			</ul>
+ 			<c:if test="${importResult.rejectedCount > fn:length(importResult.errorMessages)}">
+ 				(only the first ${fn:length(importResult.errorMessages)} problems are shown)<br />
+ 			</c:if>
+ 		</c:if>
+ 		<br />
+ 	</c:if>
+ 	
+ 	<b>Please choose a CSV file with one flight per line:</b><br />
+ 	DEPARTURE_DATE,DEPARTURE_AIRPORT_CODE,DESTINATION_AIRPORT_CODE,COST,AIRPLANE_ID<br />
+ 	(dates are MM/dd/yyyy; the header line, blank lines and lines starting with # are skipped)
+ 	
+ 	<%-- resumeAfterLine has to come before the file, the upload is read in order --%>
+ 	<form action="${basePath}/importSchedule" method="post" enctype="multipart/form-data">
+	 	Resume After Line: <input type="text" name="resumeAfterLine" value="0"> <br /> 
+	 	Schedule File: <input type="file" name="scheduleFile"> <br /> 
+	 	<input type="submit" value="Import Schedule" />
+ 	</form>
+ 	 
+ 	<br />
+ 	<a href="${basePath}/jsp/headquartersMenu.jsp">Headquarters Menu</a><br>
+	<a href="${basePath}/jsp/home.jsp">Main Menu</a>
+</body>
+</html>
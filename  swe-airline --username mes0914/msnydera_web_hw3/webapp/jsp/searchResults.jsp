@@ -83,6 +83,17 @@
  		<display:column property="availableSeats" title="Avail Seats" />
  		<display:column property="airplane.id" title="Airplane Id" />
  	</display:table>
+
+	<c:if test="${not empty requestScope.nextPageToken}">
+		<c:url var="nextPage" value="/flightSearch">
+			<c:param name="searchType" value="${param.searchType}" />
+			<c:param name="departureAirport" value="${param.departureAirport}" />
+			<c:param name="destinationAirport" value="${param.destinationAirport}" />
+			<c:param name="flightDate" value="${param.flightDate}" />
+			<c:param name="pageToken" value="${requestScope.nextPageToken}" />
+		</c:url>
+		<a href="${nextPage}">Next Page</a>
+	</c:if>
  	
 	<br />
 	<b>Please make your choices for a reservation:</b>
@@ -95,13 +106,11 @@
 			</c:forEach>
  		</select>
  		<br />
- 		What Customer ID is the reservation for? <span style="font-style: italic;">(see customer details in table below)</span>
- 		<select name="customerId">
- 			<c:forEach var="customer" items="${requestScope.customers}">
- 				<option>${customer.id }</option>
-			</c:forEach>
- 		</select>
- 		<br />
+ 		Who is the reservation for? <span style="font-style: italic;">(type the start of the customer's name or phone number)</span>
+ 		<input type="text" id="customerLookup" autocomplete="off" onkeyup="lookupCustomers(this.value)" />
+ 		<input type="hidden" id="customerId" name="customerId" />
+ 		<span id="chosenCustomer"></span>
+ 		<ul id="customerMatches" style="margin-top: 0px;"></ul>
  		<label>Number of Seats</label>
  		<input type="text" name="numSeats" />
  		<br />
@@ -110,14 +119,52 @@
  	<br />
  	<a href="${basePath}/prepareSearch">Run New Search</a><br>
 	<a href="${basePath}/jsp/home.jsp">Main Menu</a>
-	<br />
-	<br />
-	
-	<display:table name="requestScope.customers" cellspacing="10px" class="searchResults">
- 		<display:column property="id" title="Customer ID" />
- 		<display:column property="name" title="Name" />
- 		<display:column property="address" title="Address" />
- 		<display:column property="phone" title="Phone" />
- 	</display:table>
+
+	<script type="text/javascript">
+		var lookupRequest = null;
+
+		// Lists the customers whose name or phone number starts with prefix
+		function lookupCustomers(prefix) {
+			if (lookupRequest != null) {
+				lookupRequest.abort();
+			}
+			var matches = document.getElementById("customerMatches");
+			if (prefix.replace(/\s/g, "") == "") {
+				matches.innerHTML = "";
+				return;
+			}
+
+			lookupRequest = new XMLHttpRequest();
+			lookupRequest.onreadystatechange = function() {
+				if (this.readyState != 4 || this.status != 200) {
+					return;
+				}
+				var customers = JSON.parse(this.responseText);
+				matches.innerHTML = "";
+				for (var i = 0; i < customers.length; i++) {
+					var item = document.createElement("li");
+					var link = document.createElement("a");
+					link.href = "#";
+					link.appendChild(document.createTextNode(customers[i].id + ": " + customers[i].name
+							+ (customers[i].phone ? " (" + customers[i].phone + ")" : "")));
+					link.onclick = chooseCustomer(customers[i]);
+					item.appendChild(link);
+					matches.appendChild(item);
+				}
+			};
+			lookupRequest.open("GET", "${basePath}/customerLookup?q=" + encodeURIComponent(prefix), true);
+			lookupRequest.send(null);
+		}
+
+		function chooseCustomer(customer) {
+			return function() {
+				document.getElementById("customerId").value = customer.id;
+				document.getElementById("customerLookup").value = customer.name;
+				document.getElementById("chosenCustomer").innerHTML = "Customer ID " + customer.id;
+				document.getElementById("customerMatches").innerHTML = "";
+				return false;
+			};
+		}
+	</script>
 </body>
 </html>
\ No newline at end of file
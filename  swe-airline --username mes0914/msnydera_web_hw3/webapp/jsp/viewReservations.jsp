@@ -61,17 +61,56 @@
  	
  	</c:if>
 
+	<form action="${basePath}/viewReservations">
+		List by
+		<select name="listBy">
+			<option value="dates" <c:if test="${requestScope.listBy == 'dates'}">selected="selected"</c:if>>Departure dates</option>
+			<option value="customer" <c:if test="${requestScope.listBy == 'customer'}">selected="selected"</c:if>>Customer #</option>
+			<option value="flight" <c:if test="${requestScope.listBy == 'flight'}">selected="selected"</c:if>>Flight #</option>
+			<option value="status" <c:if test="${requestScope.listBy == 'status'}">selected="selected"</c:if>>Status</option>
+		</select>
+		<br />
+		Departure dates (MM/dd/yyyy):
+		<input type="text" name="departureFrom" value="<c:out value="${requestScope.departureFrom}" />" size="10" />
+		to
+		<input type="text" name="departureTo" value="<c:out value="${requestScope.departureTo}" />" size="10" />
+		<br />
+		Customer #: <input type="text" name="customerId" value="<c:out value="${param.customerId}" />" size="6" />
+		Flight #: <input type="text" name="flightId" value="<c:out value="${param.flightId}" />" size="6" />
+		Status:
+		<select name="status">
+			<option <c:if test="${param.status == 'RESERVED'}">selected="selected"</c:if>>RESERVED</option>
+			<option <c:if test="${param.status == 'CANCELED'}">selected="selected"</c:if>>CANCELED</option>
+		</select>
+		<br />
+		<input type="submit" value="List Reservations" />
+	</form>
+	<br />
+
 	<display:table name="requestScope.reservations" cellspacing="10px" class="searchResults">
  		<display:column property="id" title="Reservation #" />
- 		<display:column property="customer.name" title="Cust. Name" />
+ 		<display:column property="customerName" title="Cust. Name" />
  		<display:column property="status" title="Status" />
  		<display:column property="numSeats" title="# Seats" />
- 		<display:column property="flight.id" title="Flight #" />
- 		<display:column property="flight.departureAirport.airportCode" title="Departure Code" />
- 		<display:column property="flight.destinationAirport.airportCode" title="Destination Code" />
- 		<display:column property="flight.departureDate" format="{0,date,MM-dd-yyyy}" title="Flight Date" />
+ 		<display:column property="flightId" title="Flight #" />
+ 		<display:column property="departureAirportCode" title="Departure Code" />
+ 		<display:column property="destinationAirportCode" title="Destination Code" />
+ 		<display:column property="departureDate" format="{0,date,MM-dd-yyyy}" title="Flight Date" />
  		<display:column property="totalCost" format="$ {0,number,000.00}" title="Cost" />
  	</display:table>
+
+	<c:if test="${not empty requestScope.nextPageToken}">
+		<c:url var="nextPage" value="/viewReservations">
+			<c:param name="listBy" value="${requestScope.listBy}" />
+			<c:param name="departureFrom" value="${requestScope.departureFrom}" />
+			<c:param name="departureTo" value="${requestScope.departureTo}" />
+			<c:param name="customerId" value="${param.customerId}" />
+			<c:param name="flightId" value="${param.flightId}" />
+			<c:param name="status" value="${param.status}" />
+			<c:param name="pageToken" value="${requestScope.nextPageToken}" />
+		</c:url>
+		<a href="${nextPage}">Next Page</a>
+	</c:if>
  	
  	<br />
  	<b>Please choose the reservation to view details for:</b>